@@ -1,4 +1,4 @@
-/* Copyright 2020-2023 Norconex Inc.
+/* Copyright 2020-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,11 +24,22 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.commons.lang3.mutable.MutableObject;
 
 import com.norconex.committer.core.CommitterContext;
@@ -93,6 +104,26 @@ import lombok.extern.slf4j.Slf4j;
  * smaller batches created.
  * </p>
  *
+ * <h3>Background Commits</h3>
+ * <p>
+ * By default, a full batch is committed synchronously, by the thread
+ * queueing the last request of that batch. Setting "maxInFlightBatches"
+ * to a value greater than zero instead has full batches committed by
+ * that many background threads, so that threads queueing requests do not
+ * wait for the target repository to respond. Batches sharing references are
+ * always committed in the order they were queued, so a deletion
+ * queued after an addition of the same document (or vice versa) is
+ * never sent first. When more than "maxPendingBatches" full batches are
+ * waiting to be committed, threads queueing requests are blocked until
+ * a batch is committed.
+ * </p>
+ * <p>
+ * When a background commit fails (and errors are not ignored), no further
+ * batches are committed and the error is thrown on the next
+ * queueing attempt or when closing the queue. Uncommitted batches remain
+ * on disk.
+ * </p>
+ *
  * {@nx.xml.usage
  * <queue class="com.norconex.committer.core.batch.queue.impl.FSQueue">
  *   <batchSize>
@@ -107,6 +138,15 @@ import lombok.extern.slf4j.Slf4j;
  *     (Optionally force to commit any leftover documents from a previous
  *      execution. E.g., prematurely ended.  Default is "false").
  *   </commitLeftoversOnInit>
+ *   <maxInFlightBatches>
+ *     (Optional maximum number of batches committed at the same time
+ *      by background threads. Zero commits batches synchronously.
+ *      Default is 0.)
+ *   </maxInFlightBatches>
+ *   <maxPendingBatches>
+ *     (Optional maximum number of full batches waiting to be committed
+ *      before blocking threads queueing requests. Default is 10.)
+ *   </maxPendingBatches>
  *   <onCommitFailure>
  *     <splitBatch>[OFF|HALF|ONE]</splitBatch>
  *     <maxRetries>
@@ -143,18 +183,33 @@ public class FSQueue implements CommitterQueue, Configurable<FSQueueConfig> {
     private Path errorDir;
     @EqualsAndHashCode.Exclude
     @ToString.Exclude
-    private AtomicLong batchCount = new AtomicLong();
-    @EqualsAndHashCode.Exclude
-    @ToString.Exclude
     private BatchConsumer batchConsumer;
     @EqualsAndHashCode.Exclude
     @ToString.Exclude
     private CachedStreamFactory streamFactory;
 
-    // directory currently being written into (up to batch size).
+    // batch currently being written into (up to batch size).
     @EqualsAndHashCode.Exclude
     @ToString.Exclude
-    private Path activeDir;
+    private ActiveBatch activeBatch;
+
+    //--- Background commits ---
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private ExecutorService commitExecutor;
+    // Full batches handed to the commit executor and not yet committed,
+    // in the order they were handed. Guarded by itself.
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final Deque<ActiveBatch> pendingBatches = new ArrayDeque<>();
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private Semaphore pendingPermits;
+    // First background commit failure, if any.
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final AtomicReference<CommitterQueueException> commitFailure =
+            new AtomicReference<>();
 
     private Retrier retrier = new Retrier(0);
 
@@ -217,7 +272,21 @@ public class FSQueue implements CommitterQueue, Configurable<FSQueueConfig> {
         // to honor maxPerFolder?
 
         // Start for real
-        activeDir = createActiveDir();
+        activeBatch = new ActiveBatch(createActiveDir());
+        commitFailure.set(null);
+        var maxInFlight = configuration.getMaxInFlightBatches();
+        if (maxInFlight > 0) {
+            commitExecutor = Executors.newFixedThreadPool(
+                    maxInFlight,
+                    new BasicThreadFactory.Builder()
+                        .namingPattern("committer-queue-%d")
+                        .daemon(true)
+                        .build());
+            pendingPermits = new Semaphore(
+                    Math.max(1, configuration.getMaxPendingBatches()));
+            LOG.info("Committing up to {} batch(es) in the background.",
+                    maxInFlight);
+        }
 
         LOG.info("File system Committer queue initialized.");
     }
@@ -230,20 +299,113 @@ public class FSQueue implements CommitterQueue, Configurable<FSQueueConfig> {
     public void queue(CommitterRequest request)
             throws CommitterQueueException {
 
-        var fullBatchDir = new MutableObject<Path>();
+        throwIfCommitFailed();
 
-        var file = createQueueFile(request, fullBatchDir);
+        var batch = new MutableObject<ActiveBatch>();
+        var file = createQueueFile(request, batch);
 
+        CommitterQueueException writeFailure = null;
         try {
             FSQueueUtil.toZipFile(request, file);
         } catch (IOException e) {
-            throw new CommitterQueueException("Could not queue request for "
-                    + request.getReference() + " at "
-                    + file.toAbsolutePath(), e);
+            writeFailure = new CommitterQueueException(
+                    "Could not queue request for " + request.getReference()
+                    + " at " + file.toAbsolutePath(), e);
+            throw writeFailure;
+        } finally {
+            // a full batch is only consumed once all its files are written
+            if (fileWritten(batch.getValue())) {
+                consumeFullBatch(batch.getValue(), writeFailure);
+            }
+        }
+    }
+
+    // If writing the last batch file failed, consumption failures are
+    // added to the write failure instead of hiding it.
+    private void consumeFullBatch(
+            ActiveBatch batch, CommitterQueueException writeFailure)
+                    throws CommitterQueueException {
+        try {
+            consumeFullBatch(batch);
+        } catch (CommitterQueueException | RuntimeException e) {
+            if (writeFailure == null) {
+                throw e;
+            }
+            writeFailure.addSuppressed(e);
+        }
+    }
+
+    private void consumeFullBatch(ActiveBatch batch)
+            throws CommitterQueueException {
+        if (commitExecutor == null) {
+            consumeBatchDirectory(batch.dir);
+            return;
+        }
+
+        // Backpressure: wait if too many batches are waiting to be committed
+        try {
+            pendingPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CommitterQueueException(
+                    "Interrupted while waiting to commit batch located at "
+                            + batch.dir.toAbsolutePath(), e);
+        }
+
+        synchronized (pendingBatches) {
+            // Wait for batches queued before and sharing references
+            // to be committed first (only possible with concurrent commits).
+            var dependencies = pendingBatches.stream()
+                    .filter(b -> !Collections.disjoint(b.refs, batch.refs))
+                    .map(b -> b.committed)
+                    .toArray(CompletableFuture[]::new);
+            // added first, in case it completes right away
+            pendingBatches.add(batch);
+            batch.committed = CompletableFuture.allOf(dependencies)
+                    // dependency failures are already recorded
+                    .exceptionally(e -> null)
+                    .thenRunAsync(() -> commitInBackground(batch),
+                            commitExecutor)
+                    // whether committed, skipped, or failed
+                    .whenComplete((v, e) -> backgroundCommitDone(batch, e));
         }
+    }
 
-        if (fullBatchDir.getValue() != null) {
-            consumeBatchDirectory(fullBatchDir.getValue());
+    private void backgroundCommitDone(ActiveBatch batch, Throwable e) {
+        if (e != null) {
+            commitFailure.compareAndSet(null, new CommitterQueueException(
+                    "Could not commit batch located at "
+                            + batch.dir.toAbsolutePath(), e));
+        }
+        synchronized (pendingBatches) {
+            pendingBatches.remove(batch);
+        }
+        pendingPermits.release();
+    }
+
+    private void commitInBackground(ActiveBatch batch) {
+        try {
+            if (commitFailure.get() == null) {
+                consumeBatchDirectory(batch.dir);
+            } else {
+                LOG.debug("Not committing batch located at {} because of "
+                        + "a previous commit failure.",
+                        batch.dir.toAbsolutePath());
+            }
+        } catch (CommitterQueueException e) {
+            commitFailure.compareAndSet(null, e);
+        } catch (RuntimeException e) {
+            commitFailure.compareAndSet(null, new CommitterQueueException(
+                    "Could not commit batch located at "
+                            + batch.dir.toAbsolutePath(), e));
+        }
+    }
+
+    private void throwIfCommitFailed() throws CommitterQueueException {
+        var e = commitFailure.get();
+        if (e != null) {
+            throw new CommitterQueueException(
+                    "A previous batch could not be committed.", e);
         }
     }
 
@@ -369,12 +531,37 @@ public class FSQueue implements CommitterQueue, Configurable<FSQueueConfig> {
 
     @Override
     public void close() throws CommitterQueueException {
+        if (commitExecutor != null) {
+            awaitBackgroundCommits();
+            commitExecutor.shutdown();
+            commitExecutor = null;
+            throwIfCommitFailed();
+        }
         // specifying parent dir will process all that's left there.
         if (queueDir != null && Files.exists(queueDir)) {
             consumeRemainingBatches();
         }
     }
 
+    private void awaitBackgroundCommits() {
+        CompletableFuture<?>[] futures;
+        synchronized (pendingBatches) {
+            futures = pendingBatches.stream()
+                    .map(b -> b.committed)
+                    .toArray(CompletableFuture[]::new);
+        }
+        if (futures.length > 0) {
+            LOG.info("Waiting for {} batch(es) to be committed...",
+                    futures.length);
+            try {
+                CompletableFuture.allOf(futures).join();
+            } catch (CompletionException e) {
+                // already recorded as the commit failure
+                LOG.debug("Background commit failed.", e);
+            }
+        }
+    }
+
     private int consumeRemainingBatches() throws CommitterQueueException {
         // Process all batch dirs one by one:
         var cnt = 0;
@@ -413,23 +600,10 @@ public class FSQueue implements CommitterQueue, Configurable<FSQueueConfig> {
     }
 
     private synchronized Path createQueueFile(
-            CommitterRequest req, MutableObject<Path> consumeBatchDir)
+            CommitterRequest req, MutableObject<ActiveBatch> fileBatch)
                     throws CommitterQueueException {
-        try {
-            // If starting a new batch, create the folder for it
-            if (batchCount.get() == configuration.getBatchSize()) {
-                consumeBatchDir.setValue(activeDir);
-                batchCount.set(0);
-                activeDir = createActiveDir();
-                Files.createDirectories(activeDir);
-            }
-        } catch (IOException e) {
-            throw new CommitterQueueException(
-                    "Could not create batch directory: "
-                            + activeDir.toAbsolutePath());
-        }
-
-        var file = activeDir.resolve(filePath(batchCount.get())
+        var batch = activeBatch;
+        var file = batch.dir.resolve(filePath(batch.count)
                 + (req instanceof DeleteRequest ? "-delete" : "-upsert")
                         + FSQueueUtil.EXT);
         try {
@@ -439,10 +613,28 @@ public class FSQueue implements CommitterQueue, Configurable<FSQueueConfig> {
                     "Could not create file directory: "
                             + file.toAbsolutePath());
         }
-        batchCount.incrementAndGet();
+        batch.count++;
+        batch.writing++;
+        if (configuration.getMaxInFlightBatches() > 1) {
+            batch.refs.add(req.getReference());
+        }
+        fileBatch.setValue(batch);
+
+        // If the batch is full, start a new one
+        if (batch.count >= configuration.getBatchSize()) {
+            activeBatch = new ActiveBatch(createActiveDir());
+        }
         return file;
     }
 
+    // Returns true if the batch is full and this was the last file being
+    // written to it.
+    private synchronized boolean fileWritten(ActiveBatch batch) {
+        batch.writing--;
+        return batch.writing == 0
+                && batch.count >= configuration.getBatchSize();
+    }
+
     // use max batch size to figure out how many level of directories.
     // so we do not have more than "maxFilesPerFolder" docs in a given folder
     private String filePath(long value) {
@@ -454,4 +646,18 @@ public class FSQueue implements CommitterQueue, Configurable<FSQueueConfig> {
         return path.replaceAll(
                 "(.{" + nameLength + "})(?!$)", "$1/");
     }
+
+    // Only modified while holding the queue lock, except for "committed".
+    private static class ActiveBatch {
+        private final Path dir;
+        // references, only tracked when batches are committed concurrently
+        private final Set<String> refs = new HashSet<>();
+        private int count;
+        // number of files currently being written
+        private int writing;
+        private CompletableFuture<Void> committed;
+        private ActiveBatch(Path dir) {
+            this.dir = dir;
+        }
+    }
 }
@@ -1,4 +1,4 @@
-/* Copyright 2023 Norconex Inc.
+/* Copyright 2023-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -26,6 +26,8 @@ public class FSQueueConfig {
 
     public static final int DEFAULT_BATCH_SIZE = 20;
     public static final int DEFAULT_MAX_PER_FOLDER = 500;
+    public static final int DEFAULT_MAX_IN_FLIGHT_BATCHES = 0;
+    public static final int DEFAULT_MAX_PENDING_BATCHES = 10;
 
     /**
      * The number of documents to be queued in a batch on disk before
@@ -55,6 +57,28 @@ public class FSQueueConfig {
      */
     private boolean commitLeftoversOnInit = false;
 
+    /**
+     * The maximum number of batches committed at the same time by
+     * background threads. Batches sharing references are still committed
+     * in the order they were queued. Zero (the default) commits
+     * batches synchronously, on the thread queueing the last request of
+     * a batch.
+     * Values greater than one require the batch consumer to be thread-safe.
+     * @param maxInFlightBatches maximum number of batches committed at once
+     * @return maximum number of batches committed at once
+     */
+    private int maxInFlightBatches = DEFAULT_MAX_IN_FLIGHT_BATCHES;
+
+    /**
+     * The maximum number of full batches waiting to be committed
+     * (including those being committed) before threads queueing requests
+     * are blocked. Not applicable when batches are committed synchronously.
+     * @param maxPendingBatches maximum number of batches waiting to be
+     *     committed
+     * @return maximum number of batches waiting to be committed
+     */
+    private int maxPendingBatches = DEFAULT_MAX_PENDING_BATCHES;
+
     /**
      * Configuration only applicable when a commit fails.
      * @param onCommitFailure commit failure configuration
@@ -1,4 +1,4 @@
-/* Copyright 2020-2023 Norconex Inc.
+/* Copyright 2020-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -14,13 +14,24 @@
  */
 package com.norconex.committer.core.batch.queue.impl;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatNoException;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang3.mutable.MutableInt;
 import org.junit.jupiter.api.Assertions;
@@ -30,7 +41,10 @@ import org.junit.jupiter.api.io.TempDir;
 
 import com.norconex.committer.core.CommitterContext;
 import com.norconex.committer.core.CommitterException;
+import com.norconex.committer.core.DeleteRequest;
 import com.norconex.committer.core.TestUtil;
+import com.norconex.committer.core.batch.queue.CommitterQueueException;
+import com.norconex.commons.lang.Sleeper;
 
 
 class FSQueueTest {
@@ -84,6 +98,128 @@ class FSQueueTest {
         assertThat(queue.getBatchConsumer()).isNotNull();
     }
 
+    @Test
+    void testBackgroundCommitsKeepReferenceOrder(@TempDir Path workDir)
+            throws CommitterException {
+        List<String> committed = Collections.synchronizedList(
+                new ArrayList<>());
+        Set<String> consumerThreads = ConcurrentHashMap.newKeySet();
+
+        queue.getConfiguration()
+            .setBatchSize(2)
+            .setMaxInFlightBatches(3);
+        queue.init(CommitterContext.builder().setWorkDir(workDir).build(),
+                it -> {
+            consumerThreads.add(Thread.currentThread().getName());
+            List<String> batch = new ArrayList<>();
+            while (it.hasNext()) {
+                var req = it.next();
+                batch.add((req instanceof DeleteRequest ? "delete:" : "upsert:")
+                        + req.getReference());
+            }
+            // slow down the first batch so later ones would overtake it
+            if (batch.contains("upsert:" + TestUtil.upsertRequest(1)
+                    .getReference())) {
+                Sleeper.sleepMillis(300);
+            }
+            committed.addAll(batch);
+        });
+
+        queue.queue(TestUtil.upsertRequest(1));
+        queue.queue(TestUtil.upsertRequest(2));
+        queue.queue(TestUtil.upsertRequest(3));
+        queue.queue(TestUtil.upsertRequest(4));
+        queue.queue(TestUtil.deleteRequest(1));
+        queue.queue(TestUtil.upsertRequest(5));
+        queue.queue(TestUtil.upsertRequest(6));
+        queue.close();
+
+        var ref1 = TestUtil.upsertRequest(1).getReference();
+        assertThat(committed).hasSize(7);
+        assertThat(committed.indexOf("upsert:" + ref1))
+            .isLessThan(committed.indexOf("delete:" + ref1));
+        assertThat(consumerThreads)
+            .doesNotContain(Thread.currentThread().getName());
+    }
+
+    @Test
+    void testBackgroundCommitFailure(@TempDir Path workDir)
+            throws CommitterException {
+        queue.getConfiguration()
+            .setBatchSize(1)
+            .setMaxInFlightBatches(1)
+            .setMaxPendingBatches(1);
+        queue.init(CommitterContext.builder().setWorkDir(workDir).build(),
+                it -> {
+            throw new CommitterException("Simulated failure.");
+        });
+
+        // thrown on a following queueing attempt, which must not block
+        // even if failed batches are no longer committed.
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            assertThatExceptionOfType(CommitterQueueException.class)
+                .isThrownBy(() -> {
+                    for (var i = 1; ; i++) {
+                        queue.queue(TestUtil.upsertRequest(i));
+                        Sleeper.sleepMillis(10);
+                    }
+                })
+                .withMessageContaining("could not be committed");
+        });
+        // and when closing
+        assertThatExceptionOfType(CommitterQueueException.class)
+            .isThrownBy(() -> queue.close())
+            .withMessageContaining("could not be committed");
+    }
+
+    @Test
+    void testBackgroundCommitBackpressure(@TempDir Path workDir)
+            throws Exception {
+        var release = new CountDownLatch(1);
+        List<String> committed = Collections.synchronizedList(
+                new ArrayList<>());
+        queue.getConfiguration()
+            .setBatchSize(1)
+            .setMaxInFlightBatches(1)
+            .setMaxPendingBatches(2);
+        queue.init(CommitterContext.builder().setWorkDir(workDir).build(),
+                it -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            while (it.hasNext()) {
+                committed.add(it.next().getReference());
+            }
+        });
+
+        var queued = new AtomicInteger();
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            var future = executor.submit(() -> {
+                for (var i = 1; i <= 5; i++) {
+                    queue.queue(TestUtil.upsertRequest(i));
+                    queued.incrementAndGet();
+                }
+                return null;
+            });
+
+            // blocked once two batches are waiting to be committed
+            Sleeper.sleepMillis(300);
+            assertThat(queued.get()).isEqualTo(2);
+            assertThat(future).isNotDone();
+
+            release.countDown();
+            future.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        queue.close();
+        assertThat(queued.get()).isEqualTo(5);
+        assertThat(committed).hasSize(5);
+    }
+
     @Test
     void testWriteRead() {
         var q = new FSQueue();
@@ -91,6 +227,8 @@ class FSQueueTest {
             .setBatchSize(50)
             .setMaxPerFolder(100)
             .setCommitLeftoversOnInit(true)
+            .setMaxInFlightBatches(4)
+            .setMaxPendingBatches(20)
             .getOnCommitFailure()
                 .setIgnoreErrors(true)
                 .setMaxRetries(6)
@@ -1,4 +1,4 @@
-/* Copyright 2013-2023 Norconex Inc.
+/* Copyright 2013-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,20 +15,27 @@
 package com.norconex.committer.elasticsearch;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.text.StringEscapeUtils;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpStatus;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.CredentialsProvider;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.elasticsearch.client.Node;
 import org.elasticsearch.client.Request;
@@ -38,8 +45,12 @@ import org.elasticsearch.client.RestClient.FailureListener;
 import org.elasticsearch.client.sniff.ElasticsearchNodesSniffer;
 import org.elasticsearch.client.sniff.NodesSniffer;
 import org.elasticsearch.client.sniff.Sniffer;
-import org.json.JSONObject;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.norconex.committer.core.CommitterException;
 import com.norconex.committer.core.CommitterRequest;
 import com.norconex.committer.core.CommitterUtil;
@@ -47,6 +58,7 @@ import com.norconex.committer.core.DeleteRequest;
 import com.norconex.committer.core.UpsertRequest;
 import com.norconex.committer.core.batch.AbstractBatchCommitter;
 import com.norconex.commons.lang.encrypt.EncryptionUtil;
+import com.norconex.commons.lang.io.CachedInputStream;
 import com.norconex.commons.lang.io.IOUtil;
 import com.norconex.commons.lang.text.StringUtil;
 import com.norconex.commons.lang.time.DurationParser;
@@ -209,6 +221,8 @@ public class ElasticsearchCommitter
 
     public static final String ELASTICSEARCH_ID_FIELD = "_id";
 
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+
     @EqualsAndHashCode.Exclude
     @ToString.Exclude
     private RestClient client;
@@ -241,28 +255,24 @@ public class ElasticsearchCommitter
     protected void commitBatch(Iterator<CommitterRequest> it)
             throws CommitterException {
 
-        var json = new StringBuilder();
-
-        var docCount = 0;
+        // The bulk body is written as it is read from the batch, to a
+        // stream cache that only keeps so much in memory before
+        // using disk. Once written, it can be sent (and resent
+        // to other nodes on failure) without loading it all in memory.
+        CachedInputStream content = null;
         try {
-            while (it.hasNext()) {
-                var req = it.next();
-                if (req instanceof UpsertRequest upsert) {
-                    appendUpsertRequest(json, upsert);
-                } else if (req instanceof DeleteRequest delete) {
-                    appendDeleteRequest(json, delete);
-                } else {
-                    throw new CommitterException(
-                            "Unsupported request: " + req);
-                }
-                docCount++;
+            int docCount;
+            try (var body = getCommitterContext()
+                    .getStreamFactory().newOuputStream()) {
+                docCount = writeBulkBody(it, body);
+                content = body.getInputStream();
             }
             if (LOG.isTraceEnabled()) {
-                LOG.trace("JSON POST:\n{}", StringUtils.trim(json.toString()));
+                LOG.trace("JSON POST:\n{}", StringUtils.trim(
+                        IOUtils.toString(content, StandardCharsets.UTF_8)));
             }
-
             var request = new Request("POST", "/_bulk");
-            request.setJsonEntity(json.toString());
+            request.setEntity(new BulkEntity(content));
             var response = client.performRequest(request);
             handleResponse(response);
             LOG.info("Sent {} commit operations to Elasticsearch.", docCount);
@@ -271,6 +281,10 @@ public class ElasticsearchCommitter
         } catch (Exception e) {
             throw new CommitterException(
                     "Could not commit JSON batch to Elasticsearch.", e);
+        } finally {
+            if (content != null) {
+                content.dispose();
+            }
         }
     }
 
@@ -283,23 +297,48 @@ public class ElasticsearchCommitter
         LOG.info("Elasticsearch RestClient closed.");
     }
 
+    private int writeBulkBody(
+            Iterator<CommitterRequest> it, OutputStream out)
+                    throws CommitterException, IOException {
+        var docCount = 0;
+        try (var gen = JSON_MAPPER.getFactory().createGenerator(out)) {
+            gen.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            // Bulk requests are made of one JSON object per line.
+            gen.setRootValueSeparator(null);
+            while (it.hasNext()) {
+                var req = it.next();
+                if (req instanceof UpsertRequest upsert) {
+                    writeUpsertRequest(gen, upsert);
+                } else if (req instanceof DeleteRequest delete) {
+                    writeDeleteRequest(gen, delete);
+                } else {
+                    throw new CommitterException(
+                            "Unsupported request: " + req);
+                }
+                docCount++;
+            }
+        }
+        return docCount;
+    }
 
     private void handleResponse(Response response)
             throws IOException, CommitterException {
         var respEntity = response.getEntity();
         if (respEntity != null) {
-            var responseAsString = IOUtils.toString(
-                    respEntity.getContent(), StandardCharsets.UTF_8);
+            String error;
             if (LOG.isTraceEnabled()) {
+                var responseAsString = IOUtils.toString(
+                        respEntity.getContent(), StandardCharsets.UTF_8);
                 LOG.trace("Elasticsearch response:\n{}", responseAsString);
+                error = extractResponseErrors(
+                        IOUtils.toInputStream(
+                                responseAsString, StandardCharsets.UTF_8));
+            } else {
+                try (var is = respEntity.getContent()) {
+                    error = extractResponseErrors(is);
+                }
             }
-
-            // We have no need to parse the JSON if successful
-            // (saving on the parsing). We'll do it on errors only
-            // to filter out successful ones and report only the errors
-            if (StringUtils.substring(
-                    responseAsString, 0, 100).contains("\"errors\":true")) {
-                var error = extractResponseErrors(responseAsString);
+            if (error != null) {
                 if (!configuration.isIgnoreResponseErrors()) {
                     throw new CommitterException(error);
                 }
@@ -316,105 +355,166 @@ public class ElasticsearchCommitter
         }
     }
 
-    private String extractResponseErrors(String response) {
-        var error = new StringBuilder();
-        var json = new JSONObject(response);
-        var items = json.getJSONArray("items");
-
-        for (var i = 0; i < items.length(); i++) {
-            var index = items.getJSONObject(i).getJSONObject("index");
-            if (index.has("error")) {
-                if (error.length() > 0) {
-                    error.append(",\n");
+    // Returns null if there are no errors. The response is not parsed
+    // beyond the "errors" flag when there are none (the usual case).
+    // Otherwise, only the items reporting errors are kept.
+    private String extractResponseErrors(InputStream response)
+            throws IOException {
+        List<String> errors = new ArrayList<>();
+        try (var parser = JSON_MAPPER.getFactory().createParser(response)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                var name = parser.currentName();
+                var token = parser.nextToken();
+                if ("errors".equals(name)) {
+                    if (token != JsonToken.VALUE_TRUE) {
+                        return null;
+                    }
+                } else if ("items".equals(name)
+                        && token == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        // each item holds a single action (e.g., "index")
+                        JsonNode item = JSON_MAPPER.readTree(parser);
+                        item.elements().forEachRemaining(action -> {
+                            if (action.has("error")) {
+                                errors.add(action.toString());
+                            }
+                        });
+                    }
+                } else {
+                    parser.skipChildren();
                 }
-                error.append(index.toString(4));
             }
         }
-        error.append(']');
-        error.insert(0, "Elasticsearch returned one or more errors:\n[");
-        return error.toString();
+        if (errors.isEmpty()) {
+            return null;
+        }
+        return "Elasticsearch returned one or more errors:\n["
+                + String.join(",\n", errors) + "]";
     }
 
-    private void appendUpsertRequest(StringBuilder json, UpsertRequest req)
-            throws CommitterException {
-
-        CommitterUtil.applyTargetContent(
-                req, configuration.getTargetContentField());
+    private void writeUpsertRequest(JsonGenerator gen, UpsertRequest req)
+            throws CommitterException, IOException {
+        writeAction(gen, "index", req);
 
-        json.append("{\"index\":{");
-        append(json, "_index", configuration.getIndexName());
-        if (StringUtils.isNotBlank(configuration.getTypeName())) {
-            append(json.append(','), "_type", configuration.getTypeName());
-        }
-        append(json.append(','), ELASTICSEARCH_ID_FIELD, extractId(req));
-        json.append("}}\n{");
-        var first = true;
+        var contentField = configuration.getTargetContentField();
+        gen.writeStartObject();
         for (Entry<String, List<String>> entry : req.getMetadata().entrySet()) {
-            var field = entry.getKey();
-            field = StringUtils.replace(field, ".",
-                    configuration.getDotReplacement());
+            // Content is written last, replacing any existing value.
+            if (StringUtils.isNotBlank(contentField)
+                    && contentField.equals(entry.getKey())) {
+                continue;
+            }
+            var field = toFieldName(entry.getKey());
             // Do not store _id as a field since it is passed above already.
             if (ELASTICSEARCH_ID_FIELD.equals(field)) {
                 continue;
             }
-            if (!first) {
-                json.append(',');
-            }
-            append(json, field, entry.getValue());
-            first = false;
+            writeField(gen, field, entry.getValue());
         }
-        json.append("}\n");
+        if (StringUtils.isNotBlank(contentField)) {
+            writeContent(gen, toFieldName(contentField), req);
+        }
+        gen.writeEndObject();
+        gen.writeRaw('\n');
     }
 
-    private void appendDeleteRequest(StringBuilder json, DeleteRequest req)
-            throws CommitterException {
-        json.append("{\"delete\":{");
-        append(json, "_index", configuration.getIndexName());
+    private void writeDeleteRequest(JsonGenerator gen, DeleteRequest req)
+            throws CommitterException, IOException {
+        writeAction(gen, "delete", req);
+    }
+
+    private void writeAction(
+            JsonGenerator gen, String action, CommitterRequest req)
+                    throws CommitterException, IOException {
+        // Extracting the ID also removes the source ID field, if any.
+        var id = extractId(req);
+        gen.writeStartObject();
+        gen.writeObjectFieldStart(action);
+        gen.writeStringField("_index", configuration.getIndexName());
         if (StringUtils.isNotBlank(configuration.getTypeName())) {
-            append(json.append(','), "_type", configuration.getTypeName());
+            gen.writeStringField("_type", configuration.getTypeName());
         }
-        append(json.append(','), ELASTICSEARCH_ID_FIELD, extractId(req));
-        json.append("}}\n");
+        gen.writeStringField(ELASTICSEARCH_ID_FIELD, id);
+        gen.writeEndObject();
+        gen.writeEndObject();
+        gen.writeRaw('\n');
     }
 
-    private void append(
-            StringBuilder json, String field, List<String> values) {
+    private void writeField(
+            JsonGenerator gen, String field, List<String> values)
+                    throws IOException {
+        gen.writeFieldName(field);
         if (values.size() == 1) {
-            append(json, field, values.get(0));
+            writeValue(gen, field, values.get(0));
             return;
         }
-
-        json.append('"')
-            .append(StringEscapeUtils.escapeJson(field))
-            .append("\":[");
-
+        gen.writeStartArray();
         for (String value : values) {
-            appendValue(json, field, value);
-            json.append(',');
+            writeValue(gen, field, value);
         }
+        gen.writeEndArray();
+    }
 
-        json.deleteCharAt(json.length()-1);
-        json.append(']');
+    private void writeValue(JsonGenerator gen, String field, String value)
+            throws IOException {
+        if (isJsonField(field)) {
+            gen.writeRawValue(value);
+        } else {
+            gen.writeString(value);
+        }
     }
 
-    private void append(StringBuilder json, String field, String value) {
-        json.append('"')
-            .append(StringEscapeUtils.escapeJson(field))
-            .append("\":");
-        appendValue(json, field, value);
+    // Content is copied from the request stream without loading it fully.
+    private void writeContent(
+            JsonGenerator gen, String field, UpsertRequest req)
+                    throws CommitterException, IOException {
+        gen.writeFieldName(field);
+        var content = req.getContent();
+        if (content == null) {
+            gen.writeString("");
+            return;
+        }
+        var reader = new InputStreamReader(content, StandardCharsets.UTF_8);
+        try {
+            if (isJsonField(field)) {
+                writeJsonContent(gen, reader);
+            } else {
+                gen.writeString(reader, -1);
+            }
+        } catch (IOException e) {
+            throw new CommitterException(
+                    "Could not load document content for : "
+                            + req.getReference(), e);
+        }
     }
 
-    private void appendValue(StringBuilder json, String field, String value) {
-        if (configuration.getJsonFieldsPattern() != null
-                && configuration.getJsonFieldsPattern().matches(field)) {
-            json.append(value);
-        } else {
-            json.append('"')
-                .append(StringEscapeUtils.escapeJson(value))
-                .append("\"");
+    // JSON content is copied token by token instead of as a raw value,
+    // so it does not have to be loaded fully.
+    private void writeJsonContent(JsonGenerator gen, Reader reader)
+            throws IOException {
+        try (var parser = JSON_MAPPER.getFactory().createParser(reader)) {
+            // the request content is not ours to close
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            if (parser.nextToken() == null) {
+                gen.writeString("");
+            } else {
+                gen.copyCurrentStructure(parser);
+            }
         }
     }
 
+    private boolean isJsonField(String field) {
+        return configuration.getJsonFieldsPattern() != null
+                && configuration.getJsonFieldsPattern().matches(field);
+    }
+
+    private String toFieldName(String key) {
+        return StringUtils.replace(key, ".", configuration.getDotReplacement());
+    }
+
     private String fixBadIdValue(String value) throws CommitterException {
         if (StringUtils.isBlank(value)) {
             throw new CommitterException("Document id cannot be empty.");
@@ -476,6 +576,38 @@ public class ElasticsearchCommitter
         return builder.build();
     }
 
+    // Repeatable entity reading the bulk body from its stream cache.
+    private static final class BulkEntity extends AbstractHttpEntity {
+        private final CachedInputStream content;
+        private BulkEntity(CachedInputStream content) {
+            this.content = content;
+            setContentType(ContentType.APPLICATION_JSON.toString());
+        }
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+        @Override
+        public long getContentLength() {
+            return content.length();
+        }
+        @Override
+        public InputStream getContent() throws IOException {
+            content.rewind();
+            // closing is handled by the committer
+            return CloseShieldInputStream.wrap(content);
+        }
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            content.rewind();
+            IOUtils.copy(content, out);
+        }
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+    }
+
     protected Sniffer createSniffer(RestClient client) {
         // here we assume a cluster is either all https, or all https (no mix).
         if (!configuration.getNodes().isEmpty()
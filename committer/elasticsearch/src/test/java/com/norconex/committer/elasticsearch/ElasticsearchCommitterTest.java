@@ -109,6 +109,24 @@ class ElasticsearchCommitterTest {
         assertTrue(hasTestContent(doc), "Bad content.");
     }
 
+    @Test
+    void testCommitManyWithSpecialCharacters() throws Exception {
+        var content =
+                "Some \"quoted\" text,\nback\\slash,\ttab, \u00e9t\u00e9.";
+        withinCommitterSession(c -> {
+            for (var i = 0; i < 50; i++) {
+                c.upsert(upsertRequest("doc" + i, content + i));
+            }
+            c.delete(new DeleteRequest("doc0", new Properties()));
+        });
+
+        assertFalse(isFound(getDocument("doc0")), "Was not deleted.");
+        var doc = getDocument("doc49");
+        assertTrue(isFound(doc), "Not found.");
+        assertEquals(content + 49, getContentFieldValue(doc),
+                "Bad content.");
+    }
+
     @Test
     void testCommitDelete() throws Exception {
         // Add a document directly to ES
@@ -40,6 +40,9 @@ public final class ChecksumUtil {
     private static final Logger LOG =
             LoggerFactory.getLogger(ChecksumUtil.class);
 
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
     private ChecksumUtil() {
     }
 
@@ -59,6 +62,28 @@ public final class ChecksumUtil {
         return checksum;
     }
 
+    /**
+     * Computes a fast, non-cryptographic 64-bit checksum of a string
+     * (FNV-1a followed by a MurmurHash3 finalizer, so all bits are well
+     * distributed). Meant for in-memory or on-disk hash tables.
+     * Never returns zero, so zero can mark empty hash table slots.
+     * @param text the string to checksum
+     * @return 64-bit checksum, never zero
+     */
+    public static long checksum64(String text) {
+        var h = FNV_OFFSET;
+        for (var i = 0; i < text.length(); i++) {
+            h ^= text.charAt(i);
+            h *= FNV_PRIME;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
     public static String metadataChecksumMD5(
             Properties metadata, TextMatcher fieldMatcher) {
         var checksum =
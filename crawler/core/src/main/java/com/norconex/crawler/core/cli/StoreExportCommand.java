@@ -1,4 +1,4 @@
-/* Copyright 2019-2022 Norconex Inc.
+/* Copyright 2019-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,8 @@ package com.norconex.crawler.core.cli;
 
 import java.nio.file.Path;
 
+import com.norconex.crawler.core.store.DataStoreExportFormat;
+
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 import picocli.CommandLine.Command;
@@ -36,11 +38,22 @@ public class StoreExportCommand extends AbstractSubCommand {
             description = "Export directory",
             required = true)
     private Path dir;
-    //TODO add format?
-    //TODO add compress?
+
+    @Option(names = { "-format" },
+            description = "Export format: ZIP (single JSON file per crawler) "
+                    + "or CHUNKED (compressed binary chunks, written in "
+                    + "parallel). Default: ZIP.",
+            required = false)
+    private DataStoreExportFormat format = DataStoreExportFormat.ZIP;
+
+    @Option(names = { "-threads" },
+            description = "Maximum number of threads writing CHUNKED "
+                    + "exports (default: number of processors).",
+            required = false)
+    private int threads = Runtime.getRuntime().availableProcessors();
 
     @Override
     public void runCommand() {
-        getCrawlSession().exportDataStore(dir);
+        getCrawlSession().exportDataStore(dir, format, threads);
     }
 }
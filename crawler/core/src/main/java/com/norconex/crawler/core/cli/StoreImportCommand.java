@@ -1,4 +1,4 @@
-/* Copyright 2019-2022 Norconex Inc.
+/* Copyright 2019-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -33,13 +33,20 @@ import picocli.CommandLine.Option;
 @ToString
 public class StoreImportCommand extends AbstractSubCommand {
     @Option(names = { "-f", "-file" },
-            description = "Data store files to import.",
+            description = "Data store files to import (or directories, "
+                    + "for CHUNKED exports).",
             required = true,
             split = ",")
     private List<Path> inFiles;
 
+    @Option(names = { "-threads" },
+            description = "Maximum number of threads importing CHUNKED "
+                    + "exports (default: number of processors).",
+            required = false)
+    private int threads = Runtime.getRuntime().availableProcessors();
+
     @Override
     public void runCommand() {
-        getCrawlSession().importDataStore(inFiles);
+        getCrawlSession().importDataStore(inFiles, threads);
     }
 }
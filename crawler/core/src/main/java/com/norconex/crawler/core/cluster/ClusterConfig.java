@@ -0,0 +1,127 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.cluster;
+
+import java.time.Duration;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * <p>
+ * Cluster mode configuration. When enabled, several crawler processes
+ * (nodes) having the same crawler id share the same crawl stores
+ * (queued, active, processed, etc.), splitting the work between them.
+ * </p>
+ * <p>
+ * All nodes must use the same data store engine, which has to be one
+ * that can be shared between processes (e.g., JDBC or MongoDB). For
+ * local testing, several JVMs can share an embedded H2 database
+ * in "auto server" mode (e.g.,
+ * <code>jdbc:h2:file:/path/db;AUTO_SERVER=TRUE</code>).
+ * </p>
+ * <p>
+ * Each node regularly sends a heartbeat. A node that did not
+ * send a heartbeat for longer than the lease duration is considered dead,
+ * and the references it was processing are returned to the queue.
+ * A node noticing it may have been considered dead (e.g., after a long
+ * pause) stops claiming references and rejoins the cluster under a
+ * new id. Server clocks are expected to be synchronized within a fraction of the
+ * lease duration.
+ * </p>
+ * <p>
+ * The first node to start initializes the crawl (e.g., resuming
+ * or starting a new crawl). Other nodes wait for it to be ready before
+ * joining.
+ * </p>
+ * <p>
+ * Stopping any node (explicitly or when a stopping condition is met)
+ * stops the whole cluster.
+ * </p>
+ *
+ * {@nx.xml.usage
+ * <cluster>
+ *   <enabled>[false|true]</enabled>
+ *   <nodeName>
+ *     (Unique name of this node. Default is the host name and
+ *      process id.)
+ *   </nodeName>
+ *   <heartbeatInterval>
+ *     (how often this node reports it is alive)
+ *   </heartbeatInterval>
+ *   <leaseDuration>
+ *     (how long without a heartbeat before a node is considered dead)
+ *   </leaseDuration>
+ *   <partitions>
+ *     (number of queue partitions, for host affinity, or zero to disable)
+ *   </partitions>
+ * </cluster>
+ * }
+ * @since 4.0.0
+ */
+@SuppressWarnings("javadoc")
+@Data
+@Accessors(chain = true)
+public class ClusterConfig {
+
+    public static final Duration DEFAULT_HEARTBEAT_INTERVAL =
+            Duration.ofSeconds(10);
+    public static final Duration DEFAULT_LEASE_DURATION =
+            Duration.ofMinutes(1);
+
+    /**
+     * Whether cluster mode is enabled. Default is <code>false</code>.
+     * @param enabled <code>true</code> if enabled
+     * @return <code>true</code> if enabled
+     */
+    private boolean enabled;
+
+    /**
+     * Name uniquely identifying this node in the cluster. Default is
+     * the host name followed by the process id.
+     * @param nodeName node name
+     * @return node name
+     */
+    private String nodeName;
+
+    /**
+     * How often this node reports it is alive, and checks for dead nodes.
+     * Default is {@value #DEFAULT_HEARTBEAT_INTERVAL}.
+     * @param heartbeatInterval heartbeat interval
+     * @return heartbeat interval
+     */
+    private Duration heartbeatInterval = DEFAULT_HEARTBEAT_INTERVAL;
+
+    /**
+     * How long a node can go without a heartbeat before being
+     * considered dead. Should be a few times the heartbeat interval.
+     * Default is {@value #DEFAULT_LEASE_DURATION}.
+     * @param leaseDuration lease duration
+     * @return lease duration
+     */
+    private Duration leaseDuration = DEFAULT_LEASE_DURATION;
+
+    /**
+     * Number of partitions the queue is split into, by reference host,
+     * for host affinity. Each partition is processed by a single node at
+     * a time, so per-host politeness (e.g., delays) is respected across
+     * nodes. Should be greater than the number of nodes.
+     * Zero (default) disables partitioning, letting any node process
+     * any reference.
+     * @param partitions number of queue partitions
+     * @return number of queue partitions
+     */
+    private int partitions;
+}
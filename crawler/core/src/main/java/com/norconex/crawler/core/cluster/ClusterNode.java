@@ -0,0 +1,707 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.cluster;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.norconex.commons.lang.Sleeper;
+import com.norconex.commons.lang.TimeIdGenerator;
+import com.norconex.crawler.core.crawler.Crawler;
+import com.norconex.crawler.core.store.DataStore;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <p>
+ * A crawler process taking part in a cluster of processes sharing the same
+ * crawl stores. Keeps track of live nodes through regular heartbeats
+ * saved in a shared store, returns the active references of dead nodes
+ * to the queue, and splits queue partitions fairly between live nodes.
+ * </p>
+ * <p>
+ * Each node has its own "active" store, named after the node id, so the
+ * references it is processing can be recovered should it die.
+ * </p>
+ * <p>
+ * A node considered dead by others may only have stalled (e.g., long
+ * garbage collection or network issue). Before each heartbeat and claim,
+ * a node makes sure its lease is still valid: its heartbeat record still
+ * exists and its last heartbeat is recent enough not to have expired
+ * for other nodes. If not, it stops claiming references and rejoins
+ * the cluster under a new id, with new stores. Stores of nodes
+ * considered dead are emptied but not dropped, as their node may still
+ * be using them until it rejoins. Stores of nodes no longer part of the
+ * cluster are dropped when the crawl is next initialized.
+ * </p>
+ * @param <T> type of crawl records
+ * @since 4.0.0
+ */
+@Slf4j
+public class ClusterNode<T> {
+
+    private static final String NODES_STORE = "cluster_nodes";
+    private static final String STATE_STORE = "cluster_state";
+    private static final String PARTITIONS_STORE = "cluster_partitions";
+    private static final String ACTIVE_STORE = "active";
+
+    private static final String STATE_STOP = "stop";
+    private static final String STATE_READY = "ready";
+    private static final String STATE_ORPHANS = "orphans";
+    private static final String STATE_INITIALIZER = "initializer";
+    private static final String STATE_ELECTION = "election_";
+    private static final String STATE_RETIRED = "retired_";
+
+    // Not allowed in node names, so node ids are unambiguous.
+    private static final char ID_SEPARATOR = '-';
+
+    private static final String STATUS_JOINING = "JOINING";
+    private static final String STATUS_RUNNING = "RUNNING";
+    private static final String STATUS_DONE = "DONE";
+
+    private final Crawler crawler;
+    private final ClusterConfig config;
+    private final Class<? extends T> type;
+    private final String name;
+
+    private final DataStore<String> nodes;
+    private final DataStore<String> state;
+    private final DataStore<String> freePartitions;
+
+    // Current node id: its name and incarnation, changing when rejoining
+    private volatile String id;
+    private volatile DataStore<T> active;
+    private volatile DataStore<String> ownPartitions;
+    // Local time of the last heartbeat saved, or zero if none yet
+    private volatile long lastBeat;
+    private volatile boolean expired;
+    // Claims are read locked, rejoining and balancing are write locked.
+    private final ReadWriteLock claimLock = new ReentrantReadWriteLock();
+    // Owned partitions no longer claimed from, to be released
+    // (guarded by the claim write lock)
+    private final Set<Integer> draining = new HashSet<>();
+    private Runnable rejoinListener;
+
+    private volatile String status = STATUS_JOINING;
+    private volatile Set<Integer> ownedPartitions = Collections.emptySet();
+    private volatile Map<String, DataStore<T>> peerActives =
+            Collections.emptyMap();
+    private ScheduledExecutorService heartbeat;
+
+    public ClusterNode(
+            @NonNull Crawler crawler,
+            @NonNull ClusterConfig config,
+            @NonNull Class<? extends T> type) {
+        this.crawler = crawler;
+        this.config = config;
+        this.type = type;
+        name = safeName(StringUtils.defaultIfBlank(
+                config.getNodeName(), defaultNodeName()));
+        var engine = crawler.getDataStoreEngine();
+        nodes = engine.openStore(NODES_STORE, String.class);
+        state = engine.openStore(STATE_STORE, String.class);
+        freePartitions = engine.openStore(PARTITIONS_STORE, String.class);
+        openNodeStores(newId());
+    }
+
+    /**
+     * Gets this node unique name.
+     * @return node name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets this node id, made of its name and incarnation. It changes
+     * when this node has to rejoin the cluster.
+     * @return node id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the name of the store holding the references this node is
+     * processing.
+     * @return active store name
+     */
+    public String getActiveStoreName() {
+        return activeStoreName(id);
+    }
+
+    /**
+     * Gets the store holding the references this node is processing.
+     * It changes when this node has to rejoin the cluster.
+     * @return active store
+     */
+    public DataStore<T> getActiveStore() {
+        return active;
+    }
+
+    /**
+     * Gets the queue partitions this node can currently claim
+     * references from.
+     * @return partition numbers
+     */
+    public Collection<Integer> getOwnedPartitions() {
+        return ownedPartitions;
+    }
+
+    /**
+     * Joins the cluster. Active references of dead nodes are returned to
+     * the given queue. If no other live node has joined yet, nodes
+     * joining at the same time elect the one initializing the crawl,
+     * which resets the shared cluster state. Others wait for it to be
+     * {@link #ready()}. A crawl already initialized by live nodes is
+     * joined as soon as it is ready.
+     * @param queue the queue store
+     * @return <code>true</code> if this node is the one initializing
+     *     the crawl
+     */
+    public boolean join(DataStore<T> queue) {
+        LOG.info("Node \"{}\" joining crawler \"{}\" cluster.",
+                id, crawler.getId());
+        // so nodes joining at the same time see each other
+        beat();
+        var first = false;
+        while (true) {
+            recoverDeadNodes(queue);
+            if (!isJoinedElsewhere() && claimInitialization()) {
+                LOG.info("Node \"{}\" was elected to initialize the crawl.",
+                        id);
+                state.delete(STATE_STOP);
+                state.delete(STATE_READY);
+                state.save(STATE_ORPHANS, id);
+                dropRetiredNodeStores();
+                resetPartitions();
+                first = true;
+                break;
+            }
+            if (isReady()) {
+                status = STATUS_RUNNING;
+                break;
+            }
+            LOG.info("Node \"{}\" waiting for crawl to be initialized.",
+                    id);
+            Sleeper.sleepMillis(config.getHeartbeatInterval().toMillis());
+            if (!beat()) {
+                rejoin(queue);
+            }
+        }
+        beat();
+        balancePartitions();
+        refreshPeers();
+        return first;
+    }
+
+    /**
+     * Marks the crawl as initialized, letting other nodes join.
+     */
+    public void ready() {
+        status = STATUS_RUNNING;
+        beat();
+        state.find(STATE_INITIALIZER).ifPresent(
+                generation -> state.save(STATE_READY, generation));
+    }
+
+    /**
+     * Starts sending heartbeats at regular intervals. On each beat,
+     * dead nodes are recovered, partitions rebalanced, and cluster stop
+     * requests honored. If this node lease has expired, it first
+     * rejoins the cluster under a new id.
+     * @param queue the queue store dead nodes references are returned to
+     * @param listener invoked after each heartbeat (can be
+     *     <code>null</code>)
+     * @param rejoinListener invoked when this node rejoins the cluster,
+     *     before claiming references to its new active store (can be
+     *     <code>null</code>)
+     */
+    public void start(DataStore<T> queue,
+            Runnable listener, Runnable rejoinListener) {
+        this.rejoinListener = rejoinListener;
+        heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            var t = new Thread(r, crawler.getId() + "-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        var interval = config.getHeartbeatInterval().toMillis();
+        heartbeat.scheduleWithFixedDelay(() -> {
+            try {
+                heartbeat(queue);
+                if (state.exists(STATE_STOP) && !crawler.isStopped()) {
+                    LOG.info("Cluster stop requested.");
+                    crawler.stop();
+                }
+                if (listener != null) {
+                    listener.run();
+                }
+            } catch (RuntimeException e) {
+                LOG.error("Node \"{}\" heartbeat failed.", id, e);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    // One heartbeat, rejoining first if this node lease has expired.
+    void heartbeat(DataStore<T> queue) {
+        if (!beat()) {
+            rejoin(queue);
+        }
+        recoverDeadNodes(queue);
+        balancePartitions();
+        refreshPeers();
+    }
+
+    /**
+     * Claims references with the given function (e.g., moving them from
+     * the queue to this node active store), unless this node lease has
+     * expired. In such case, nothing is claimed until this node rejoins
+     * the cluster.
+     * @param <R> type of claimed objects
+     * @param claimer function claiming references
+     * @return claimed objects, or an empty list if this node could not
+     *     claim any
+     */
+    public <R> List<R> claim(Supplier<List<R>> claimer) {
+        claimLock.readLock().lock();
+        try {
+            if (!isLeaseValid() || !nodes.exists(id)) {
+                LOG.debug("Node \"{}\" lease expired, not claiming.", id);
+                return List.of();
+            }
+            return claimer.get();
+        } finally {
+            claimLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Requests all nodes of the cluster to stop.
+     */
+    public void requestStop() {
+        state.save(STATE_STOP, id);
+    }
+
+    /**
+     * Marks this node as done processing its queue and returns whether
+     * it should handle orphan references. Only the last node to be done
+     * handles them, once.
+     * @return <code>true</code> if this node should handle orphans
+     */
+    public boolean claimOrphansHandling() {
+        status = STATUS_DONE;
+        if (!beat()) {
+            return false;
+        }
+        for (String node : liveNodes()) {
+            if (!node.equals(id) && nodes.find(node)
+                    .filter(v -> v.endsWith(STATUS_RUNNING)).isPresent()) {
+                return false;
+            }
+        }
+        return state.delete(STATE_ORPHANS);
+    }
+
+    /**
+     * Whether a reference is being processed by another node.
+     * @param id reference
+     * @return <code>true</code> if active elsewhere
+     */
+    public boolean isActiveElsewhere(String id) {
+        return peerActives.values().stream().anyMatch(s -> s.exists(id));
+    }
+
+    /**
+     * Whether no reference is being processed by other nodes.
+     * @return <code>true</code> if no other node is processing references
+     */
+    public boolean isActiveEmptyElsewhere() {
+        return peerActives.values().stream().allMatch(DataStore::isEmpty);
+    }
+
+    /**
+     * Gets the number of references being processed by other nodes.
+     * @return active count on other nodes
+     */
+    public long getActiveCountElsewhere() {
+        return peerActives.values().stream()
+                .mapToLong(DataStore::count).sum();
+    }
+
+    /**
+     * Leaves the cluster, returning the active references of this node
+     * to the queue and releasing its partitions. Its stores are dropped
+     * when the crawl is next initialized, as other nodes may still
+     * be accessing them until then.
+     * @param queue the queue store
+     */
+    public void leave(DataStore<T> queue) {
+        if (heartbeat != null) {
+            heartbeat.shutdownNow();
+            heartbeat = null;
+        }
+        active.moveAll(queue);
+        ownPartitions.moveAll(freePartitions);
+        draining.clear();
+        ownedPartitions = Collections.emptySet();
+        peerActives = Collections.emptyMap();
+        if (nodes.delete(id)) {
+            state.save(STATE_RETIRED + id, id);
+        }
+        LOG.info("Node \"{}\" left the cluster.", id);
+    }
+
+    // whether other live nodes have joined the crawl already
+    private boolean isJoinedElsewhere() {
+        for (String node : liveNodes()) {
+            if (!node.equals(id) && nodes.find(node)
+                    .filter(v -> !v.endsWith(STATUS_JOINING)).isPresent()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Elects this node as the one initializing the crawl, unless another
+    // live node already is. The current initializer generation (empty if
+    // none) identifies the election, so only one node can atomically
+    // claim it, even when joining at the same time as others.
+    private boolean claimInitialization() {
+        var current = state.find(STATE_INITIALIZER).orElse("");
+        var owner = StringUtils.substringBefore(current, "|");
+        if (!owner.isEmpty() && !owner.equals(id)
+                && !isFormerIncarnation(owner)
+                && liveNodes().contains(owner)) {
+            return false;
+        }
+        var generation = id + "|" + System.currentTimeMillis();
+        var election = STATE_ELECTION + current;
+        if (!state.saveIfAbsent(election, generation)) {
+            return false;
+        }
+        state.save(STATE_INITIALIZER, generation);
+        // former elections are no longer needed
+        List<String> former = new ArrayList<>();
+        state.forEach((key, v) -> {
+            if (key.startsWith(STATE_ELECTION) && !key.equals(election)) {
+                former.add(key);
+            }
+            return true;
+        });
+        state.deleteAll(former);
+        return true;
+    }
+
+    // Ready once the current initializer generation is. Its node still
+    // joining means it has yet to replace a former generation.
+    private boolean isReady() {
+        var generation = state.find(STATE_INITIALIZER).orElse(null);
+        if (generation == null
+                || !generation.equals(state.find(STATE_READY).orElse(null))) {
+            return false;
+        }
+        return nodes.find(StringUtils.substringBefore(generation, "|"))
+                .filter(v -> v.endsWith(STATUS_JOINING)).isEmpty();
+    }
+
+    // Saves this node heartbeat, unless its lease may have expired: its
+    // record was deleted by others, or its last heartbeat is too old to
+    // be saved before others consider it dead. Returns false if expired.
+    private boolean beat() {
+        if (expired) {
+            return false;
+        }
+        var now = System.currentTimeMillis();
+        if (lastBeat > 0
+                && (now - lastBeat > fenceMillis() || !nodes.exists(id))) {
+            LOG.warn("Node \"{}\" lease expired.", id);
+            expired = true;
+            return false;
+        }
+        nodes.save(id, now + "|" + status);
+        lastBeat = now;
+        return true;
+    }
+
+    private boolean isLeaseValid() {
+        return !expired && lastBeat > 0
+                && System.currentTimeMillis() - lastBeat <= fenceMillis();
+    }
+
+    // How long after its last heartbeat this node considers its lease
+    // expired. Shorter than the lease duration, leaving time for a
+    // heartbeat to be saved before others consider this node dead.
+    private long fenceMillis() {
+        var lease = config.getLeaseDuration().toMillis();
+        return lease - Math.min(
+                config.getHeartbeatInterval().toMillis(), lease / 2);
+    }
+
+    // Rejoins the cluster under a new id, once this node lease expired.
+    // References it was processing are returned to the queue, by this
+    // node or by the one having considered it dead. Claims are blocked
+    // until the new active store is in use.
+    private void rejoin(DataStore<T> queue) {
+        claimLock.writeLock().lock();
+        try {
+            var formerId = id;
+            var formerActive = active;
+            var formerPartitions = ownPartitions;
+            // whoever deletes the record recovers the node, this one too
+            if (nodes.delete(formerId)) {
+                recover(formerId, formerActive, formerPartitions, queue);
+            }
+            openNodeStores(newId());
+            draining.clear();
+            ownedPartitions = Collections.emptySet();
+            peerActives = Collections.emptyMap();
+            expired = false;
+            lastBeat = 0;
+            beat();
+            LOG.warn("Node \"{}\" rejoined the cluster as \"{}\".",
+                    formerId, id);
+            if (rejoinListener != null) {
+                rejoinListener.run();
+            }
+        } finally {
+            claimLock.writeLock().unlock();
+        }
+    }
+
+    // live nodes, including this one if it has sent a heartbeat
+    private List<String> liveNodes() {
+        List<String> live = new ArrayList<>();
+        nodes.forEach((node, value) -> {
+            if (!isDead(value)) {
+                live.add(node);
+            }
+            return true;
+        });
+        return live;
+    }
+
+    private boolean isDead(String value) {
+        var lastBeat = Long.parseLong(StringUtils.substringBefore(value, "|"));
+        return System.currentTimeMillis() - lastBeat
+                > config.getLeaseDuration().toMillis();
+    }
+
+    private void recoverDeadNodes(DataStore<T> queue) {
+        List<String> dead = new ArrayList<>();
+        nodes.forEach((node, value) -> {
+            if (!node.equals(id)
+                    && (isDead(value) || isFormerIncarnation(node))) {
+                dead.add(node);
+            }
+            return true;
+        });
+        var engine = crawler.getDataStoreEngine();
+        for (String node : dead) {
+            // only the node that deleted the record recovers it
+            if (!nodes.delete(node)) {
+                continue;
+            }
+            var count = recover(node,
+                    engine.<T>openStore(activeStoreName(node), type),
+                    engine.openStore(partitionsStoreName(node), String.class),
+                    queue);
+            LOG.warn("Node \"{}\" is dead. {} of its active references "
+                    + "returned to the queue.", node, count);
+        }
+    }
+
+    // Returns the active references of a node no longer part of the
+    // cluster to the queue and releases its partitions. Its stores are
+    // not dropped as a node having stalled may still be using them.
+    private long recover(String nodeId, DataStore<T> nodeActive,
+            DataStore<String> nodePartitions, DataStore<T> queue) {
+        var count = nodeActive.moveAll(queue);
+        nodePartitions.moveAll(freePartitions);
+        state.save(STATE_RETIRED + nodeId, nodeId);
+        return count;
+    }
+
+    // Drops the stores of nodes no longer part of the cluster. Only
+    // when initializing the crawl, as no other node has joined yet,
+    // and nodes rejoin under a new id (never using them again).
+    private void dropRetiredNodeStores() {
+        List<String> retired = new ArrayList<>();
+        state.forEach((key, nodeId) -> {
+            if (key.startsWith(STATE_RETIRED)) {
+                retired.add(nodeId);
+            }
+            return true;
+        });
+        var engine = crawler.getDataStoreEngine();
+        for (String nodeId : retired) {
+            engine.dropStore(activeStoreName(nodeId));
+            engine.dropStore(partitionsStoreName(nodeId));
+            state.delete(STATE_RETIRED + nodeId);
+        }
+    }
+
+    private void resetPartitions() {
+        ownPartitions.clear();
+        freePartitions.clear();
+        for (var i = 0; i < config.getPartitions(); i++) {
+            freePartitions.save(Integer.toString(i), Integer.toString(i));
+        }
+    }
+
+    // Claims free partitions up to this node fair share and releases
+    // those in excess. Partitions in excess are drained first: no longer
+    // claimed from, and only released once none of their references are
+    // active on this node, so a host is never crawled by two nodes at
+    // once. Idle partitions are drained first, being released right away.
+    private void balancePartitions() {
+        var total = config.getPartitions();
+        if (total <= 0) {
+            return;
+        }
+        var live = Math.max(1, liveNodes().size());
+        var fairShare = (total + live - 1) / live;
+        claimLock.writeLock().lock();
+        try {
+            var owned = ownPartitionNumbers();
+            draining.retainAll(owned);
+            var claimable = owned.size() - draining.size();
+            if (claimable < fairShare) {
+                // resume draining partitions before claiming free ones
+                var it = draining.iterator();
+                while (claimable < fairShare && it.hasNext()) {
+                    it.next();
+                    it.remove();
+                    claimable++;
+                }
+                if (claimable < fairShare) {
+                    freePartitions.moveFirst(
+                            fairShare - claimable, ownPartitions);
+                    owned = ownPartitionNumbers();
+                }
+            } else if (claimable > fairShare || !draining.isEmpty()) {
+                var busy = activePartitions(total);
+                owned.stream()
+                    .filter(p -> !draining.contains(p))
+                    .sorted(Comparator.comparing(busy::contains))
+                    .limit((long) claimable - fairShare)
+                    .forEach(draining::add);
+                for (Integer p : new ArrayList<>(draining)) {
+                    if (!busy.contains(p)) {
+                        // saved before deleted so it is never lost
+                        freePartitions.save(p.toString(), p.toString());
+                        ownPartitions.delete(p.toString());
+                        draining.remove(p);
+                        owned.remove(p);
+                    }
+                }
+            }
+            Set<Integer> partitions = new HashSet<>(owned);
+            partitions.removeAll(draining);
+            ownedPartitions = Collections.unmodifiableSet(partitions);
+        } finally {
+            claimLock.writeLock().unlock();
+        }
+    }
+
+    private Set<Integer> ownPartitionNumbers() {
+        Set<Integer> partitions = new HashSet<>();
+        ownPartitions.forEach((p, v) -> partitions.add(Integer.valueOf(p)));
+        return partitions;
+    }
+
+    // partitions of the references active on this node
+    private Set<Integer> activePartitions(int total) {
+        Set<Integer> partitions = new HashSet<>();
+        active.forEach((ref, rec) -> {
+            partitions.add(PartitionedDataStore.partitionOf(ref, total));
+            return true;
+        });
+        return partitions;
+    }
+
+    private void refreshPeers() {
+        var engine = crawler.getDataStoreEngine();
+        Map<String, DataStore<T>> peers = new HashMap<>();
+        for (String node : liveNodes()) {
+            if (!node.equals(id)) {
+                var store = peerActives.get(node);
+                peers.put(node, store != null ? store
+                        : engine.<T>openStore(activeStoreName(node), type));
+            }
+        }
+        peerActives = Collections.unmodifiableMap(peers);
+    }
+
+    private void openNodeStores(String nodeId) {
+        var engine = crawler.getDataStoreEngine();
+        active = engine.openStore(activeStoreName(nodeId), type);
+        ownPartitions = engine.openStore(
+                partitionsStoreName(nodeId), String.class);
+        id = nodeId;
+    }
+
+    private String newId() {
+        return name + ID_SEPARATOR
+                + Long.toString(TimeIdGenerator.next(), Character.MAX_RADIX);
+    }
+
+    // Whether a node id is from a former run of this node, or from
+    // before it had to rejoin.
+    private boolean isFormerIncarnation(String nodeId) {
+        return !nodeId.equals(id)
+                && nodeId.startsWith(name + ID_SEPARATOR);
+    }
+
+    private static String activeStoreName(String nodeId) {
+        return ACTIVE_STORE + "_" + nodeId;
+    }
+
+    private static String partitionsStoreName(String nodeId) {
+        return PARTITIONS_STORE + "_" + nodeId;
+    }
+
+    private static String defaultNodeName() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            LOG.debug("Could not resolve host name.", e);
+            host = "node";
+        }
+        return host + "_" + ProcessHandle.current().pid();
+    }
+
+    private static String safeName(String name) {
+        return name.replaceAll("[^a-zA-Z0-9_]", "_");
+    }
+}
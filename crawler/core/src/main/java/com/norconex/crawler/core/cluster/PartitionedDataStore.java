@@ -0,0 +1,279 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.cluster;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import com.norconex.crawler.core.store.DataStore;
+import com.norconex.crawler.core.store.DataStoreEngine;
+
+import lombok.NonNull;
+
+/**
+ * <p>
+ * Data store split into a fixed number of partitions, each being its own
+ * store. Records are assigned to partitions based on the host of their
+ * ID (when the ID is a URL) or on the ID itself otherwise.
+ * </p>
+ * <p>
+ * Operations on specific IDs go to the partition they belong to, while
+ * operations on the whole store cover all partitions. The exceptions are
+ * {@link #findFirst()}, {@link #deleteFirst()}, and
+ * {@link #moveFirst(int, DataStore)}, which only consider the partitions
+ * currently claimable.
+ * </p>
+ * @param <T> type of stored objects
+ * @since 4.0.0
+ */
+public class PartitionedDataStore<T> implements DataStore<T> {
+
+    private static final Pattern URL_HOST = Pattern.compile(
+            "^[a-zA-Z][a-zA-Z0-9+.\\-]*://(?:[^@/?#]*@)?([^/?#:]+)");
+
+    private final String name;
+    private final List<DataStore<T>> partitions = new ArrayList<>();
+    private final Supplier<Collection<Integer>> claimable;
+    // rotates the partition first claimed from, for fairness
+    private final AtomicInteger nextClaim = new AtomicInteger();
+
+    /**
+     * Creates a partitioned store, opening a store for each partition,
+     * named after this store name and the partition number.
+     * @param engine data store engine
+     * @param name base store name
+     * @param type type of stored objects
+     * @param count number of partitions
+     * @param claimable supplies the partitions first records can be
+     *     obtained from
+     */
+    public PartitionedDataStore(
+            @NonNull DataStoreEngine engine,
+            @NonNull String name,
+            @NonNull Class<? extends T> type,
+            int count,
+            @NonNull Supplier<Collection<Integer>> claimable) {
+        if (count < 1) {
+            throw new IllegalArgumentException(
+                    "Partition count must be greater than zero.");
+        }
+        this.name = name;
+        this.claimable = claimable;
+        for (var i = 0; i < count; i++) {
+            partitions.add(engine.openStore(partitionName(name, i), type));
+        }
+    }
+
+    /**
+     * Gets the name of the store holding a partition.
+     * @param name base store name
+     * @param partition partition number
+     * @return partition store name
+     */
+    public static String partitionName(String name, int partition) {
+        return name + "_" + partition;
+    }
+
+    /**
+     * Gets the partition an ID belongs to. IDs that are URLs having the
+     * same host belong to the same partition.
+     * @param id record ID
+     * @param count number of partitions
+     * @return partition number
+     */
+    public static int partitionOf(String id, int count) {
+        var m = URL_HOST.matcher(id);
+        var key = m.find() ? m.group(1).toLowerCase(Locale.ROOT) : id;
+        return Math.floorMod(key.hashCode(), count);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void save(String id, T object) {
+        partition(id).save(id, object);
+    }
+
+    @Override
+    public boolean saveIfAbsent(String id, T object) {
+        return partition(id).saveIfAbsent(id, object);
+    }
+
+    @Override
+    public Optional<T> find(String id) {
+        return partition(id).find(id);
+    }
+
+    @Override
+    public Optional<T> findFirst() {
+        for (DataStore<T> store : claimableStores()) {
+            var obj = store.findFirst();
+            if (obj.isPresent()) {
+                return obj;
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean exists(String id) {
+        return partition(id).exists(id);
+    }
+
+    @Override
+    public long count() {
+        return partitions.stream().mapToLong(DataStore::count).sum();
+    }
+
+    @Override
+    public boolean delete(String id) {
+        return partition(id).delete(id);
+    }
+
+    @Override
+    public Optional<T> deleteFirst() {
+        for (DataStore<T> store : claimableStores()) {
+            var obj = store.deleteFirst();
+            if (obj.isPresent()) {
+                return obj;
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public void clear() {
+        partitions.forEach(DataStore::clear);
+    }
+
+    @Override
+    public void close() {
+        partitions.forEach(DataStore::close);
+    }
+
+    @Override
+    public boolean forEach(BiPredicate<String, T> predicate) {
+        for (DataStore<T> store : partitions) {
+            if (!store.forEach(predicate)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return partitions.stream().allMatch(DataStore::isEmpty);
+    }
+
+    @Override
+    public void saveAll(Map<String, T> objects) {
+        Map<Integer, Map<String, T>> byPartition = new HashMap<>();
+        objects.forEach((id, obj) -> byPartition.computeIfAbsent(
+                partitionIndex(id), k -> new LinkedHashMap<>()).put(id, obj));
+        byPartition.forEach((p, objs) -> partitions.get(p).saveAll(objs));
+    }
+
+    @Override
+    public Map<String, T> findAll(Collection<String> ids) {
+        Map<String, T> found = new HashMap<>();
+        groupIds(ids).forEach(
+                (p, pids) -> found.putAll(partitions.get(p).findAll(pids)));
+        Map<String, T> ordered = new LinkedHashMap<>();
+        ids.forEach(id -> {
+            var obj = found.get(id);
+            if (obj != null) {
+                ordered.put(id, obj);
+            }
+        });
+        return ordered;
+    }
+
+    @Override
+    public long deleteAll(Collection<String> ids) {
+        var deleted = 0L;
+        for (Entry<Integer, List<String>> en : groupIds(ids).entrySet()) {
+            deleted += partitions.get(en.getKey()).deleteAll(en.getValue());
+        }
+        return deleted;
+    }
+
+    @Override
+    public long moveAll(DataStore<T> target) {
+        var moved = 0L;
+        for (DataStore<T> store : partitions) {
+            moved += store.moveAll(target);
+        }
+        return moved;
+    }
+
+    @Override
+    public List<T> moveFirst(int maxCount, DataStore<T> target) {
+        List<T> moved = new ArrayList<>();
+        for (DataStore<T> store : claimableStores()) {
+            if (moved.size() >= maxCount) {
+                break;
+            }
+            moved.addAll(store.moveFirst(maxCount - moved.size(), target));
+        }
+        return moved;
+    }
+
+    @Override
+    public Stream<Entry<String, T>> stream(int pageSize) {
+        return partitions.stream().flatMap(store -> store.stream(pageSize));
+    }
+
+    private DataStore<T> partition(String id) {
+        return partitions.get(partitionIndex(id));
+    }
+    private int partitionIndex(String id) {
+        return partitionOf(id, partitions.size());
+    }
+    private Map<Integer, List<String>> groupIds(Collection<String> ids) {
+        Map<Integer, List<String>> byPartition = new HashMap<>();
+        ids.forEach(id -> byPartition.computeIfAbsent(
+                partitionIndex(id), k -> new ArrayList<>()).add(id));
+        return byPartition;
+    }
+    private List<DataStore<T>> claimableStores() {
+        List<Integer> indices = new ArrayList<>(claimable.get());
+        if (indices.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Collections.sort(indices);
+        Collections.rotate(indices,
+                -Math.floorMod(nextClaim.getAndIncrement(), indices.size()));
+        List<DataStore<T>> stores = new ArrayList<>(indices.size());
+        indices.forEach(i -> stores.add(partitions.get(i)));
+        return stores;
+    }
+}
@@ -1,4 +1,4 @@
-/* Copyright 2014-2023 Norconex Inc.
+/* Copyright 2014-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,10 +19,13 @@ import static java.util.Optional.ofNullable;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -30,7 +33,6 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.apache.commons.lang3.mutable.MutableBoolean;
 import org.apache.commons.lang3.mutable.MutableInt;
-import org.apache.commons.lang3.mutable.MutableLong;
 
 import com.norconex.committer.core.CommitterContext;
 import com.norconex.committer.core.DeleteRequest;
@@ -41,6 +43,7 @@ import com.norconex.commons.lang.event.EventManager;
 import com.norconex.commons.lang.file.FileUtil;
 import com.norconex.commons.lang.io.CachedStreamFactory;
 import com.norconex.crawler.core.crawler.CrawlerConfig.OrphansStrategy;
+import com.norconex.crawler.core.crawler.CrawlerConfig.ThreadMode;
 import com.norconex.crawler.core.doc.CrawlDoc;
 import com.norconex.crawler.core.doc.CrawlDocRecord;
 import com.norconex.crawler.core.doc.CrawlDocRecordFactory;
@@ -48,6 +51,7 @@ import com.norconex.crawler.core.doc.CrawlDocRecordService;
 import com.norconex.crawler.core.fetch.FetchRequest;
 import com.norconex.crawler.core.fetch.FetchResponse;
 import com.norconex.crawler.core.fetch.Fetcher;
+import com.norconex.crawler.core.filter.CompiledFilterGroup;
 import com.norconex.crawler.core.monitor.CrawlerMonitor;
 import com.norconex.crawler.core.monitor.CrawlerMonitorJMX;
 import com.norconex.crawler.core.monitor.MdcUtil;
@@ -56,8 +60,11 @@ import com.norconex.crawler.core.pipeline.DocumentPipelineContext;
 import com.norconex.crawler.core.pipeline.importer.ImporterPipelineContext;
 import com.norconex.crawler.core.session.CrawlSession;
 import com.norconex.crawler.core.session.CrawlSessionException;
+import com.norconex.crawler.core.store.ChunkedDataStoreExporter;
+import com.norconex.crawler.core.store.ChunkedDataStoreImporter;
 import com.norconex.crawler.core.store.DataStore;
 import com.norconex.crawler.core.store.DataStoreEngine;
+import com.norconex.crawler.core.store.DataStoreExportFormat;
 import com.norconex.crawler.core.store.DataStoreExporter;
 import com.norconex.crawler.core.store.DataStoreImporter;
 import com.norconex.importer.Importer;
@@ -148,6 +155,22 @@ public class Crawler {
     @Getter
     private CrawlDocRecordService docRecordService;
 
+    /**
+     * Gets the configured reference filters, compiled on init.
+     * @return compiled reference filters
+     * @since 4.0.0
+     */
+    @Getter
+    private CompiledFilterGroup referenceFilterGroup;
+
+    /**
+     * Gets the configured metadata filters, compiled on init.
+     * @return compiled metadata filters
+     * @since 4.0.0
+     */
+    @Getter
+    private CompiledFilterGroup metadataFilterGroup;
+
 
     //--- Properties set on Start ----------------------------------------------
 
@@ -175,6 +198,8 @@ public class Crawler {
 
     private MutableBoolean queueInitialized;
 
+    private volatile DocRecordQueuer docRecordQueuer;
+
     // Actual maximum number of docs after which to stop, which starts
     // at initial "processed count" + configured max. On clean runs or
     // after a session fully completed (whether it was resumed a few times
@@ -184,7 +209,7 @@ public class Crawler {
 
     //--- Properties set on Stop -----------------------------------------------
 
-    private boolean stopped;
+    private volatile boolean stopped;
 
     @Builder
     protected Crawler(
@@ -238,6 +263,32 @@ public class Crawler {
         crawlerImpl.queuePipeline().accept(
                 new DocRecordPipelineContext(this, rec));
     }
+    /**
+     * Queues many document records at once, such as all references
+     * extracted from a document. Once the crawler is started, records
+     * are sent through the queue pipeline asynchronously and this method
+     * returns right away. The crawler does not consider its work done
+     * while such records are waiting to be queued.
+     * @param recs document records to queue
+     * @since 4.0.0
+     */
+    public void queueDocRecords(List<? extends CrawlDocRecord> recs) {
+        var queuer = docRecordQueuer;
+        if (queuer != null) {
+            queuer.submit(recs);
+        } else {
+            queueDocRecordsNow(recs);
+        }
+    }
+    void queueDocRecordsNow(List<? extends CrawlDocRecord> recs) {
+        crawlerImpl.queuePipeline().acceptAll(recs.stream()
+                .map(rec -> new DocRecordPipelineContext(this, rec))
+                .toList());
+    }
+    boolean isQueueingDocRecords() {
+        var queuer = docRecordQueuer;
+        return queuer != null && queuer.isPending();
+    }
     //MAYBE: Keep this one or always force to pass context?
     public ImporterResponse importDoc(CrawlDoc doc) {
         return importDoc(new ImporterPipelineContext(this, doc));
@@ -277,6 +328,12 @@ public class Crawler {
 
         fire(CrawlerEvent.CRAWLER_INIT_BEGIN);
 
+        //--- Filters ---
+        referenceFilterGroup = CompiledFilterGroup.ofReferenceFilters(
+                "reference", configuration.getReferenceFilters());
+        metadataFilterGroup = CompiledFilterGroup.ofMetadataFilters(
+                "metadata", configuration.getMetadataFilters());
+
         //--- Store engine ---
         dataStoreEngine = configuration.getDataStoreEngine();
         dataStoreEngine.init(this);
@@ -311,9 +368,11 @@ public class Crawler {
         try {
             initCrawler(() -> {
                 resume.setValue(docRecordService.prepareForCrawlerStart());
+                docRecordQueuer = new DocRecordQueuer(this);
                 importer = new Importer(
                         getConfiguration().getImporterConfig(),
                         getEventManager());
+                importer.init();
                 monitor = new CrawlerMonitor(this);
                 //TODO make general logging messages verbosity configurable
                 progressLogger = new CrawlProgressLogger(monitor,
@@ -372,7 +431,7 @@ public class Crawler {
             LOG.info("Crawling references...");
             processReferences(new ProcessFlags());
 
-            if (!isStopped()) {
+            if (!isStopped() && docRecordService.claimOrphansHandling()) {
                 handleOrphans();
             }
 
@@ -400,9 +459,18 @@ public class Crawler {
     }
 
     void processReferences(final ProcessFlags flags) {
-        var numThreads = getConfiguration().getNumThreads();
+        var virtual = isVirtualThreadMode();
+        if (!virtual && configuration.getThreadMode() == ThreadMode.VIRTUAL) {
+            LOG.warn("Virtual threads are not supported by this Java "
+                    + "version ({}). Using platform threads instead.",
+                    System.getProperty("java.version"));
+        }
+        var numThreads = getNumWorkerThreads();
+        LOG.info("Crawling with {} {} threads.",
+                numThreads, virtual ? "virtual" : "platform");
         final var latch = new CountDownLatch(numThreads);
-        var execService = Executors.newFixedThreadPool(numThreads);
+        var execService =
+                CrawlerExecutors.newFixedThreadPool(numThreads, virtual);
         try {
             for (var i = 0; i < numThreads; i++) {
                 final var threadIndex = i + 1;
@@ -447,6 +515,12 @@ public class Crawler {
         fire(CrawlerEvent.CRAWLER_STOP_BEGIN);
         stopped = true;
         LOG.info("Stopping the crawler.");
+        // stopping one node stops them all
+        ofNullable(docRecordService).ifPresent(
+                CrawlDocRecordService::requestClusterStop);
+        // wake up idle crawler threads so they can exit right away
+        ofNullable(docRecordService).ifPresent(
+                CrawlDocRecordService::signalActivity);
     }
 
     /**
@@ -505,34 +579,66 @@ public class Crawler {
             return;
         }
         LOG.info("Reprocessing any cached/orphan references...");
-
-        var count = new MutableLong();
-        docRecordService.forEachCached((ref, docInfo) -> {
-            crawlerImpl.queuePipeline().accept(
-                    new DocRecordPipelineContext(this, docInfo));
-            count.increment();
-            return true;
-        });
-
-        if (count.longValue() > 0) {
-            processReferences(new ProcessFlags().orphan());
-        }
+        var count = processCacheOrphans(
+                new ProcessFlags().orphan(), this::queueDocRecordsNow);
         LOG.info("Reprocessed {} cached/orphan references.", count);
     }
 
     void deleteCacheOrphans() {
         LOG.info("Deleting orphan references (if any)...");
+        var count = processCacheOrphans(new ProcessFlags().delete(),
+                recs -> recs.forEach(docRecordService::queue));
+        LOG.info("Deleted {} orphan references.", count);
+    }
 
-        var count = new MutableLong();
-        docRecordService.forEachCached((k, v) -> {
-            docRecordService.queue(v);
-            count.increment();
-            return true;
-        });
-        if (count.longValue() > 0) {
-            processReferences(new ProcessFlags().delete());
+    // Once crawling is done, cached references are the orphans (processed
+    // ones are removed from the cache), so no need to check which ones
+    // were visited. They are queued a chunk at a time by a separate thread
+    // while crawler threads are already processing them. Crawler threads
+    // wait for more of them like they do while the queue is initializing.
+    private long processCacheOrphans(ProcessFlags flags,
+            Consumer<List<CrawlDocRecord>> chunkQueuer) {
+        if (docRecordService.isCachedEmpty()) {
+            return 0;
         }
-        LOG.info("Deleted {} orphan references.", count);
+        var count = new AtomicLong();
+        var initialized = queueInitialized;
+        var orphansQueued = new MutableBoolean(false);
+        queueInitialized = orphansQueued;
+        var feeder = new Thread(() -> {
+            MdcUtil.setCrawlerId(getId());
+            try (var cachedRecs = docRecordService.streamCached()) {
+                List<CrawlDocRecord> chunk = new ArrayList<>();
+                var it = cachedRecs.iterator();
+                while (it.hasNext() && !isStopped()) {
+                    chunk.add(it.next().getValue());
+                    if (chunk.size() >= DataStore.DEFAULT_PAGE_SIZE
+                            || !it.hasNext()) {
+                        chunkQueuer.accept(chunk);
+                        count.addAndGet(chunk.size());
+                        LOG.debug("{} orphan references queued so far.",
+                                count);
+                        chunk = new ArrayList<>();
+                    }
+                }
+            } catch (RuntimeException e) {
+                LOG.error("Could not queue all orphan references.", e);
+            } finally {
+                orphansQueued.setTrue();
+                docRecordService.signalActivity();
+            }
+        }, getId() + "-orphans");
+        feeder.start();
+        try {
+            processReferences(flags);
+            feeder.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CrawlerException(e);
+        } finally {
+            queueInitialized = initialized;
+        }
+        return count.get();
     }
 
     //TODO duplicate method, move to util class
@@ -551,9 +657,24 @@ public class Crawler {
     }
 
     public void importDataStore(Path inFile) {
+        importDataStore(inFile, Runtime.getRuntime().availableProcessors());
+    }
+    /**
+     * Imports data stores previously exported in any of the
+     * {@link DataStoreExportFormat}s.
+     * @param inFile export file (or directory, for chunked exports)
+     * @param threads maximum number of threads importing chunked exports
+     * @since 4.0.0
+     */
+    public void importDataStore(Path inFile, int threads) {
         initCrawler(null);
         try {
-            DataStoreImporter.importDataStore(this, inFile);
+            if (ChunkedDataStoreImporter.isChunkedExport(inFile)) {
+                ChunkedDataStoreImporter.importDataStore(
+                        this, inFile, threads);
+            } else {
+                DataStoreImporter.importDataStore(this, inFile);
+            }
         } catch (IOException e) {
             throw new CrawlerException("Could not import data store.", e);
         } finally {
@@ -561,8 +682,25 @@ public class Crawler {
         }
     }
     public Path exportDataStore(Path dir) {
+        return exportDataStore(dir, DataStoreExportFormat.ZIP,
+                Runtime.getRuntime().availableProcessors());
+    }
+    /**
+     * Exports data stores in the given format.
+     * @param dir directory where to export
+     * @param format export format
+     * @param threads maximum number of threads writing chunked exports
+     * @return the export file (or directory, for chunked exports)
+     * @since 4.0.0
+     */
+    public Path exportDataStore(
+            Path dir, DataStoreExportFormat format, int threads) {
         initCrawler(null);
         try {
+            if (format == DataStoreExportFormat.CHUNKED) {
+                return ChunkedDataStoreExporter.exportDataStore(
+                        this, dir, threads);
+            }
             return DataStoreExporter.exportDataStore(this, dir);
         } catch (IOException e) {
             throw new CrawlerException("Could not export data store.", e);
@@ -572,6 +710,9 @@ public class Crawler {
     }
 
     void destroyCrawler() {
+        // references still waiting to be queued are queued before closing
+        ofNullable(docRecordQueuer).ifPresent(DocRecordQueuer::close);
+        docRecordQueuer = null;
         ofNullable(docRecordService).ifPresent(
                 CrawlDocRecordService::close);
         ofNullable(dataStoreEngine).ifPresent(DataStoreEngine::close);
@@ -580,6 +721,7 @@ public class Crawler {
         // to clean all?
         // eventManager.clearListeners();
         ofNullable(committerService).ifPresent(CommitterService::close);
+        ofNullable(importer).ifPresent(Importer::destroy);
     }
 
     // store made of: checksum -> ref
@@ -627,6 +769,24 @@ public class Crawler {
                 .build());
     }
 
+    /**
+     * Gets the number of crawler threads processing documents concurrently.
+     * That is the configured number of virtual threads when the thread mode
+     * is {@link ThreadMode#VIRTUAL} and virtual threads are supported,
+     * or the configured number of threads otherwise.
+     * @return number of crawler threads
+     */
+    public int getNumWorkerThreads() {
+        return isVirtualThreadMode()
+                ? configuration.getNumVirtualThreads()
+                : configuration.getNumThreads();
+    }
+
+    boolean isVirtualThreadMode() {
+        return configuration.getThreadMode() == ThreadMode.VIRTUAL
+                && CrawlerExecutors.isVirtualThreadSupported();
+    }
+
     public boolean isQueueInitialized() {
         // exceptions aside, this is never null when start method was called
         return ofNullable(queueInitialized)
@@ -1,4 +1,4 @@
-/* Copyright 2014-2023 Norconex Inc.
+/* Copyright 2014-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -31,6 +31,7 @@ import com.norconex.commons.lang.event.EventListener;
 import com.norconex.crawler.core.checksum.DocumentChecksummer;
 import com.norconex.crawler.core.checksum.MetadataChecksummer;
 import com.norconex.crawler.core.checksum.impl.MD5DocumentChecksummer;
+import com.norconex.crawler.core.cluster.ClusterConfig;
 import com.norconex.crawler.core.doc.CrawlDocMetadata;
 import com.norconex.crawler.core.fetch.FetchDirectiveSupport;
 import com.norconex.crawler.core.fetch.Fetcher;
@@ -63,6 +64,10 @@ import lombok.experimental.FieldNameConstants;
  * {@nx.xml #init
  *
  *   <numThreads>(maximum number of threads)</numThreads>
+ *   <threadMode>[PLATFORM|VIRTUAL]</threadMode>
+ *   <numVirtualThreads>
+ *     (maximum number of virtual threads, when thread mode is VIRTUAL)
+ *   </numVirtualThreads>
  *   <maxDocuments>
  *     (maximum number of documents to crawl per session, resuming on next
  *      sessions where it last ended, if crawling was not complete)
@@ -85,6 +90,8 @@ import lombok.experimental.FieldNameConstants;
  *   </eventListeners>
  *
  *   <dataStoreEngine class="(DataStoreEngine implementation)" />
+ *
+ *   {@nx.include com.norconex.crawler.core.cluster.ClusterConfig@nx.xml.usage}
  * }
  *
  * {@nx.xml #start-refs
@@ -203,10 +210,26 @@ public class CrawlerConfig {
         IGNORE
     }
 
+    public enum ThreadMode {
+        /**
+         * Crawler threads are regular (platform) threads, up to
+         * {@link CrawlerConfig#getNumThreads()}.
+         */
+        PLATFORM,
+        /**
+         * Crawler threads are virtual threads, up to
+         * {@link CrawlerConfig#getNumVirtualThreads()}. Requires Java 21
+         * or higher. On older Java versions, platform threads are used
+         * instead.
+         */
+        VIRTUAL
+    }
+
     public static final Duration DEFAULT_IDLE_PROCESSING_TIMEOUT =
             Duration.ofMinutes(10);
     public static final Duration DEFAULT_MIN_PROGRESS_LOGGING_INTERVAL =
             Duration.ofSeconds(30);
+    public static final int DEFAULT_NUM_VIRTUAL_THREADS = 500;
 
     //--- Properties -----------------------------------------------------------
 
@@ -249,6 +272,27 @@ public class CrawlerConfig {
      */
     private int numThreads = 2;
 
+    /**
+     * The kind of threads used to process documents. Default is
+     * {@link ThreadMode#PLATFORM}. Crawling is mostly spent waiting on
+     * network I/O and politeness delays. Using
+     * {@link ThreadMode#VIRTUAL} allows for many more documents to be
+     * processed concurrently without the memory cost of as many
+     * platform threads.
+     * @param threadMode thread mode
+     * @return thread mode
+     */
+    private ThreadMode threadMode = ThreadMode.PLATFORM;
+
+    /**
+     * The maximum number of virtual threads a crawler can use when
+     * the thread mode is {@link ThreadMode#VIRTUAL}. Ignored otherwise.
+     * Default is {@value #DEFAULT_NUM_VIRTUAL_THREADS}.
+     * @param numVirtualThreads number of virtual threads
+     * @return number of virtual threads
+     */
+    private int numVirtualThreads = DEFAULT_NUM_VIRTUAL_THREADS;
+
     /**
      * <p>
      * The maximum number of documents that can be processed before stopping.
@@ -351,6 +395,15 @@ public class CrawlerConfig {
      */
     private DataStoreEngine dataStoreEngine = new MVStoreDataStoreEngine();
 
+    /**
+     * The cluster mode configuration, for running this crawler on
+     * several nodes sharing the same data store.
+     * @param clusterConfig cluster mode configuration
+     * @return cluster mode configuration
+     */
+    @JsonProperty("cluster")
+    private ClusterConfig clusterConfig = new ClusterConfig();
+
     private final List<ReferenceFilter> referenceFilters = new ArrayList<>();
     private final List<MetadataFilter> metadataFilters = new ArrayList<>();
     private final List<DocumentFilter> documentFilters = new ArrayList<>();
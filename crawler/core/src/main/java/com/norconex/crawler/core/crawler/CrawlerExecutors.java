@@ -0,0 +1,92 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.crawler;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Creates the thread pools running crawler threads.
+ * Virtual threads are obtained via reflection so this code still
+ * runs on Java versions without virtual thread support.
+ */
+@Slf4j
+final class CrawlerExecutors {
+
+    private static final ThreadFactory VIRTUAL_THREAD_FACTORY =
+            createVirtualThreadFactory();
+
+    private CrawlerExecutors() {}
+
+    /**
+     * Whether virtual threads are supported by the running Java version.
+     * @return <code>true</code> if supported
+     */
+    static boolean isVirtualThreadSupported() {
+        return VIRTUAL_THREAD_FACTORY != null;
+    }
+
+    /**
+     * Creates a fixed-size thread pool, using virtual threads if requested
+     * and supported, or platform threads otherwise.
+     * @param poolSize number of threads
+     * @param virtual whether to use virtual threads
+     * @return executor service
+     */
+    static ExecutorService newFixedThreadPool(int poolSize, boolean virtual) {
+        if (virtual && isVirtualThreadSupported()) {
+            return Executors.newFixedThreadPool(
+                    poolSize, VIRTUAL_THREAD_FACTORY);
+        }
+        return Executors.newFixedThreadPool(poolSize);
+    }
+
+    /**
+     * Creates a thread factory for virtual threads if requested and
+     * supported, or for daemon platform threads otherwise, named with
+     * the given prefix followed by a sequence number.
+     * @param namePrefix platform thread name prefix
+     * @param virtual whether to use virtual threads
+     * @return thread factory
+     */
+    static ThreadFactory newThreadFactory(String namePrefix, boolean virtual) {
+        if (virtual && isVirtualThreadSupported()) {
+            return VIRTUAL_THREAD_FACTORY;
+        }
+        var count = new AtomicInteger();
+        return runnable -> {
+            var thread = new Thread(
+                    runnable, namePrefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static ThreadFactory createVirtualThreadFactory() {
+        try {
+            var builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder")
+                    .getMethod("factory")
+                    .invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOG.debug("Virtual threads not supported.", e);
+            return null;
+        }
+    }
+}
@@ -1,4 +1,4 @@
-/* Copyright 2022-2023 Norconex Inc.
+/* Copyright 2022-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,6 +25,8 @@ import com.norconex.commons.lang.ClassUtil;
 import com.norconex.crawler.core.doc.CrawlDoc;
 import com.norconex.crawler.core.doc.CrawlDocRecord;
 import com.norconex.crawler.core.doc.CrawlDocRecordFactory;
+import com.norconex.crawler.core.doc.CrawlDocRecordScheduler;
+import com.norconex.crawler.core.doc.FifoCrawlDocRecordScheduler;
 import com.norconex.crawler.core.fetch.FetchRequest;
 import com.norconex.crawler.core.fetch.FetchResponse;
 import com.norconex.crawler.core.fetch.Fetcher;
@@ -175,6 +177,18 @@ public class CrawlerImpl {
     CrawlDocRecordFactory docRecordFactory =
             ctx -> new CrawlDocRecord(ctx.parentDocRecord);
 
+    /**
+     * Function responsible for creating the scheduler deciding in which
+     * order document records claimed from the queue are handed to
+     * crawler threads. Defaults to a {@link FifoCrawlDocRecordScheduler}.
+     * @param docRecordScheduler scheduler factory function
+     * @return scheduler factory function
+     */
+    @NonNull
+    @Default
+    Function<Crawler, CrawlDocRecordScheduler> docRecordScheduler =
+            crawler -> new FifoCrawlDocRecordScheduler();
+
     /**
      * Gives crawler implementations a chance to prepare before execution
      * starts. Invoked right after the
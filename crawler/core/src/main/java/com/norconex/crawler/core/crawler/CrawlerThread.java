@@ -1,4 +1,4 @@
-/* Copyright 2022-2022 Norconex Inc.
+/* Copyright 2022-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,7 +24,6 @@ import java.util.concurrent.CountDownLatch;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.time.StopWatch;
 
-import com.norconex.commons.lang.Sleeper;
 import com.norconex.commons.lang.time.DurationFormatter;
 import com.norconex.crawler.core.doc.CrawlDoc;
 import com.norconex.crawler.core.doc.CrawlDocMetadata;
@@ -63,7 +62,12 @@ class CrawlerThread implements Runnable {
     private final boolean deleting;
     private final boolean orphan;
 
+    // Maximum time an idle thread waits for activity before checking
+    // again whether it should keep running.
+    private static final Duration MAX_ACTIVITY_WAIT = Duration.ofSeconds(1);
+
     private final TimeoutWatcher activeTimeoutWatcher = new TimeoutWatcher();
+    private boolean waitingForQueueInit;
 //    private final TimeoutWatcher queueInitTimeoutWatcher = new TimeoutWatcher();
 
     @Override
@@ -97,11 +101,15 @@ class CrawlerThread implements Runnable {
                 return false;
             }
 
+            var activityStamp =
+                    crawler.getDocRecordService().getActivityStamp();
             ctx.docRecord(pullNextDocRecordFromQueue());
             if (ctx.docRecord() == null) {
-                return isCrawlerStillActive() || isQueueStillInitializing();
+                return isCrawlerStillActive(activityStamp)
+                        || isQueueStillInitializing(activityStamp);
             }
             activeTimeoutWatcher.reset();
+            waitingForQueueInit = false;
 //            queueInitTimeoutWatcher.reset();
 
             ctx.doc(createDocWithDocRecordFromCache(ctx.docRecord()));
@@ -154,15 +162,17 @@ class CrawlerThread implements Runnable {
         return rec;
     }
 
-    private boolean isCrawlerStillActive() {
+    private boolean isCrawlerStillActive(long activityStamp) {
         var activeEmpty = crawler.getDocRecordService().isActiveEmpty();
+        // Checked in between: references extracted by a document are
+        // submitted while it is active and queued before no longer pending.
+        var queueing = crawler.isQueueingDocRecords();
         var queueEmpty = crawler.getDocRecordService().isQueueEmpty();
-        if (activeEmpty && queueEmpty) {
+        if (activeEmpty && !queueing && queueEmpty) {
             LOG.trace("Queue is empty and no documents are currently"
                     + "being processed.");
             return false;
         }
-        Sleeper.sleepMillis(1); // to avoid fast loops taking all CPU
         // If there are some activity left, it means the queue
         // can grow again, we stop processing this non-existing doc
         // and let parent wait an try again, for as long as the activity timeout
@@ -179,10 +189,13 @@ class CrawlerThread implements Runnable {
                     !activeEmpty, queueEmpty);
             return false;
         }
+        // Wait for a reference to be queued or processed instead of
+        // polling the stores in a loop.
+        waitForActivity(activityStamp);
         return true;
     }
 
-    private boolean isQueueStillInitializing() {
+    private boolean isQueueStillInitializing(long activityStamp) {
         if (crawler.isQueueInitialized()) {
             return false;
         }
@@ -196,12 +209,22 @@ class CrawlerThread implements Runnable {
 //            crawler.stop();
 //            return false;
 //        }
-        LOG.info("References are still being queued. "
-                + "Waiting for new references...");
-        Sleeper.sleepSeconds(5);
+        if (!waitingForQueueInit) {
+            LOG.info("References are still being queued. "
+                    + "Waiting for new references...");
+            waitingForQueueInit = true;
+        }
+        waitForActivity(activityStamp);
         return true;
     }
 
+    private void waitForActivity(long activityStamp) {
+        if (!crawler.isStopped()) {
+            crawler.getDocRecordService().awaitActivity(
+                    activityStamp, MAX_ACTIVITY_WAIT);
+        }
+    }
+
     private CrawlDoc createDocWithDocRecordFromCache(DocRecord docRec) {
         // put timer for whole thread or closer to just importer
         // or have importer offer its own timer, in addition.
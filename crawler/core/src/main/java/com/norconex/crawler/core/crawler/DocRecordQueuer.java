@@ -0,0 +1,109 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.crawler;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.norconex.crawler.core.doc.CrawlDocRecord;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sends batches of document records through the queue pipeline on
+ * queuing threads, so crawler threads can move on to their next document
+ * instead of waiting for every extracted reference to be filtered and
+ * queued. There are as many queuing threads as crawler threads, so slow
+ * queue pipeline steps (e.g., fetching robots.txt) for one site do not
+ * hold back the batches of other sites. When too many batches are
+ * waiting, the submitting thread queues its batch itself, which keeps
+ * memory usage in check.
+ */
+@Slf4j
+final class DocRecordQueuer {
+
+    private static final int MAX_WAITING_BATCHES = 1000;
+    private static final long CLOSE_TIMEOUT_SECONDS = 60;
+    private static final long IDLE_TIMEOUT_SECONDS = 60;
+
+    private final Crawler crawler;
+    private final ThreadPoolExecutor executor;
+    private final AtomicInteger pendingBatches = new AtomicInteger();
+
+    DocRecordQueuer(Crawler crawler) {
+        this.crawler = crawler;
+        var poolSize = Math.max(1, crawler.getNumWorkerThreads());
+        executor = new ThreadPoolExecutor(
+                poolSize, poolSize, IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(MAX_WAITING_BATCHES),
+                CrawlerExecutors.newThreadFactory(crawler.getId()
+                        + "-queuer", crawler.isVirtualThreadMode()),
+                // also runs batches submitted after closing
+                (runnable, exec) -> runnable.run());
+        // threads only kept while there are batches to queue
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    void submit(List<? extends CrawlDocRecord> recs) {
+        if (recs.isEmpty()) {
+            return;
+        }
+        pendingBatches.incrementAndGet();
+        executor.execute(() -> queue(recs));
+    }
+
+    /**
+     * Whether some submitted batches are not yet fully queued.
+     * @return <code>true</code> if batches are pending
+     */
+    boolean isPending() {
+        return pendingBatches.get() > 0;
+    }
+
+    /**
+     * Waits for pending batches to be queued and stops the queuing threads.
+     */
+    void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(
+                    CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOG.warn("Gave up waiting for {} batches of references "
+                        + "to be queued.", pendingBatches.get());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.error("Interrupted while waiting for references to be "
+                    + "queued.", e);
+        }
+    }
+
+    private void queue(List<? extends CrawlDocRecord> recs) {
+        try {
+            crawler.queueDocRecordsNow(recs);
+        } catch (RuntimeException e) {
+            LOG.error("Could not queue {} references.", recs.size(), e);
+        } finally {
+            // lets idle crawler threads find out nothing else is coming
+            if (pendingBatches.decrementAndGet() == 0) {
+                crawler.getDocRecordService().signalActivity();
+            }
+        }
+    }
+}
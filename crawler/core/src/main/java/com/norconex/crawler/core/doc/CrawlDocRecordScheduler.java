@@ -0,0 +1,77 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.doc;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * <p>
+ * Decides in which order document records claimed from the queue are
+ * handed to crawler threads. Records are claimed from the queue store
+ * (and marked as active) before being scheduled, and are only released
+ * to crawler threads when ready to be processed right away. This gives
+ * crawler implementations a chance to favor references that can be
+ * processed without waiting (e.g., web sites not subject to a
+ * politeness delay at the moment).
+ * </p>
+ * <p>
+ * Implementations must be thread-safe.
+ * </p>
+ * @see FifoCrawlDocRecordScheduler
+ */
+public interface CrawlDocRecordScheduler {
+
+    /**
+     * Adds a document record claimed from the queue.
+     * @param docRecord document record
+     */
+    void schedule(CrawlDocRecord docRecord);
+
+    /**
+     * Removes and returns the next document record ready to be processed,
+     * if any.
+     * @return optional document record
+     */
+    Optional<CrawlDocRecord> next();
+
+    /**
+     * Gets how long until the next scheduled document record is expected
+     * to be ready. Returns {@link Duration#ZERO} if a record is ready now,
+     * or <code>null</code> if unknown (e.g., nothing is scheduled).
+     * @return duration until the next record is ready, or <code>null</code>
+     */
+    Duration getNextReadyDelay();
+
+    /**
+     * Whether the scheduler holds as many document records as it accepts.
+     * No more records will be claimed from the queue until records
+     * are handed to crawler threads.
+     * @return <code>true</code> if full
+     */
+    boolean isFull();
+
+    /**
+     * Gets the number of scheduled document records, whether they
+     * are ready or not.
+     * @return number of scheduled records
+     */
+    int size();
+
+    /**
+     * Removes all scheduled document records.
+     */
+    void clear();
+}
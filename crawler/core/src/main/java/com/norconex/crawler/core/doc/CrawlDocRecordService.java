@@ -1,4 +1,4 @@
-/* Copyright 2019-2023 Norconex Inc.
+/* Copyright 2019-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,12 +15,31 @@
 package com.norconex.crawler.core.doc;
 
 import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiPredicate;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.tuple.Pair;
 
 import com.norconex.commons.lang.PercentFormatter;
+import com.norconex.crawler.core.cluster.ClusterNode;
+import com.norconex.crawler.core.cluster.PartitionedDataStore;
 import com.norconex.crawler.core.crawler.Crawler;
 import com.norconex.crawler.core.crawler.CrawlerEvent;
 import com.norconex.crawler.core.doc.CrawlDocRecord.Stage;
@@ -42,11 +61,9 @@ public class CrawlDocRecordService implements Closeable {
 //    *       cached on the next run.</li>
 //    * </ul>
 
-    //TODO Commit on every put() is required if we want to guarantee
-    // recovery on a cold JVM/OS/System crash. But do we care to reprocess
-    // a handful of docs?
-    //TODO if performance is too impacted, make it a configurable
-    //option to offer guarantee or not?
+    // How often stage transitions are persisted (and thus how many
+    // references may be reprocessed after a crash) is up to the data store
+    // engine (e.g., MVStore "durability" setting).
 
     //TODO so we can report better... have more states? processed is vague..
     //should we have rejected/accepted instead?
@@ -55,12 +72,46 @@ public class CrawlDocRecordService implements Closeable {
 
     // new ones
     private DataStore<CrawlDocRecord> queue;
-    private DataStore<CrawlDocRecord> active;
+    // changes when a cluster node rejoins the cluster
+    private volatile DataStore<CrawlDocRecord> active;
     //TODO split into rejected/accepted?
     private DataStore<CrawlDocRecord> processed;
     private DataStore<CrawlDocRecord> cached;
     private Class<? extends CrawlDocRecord> type;
 
+    // Holds records claimed from the queue store (and already saved as
+    // active) until they are handed to crawler threads. Records left here
+    // when the crawler stops are moved back to the queue on next start like
+    // any other active records.
+    private CrawlDocRecordScheduler scheduler =
+            new FifoCrawlDocRecordScheduler();
+    private final ReentrantLock claimLock = new ReentrantLock();
+    private int claimBatchSize = 1;
+    private final ReentrantLock processedLock = new ReentrantLock();
+
+    // References seen this session, to avoid store lookups for new ones.
+    // Only set once prepared for crawler start.
+    private volatile SeenReferenceIndex seenIndex;
+    // Makes checking and queueing the same reference atomic
+    private final ReentrantLock[] queueLocks = new ReentrantLock[64];
+
+    // Number of records in each stage, so frequent count requests
+    // (e.g., max documents check, monitoring) do not query the stores.
+    // Seeded from the stores and updated on every stage transition.
+    private final LongAdder queuedCount = new LongAdder();
+    private final LongAdder activeCount = new LongAdder();
+    private final LongAdder processedCount = new LongAdder();
+
+    // Lets idle crawler threads wait for something to happen (reference
+    // queued or processed) instead of polling the stores.
+    private final AtomicLong activityStamp = new AtomicLong();
+    private final AtomicInteger activityWaiters = new AtomicInteger();
+    private final ReentrantLock activityLock = new ReentrantLock();
+    private final Condition activityCondition = activityLock.newCondition();
+
+    // Set when running as one of many nodes sharing the same stores
+    private ClusterNode<CrawlDocRecord> clusterNode;
+
     private final Crawler crawler;
 
     private boolean open;
@@ -71,6 +122,9 @@ public class CrawlDocRecordService implements Closeable {
                 crawler, "'crawler' must not be null.");
         this.type = Objects.requireNonNull(
                 type, "'type' must not be null.");
+        for (var i = 0; i < queueLocks.length; i++) {
+            queueLocks[i] = new ReentrantLock();
+        }
     }
 
     // return true if resuming (holds records that have not been processed),
@@ -82,10 +136,24 @@ public class CrawlDocRecordService implements Closeable {
 
         var storeEngine = crawler.getDataStoreEngine();
 
-        queue = storeEngine.openStore("queued", type);
-        active = storeEngine.openStore("active", type);
+        var clusterConfig = crawler.getConfiguration().getClusterConfig();
+        if (clusterConfig != null && clusterConfig.isEnabled()) {
+            // Each node has its own active store so its references can be
+            // returned to the queue should it die.
+            clusterNode = new ClusterNode<>(crawler, clusterConfig, type);
+            active = clusterNode.getActiveStore();
+            queue = clusterConfig.getPartitions() > 0
+                    ? new PartitionedDataStore<>(storeEngine, "queued", type,
+                            clusterConfig.getPartitions(),
+                            clusterNode::getOwnedPartitions)
+                    : storeEngine.openStore("queued", type);
+        } else {
+            queue = storeEngine.openStore("queued", type);
+            active = storeEngine.openStore("active", type);
+        }
         processed = storeEngine.openStore("processed", type);
         cached = storeEngine.openStore("cached", type);
+        seedCounts();
 
         return !isQueueEmpty() || !isActiveEmpty();
 
@@ -111,6 +179,15 @@ public class CrawlDocRecordService implements Closeable {
     //MAYBE: Move elsewhere since only used once, when starting crawler?
     public boolean prepareForCrawlerStart() {
 
+        if (clusterNode != null && !clusterNode.join(queue)) {
+            // Crawl already initialized by another node
+            LOG.info("JOINING \"{}\" as cluster node \"{}\".",
+                    crawler.getId(), clusterNode.getName());
+            active.moveAll(queue);
+            prepareForProcessing();
+            return true;
+        }
+
         var resuming = !isQueueEmpty() || !isActiveEmpty();
 
         if (resuming) {
@@ -118,11 +195,7 @@ public class CrawlDocRecordService implements Closeable {
             // Active -> Queued
             LOG.debug("Moving any {} active URLs back into queue.",
                     crawler.getId());
-            active.forEach((k, v) -> {
-                queue.save(k, v);
-                return true;
-            });
-            active.clear();
+            active.moveAll(queue);
 
             if (LOG.isInfoEnabled()) {
                 //TODO use total count to track progress independently
@@ -172,12 +245,73 @@ public class CrawlDocRecordService implements Closeable {
             }
         }
 
-        open = true;
+        prepareForProcessing();
+        if (clusterNode != null) {
+            clusterNode.ready();
+        }
         return resuming;
     }
 
+    private void prepareForProcessing() {
+        scheduler = crawler.getCrawlerImpl().docRecordScheduler().apply(
+                crawler);
+
+        // Claim enough records at once to feed every crawler thread
+        claimBatchSize =
+                Math.max(1, crawler.getNumWorkerThreads());
+
+        if (clusterNode == null) {
+            seenIndex = createSeenIndex();
+        } else {
+            // Other nodes add references too, so we can't rely on an
+            // index of those seen by this node. Counts are also updated
+            // by other nodes, so they get refreshed on each heartbeat.
+            clusterNode.start(queue, () -> {
+                seedCounts();
+                signalActivity();
+            }, () -> {
+                // Node lease expired: references it claimed were returned
+                // to the queue and it now has a new active store.
+                scheduler.clear();
+                active = clusterNode.getActiveStore();
+            });
+        }
+        seedCounts();
+
+        open = true;
+    }
+
+    private void seedCounts() {
+        queuedCount.reset();
+        queuedCount.add(queue.count());
+        activeCount.reset();
+        activeCount.add(active.count());
+        processedCount.reset();
+        processedCount.add(processed.count());
+    }
+
+    private SeenReferenceIndex createSeenIndex() {
+        var index = new SeenReferenceIndex();
+        BiPredicate<String, CrawlDocRecord> adder = (ref, rec) -> {
+            index.add(ref);
+            return true;
+        };
+        queue.forEach(adder);
+        active.forEach(adder);
+        processed.forEach(adder);
+        LOG.debug("Seen references index created with {} references.",
+                index.size());
+        return index;
+    }
+
     public Stage getProcessingStage(String id) {
-        if (active.exists(id)) {
+        // Only references possibly seen before are looked up in stores
+        var index = seenIndex;
+        if (index != null && !index.mightContain(id)) {
+            return null;
+        }
+        if (active.exists(id)
+                || (clusterNode != null && clusterNode.isActiveElsewhere(id))) {
             return Stage.ACTIVE;
         }
         if (queue.exists(id)) {
@@ -192,10 +326,11 @@ public class CrawlDocRecordService implements Closeable {
     //--- Active ---
 
     public long getActiveCount() {
-        return active.count();
+        return activeCount.sum();
     }
     public boolean isActiveEmpty() {
-        return active.isEmpty();
+        return active.isEmpty() && (clusterNode == null
+                || clusterNode.isActiveEmptyElsewhere());
     }
     public boolean forEachActive(BiPredicate<String, CrawlDocRecord> predicate) {
         return active.forEach(predicate);
@@ -204,7 +339,7 @@ public class CrawlDocRecordService implements Closeable {
     //--- Processed ---
 
     public long getProcessedCount() {
-        return processed.count();
+        return processedCount.sum();
     }
     public boolean isProcessedEmpty() {
         return processed.isEmpty();
@@ -213,14 +348,31 @@ public class CrawlDocRecordService implements Closeable {
         return processed.find(id);
     }
 
-    public synchronized void processed(CrawlDocRecord docRec) {
+    public void processed(CrawlDocRecord docRec) {
         Objects.requireNonNull(docRec, "'docInfo' must not be null.");
-        processed.save(docRec.getReference(), docRec);
-        var cacheDeleted = cached.delete(docRec.getReference());
-        var activeDeleted = active.delete(docRec.getReference());
-        LOG.debug("Saved processed: {} "
-                + "(Deleted from cache: {}; Deleted from active: {})",
-                docRec.getReference(), cacheDeleted, activeDeleted);
+        // Explicit lock rather than "synchronized" so waiting virtual
+        // threads do not pin their carrier thread.
+        processedLock.lock();
+        try {
+            var ref = docRec.getReference();
+            var isNew = !isSeen(ref) || !processed.exists(ref);
+            addSeen(ref);
+            processed.save(ref, docRec);
+            var cacheDeleted = cached.delete(ref);
+            var activeDeleted = active.delete(ref);
+            if (isNew) {
+                processedCount.increment();
+            }
+            if (activeDeleted) {
+                activeCount.decrement();
+            }
+            LOG.debug("Saved processed: {} "
+                    + "(Deleted from cache: {}; Deleted from active: {})",
+                    docRec.getReference(), cacheDeleted, activeDeleted);
+        } finally {
+            processedLock.unlock();
+        }
+        signalActivity();
         crawler.getEventManager().fire(CrawlerEvent.builder()
                 .name(CrawlerEvent.DOCUMENT_PROCESSED)
                 .source(crawler)
@@ -239,26 +391,182 @@ public class CrawlDocRecordService implements Closeable {
     }
 
     public long getQueueCount() {
-        return queue.count();
+        return queuedCount.sum();
     }
     public void queue(CrawlDocRecord docRec) {
         Objects.requireNonNull(docRec, "'docInfo' must not be null.");
+        var ref = docRec.getReference();
+        var lock = queueLocks[
+                SeenReferenceIndex.stripe(ref, queueLocks.length)];
+        lock.lock();
+        try {
+            saveQueued(docRec, !isSeen(ref) || !queue.exists(ref));
+        } finally {
+            lock.unlock();
+        }
+        fireQueued(docRec);
+    }
+
+    /**
+     * Queues a document record unless its reference is already queued,
+     * active, or processed. Checking and queueing is atomic for a given
+     * reference, so concurrent attempts to queue the same reference
+     * result in it being queued only once.
+     * @param docRec the document record to queue
+     * @return the stage the reference was already in, or <code>null</code>
+     *     if it was queued
+     */
+    public Stage queueIfAbsent(CrawlDocRecord docRec) {
+        Objects.requireNonNull(docRec, "'docInfo' must not be null.");
+        var ref = docRec.getReference();
+        var lock = queueLocks[
+                SeenReferenceIndex.stripe(ref, queueLocks.length)];
+        lock.lock();
+        try {
+            var stage = getProcessingStage(ref);
+            if (stage != null) {
+                return stage;
+            }
+            saveQueued(docRec, true);
+        } finally {
+            lock.unlock();
+        }
+        fireQueued(docRec);
+        return null;
+    }
+
+    /**
+     * Queues many document records at once, skipping those whose reference
+     * is already queued, active, or processed. References possibly seen
+     * before are first looked up in bulk, so the common case of a
+     * document linking mostly to known references costs a few store
+     * queries instead of a few per reference. The remaining ones are
+     * queued like {@link #queueIfAbsent(CrawlDocRecord)} does.
+     * @param docRecs the document records to queue
+     * @return the stages references were already in, keyed by reference
+     *     (references that were queued are not part of it)
+     */
+    public Map<String, Stage> queueAllIfAbsent(
+            Collection<? extends CrawlDocRecord> docRecs) {
+        Map<String, Stage> stages = new HashMap<>();
+        // References never leave the stores once seen, so the ones found
+        // here can safely be skipped without locking.
+        var seenRefs = docRecs.stream()
+                .map(CrawlDocRecord::getReference)
+                .filter(this::isSeen)
+                .distinct()
+                .toList();
+        if (!seenRefs.isEmpty()) {
+            findStages(seenRefs, stages);
+        }
+        Set<String> queued = new HashSet<>();
+        for (CrawlDocRecord docRec : docRecs) {
+            var ref = docRec.getReference();
+            if (stages.containsKey(ref) || !queued.add(ref)) {
+                continue;
+            }
+            var stage = queueIfAbsent(docRec);
+            if (stage != null) {
+                queued.remove(ref);
+                stages.put(ref, stage);
+            }
+        }
+        return stages;
+    }
+
+    private void findStages(List<String> refs, Map<String, Stage> stages) {
+        var remaining = new ArrayList<>(refs);
+        for (var entry : List.of(
+                Pair.of(active, Stage.ACTIVE),
+                Pair.of(queue, Stage.QUEUED),
+                Pair.of(processed, Stage.PROCESSED))) {
+            if (remaining.isEmpty()) {
+                return;
+            }
+            for (String ref : entry.getLeft().findAll(remaining).keySet()) {
+                stages.put(ref, entry.getRight());
+            }
+            remaining.removeIf(stages::containsKey);
+        }
+    }
+
+    private void saveQueued(CrawlDocRecord docRec, boolean isNew) {
+        // indexed first so it is never reported as unseen once stored
+        addSeen(docRec.getReference());
         queue.save(docRec.getReference(), docRec);
+        if (isNew) {
+            queuedCount.increment();
+        }
         LOG.debug("Saved queued: {}", docRec.getReference());
+    }
+
+    private void fireQueued(CrawlDocRecord docRec) {
+        signalActivity();
         crawler.getEventManager().fire(CrawlerEvent.builder()
                 .name(CrawlerEvent.DOCUMENT_QUEUED)
                 .source(crawler)
                 .crawlDocRecord(docRec)
                 .build());
     }
+
+    // false if certainly never seen, true if possibly seen
+    private boolean isSeen(String ref) {
+        var index = seenIndex;
+        return index == null || index.mightContain(ref);
+    }
+
+    private void addSeen(String ref) {
+        var index = seenIndex;
+        if (index != null) {
+            index.add(ref);
+        }
+    }
     // get and delete and mark as active
-    public synchronized Optional<CrawlDocRecord> pollQueue() {
-        var docInfo = queue.deleteFirst();
-        if (docInfo.isPresent()) {
-            active.save(docInfo.get().getReference(), docInfo.get());
-            LOG.debug("Saved active: {}", docInfo.get().getReference());
+    public Optional<CrawlDocRecord> pollQueue() {
+        // Handing out a record may involve I/O (e.g., resolving a site
+        // delay from robots.txt), so the scheduler is never asked for one
+        // while holding the claim lock.
+        var docRec = scheduler.next();
+        while (docRec.isEmpty() && claimMore()) {
+            docRec = scheduler.next();
+        }
+        if (docRec.isPresent() && scheduler.size() > 0) {
+            // let waiting threads know more records are scheduled
+            signalActivity();
         }
-        return docInfo;
+        return docRec;
+    }
+    // Only one thread at a time claims new records from the store.
+    // Others waiting on the lock will likely find what they need
+    // already claimed once it is released. Returns true if a record
+    // may be ready.
+    private boolean claimMore() {
+        claimLock.lock();
+        try {
+            if (Duration.ZERO.equals(scheduler.getNextReadyDelay())) {
+                return true;
+            }
+            return !scheduler.isFull() && claimFromQueue() > 0;
+        } finally {
+            claimLock.unlock();
+        }
+    }
+    private int claimFromQueue() {
+        // Moved from queue to active in one operation, atomic when
+        // supported by the store (e.g., shared by many crawler instances).
+        // Active count assumes a reference is never queued while
+        // active, which only forced re-queues could break.
+        var claimed = clusterNode == null
+                ? queue.moveFirst(claimBatchSize, active)
+                : clusterNode.claim(
+                        () -> queue.moveFirst(claimBatchSize, active));
+        queuedCount.add(-claimed.size());
+        activeCount.add(claimed.size());
+        claimed.forEach(docRec -> {
+            LOG.debug("Saved active: {}", docRec.getReference());
+            scheduler.schedule(docRec);
+        });
+        return claimed.size();
     }
     public boolean forEachQueued(
             BiPredicate<String, CrawlDocRecord> predicate) {
@@ -275,11 +583,116 @@ public class CrawlDocRecordService implements Closeable {
             BiPredicate<String, CrawlDocRecord> predicate) {
         return cached.forEach(predicate);
     }
+    /**
+     * Streams cached records, reading them a page at a time. Records
+     * processed while streaming are not returned if not yet read.
+     * The stream must be closed after use.
+     * @return stream of cached records, keyed by reference
+     * @since 4.0.0
+     */
+    public Stream<Entry<String, CrawlDocRecord>> streamCached() {
+        return cached.stream();
+    }
+    public long getCachedCount() {
+        return cached.count();
+    }
+    public boolean isCachedEmpty() {
+        return cached.isEmpty();
+    }
+
+
+
+    //--- Cluster ---
+
+    /**
+     * Requests all nodes to stop, when running in cluster mode.
+     * Does nothing otherwise.
+     */
+    public void requestClusterStop() {
+        if (clusterNode != null && open) {
+            clusterNode.requestStop();
+        }
+    }
+
+    /**
+     * Whether this crawler should handle orphan references once done
+     * processing its queue. Always <code>true</code> unless in cluster
+     * mode, where only the last node to be done does.
+     * @return <code>true</code> if orphans should be handled
+     */
+    public boolean claimOrphansHandling() {
+        return clusterNode == null || clusterNode.claimOrphansHandling();
+    }
+
+    //--- Activity ---
+
+    /**
+     * Gets a value that changes every time a reference is queued or
+     * processed. Obtain it before checking for work and pass it to
+     * {@link #awaitActivity(long, Duration)} so activity happening
+     * in between is not missed.
+     * @return activity stamp
+     */
+    public long getActivityStamp() {
+        return activityStamp.get();
+    }
 
+    /**
+     * Waits until a reference is queued or processed since the
+     * given activity stamp was obtained, or until the maximum wait time
+     * has elapsed. Will not wait past the time a scheduled reference
+     * is expected to be ready.
+     * @param stamp activity stamp obtained with {@link #getActivityStamp()}
+     * @param maxWait maximum amount of time to wait
+     * @return <code>true</code> if there was activity
+     */
+    public boolean awaitActivity(long stamp, Duration maxWait) {
+        // don't wait past the moment a scheduled record becomes ready
+        var readyDelay = scheduler.getNextReadyDelay();
+        var nanos = readyDelay != null && readyDelay.compareTo(maxWait) < 0
+                ? readyDelay.toNanos()
+                : maxWait.toNanos();
+        activityWaiters.incrementAndGet();
+        activityLock.lock();
+        try {
+            while (activityStamp.get() == stamp && nanos > 0) {
+                nanos = activityCondition.awaitNanos(nanos);
+            }
+            return activityStamp.get() != stamp;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            activityLock.unlock();
+            activityWaiters.decrementAndGet();
+        }
+    }
 
+    /**
+     * Wakes up threads waiting for activity. Invoked automatically
+     * when references are queued or processed.
+     */
+    public void signalActivity() {
+        activityStamp.incrementAndGet();
+        if (activityWaiters.get() > 0) {
+            activityLock.lock();
+            try {
+                activityCondition.signalAll();
+            } finally {
+                activityLock.unlock();
+            }
+        }
+    }
 
     @Override
     public void close() {
+        // scheduled records are still in the active store
+        scheduler.clear();
+        if (clusterNode != null && open) {
+            clusterNode.leave(queue);
+        }
+        seenIndex = null;
         open = false;
+        signalActivity();
     }
 }
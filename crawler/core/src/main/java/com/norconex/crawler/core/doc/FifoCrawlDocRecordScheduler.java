@@ -0,0 +1,62 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.doc;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Default scheduler handing document records to crawler threads in the
+ * order they were claimed from the queue. Records are always ready.
+ * New records are only claimed from the queue once all scheduled ones
+ * were handed out.
+ */
+public class FifoCrawlDocRecordScheduler implements CrawlDocRecordScheduler {
+
+    private final Queue<CrawlDocRecord> records =
+            new ConcurrentLinkedQueue<>();
+
+    @Override
+    public void schedule(CrawlDocRecord docRecord) {
+        records.add(docRecord);
+    }
+
+    @Override
+    public Optional<CrawlDocRecord> next() {
+        return Optional.ofNullable(records.poll());
+    }
+
+    @Override
+    public Duration getNextReadyDelay() {
+        return records.isEmpty() ? null : Duration.ZERO;
+    }
+
+    @Override
+    public boolean isFull() {
+        return !records.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return records.size();
+    }
+
+    @Override
+    public void clear() {
+        records.clear();
+    }
+}
@@ -0,0 +1,262 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.doc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.norconex.crawler.core.checksum.ChecksumUtil;
+
+/**
+ * <p>
+ * In-memory index of references seen during a crawl session (queued,
+ * active, or processed), used to tell whether a reference was
+ * <b>never</b> seen without querying the crawl stores.
+ * </p>
+ * <p>
+ * References are stored as 64-bit hashes in an open-addressing set,
+ * up to a maximum number of entries. Past that, they are added to a
+ * scalable Bloom filter (a series of Bloom filters of growing capacity
+ * and decreasing false-positive probability). In both cases,
+ * {@link #mightContain(String)} never returns a false negative, but
+ * positives have to be confirmed against the stores.
+ * </p>
+ * <p>
+ * Thread-safe.
+ * </p>
+ */
+final class SeenReferenceIndex {
+
+    static final int DEFAULT_MAX_EXACT_ENTRIES = 1_000_000;
+
+    private static final int INITIAL_TABLE_SIZE = 1 << 10;
+    private static final double BLOOM_FALSE_POSITIVE_RATE = 0.01;
+    // each Bloom filter layer is this much bigger than the previous one
+    // and has this much lower false-positive probability
+    private static final int BLOOM_GROWTH = 2;
+    private static final double BLOOM_TIGHTENING = 0.5;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final int maxExactEntries;
+
+    // Exact tier: non-zero hashes, zero marking empty slots.
+    private long[] table = new long[INITIAL_TABLE_SIZE];
+    private int tableCount;
+
+    // Approximate tier, once the exact one is full.
+    private final List<BloomLayer> bloomLayers = new ArrayList<>();
+
+    SeenReferenceIndex() {
+        this(DEFAULT_MAX_EXACT_ENTRIES);
+    }
+
+    SeenReferenceIndex(int maxExactEntries) {
+        this.maxExactEntries = Math.max(1, maxExactEntries);
+    }
+
+    /**
+     * Adds a reference to this index.
+     * @param reference the reference
+     */
+    void add(String reference) {
+        var hash = hash(reference);
+        lock.writeLock().lock();
+        try {
+            if (tableContains(hash) || bloomContains(hash)) {
+                return;
+            }
+            if (tableCount < maxExactEntries) {
+                tableAdd(hash);
+            } else {
+                bloomAdd(hash);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Whether a reference might have been added to this index.
+     * @param reference the reference
+     * @return <code>false</code> if the reference was never added,
+     *     <code>true</code> if it likely was
+     */
+    boolean mightContain(String reference) {
+        var hash = hash(reference);
+        lock.readLock().lock();
+        try {
+            return tableContains(hash) || bloomContains(hash);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the approximate number of references added to this index.
+     * @return number of references
+     */
+    long size() {
+        lock.readLock().lock();
+        try {
+            var size = (long) tableCount;
+            for (BloomLayer layer : bloomLayers) {
+                size += layer.count;
+            }
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the lock stripe a reference belongs to, for callers needing
+     * to serialize operations on the same reference.
+     * @param reference the reference
+     * @param stripes number of stripes (power of two)
+     * @return stripe index
+     */
+    static int stripe(String reference, int stripes) {
+        return (int) hash(reference) & (stripes - 1);
+    }
+
+    //--- Exact tier -----------------------------------------------------------
+
+    private boolean tableContains(long hash) {
+        var mask = table.length - 1;
+        var i = slot(hash, mask);
+        long value;
+        while ((value = table[i]) != 0) {
+            if (value == hash) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    private void tableAdd(long hash) {
+        // keep load factor at or below 0.5
+        if ((tableCount + 1) * 2 > table.length) {
+            var old = table;
+            table = new long[old.length * 2];
+            for (long value : old) {
+                if (value != 0) {
+                    tableInsert(value);
+                }
+            }
+        }
+        tableInsert(hash);
+        tableCount++;
+    }
+
+    private void tableInsert(long hash) {
+        var mask = table.length - 1;
+        var i = slot(hash, mask);
+        while (table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = hash;
+    }
+
+    private static int slot(long hash, int mask) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    //--- Approximate tier -----------------------------------------------------
+
+    private boolean bloomContains(long hash) {
+        for (BloomLayer layer : bloomLayers) {
+            if (layer.mightContain(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void bloomAdd(long hash) {
+        var layer = bloomLayers.isEmpty()
+                ? null : bloomLayers.get(bloomLayers.size() - 1);
+        if (layer == null || layer.count >= layer.capacity) {
+            var capacity = layer == null
+                    ? maxExactEntries : layer.capacity * BLOOM_GROWTH;
+            var fpp = layer == null
+                    ? BLOOM_FALSE_POSITIVE_RATE
+                    : layer.falsePositiveRate * BLOOM_TIGHTENING;
+            layer = new BloomLayer(capacity, fpp);
+            bloomLayers.add(layer);
+        }
+        layer.add(hash);
+    }
+
+    private static final class BloomLayer {
+        private final long capacity;
+        private final double falsePositiveRate;
+        private final long[] bits;
+        private final long numBits;
+        private final int numHashes;
+        private long count;
+
+        private BloomLayer(long capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            var ln2 = Math.log(2);
+            var optimalBits = (long) Math.ceil(
+                    -capacity * Math.log(falsePositiveRate) / (ln2 * ln2));
+            bits = new long[(int) Math.max(1, (optimalBits + 63) / 64)];
+            numBits = bits.length * 64L;
+            numHashes = (int) Math.max(
+                    1, Math.round((double) numBits / capacity * ln2));
+        }
+
+        private void add(long hash) {
+            var h2 = mix(hash) | 1;
+            for (var i = 0; i < numHashes; i++) {
+                var bit = Long.remainderUnsigned(hash + i * h2, numBits);
+                bits[(int) (bit >>> 6)] |= 1L << bit;
+            }
+            count++;
+        }
+
+        private boolean mightContain(long hash) {
+            var h2 = mix(hash) | 1;
+            for (var i = 0; i < numHashes; i++) {
+                var bit = Long.remainderUnsigned(hash + i * h2, numBits);
+                if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    //--- Hashing --------------------------------------------------------------
+
+    // Never zero (used to mark empty slots).
+    static long hash(String reference) {
+        return ChecksumUtil.checksum64(reference);
+    }
+
+    // MurmurHash3 finalizer, deriving a second hash for Bloom filters.
+    private static long mix(long value) {
+        var h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,264 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.filter;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.apache.commons.io.FilenameUtils;
+
+import com.norconex.commons.lang.map.Properties;
+import com.norconex.crawler.core.filter.impl.ExtensionReferenceFilter;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * <p>
+ * A list of reference or metadata filters prepared once for repeated
+ * evaluation. Filters are resolved with the same rules as
+ * {@link FilterGroupResolver} but:
+ * </p>
+ * <ul>
+ *   <li>
+ *     Filters that can reject on their own (exclude filters and filters
+ *     not implementing {@link OnMatchFilter}) are evaluated first, in
+ *     their configured order, and include filters are only evaluated
+ *     until one of them matches.
+ *   </li>
+ *   <li>
+ *     {@link ExtensionReferenceFilter} instances are turned into
+ *     extension lookup tables and share the extension extracted from the
+ *     reference, instead of each parsing it and looping over their
+ *     extensions.
+ *   </li>
+ * </ul>
+ * <p>
+ * The outcome (and the filter responsible for a rejection) is the same
+ * as evaluating filters one by one. The number of times each filter
+ * decided of the outcome is tracked: rejections for exclude
+ * filters, and acceptances for include filters.
+ * </p>
+ * @since 4.0.0
+ */
+public final class CompiledFilterGroup {
+
+    private final String name;
+    private final List<CompiledFilter> rejecting = new ArrayList<>();
+    private final List<CompiledFilter> includes = new ArrayList<>();
+    private final LongAdder noIncludeMatchHits = new LongAdder();
+
+    private CompiledFilterGroup(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Compiles reference filters.
+     * @param name group name, used to identify hit counts
+     * @param filters reference filters
+     * @return compiled filter group
+     */
+    public static CompiledFilterGroup ofReferenceFilters(
+            @NonNull String name,
+            @NonNull List<? extends ReferenceFilter> filters) {
+        return CompiledFilterGroup.<ReferenceFilter>compile(name, filters,
+                f -> in -> f.acceptReference(in.getReference()));
+    }
+
+    /**
+     * Compiles metadata filters.
+     * @param name group name, used to identify hit counts
+     * @param filters metadata filters
+     * @return compiled filter group
+     */
+    public static CompiledFilterGroup ofMetadataFilters(
+            @NonNull String name,
+            @NonNull List<? extends MetadataFilter> filters) {
+        return CompiledFilterGroup.<MetadataFilter>compile(name, filters,
+                f -> in -> f.acceptMetadata(
+                        in.getReference(), in.getMetadata()));
+    }
+
+    private static <F> CompiledFilterGroup compile(String name,
+            List<? extends F> filters,
+            Function<F, Predicate<FilterInput>> predicateFactory) {
+        var group = new CompiledFilterGroup(name);
+        for (var i = 0; i < filters.size(); i++) {
+            F filter = filters.get(i);
+            var predicate = filter.getClass() == ExtensionReferenceFilter.class
+                    ? extensionPredicate((ExtensionReferenceFilter) filter)
+                    : predicateFactory.apply(filter);
+            var compiled = new CompiledFilter(filter, i, predicate);
+            if (filter instanceof OnMatchFilter f
+                    && OnMatch.INCLUDE == f.getOnMatch()) {
+                group.includes.add(compiled);
+            } else {
+                group.rejecting.add(compiled);
+            }
+        }
+        return group;
+    }
+
+    /**
+     * Whether this group has no filters.
+     * @return <code>true</code> if empty
+     */
+    public boolean isEmpty() {
+        return rejecting.isEmpty() && includes.isEmpty();
+    }
+
+    /**
+     * Tests a reference (and its metadata, for metadata filters) against
+     * this group of filters.
+     * @param reference document reference
+     * @param metadata document metadata (can be <code>null</code> for
+     *     reference filters)
+     * @return the rejection, or <code>null</code> if accepted
+     */
+    public Rejection test(String reference, Properties metadata) {
+        var input = new FilterInput(reference, metadata);
+        for (CompiledFilter filter : rejecting) {
+            if (!filter.predicate.test(input)) {
+                filter.hits.increment();
+                return new Rejection(filter.filter);
+            }
+        }
+        if (includes.isEmpty()) {
+            return null;
+        }
+        for (CompiledFilter filter : includes) {
+            if (filter.predicate.test(input)) {
+                filter.hits.increment();
+                return null;
+            }
+        }
+        noIncludeMatchHits.increment();
+        return new Rejection(null);
+    }
+
+    /**
+     * Gets how many times each filter decided of the outcome, keyed by
+     * group name, filter position and filter class name
+     * (e.g., "reference.2.GenericReferenceFilter"). How many times
+     * no include filters matched is keyed by group name followed by
+     * ".noIncludeMatch".
+     * @return hit counts
+     */
+    public Map<String, Long> getHitCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        List<CompiledFilter> all = new ArrayList<>(rejecting);
+        all.addAll(includes);
+        all.sort((f1, f2) -> Integer.compare(f1.index, f2.index));
+        for (CompiledFilter f : all) {
+            counts.put(name + "." + f.index + "."
+                    + f.filter.getClass().getSimpleName(), f.hits.sum());
+        }
+        if (!includes.isEmpty()) {
+            counts.put(name + ".noIncludeMatch", noIncludeMatchHits.sum());
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * A filter group rejection.
+     * @param filter the rejecting filter, or <code>null</code> if
+     *     rejected because no include filters matched
+     */
+    public record Rejection(Object filter) {
+        public boolean isNoIncludeMatch() {
+            return filter == null;
+        }
+    }
+
+    private static Predicate<FilterInput> extensionPredicate(
+            ExtensionReferenceFilter filter) {
+        var cfg = filter.getConfiguration();
+        var include = filter.getOnMatch() == OnMatch.INCLUDE;
+        if (cfg.getExtensions().isEmpty()) {
+            return in -> include;
+        }
+        var ignoreCase = cfg.isIgnoreCase();
+        Set<String> extensions = cfg.getExtensions().stream()
+                .map(ext -> ignoreCase ? ext.toLowerCase(Locale.ROOT) : ext)
+                .collect(Collectors.toUnmodifiableSet());
+        return in -> {
+            var ext = ignoreCase
+                    ? in.getLowerCaseExtension() : in.getExtension();
+            return (ext != null && extensions.contains(ext)) == include;
+        };
+    }
+
+    private static final class CompiledFilter {
+        private final Object filter;
+        private final int index;
+        private final Predicate<FilterInput> predicate;
+        private final LongAdder hits = new LongAdder();
+        private CompiledFilter(
+                Object filter, int index, Predicate<FilterInput> predicate) {
+            this.filter = filter;
+            this.index = index;
+            this.predicate = predicate;
+        }
+    }
+
+    // Values derived from the reference are only computed when needed,
+    // and only once.
+    private static final class FilterInput {
+        @Getter
+        private final String reference;
+        @Getter
+        private final Properties metadata;
+        private String extension;
+        private boolean extensionResolved;
+        private String lowerCaseExtension;
+
+        private FilterInput(String reference, Properties metadata) {
+            this.reference = reference;
+            this.metadata = metadata;
+        }
+
+        // same logic as ExtensionReferenceFilter
+        private String getExtension() {
+            if (!extensionResolved) {
+                extensionResolved = true;
+                String path;
+                try {
+                    path = new URL(reference).getPath();
+                } catch (MalformedURLException e) {
+                    path = reference;
+                }
+                extension = FilenameUtils.getExtension(path);
+            }
+            return extension;
+        }
+        private String getLowerCaseExtension() {
+            if (lowerCaseExtension == null && getExtension() != null) {
+                lowerCaseExtension = extension.toLowerCase(Locale.ROOT);
+            }
+            return lowerCaseExtension;
+        }
+    }
+}
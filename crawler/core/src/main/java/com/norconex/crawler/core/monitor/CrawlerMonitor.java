@@ -1,4 +1,4 @@
-/* Copyright 2021-2022 Norconex Inc.
+/* Copyright 2021-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -14,8 +14,10 @@
  */
 package com.norconex.crawler.core.monitor;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
@@ -28,11 +30,13 @@ import lombok.NonNull;
 public class CrawlerMonitor implements CrawlerMonitorMXBean {
 
     //Maybe have it configured to decide what to capture?
+    private final Crawler crawler;
     private final CrawlDocRecordService service;
     private final Map<String, AtomicLong> eventCounts =
             new ConcurrentHashMap<>();
 
     public CrawlerMonitor(@NonNull Crawler crawler) {
+        this.crawler = crawler;
         service = Objects.requireNonNull(crawler.getDocRecordService(),
                 "'crawler#getDocRecordService() must not be null.");
         var eventManager =
@@ -54,6 +58,20 @@ public class CrawlerMonitor implements CrawlerMonitorMXBean {
     public long getActiveCount() {
         return service.getActiveCount();
     }
+    @Override
+    public long getCachedCount() {
+        return service.getCachedCount();
+    }
+
+    @Override
+    public Map<String, Long> getFilterHitCounts() {
+        Map<String, Long> map = new LinkedHashMap<>();
+        Optional.ofNullable(crawler.getReferenceFilterGroup()).ifPresent(
+                g -> map.putAll(g.getHitCounts()));
+        Optional.ofNullable(crawler.getMetadataFilterGroup()).ifPresent(
+                g -> map.putAll(g.getHitCounts()));
+        return map;
+    }
 
     @Override
     public Map<String, Long> getEventCounts() {
@@ -1,4 +1,4 @@
-/* Copyright 2021-2022 Norconex Inc.
+/* Copyright 2021-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,9 +20,27 @@ public interface CrawlerMonitorMXBean {
 
     Map<String, Long> getEventCounts();
 
+    /**
+     * Gets how many times each reference and metadata filter decided
+     * whether a document was rejected (exclude filters) or accepted
+     * (include filters).
+     * @return filter hit counts
+     * @since 4.0.0
+     */
+    Map<String, Long> getFilterHitCounts();
+
     long getProcessedCount();
 
     long getQueuedCount();
 
     long getActiveCount();
+
+    /**
+     * Gets the number of references cached from the previous crawl
+     * not yet processed. Once done crawling, that is the number of
+     * orphans left to process.
+     * @return cached reference count
+     * @since 4.0.0
+     */
+    long getCachedCount();
 }
@@ -1,4 +1,4 @@
-/* Copyright 2020-2023 Norconex Inc.
+/* Copyright 2020-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ import com.norconex.crawler.core.crawler.CrawlerEvent;
 import com.norconex.crawler.core.doc.CrawlDocState;
 import com.norconex.crawler.core.fetch.FetchDirective;
 import com.norconex.crawler.core.fetch.FetchDirectiveSupport;
+import com.norconex.crawler.core.filter.CompiledFilterGroup;
 import com.norconex.crawler.core.filter.MetadataFilter;
 import com.norconex.crawler.core.filter.OnMatch;
 import com.norconex.crawler.core.filter.OnMatchFilter;
@@ -35,6 +36,10 @@ public final class DocumentPipelineUtil {
 
     public static boolean isRejectedByMetadataFilters(
             DocumentPipelineContext ctx) {
+        var filterGroup = ctx.getCrawler().getMetadataFilterGroup();
+        if (filterGroup != null) {
+            return isRejectedByMetadataFilters(ctx, filterGroup);
+        }
         var filters = ctx.getConfig().getMetadataFilters();
         if (filters.isEmpty()) {
             return false;
@@ -79,6 +84,32 @@ public final class DocumentPipelineUtil {
         return false;
     }
 
+    private static boolean isRejectedByMetadataFilters(
+            DocumentPipelineContext ctx, CompiledFilterGroup filterGroup) {
+        if (filterGroup.isEmpty()) {
+            return false;
+        }
+        var rejection = filterGroup.test(ctx.getDocRecord().getReference(),
+                ctx.getDocument().getMetadata());
+        if (rejection == null) {
+            LOG.debug("ACCEPTED document metadata. Reference={}",
+                    ctx.getDocRecord().getReference());
+            return false;
+        }
+        var event = CrawlerEvent.builder()
+                .name(CrawlerEvent.REJECTED_FILTER)
+                .source(ctx.getCrawler())
+                .crawlDocRecord(ctx.getDocRecord());
+        if (rejection.isNoIncludeMatch()) {
+            event.subject(ctx.getConfig().getMetadataFilters())
+                    .message("No \"include\" metadata filters matched.");
+        } else {
+            event.subject(rejection.filter());
+        }
+        ctx.fire(event.build());
+        return true;
+    }
+
     public static boolean continueOnBadStatus(
             @NonNull DocumentPipelineContext ctx,
             CrawlDocState originalCrawlDocState,
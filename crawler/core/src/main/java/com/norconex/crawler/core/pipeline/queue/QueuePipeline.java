@@ -1,4 +1,4 @@
-/* Copyright 2023 Norconex Inc.
+/* Copyright 2023-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -14,9 +14,24 @@
  */
 package com.norconex.crawler.core.pipeline.queue;
 
+import java.util.Collection;
 import java.util.function.Consumer;
 
 import com.norconex.crawler.core.pipeline.DocRecordPipelineContext;
 
 @FunctionalInterface
-public interface QueuePipeline extends Consumer<DocRecordPipelineContext> {}
+public interface QueuePipeline extends Consumer<DocRecordPipelineContext> {
+
+    /**
+     * Sends many references through the queue pipeline at once, such as
+     * all the links extracted from a document. Implementations
+     * can override this method to share work between references (e.g.,
+     * grouping them by host or querying stores in bulk). The default
+     * implementation accepts each of them in turn.
+     * @param contexts pipeline contexts, one per reference
+     * @since 4.0.0
+     */
+    default void acceptAll(Collection<DocRecordPipelineContext> contexts) {
+        contexts.forEach(this);
+    }
+}
@@ -1,4 +1,4 @@
-/* Copyright 2014-2023 Norconex Inc.
+/* Copyright 2014-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -14,6 +14,7 @@
  */
 package com.norconex.crawler.core.pipeline.queue;
 
+import java.util.Collection;
 import java.util.function.Predicate;
 
 import org.apache.commons.lang3.StringUtils;
@@ -38,10 +39,36 @@ public class QueueReferenceStage
             return true;
         }
 
-        var stage = ctx.getDocRecordService().getProcessingStage(ref);
+        // checks and queues as one operation to prevent duplicates
+        var stage = ctx.getDocRecordService().queueIfAbsent(
+                ctx.getDocRecord());
+        logStage(ref, stage);
+        return true;
+    }
+
+    /**
+     * Queues the references of many pipeline contexts at once, looking up
+     * already known references in bulk.
+     * @param contexts pipeline contexts of references to queue
+     * @since 4.0.0
+     */
+    public void testAll(Collection<DocRecordPipelineContext> contexts) {
+        var recs = contexts.stream()
+                .map(DocRecordPipelineContext::getDocRecord)
+                .filter(rec -> StringUtils.isNotBlank(rec.getReference()))
+                .toList();
+        if (recs.isEmpty()) {
+            return;
+        }
+        var stages = contexts.iterator().next()
+                .getDocRecordService().queueAllIfAbsent(recs);
+        if (LOG.isDebugEnabled()) {
+            recs.forEach(rec -> logStage(
+                    rec.getReference(), stages.get(rec.getReference())));
+        }
+    }
 
-        //TODO make this a reusable method somewhere, or part of the
-        //CrawlDocRecordService?
+    private void logStage(String ref, Stage stage) {
         if (Stage.ACTIVE.is(stage)) {
             debug("Already being processed: %s", ref);
         } else if (Stage.QUEUED.is(stage)) {
@@ -49,10 +76,8 @@ public class QueueReferenceStage
         } else if (Stage.PROCESSED.is(stage)) {
             debug("Already processed: %s", ref);
         } else {
-            ctx.getDocRecordService().queue(ctx.getDocRecord());
             debug("Queued for processing: %s", ref);
         }
-        return true;
     }
 
     private void debug(String message, Object... values) {
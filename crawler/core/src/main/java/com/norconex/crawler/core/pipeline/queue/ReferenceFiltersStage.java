@@ -1,4 +1,4 @@
-/* Copyright 2014-2023 Norconex Inc.
+/* Copyright 2014-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -36,8 +36,13 @@ public class ReferenceFiltersStage
 
     @Override
     public boolean test(DocRecordPipelineContext ctx) {
-        if (ReferenceFiltersStageUtil.resolveReferenceFilters(
-                ctx.getConfig().getReferenceFilters(), ctx, type)) {
+        var filterGroup = ctx.getCrawler().getReferenceFilterGroup();
+        var rejected = filterGroup != null
+                ? ReferenceFiltersStageUtil.resolveReferenceFilters(
+                        filterGroup, ctx, type)
+                : ReferenceFiltersStageUtil.resolveReferenceFilters(
+                        ctx.getConfig().getReferenceFilters(), ctx, type);
+        if (rejected) {
             ctx.getDocRecord().setState(CrawlDocState.REJECTED);
             return false;
         }
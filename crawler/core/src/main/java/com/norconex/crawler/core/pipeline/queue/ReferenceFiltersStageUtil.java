@@ -1,4 +1,4 @@
-/* Copyright 2014-2023 Norconex Inc.
+/* Copyright 2014-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,6 +21,7 @@ import java.util.List;
 import org.apache.commons.lang3.StringUtils;
 
 import com.norconex.crawler.core.crawler.CrawlerEvent;
+import com.norconex.crawler.core.filter.CompiledFilterGroup;
 import com.norconex.crawler.core.filter.OnMatch;
 import com.norconex.crawler.core.filter.OnMatchFilter;
 import com.norconex.crawler.core.filter.ReferenceFilter;
@@ -85,6 +86,46 @@ public final class ReferenceFiltersStageUtil {
         return false;
     }
 
+    /**
+     * Resolves compiled reference filters. Same outcome as
+     * {@link #resolveReferenceFilters(List, DocRecordPipelineContext,
+     * String)} with the filters the group was compiled from.
+     * @param filterGroup compiled reference filters
+     * @param ctx pipeline context
+     * @param type type of filtering, for logging (can be <code>null</code>)
+     * @return <code>true</code> if the reference is rejected
+     * @since 4.0.0
+     */
+    public static boolean resolveReferenceFilters(
+            @NonNull CompiledFilterGroup filterGroup,
+            DocRecordPipelineContext ctx, String type) {
+        if (filterGroup.isEmpty()) {
+            return false;
+        }
+        String ref = ctx.getDocRecord().getReference();
+        var rejection = filterGroup.test(ref, null);
+        if (rejection == null) {
+            LOG.debug("ACCEPTED reference{}: {}", logType(type), ref);
+            return false;
+        }
+        if (rejection.isNoIncludeMatch()) {
+            LOG.debug("REJECTED document reference{}. No include filters "
+                    + "matched. Reference={}", logType(type), ref);
+            fireDocumentRejected(
+                    "No \"include\" reference filters matched.", ctx);
+        } else {
+            LOG.debug("REJECTED reference{}: {} Filter={}",
+                    logType(type), ref, rejection.filter());
+            fireDocumentRejected(rejection.filter(), ctx);
+        }
+        return true;
+    }
+
+    private static String logType(String type) {
+        var msg = StringUtils.trimToEmpty(type);
+        return StringUtils.isNotBlank(msg) ? " (" + msg + ")" : msg;
+    }
+
     private static void fireDocumentRejected(
             Object subject, DocRecordPipelineContext ctx) {
         ctx.fire(CrawlerEvent.builder()
@@ -1,4 +1,4 @@
-/* Copyright 2014-2022 Norconex Inc.
+/* Copyright 2014-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -50,6 +50,7 @@ import com.norconex.crawler.core.monitor.CrawlerMonitorJMX;
 import com.norconex.crawler.core.monitor.MdcUtil;
 import com.norconex.crawler.core.stop.CrawlSessionStopper;
 import com.norconex.crawler.core.stop.impl.FileBasedStopper;
+import com.norconex.crawler.core.store.DataStoreExportFormat;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -351,6 +352,16 @@ public class CrawlSession {
     }
 
     public void importDataStore(Collection<Path> inFiles) {
+        importDataStore(inFiles, Runtime.getRuntime().availableProcessors());
+    }
+    /**
+     * Imports crawler data stores from export files (or directories, for
+     * chunked exports).
+     * @param inFiles export files or directories
+     * @param threads maximum number of threads importing chunked exports
+     * @since 4.0.0
+     */
+    public void importDataStore(Collection<Path> inFiles, int threads) {
         MdcUtil.setCrawlSessionId(getId());
         Thread.currentThread().setName(getId() + "/IMPORT");
         lock();
@@ -361,7 +372,8 @@ public class CrawlSession {
                     .source(this)
                     .build());
             inFiles.forEach(
-                    f -> getCrawlers().forEach(c -> c.importDataStore(f)));
+                    f -> getCrawlers().forEach(
+                            c -> c.importDataStore(f, threads)));
             eventManager.fire(CrawlSessionEvent.builder()
                     .name(CrawlSessionEvent.CRAWLSESSION_STORE_IMPORT_END)
                     .source(this)
@@ -373,6 +385,18 @@ public class CrawlSession {
         }
     }
     public void exportDataStore(Path dir) {
+        exportDataStore(dir, DataStoreExportFormat.ZIP,
+                Runtime.getRuntime().availableProcessors());
+    }
+    /**
+     * Exports crawler data stores in the given format.
+     * @param dir directory where to export
+     * @param format export format
+     * @param threads maximum number of threads writing chunked exports
+     * @since 4.0.0
+     */
+    public void exportDataStore(
+            Path dir, DataStoreExportFormat format, int threads) {
         MdcUtil.setCrawlSessionId(getId());
         Thread.currentThread().setName(getId() + "/EXPORT");
         lock();
@@ -383,7 +407,8 @@ public class CrawlSession {
                     .source(this)
                     .build());
             //TODO zip all exported data stores in a single file?
-            getCrawlers().forEach(c -> c.exportDataStore(dir));
+            getCrawlers().forEach(
+                    c -> c.exportDataStore(dir, format, threads));
             eventManager.fire(CrawlSessionEvent.builder()
                     .name(CrawlSessionEvent.CRAWLSESSION_STORE_EXPORT_END)
                     .source(this)
@@ -0,0 +1,38 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.spi;
+
+import com.norconex.crawler.core.doc.CrawlDocRecord;
+import com.norconex.crawler.core.store.codec.CrawlDocRecordCodec;
+import com.norconex.crawler.core.store.codec.RecordCodec;
+import com.norconex.crawler.core.store.codec.RecordCodecProvider;
+
+/**
+ * <p>
+ * Registers binary record codecs for Crawler Core types.
+ * </p>
+ */
+public class CrawlerCoreRecordCodecProvider implements RecordCodecProvider {
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> RecordCodec<T> getCodec(Class<T> type) {
+        if (CrawlDocRecord.class.equals(type)) {
+            return (RecordCodec<T>)
+                    new CrawlDocRecordCodec<>(CrawlDocRecord::new);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,203 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.store;
+
+import static com.norconex.crawler.core.store.ChunkedExport.CHUNK_SIZE;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.apache.commons.io.FileUtils;
+
+import com.norconex.commons.lang.file.FileUtil;
+import com.norconex.crawler.core.crawler.Crawler;
+import com.norconex.crawler.core.store.ChunkedExport.Manifest;
+import com.norconex.crawler.core.store.ChunkedExport.StoreEntry;
+import com.norconex.crawler.core.store.codec.RecordCodec;
+import com.norconex.crawler.core.store.codec.RecordCodecs;
+import com.norconex.crawler.core.store.codec.RecordFormat;
+import com.norconex.crawler.core.store.impl.SerialUtil;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <p>
+ * Exports crawler data stores in the {@link DataStoreExportFormat#CHUNKED}
+ * format. Records of each store are read one page at a time and
+ * written to chunk files of up to 10,000 records.
+ * Encoding and compressing chunks is done by many threads while
+ * records are being read.
+ * </p>
+ * <p>
+ * The export directory manifest is written last, so an interrupted
+ * export is never mistaken for a complete one.
+ * </p>
+ * @since 4.0.0
+ */
+@Slf4j
+public final class ChunkedDataStoreExporter {
+
+    private ChunkedDataStoreExporter() {}
+
+    /**
+     * Exports all data stores of a crawler.
+     * @param crawler the crawler owning the data stores
+     * @param exportDir directory where to create the crawler export
+     *     directory
+     * @param threads maximum number of threads writing chunks
+     * @return the crawler export directory
+     * @throws IOException problem exporting
+     */
+    public static Path exportDataStore(
+            Crawler crawler, Path exportDir, int threads) throws IOException {
+        var storeEngine = crawler.getDataStoreEngine();
+        var outDir = exportDir.resolve(
+                FileUtil.toSafeFileName(crawler.getId()));
+        if (Files.exists(outDir)) {
+            FileUtils.deleteDirectory(outDir.toFile());
+        }
+        Files.createDirectories(outDir);
+
+        var manifest = new Manifest()
+                .setExportId(UUID.randomUUID().toString())
+                .setCrawlSession(crawler.getCrawlSession().getId())
+                .setCrawler(crawler.getId());
+
+        var numThreads = Math.max(1, threads);
+        var executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            for (String name : storeEngine.getStoreNames()) {
+                var type = storeEngine.getStoreType(name);
+                if (type.isPresent()) {
+                    var entry = new StoreEntry()
+                            .setName(name)
+                            .setType(type.get().getName())
+                            .setDir(FileUtil.toSafeFileName(name));
+                    try (DataStore<Object> store =
+                            storeEngine.openStore(name, type.get())) {
+                        exportStore(store, outDir.resolve(entry.getDir()),
+                                entry, new ChunkWriter(executor, numThreads,
+                                        RecordCodecs.forType(type.get(),
+                                                RecordFormat.BINARY)));
+                    }
+                    manifest.getStores().add(entry);
+                } else {
+                    LOG.error("Could not obtain store {}", name);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Files.write(outDir.resolve(ChunkedExport.MANIFEST_FILE),
+                SerialUtil.toJsonBytes(manifest));
+        return outDir;
+    }
+
+    private static void exportStore(DataStore<Object> store, Path storeDir,
+            StoreEntry entry, ChunkWriter writer) throws IOException {
+        Files.createDirectories(storeDir);
+        LOG.info("Exporting {} entries from \"{}\".",
+                store.count(), store.getName());
+        var chunkIndex = 0;
+        var count = 0L;
+        List<Entry<String, Object>> chunk = new ArrayList<>(CHUNK_SIZE);
+        try (var records = store.stream()) {
+            var it = records.iterator();
+            while (it.hasNext()) {
+                var en = it.next();
+                chunk.add(new SimpleImmutableEntry<>(
+                        en.getKey(), en.getValue()));
+                count++;
+                if (chunk.size() >= CHUNK_SIZE || !it.hasNext()) {
+                    writer.write(storeDir.resolve(
+                            ChunkedExport.chunkFileName(chunkIndex++)), chunk);
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+        }
+        writer.awaitAll();
+        entry.setChunks(chunkIndex);
+        entry.setRecords(count);
+        LOG.info("Exported {} entries from \"{}\" in {} chunks.",
+                count, store.getName(), chunkIndex);
+    }
+
+    // Writes chunks asynchronously, blocking when enough chunks are
+    // waiting to be written to keep memory usage in check.
+    private static class ChunkWriter {
+        private final ExecutorService executor;
+        private final Semaphore permits;
+        private final RecordCodec<Object> codec;
+        private final List<Future<?>> futures = new ArrayList<>();
+
+        ChunkWriter(ExecutorService executor,
+                int threads, RecordCodec<Object> codec) {
+            this.executor = executor;
+            permits = new Semaphore(threads * 2);
+            this.codec = codec;
+        }
+
+        void write(Path file, List<Entry<String, Object>> chunk)
+                throws IOException {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while exporting.", e);
+            }
+            futures.add(executor.submit(() -> {
+                try {
+                    ChunkedExport.writeChunk(file, chunk, codec);
+                    return null;
+                } finally {
+                    permits.release();
+                }
+            }));
+            // fail fast
+            if (futures.get(0).isDone()) {
+                get(futures.remove(0));
+            }
+        }
+
+        void awaitAll() throws IOException {
+            for (Future<?> future : futures) {
+                get(future);
+            }
+            futures.clear();
+        }
+
+        private static void get(Future<?> future) throws IOException {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while exporting.", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Could not write chunk.", e.getCause());
+            }
+        }
+    }
+}
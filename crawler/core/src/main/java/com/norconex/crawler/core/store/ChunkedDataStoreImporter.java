@@ -0,0 +1,170 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.store;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.ClassUtils;
+
+import com.norconex.commons.lang.file.FileUtil;
+import com.norconex.crawler.core.crawler.Crawler;
+import com.norconex.crawler.core.store.ChunkedExport.Manifest;
+import com.norconex.crawler.core.store.ChunkedExport.StoreEntry;
+import com.norconex.crawler.core.store.codec.RecordCodecs;
+import com.norconex.crawler.core.store.codec.RecordFormat;
+import com.norconex.crawler.core.store.impl.SerialUtil;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <p>
+ * Imports data stores exported with {@link ChunkedDataStoreExporter}.
+ * Chunks are read and saved by many threads, using bulk writes.
+ * </p>
+ * <p>
+ * Imported chunks are tracked in the crawler working directory until
+ * the import completes. Should an import be interrupted, importing the
+ * same export again skips the chunks already imported.
+ * </p>
+ * @since 4.0.0
+ */
+@Slf4j
+public final class ChunkedDataStoreImporter {
+
+    private static final String PROGRESS_DIR = "storeimport";
+
+    private ChunkedDataStoreImporter() {}
+
+    /**
+     * Whether the given path is a chunked export directory.
+     * @param path path to check
+     * @return <code>true</code> if a chunked export
+     */
+    public static boolean isChunkedExport(Path path) {
+        return Files.isRegularFile(path.resolve(ChunkedExport.MANIFEST_FILE));
+    }
+
+    /**
+     * Imports the data stores of a crawler export directory. Exports
+     * from other crawlers are skipped.
+     * @param crawler the crawler receiving the data stores
+     * @param inDir crawler export directory
+     * @param threads maximum number of threads importing chunks
+     * @throws IOException problem importing
+     */
+    public static void importDataStore(
+            Crawler crawler, Path inDir, int threads) throws IOException {
+        var manifest = SerialUtil.fromJson(Files.readAllBytes(
+                inDir.resolve(ChunkedExport.MANIFEST_FILE)), Manifest.class);
+        if (!crawler.getId().equals(manifest.getCrawler())) {
+            LOG.debug("Input directory \"{}\" not matching crawler "
+                    + "\"{}\". Skipping.", inDir, crawler.getId());
+            return;
+        }
+
+        var progressFile = crawler.getWorkDir().resolve(PROGRESS_DIR)
+                .resolve(FileUtil.toSafeFileName(
+                        manifest.getExportId()) + ".progress");
+        Set<String> imported = new HashSet<>();
+        if (Files.exists(progressFile)) {
+            imported.addAll(Files.readAllLines(progressFile, UTF_8));
+            LOG.info("Resuming import of \"{}\" ({} chunks already "
+                    + "imported).", inDir, imported.size());
+        } else {
+            Files.createDirectories(progressFile.getParent());
+        }
+
+        var executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try (var progress = Files.newBufferedWriter(progressFile, UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (StoreEntry entry : manifest.getStores()) {
+                importStore(crawler, inDir, entry, imported,
+                        executor, progress);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Files.delete(progressFile);
+    }
+
+    private static void importStore(Crawler crawler, Path inDir,
+            StoreEntry entry, Set<String> imported,
+            ExecutorService executor, Writer progress)
+                    throws IOException {
+        Class<?> type;
+        try {
+            type = ClassUtils.getClass(entry.getType());
+        } catch (ClassNotFoundException e) {
+            throw new IOException(
+                    "Could not instantiate type " + entry.getType(), e);
+        }
+        LOG.info("Importing \"{}\".", entry.getName());
+        DataStore<Object> store = crawler.getDataStoreEngine().openStore(
+                entry.getName(), type);
+        var codec = RecordCodecs.<Object>forType(type, RecordFormat.BINARY);
+        var storeDir = inDir.resolve(entry.getDir());
+        var count = new AtomicLong();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (var i = 0; i < entry.getChunks(); i++) {
+            var chunkName = ChunkedExport.chunkFileName(i);
+            var chunkKey = entry.getDir() + "/" + chunkName;
+            if (imported.contains(chunkKey)) {
+                continue;
+            }
+            var chunkFile = storeDir.resolve(chunkName);
+            futures.add(executor.submit(() -> {
+                Map<String, Object> batch = new LinkedHashMap<>();
+                ChunkedExport.readChunk(chunkFile, codec, batch::put);
+                store.saveAll(batch);
+                synchronized (progress) {
+                    progress.write(chunkKey);
+                    progress.write('\n');
+                    progress.flush();
+                }
+                LOG.info("{} imported.", count.addAndGet(batch.size()));
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while importing.", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Could not import chunk of \""
+                        + entry.getName() + "\".", e.getCause());
+            }
+        }
+    }
+}
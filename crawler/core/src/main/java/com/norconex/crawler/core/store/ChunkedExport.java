@@ -0,0 +1,130 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.store;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.function.BiConsumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+
+import com.norconex.crawler.core.store.codec.RecordCodec;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * Chunked export manifest and chunk file encoding, shared by
+ * {@link ChunkedDataStoreExporter} and {@link ChunkedDataStoreImporter}.
+ * A chunk file is a GZIP-compressed sequence of records, each made of
+ * a length-prefixed ID followed by its length-prefixed encoded object.
+ */
+final class ChunkedExport {
+
+    static final String MANIFEST_FILE = "manifest.json";
+    static final int CHUNK_SIZE = 10_000;
+
+    private static final int MAGIC = 0x4E584348; // NXCH
+    private static final int VERSION = 1;
+
+    private ChunkedExport() {}
+
+    @Data
+    @Accessors(chain = true)
+    static class Manifest {
+        private String exportId;
+        private String crawlSession;
+        private String crawler;
+        private List<StoreEntry> stores = new ArrayList<>();
+    }
+
+    @Data
+    @Accessors(chain = true)
+    static class StoreEntry {
+        private String name;
+        private String type;
+        private String dir;
+        private int chunks;
+        private long records;
+    }
+
+    static String chunkFileName(int chunkIndex) {
+        return "chunk-%06d.bin".formatted(chunkIndex);
+    }
+
+    // Written to a temporary file first so a chunk file is never partial
+    static <T> void writeChunk(Path file, List<Entry<String, T>> records,
+            RecordCodec<T> codec) throws IOException {
+        var tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (var out = new DataOutputStream(new GZIPOutputStream(
+                IOUtils.buffer(Files.newOutputStream(tmpFile))))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(records.size());
+            for (Entry<String, T> en : records) {
+                writeBytes(out, en.getKey().getBytes(UTF_8));
+                writeBytes(out, codec.encode(en.getValue()));
+            }
+        }
+        Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static <T> void readChunk(Path file, RecordCodec<T> codec,
+            BiConsumer<String, T> recordConsumer) throws IOException {
+        try (var in = new DataInputStream(new GZIPInputStream(
+                IOUtils.buffer(Files.newInputStream(file))))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a data store chunk file: " + file);
+            }
+            var version = in.readByte();
+            if (version > VERSION) {
+                throw new IOException("Unsupported chunk file version ("
+                        + version + "): " + file);
+            }
+            var count = in.readInt();
+            for (var i = 0; i < count; i++) {
+                var id = new String(readBytes(in), UTF_8);
+                recordConsumer.accept(id, codec.decode(readBytes(in)));
+            }
+        } catch (EOFException e) {
+            throw new IOException("Truncated chunk file: " + file, e);
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes)
+            throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        var bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
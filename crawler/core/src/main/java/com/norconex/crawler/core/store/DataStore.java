@@ -1,4 +1,4 @@
-/* Copyright 2019-2022 Norconex Inc.
+/* Copyright 2019-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,8 +15,17 @@
 package com.norconex.crawler.core.store;
 
 import java.io.Closeable;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiPredicate;
+import java.util.stream.Stream;
 
 //  Stores anything for fast retrieval.
 public interface DataStore<T> extends Closeable {
@@ -36,4 +45,132 @@ public interface DataStore<T> extends Closeable {
     void close();
     boolean forEach(BiPredicate<String, T> predicate);
     boolean isEmpty();
+
+    //--- Bulk operations ------------------------------------------------------
+
+    // Implementations are expected to override the following default
+    // methods with engine-native bulk operations when available.
+
+    /**
+     * Default number of records read or written at once by bulk operations.
+     */
+    int DEFAULT_PAGE_SIZE = 1000;
+
+    /**
+     * Saves many objects at once, replacing existing ones having the same
+     * IDs.
+     * @param objects objects to save, keyed by ID
+     */
+    default void saveAll(Map<String, T> objects) {
+        objects.forEach(this::save);
+    }
+
+    /**
+     * Finds many objects at once. IDs not matching any object are not
+     * part of the returned map.
+     * @param ids IDs of objects to find
+     * @return found objects, keyed by ID, in the order of supplied IDs
+     */
+    default Map<String, T> findAll(Collection<String> ids) {
+        Map<String, T> found = new LinkedHashMap<>();
+        ids.forEach(id -> find(id).ifPresent(obj -> found.put(id, obj)));
+        return found;
+    }
+
+    /**
+     * Deletes many objects at once.
+     * @param ids IDs of objects to delete
+     * @return number of objects deleted
+     */
+    default long deleteAll(Collection<String> ids) {
+        return ids.stream().filter(this::delete).count();
+    }
+
+    /**
+     * Moves all objects of this store to the target store, replacing
+     * existing ones having the same IDs. This store is empty afterwards.
+     * @param target store receiving the objects
+     * @return number of objects moved
+     */
+    default long moveAll(DataStore<T> target) {
+        var count = new AtomicLong();
+        Map<String, T> batch = new LinkedHashMap<>();
+        forEach((id, obj) -> {
+            batch.put(id, obj);
+            if (batch.size() >= DEFAULT_PAGE_SIZE) {
+                target.saveAll(batch);
+                count.addAndGet(batch.size());
+                batch.clear();
+            }
+            return true;
+        });
+        target.saveAll(batch);
+        count.addAndGet(batch.size());
+        clear();
+        return count.get();
+    }
+
+    /**
+     * Moves up to the given number of objects from the beginning of this
+     * store to the target store, in the same order as
+     * {@link #deleteFirst()}. Implementations supporting it do so
+     * atomically, so that concurrent callers, possibly from different
+     * processes, never move the same objects. The default implementation
+     * is not atomic and does not guarantee any order.
+     * @param maxCount maximum number of objects to move
+     * @param target store receiving the objects
+     * @return moved objects (empty if this store is empty)
+     */
+    default List<T> moveFirst(int maxCount, DataStore<T> target) {
+        Map<String, T> moved = new LinkedHashMap<>();
+        try (var records = stream(maxCount)) {
+            records.limit(maxCount).forEach(
+                    en -> moved.put(en.getKey(), en.getValue()));
+        }
+        // saved before deleted so they are always in one store or another
+        target.saveAll(moved);
+        deleteAll(moved.keySet());
+        return new ArrayList<>(moved.values());
+    }
+
+    /**
+     * Saves an object only if no object with the same ID exists.
+     * Implementations supporting it do so atomically, so that only one
+     * of many concurrent callers, possibly from different processes,
+     * saves the object. The default implementation is not atomic.
+     * @param id object ID
+     * @param object object to save
+     * @return <code>true</code> if the object was saved
+     */
+    default boolean saveIfAbsent(String id, T object) {
+        if (exists(id)) {
+            return false;
+        }
+        save(id, object);
+        return true;
+    }
+
+    /**
+     * Streams all records of this store, reading them
+     * {@value #DEFAULT_PAGE_SIZE} at a time.
+     * @return stream of records (ID and object)
+     * @see #stream(int)
+     */
+    default Stream<Entry<String, T>> stream() {
+        return stream(DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Streams all records of this store, reading them the given number
+     * at a time when supported. Streams must be closed after use
+     * to release any underlying cursor. The default implementation
+     * reads all records in memory first.
+     * @param pageSize maximum number of records read at once
+     * @return stream of records (ID and object)
+     */
+    default Stream<Entry<String, T>> stream(int pageSize) {
+        List<Entry<String, T>> records = new ArrayList<>();
+        forEach((id, obj) -> records.add(new SimpleImmutableEntry<>(id, obj)));
+        return records.stream();
+    }
 }
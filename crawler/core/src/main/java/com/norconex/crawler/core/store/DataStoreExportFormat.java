@@ -0,0 +1,34 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.store;
+
+/**
+ * Format of data store exports.
+ * @since 4.0.0
+ */
+public enum DataStoreExportFormat {
+    /**
+     * A single zip file per crawler holding one JSON entry per store,
+     * written one store and one record at a time.
+     */
+    ZIP,
+    /**
+     * A directory per crawler holding a manifest and compressed chunk
+     * files for each store. Records are binary encoded when a codec
+     * supports their type (JSON otherwise). Chunks are written and read
+     * in parallel, and imports resume from the last imported chunks.
+     */
+    CHUNKED
+}
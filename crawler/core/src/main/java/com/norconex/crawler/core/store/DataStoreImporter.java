@@ -19,6 +19,8 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.NumberFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.zip.ZipInputStream;
 
 import org.apache.commons.io.IOUtils;
@@ -106,17 +108,23 @@ public final class DataStoreImporter extends CrawlerException {
                         storeEngine.openStore(storeName, type);
 
                 var cnt = 0L;
+                Map<String, Object> batch = new LinkedHashMap<>();
                 parser.nextToken();
                 while (parser.nextToken() != JsonToken.END_ARRAY) {
                     parser.nextToken(); // id:
                     var id = parser.nextTextValue();
                     parser.nextToken(); // object:
                     parser.nextToken(); // { //NOSONAR
-                    store.save(id, SerialUtil.fromJson(parser, type));
+                    batch.put(id, SerialUtil.fromJson(parser, type));
                     parser.nextToken(); // } //NOSONAR
+                    if (batch.size() >= DataStore.DEFAULT_PAGE_SIZE) {
+                        store.saveAll(batch);
+                        batch.clear();
+                    }
                     cnt++;
                     logProgress(cnt, false);
                 }
+                store.saveAll(batch);
                 logProgress(cnt, true);
             } else {
                 parser.nextValue();
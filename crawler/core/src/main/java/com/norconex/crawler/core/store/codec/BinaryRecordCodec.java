@@ -0,0 +1,90 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.store.codec;
+
+import lombok.NonNull;
+
+/**
+ * <p>
+ * Base class for compact binary codecs. Encoded records start with
+ * a marker byte that can never start a JSON document, allowing
+ * stores to hold a mix of binary and JSON records (e.g., after switching
+ * {@link RecordFormat}).
+ * </p>
+ * <p>
+ * Encoding reuses a per-thread buffer, so only the returned byte array
+ * is allocated per record.
+ * </p>
+ * @param <T> type of object encoded/decoded
+ * @since 4.0.0
+ */
+public abstract class BinaryRecordCodec<T> implements RecordCodec<T> {
+
+    /** First byte of any binary record. */
+    public static final byte MARKER = (byte) 0xB7;
+
+    private static final int MAX_REUSED_BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<BinaryRecordOutput> BUFFER =
+            ThreadLocal.withInitial(BinaryRecordOutput::new);
+
+    @Override
+    public final byte[] encode(@NonNull T object) {
+        var out = BUFFER.get();
+        out.reset();
+        out.writeByte(MARKER);
+        write(object, out);
+        var bytes = out.toByteArray();
+        // don't hold on to exceptionally large buffers
+        if (out.size() > MAX_REUSED_BUFFER_SIZE) {
+            BUFFER.remove();
+        }
+        return bytes;
+    }
+
+    @Override
+    public final T decode(@NonNull byte[] bytes) {
+        if (!isBinary(bytes)) {
+            throw new RecordCodecException(
+                    "Not a binary record (missing marker byte).");
+        }
+        return read(new BinaryRecordInput(bytes, 1));
+    }
+
+    /**
+     * Whether the given bytes were encoded by a binary codec.
+     * @param bytes encoded record
+     * @return <code>true</code> if a binary record
+     */
+    public static boolean isBinary(byte[] bytes) {
+        return bytes != null && bytes.length > 0 && bytes[0] == MARKER;
+    }
+
+    /**
+     * Writes the object fields. Implementors are responsible for
+     * writing a schema version so older records can still be read
+     * after fields are added.
+     * @param object object to write
+     * @param out binary output
+     */
+    protected abstract void write(T object, BinaryRecordOutput out);
+
+    /**
+     * Reads the object fields, in the same order they were written.
+     * @param in binary input
+     * @return new object
+     */
+    protected abstract T read(BinaryRecordInput in);
+}
@@ -0,0 +1,128 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.store.codec;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.NonNull;
+
+/**
+ * Reads values written with {@link BinaryRecordOutput}, in the same order.
+ * @since 4.0.0
+ */
+public class BinaryRecordInput {
+
+    private final byte[] buf;
+    private int pos;
+
+    public BinaryRecordInput(@NonNull byte[] bytes) {
+        this(bytes, 0);
+    }
+    public BinaryRecordInput(@NonNull byte[] bytes, int offset) {
+        buf = bytes;
+        pos = offset;
+    }
+
+    public boolean hasRemaining() {
+        return pos < buf.length;
+    }
+
+    public int readByte() {
+        checkRemaining(1);
+        return buf[pos++] & 0xFF;
+    }
+    public boolean readBoolean() {
+        return readByte() != 0;
+    }
+    public int readVarInt() {
+        return (int) readVarLong();
+    }
+    public long readVarLong() {
+        var value = 0L;
+        var shift = 0;
+        int b;
+        do {
+            if (shift > 63) {
+                throw new RecordCodecException("Malformed variable-length "
+                        + "number at position " + pos + ".");
+            }
+            b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+    public long readSignedVarLong() {
+        var v = readVarLong();
+        return (v >>> 1) ^ -(v & 1);
+    }
+    public float readFloat() {
+        checkRemaining(4);
+        var bits = ((buf[pos] & 0xFF) << 24)
+                | ((buf[pos + 1] & 0xFF) << 16)
+                | ((buf[pos + 2] & 0xFF) << 8)
+                | (buf[pos + 3] & 0xFF);
+        pos += 4;
+        return Float.intBitsToFloat(bits);
+    }
+
+    public String readString() {
+        var len = readVarInt();
+        if (len == 0) {
+            return null;
+        }
+        len--;
+        checkRemaining(len);
+        var value = new String(buf, pos, len, UTF_8);
+        pos += len;
+        return value;
+    }
+    public List<String> readStrings() {
+        var len = readVarInt();
+        if (len == 0) {
+            return null; //NOSONAR null and empty are distinct
+        }
+        len--;
+        List<String> values = new ArrayList<>(len);
+        for (var i = 0; i < len; i++) {
+            values.add(readString());
+        }
+        return values;
+    }
+    public ZonedDateTime readDateTime() {
+        if (!readBoolean()) {
+            return null;
+        }
+        var epochSeconds = readSignedVarLong();
+        var nanos = readVarInt();
+        var zone = readString();
+        return ZonedDateTime.ofInstant(
+                Instant.ofEpochSecond(epochSeconds, nanos),
+                ZoneId.of(zone));
+    }
+
+    private void checkRemaining(int len) {
+        if (len < 0 || pos + len > buf.length) {
+            throw new RecordCodecException("Unexpected end of binary record "
+                    + "at position " + pos + " (needed " + len + " bytes).");
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.store.codec;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Growable byte buffer used to write binary records. Meant to be
+ * reset and reused by the same thread.
+ * Strings, collections and dates are all nullable.
+ * @since 4.0.0
+ */
+public class BinaryRecordOutput {
+
+    private byte[] buf;
+    private int size;
+
+    public BinaryRecordOutput() {
+        this(256);
+    }
+    public BinaryRecordOutput(int initialCapacity) {
+        buf = new byte[Math.max(16, initialCapacity)];
+    }
+
+    public void reset() {
+        size = 0;
+    }
+    public int size() {
+        return size;
+    }
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, size);
+    }
+
+    public BinaryRecordOutput writeByte(int b) {
+        ensureCapacity(1);
+        buf[size++] = (byte) b;
+        return this;
+    }
+    public BinaryRecordOutput writeBoolean(boolean b) {
+        return writeByte(b ? 1 : 0);
+    }
+    public BinaryRecordOutput writeVarInt(int value) {
+        return writeVarLong(value & 0xFFFFFFFFL);
+    }
+    public BinaryRecordOutput writeVarLong(long value) {
+        ensureCapacity(10);
+        var v = value;
+        while ((v & ~0x7FL) != 0) {
+            buf[size++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buf[size++] = (byte) v;
+        return this;
+    }
+    // zig-zag encoded so small negative values stay small
+    public BinaryRecordOutput writeSignedVarLong(long value) {
+        return writeVarLong((value << 1) ^ (value >> 63));
+    }
+    public BinaryRecordOutput writeFloat(float value) {
+        var bits = Float.floatToIntBits(value);
+        ensureCapacity(4);
+        buf[size++] = (byte) (bits >>> 24);
+        buf[size++] = (byte) (bits >>> 16);
+        buf[size++] = (byte) (bits >>> 8);
+        buf[size++] = (byte) bits;
+        return this;
+    }
+
+    // length + 1 is written so that zero can stand for null
+    public BinaryRecordOutput writeString(String value) {
+        if (value == null) {
+            return writeVarInt(0);
+        }
+        var bytes = value.getBytes(UTF_8);
+        writeVarInt(bytes.length + 1);
+        return writeBytes(bytes);
+    }
+    public BinaryRecordOutput writeStrings(Collection<String> values) {
+        if (values == null) {
+            return writeVarInt(0);
+        }
+        writeVarInt(values.size() + 1);
+        for (String value : values) {
+            writeString(value);
+        }
+        return this;
+    }
+    public BinaryRecordOutput writeDateTime(ZonedDateTime value) {
+        if (value == null) {
+            return writeBoolean(false);
+        }
+        writeBoolean(true);
+        writeSignedVarLong(value.toEpochSecond());
+        writeVarInt(value.getNano());
+        return writeString(value.getZone().getId());
+    }
+
+    private BinaryRecordOutput writeBytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buf, size, bytes.length);
+        size += bytes.length;
+        return this;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.store.codec;
+
+import java.nio.charset.Charset;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import com.norconex.commons.lang.file.ContentType;
+import com.norconex.crawler.core.doc.CrawlDocRecord;
+import com.norconex.crawler.core.doc.CrawlDocState;
+
+import lombok.NonNull;
+
+/**
+ * <p>
+ * Binary codec for {@link CrawlDocRecord}. Crawler implementations
+ * with their own record type can extend this class and override
+ * {@link #writeExtra(CrawlDocRecord, BinaryRecordOutput)} and
+ * {@link #readExtra(CrawlDocRecord, BinaryRecordInput)} to handle
+ * additional fields.
+ * </p>
+ * <p>
+ * Each class level writes its own schema version before its fields.
+ * When adding fields, increment the version and only read the new
+ * fields when the stored version supports them.
+ * </p>
+ * @param <T> crawl doc record type
+ * @since 4.0.0
+ */
+public class CrawlDocRecordCodec<T extends CrawlDocRecord>
+        extends BinaryRecordCodec<T> {
+
+    private static final int VERSION = 1;
+
+    private final Supplier<T> recordSupplier;
+
+    public CrawlDocRecordCodec(@NonNull Supplier<T> recordSupplier) {
+        this.recordSupplier = recordSupplier;
+    }
+
+    @Override
+    protected final void write(T rec, BinaryRecordOutput out) {
+        out.writeByte(VERSION);
+        // DocRecord
+        out.writeString(rec.getReference());
+        out.writeString(Optional.ofNullable(rec.getContentType())
+                .map(ContentType::toString).orElse(null));
+        out.writeString(Optional.ofNullable(rec.getCharset())
+                .map(Charset::name).orElse(null));
+        out.writeStrings(rec.getEmbeddedParentReferences());
+        // CrawlDocRecord
+        out.writeSignedVarLong(rec.getDepth());
+        out.writeString(rec.getOriginalReference());
+        out.writeString(rec.getParentRootReference());
+        out.writeString(Optional.ofNullable(rec.getState())
+                .map(CrawlDocState::toString).orElse(null));
+        out.writeString(rec.getMetaChecksum());
+        out.writeString(rec.getContentChecksum());
+        out.writeDateTime(rec.getCrawlDate());
+        out.writeDateTime(rec.getLastModified());
+        writeExtra(rec, out);
+    }
+
+    @Override
+    protected final T read(BinaryRecordInput in) {
+        var version = in.readByte();
+        if (version > VERSION) {
+            throw new RecordCodecException("Unsupported crawl doc record "
+                    + "binary version: " + version);
+        }
+        var rec = recordSupplier.get();
+        // DocRecord
+        var ref = in.readString();
+        if (ref != null) {
+            rec.setReference(ref);
+        }
+        var contentType = in.readString();
+        if (contentType != null) {
+            rec.setContentType(ContentType.valueOf(contentType));
+        }
+        var charset = in.readString();
+        if (charset != null) {
+            rec.setCharset(Charset.forName(charset));
+        }
+        rec.setEmbeddedParentReferences(in.readStrings());
+        // CrawlDocRecord
+        rec.setDepth((int) in.readSignedVarLong());
+        rec.setOriginalReference(in.readString());
+        rec.setParentRootReference(in.readString());
+        var state = in.readString();
+        if (state != null) {
+            rec.setState(CrawlDocState.valueOf(state));
+        }
+        rec.setMetaChecksum(in.readString());
+        rec.setContentChecksum(in.readString());
+        rec.setCrawlDate(in.readDateTime());
+        rec.setLastModified(in.readDateTime());
+        readExtra(rec, in);
+        return rec;
+    }
+
+    /**
+     * Writes fields specific to a crawl doc record subclass. Default
+     * implementation does nothing.
+     * @param rec the record
+     * @param out binary output
+     */
+    protected void writeExtra(T rec, BinaryRecordOutput out) {
+        //NOOP
+    }
+
+    /**
+     * Reads fields specific to a crawl doc record subclass. Default
+     * implementation does nothing.
+     * @param rec the record being read
+     * @param in binary input
+     */
+    protected void readExtra(T rec, BinaryRecordInput in) {
+        //NOOP
+    }
+}
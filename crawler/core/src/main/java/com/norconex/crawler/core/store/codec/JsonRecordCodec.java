@@ -0,0 +1,44 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.store.codec;
+
+import com.norconex.crawler.core.store.impl.SerialUtil;
+
+import lombok.NonNull;
+
+/**
+ * Encodes records as UTF-8 JSON bytes. Supports any type Jackson can
+ * serialize.
+ * @param <T> type of object encoded/decoded
+ * @since 4.0.0
+ */
+public class JsonRecordCodec<T> implements RecordCodec<T> {
+
+    private final Class<? extends T> type;
+
+    public JsonRecordCodec(@NonNull Class<? extends T> type) {
+        this.type = type;
+    }
+
+    @Override
+    public byte[] encode(@NonNull T object) {
+        return SerialUtil.toJsonBytes(object);
+    }
+
+    @Override
+    public T decode(@NonNull byte[] bytes) {
+        return SerialUtil.fromJson(bytes, type);
+    }
+}
@@ -0,0 +1,38 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.store.codec;
+
+/**
+ * Encodes and decodes objects held by a data store to and from their
+ * stored byte representation.
+ * @param <T> type of object encoded/decoded
+ * @since 4.0.0
+ */
+public interface RecordCodec<T> {
+
+    /**
+     * Encodes an object to bytes.
+     * @param object the object to encode (never <code>null</code>)
+     * @return encoded bytes
+     */
+    byte[] encode(T object);
+
+    /**
+     * Decodes an object from bytes.
+     * @param bytes bytes to decode (never <code>null</code>)
+     * @return decoded object
+     */
+    T decode(byte[] bytes);
+}
@@ -0,0 +1,43 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.store.codec;
+
+/**
+ * <p>
+ * Service provider interface for registering {@link RecordCodec}
+ * implementations for specific types. Providers are discovered
+ * using the Java {@link java.util.ServiceLoader} mechanism, by listing
+ * them in a
+ * <code>META-INF/services/com.norconex.crawler.core.store.codec.RecordCodecProvider</code>
+ * file.
+ * </p>
+ * <p>
+ * Types without a registered codec are stored as JSON.
+ * </p>
+ * @since 4.0.0
+ */
+public interface RecordCodecProvider {
+
+    /**
+     * Gets a binary codec for the given type, or <code>null</code>
+     * if this provider does not support that type. Implementations
+     * should only return a codec for types it is aware of all fields,
+     * typically by matching the exact type.
+     * @param <T> object type
+     * @param type object class
+     * @return record codec or <code>null</code>
+     */
+    <T> RecordCodec<T> getCodec(Class<T> type);
+}
@@ -0,0 +1,101 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.store.codec;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <p>
+ * Resolves the {@link RecordCodec} a data store should use for a given
+ * type, based on registered {@link RecordCodecProvider}s.
+ * </p>
+ * <p>
+ * Returned codecs always decode both binary and JSON records, regardless
+ * of the format requested, so existing stores remain readable when the
+ * format changes.
+ * </p>
+ * @since 4.0.0
+ */
+@Slf4j
+public final class RecordCodecs {
+
+    private static final List<RecordCodecProvider> PROVIDERS =
+            loadProviders();
+
+    private RecordCodecs() {}
+
+    /**
+     * Gets a codec for the given type and format. When the format is
+     * {@link RecordFormat#BINARY} and no binary codec is registered for
+     * the type, JSON is used.
+     * @param <T> object type
+     * @param type object class
+     * @param format preferred record format (<code>null</code> means
+     *     {@link RecordFormat#BINARY})
+     * @return record codec
+     */
+    public static <T> RecordCodec<T> forType(
+            @NonNull Class<? extends T> type, RecordFormat format) {
+        var json = new JsonRecordCodec<T>(type);
+        var binary = binaryCodec(type);
+        var encoder = format != RecordFormat.JSON && binary != null
+                ? binary : json;
+        return new RecordCodec<>() {
+            @Override
+            public byte[] encode(T object) {
+                return encoder.encode(object);
+            }
+            @Override
+            public T decode(byte[] bytes) {
+                if (BinaryRecordCodec.isBinary(bytes)) {
+                    if (binary == null) {
+                        throw new RecordCodecException(
+                                "No binary codec registered for type: "
+                                        + type.getName());
+                    }
+                    return binary.decode(bytes);
+                }
+                return json.decode(bytes);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> RecordCodec<T> binaryCodec(Class<? extends T> type) {
+        for (RecordCodecProvider provider : PROVIDERS) {
+            var codec = provider.getCodec(type);
+            if (codec != null) {
+                return (RecordCodec<T>) codec;
+            }
+        }
+        return null;
+    }
+
+    private static List<RecordCodecProvider> loadProviders() {
+        List<RecordCodecProvider> providers = new ArrayList<>();
+        ServiceLoader.load(RecordCodecProvider.class).forEach(p -> {
+            LOG.debug("Registering record codec provider: {}",
+                    p.getClass().getName());
+            providers.add(p);
+        });
+        return Collections.unmodifiableList(providers);
+    }
+}
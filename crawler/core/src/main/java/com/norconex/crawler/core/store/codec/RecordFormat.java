@@ -0,0 +1,31 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.store.codec;
+
+/**
+ * Format used by a data store engine to store records.
+ * @since 4.0.0
+ */
+public enum RecordFormat {
+    /**
+     * Compact binary format for types having a registered
+     * {@link RecordCodecProvider}, falling back to JSON for others.
+     */
+    BINARY,
+    /**
+     * JSON format for all types.
+     */
+    JSON
+}
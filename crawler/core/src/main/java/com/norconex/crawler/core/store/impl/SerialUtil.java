@@ -1,4 +1,4 @@
-/* Copyright 2023 Norconex Inc.
+/* Copyright 2023-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -87,6 +87,14 @@ public final class SerialUtil {
                     "Could not serialize object to JSON: " + object, e);
         }
     }
+    public static byte[] toJsonBytes(@NonNull Object object) {
+        try {
+            return mapper.writeValueAsBytes(object);
+        } catch (JsonProcessingException e) {
+            throw new SerializationException(
+                    "Could not serialize object to JSON: " + object, e);
+        }
+    }
     public static Reader toJsonReader(@NonNull Object object) {
         return new StringReader(toJsonString(object));
     }
@@ -99,6 +107,14 @@ public final class SerialUtil {
                     "Could not deserialize JSON to object: " + json, e);
         }
     }
+    public static <T> T fromJson(@NonNull byte[] json, @NonNull Class<T> cls) {
+        try {
+            return mapper.readValue(json, cls);
+        } catch (IOException e) {
+            throw new SerializationException(
+                    "Could not deserialize JSON bytes to object.", e);
+        }
+    }
     public static <T> T fromJson(@NonNull Reader json, @NonNull Class<T> cls) {
         try {
             return mapper.readValue(json, cls);
@@ -1,4 +1,4 @@
-/* Copyright 2021-2022 Norconex Inc.
+/* Copyright 2021-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,43 +15,74 @@
 package com.norconex.crawler.core.store.impl.jdbc;
 
 import static java.lang.System.currentTimeMillis;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import java.io.IOException;
-import java.io.Reader;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.BiPredicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.apache.commons.collections4.ListUtils;
+import org.apache.commons.lang3.StringUtils;
 
 import com.norconex.crawler.core.store.DataStore;
 import com.norconex.crawler.core.store.DataStoreException;
-import com.norconex.crawler.core.store.impl.SerialUtil;
+import com.norconex.crawler.core.store.codec.RecordCodec;
 
 import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
 
+@Slf4j
 public class JdbcDataStore<T> implements DataStore<T> {
 
     private static final PreparedStatementConsumer NO_ARGS = stmt -> {};
+    // Maximum number of parameters in "IN" clauses, kept well under
+    // the lowest limit among supported databases.
+    private static final int MAX_IN_PARAMS = 500;
 
     private final JdbcDataStoreEngine engine;
     private String tableName;
     private String storeName;
     private final Class<? extends T> type;
+    private final RecordCodec<T> codec;
     private final TableAdapter adapter;
 
     JdbcDataStore(
             @NonNull JdbcDataStoreEngine engine,
             @NonNull String storeName,
-            @NonNull Class<? extends T> type) {
+            @NonNull Class<? extends T> type,
+            @NonNull RecordCodec<T> codec) {
         this.engine = engine;
         this.type = type;
+        this.codec = codec;
         adapter = engine.getTableAdapter();
         this.storeName = storeName;
         tableName = engine.tableName(storeName);
         if (!engine.tableExist(tableName)) {
             createTable();
+        } else {
+            migrateLegacyTable();
         }
     }
 
@@ -65,47 +96,131 @@ public class JdbcDataStore<T> implements DataStore<T> {
 
     @Override
     public void save(String id, T object) {
-        executeWrite("""
+        executeWrite(saveSql(), stmt -> bindSave(stmt, id, object));
+    }
+
+    @Override
+    public void saveAll(Map<String, T> objects) {
+        if (objects.isEmpty()) {
+            return;
+        }
+        try (var conn = engine.getConnection()) {
+            try (var stmt = conn.prepareStatement(
+                    saveSql().replace("<table>", tableName))) {
+                var cnt = 0;
+                for (Entry<String, T> en : objects.entrySet()) {
+                    bindSave(stmt, en.getKey(), en.getValue());
+                    stmt.addBatch();
+                    if (++cnt % DEFAULT_PAGE_SIZE == 0) {
+                        stmt.executeBatch();
+                    }
+                }
+                if (cnt % DEFAULT_PAGE_SIZE != 0) {
+                    stmt.executeBatch();
+                }
+                if (!conn.getAutoCommit()) {
+                    conn.commit();
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataStoreException(
+                    "Could not write to table '" + tableName + "'.", e);
+        }
+    }
+
+    @Override
+    public boolean saveIfAbsent(String id, T object) {
+        try {
+            return executeWrite(saveIfAbsentSql(),
+                    stmt -> bindSave(stmt, id, object)) > 0;
+        } catch (DataStoreException e) {
+            // concurrent insert of the same ID
+            if (e.getCause() instanceof SQLException se
+                    && StringUtils.startsWith(se.getSQLState(), "23")) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private String saveSql() {
+        return saveIfAbsentSql() + """
+                WHEN MATCHED THEN
+                  UPDATE SET
+                    t.modified = s.modified,
+                    t.data = s.data
+                """;
+    }
+    private String saveIfAbsentSql() {
+        return """
                 MERGE INTO <table> AS t
                 USING (
                   SELECT
                     CAST(? AS %s) AS id,
                     CAST(? AS %s) AS modified,
-                    CAST(? AS %s) AS json
+                    CAST(? AS %s) AS data
                   FROM DUAL
                 ) AS s
                   ON t.id = s.id
                 WHEN NOT MATCHED THEN
-                  INSERT (id, modified, json)
-                  VALUES (s.id, s.modified, s.json)
-                WHEN MATCHED THEN
-                  UPDATE SET
-                    t.modified = s.modified,
-                    t.json = s.json
+                  INSERT (id, modified, data)
+                  VALUES (s.id, s.modified, s.data)
                 """.formatted(
                         adapter.idType(),
                         adapter.modifiedType(),
-                        adapter.jsonType()),
-                stmt -> {
-                    stmt.setString(1, adapter.serializableId(id));
-                    stmt.setTimestamp(2, new Timestamp(currentTimeMillis()));
-                    stmt.setClob(3, SerialUtil.toJsonReader(object));
-        });
+                        adapter.dataType());
+    }
+    private void bindSave(PreparedStatement stmt, String id, T object)
+            throws SQLException {
+        stmt.setString(1, adapter.serializableId(id));
+        stmt.setTimestamp(2, new Timestamp(currentTimeMillis()));
+        stmt.setBytes(3, codec.encode(object));
     }
 
     @Override
     public Optional<T> find(String id) {
         return executeRead(
-                "SELECT id, json FROM <table> WHERE id = ?",
+                "SELECT id, data FROM <table> WHERE id = ?",
                 stmt -> stmt.setString(1, adapter.serializableId(id)),
                 this::firstObject);
     }
 
 
+    @Override
+    public Map<String, T> findAll(Collection<String> ids) {
+        // IDs as stored, mapped to the ones supplied
+        Map<String, String> storedIds = new HashMap<>();
+        ids.forEach(id -> storedIds.put(adapter.serializableId(id), id));
+        Map<String, T> found = new HashMap<>();
+        for (List<String> chunk : ListUtils.partition(
+                new ArrayList<>(storedIds.keySet()), MAX_IN_PARAMS)) {
+            executeRead(
+                    "SELECT id, data FROM <table> WHERE id IN ("
+                            + inParams(chunk.size()) + ")",
+                    stmt -> bindIn(stmt, chunk),
+                    rs -> {
+                        while (rs.next()) {
+                            var rec = toRecord(rs);
+                            rec.object.ifPresent(obj -> found.put(
+                                    storedIds.get(rec.id), obj));
+                        }
+                        return null;
+                    });
+        }
+        Map<String, T> ordered = new LinkedHashMap<>();
+        ids.forEach(id -> {
+            var obj = found.get(id);
+            if (obj != null) {
+                ordered.put(id, obj);
+            }
+        });
+        return ordered;
+    }
+
     @Override
     public Optional<T> findFirst() {
         return executeRead(
-                "SELECT id, json FROM <table> ORDER BY modified",
+                "SELECT id, data FROM <table> ORDER BY modified",
                 NO_ARGS,
                 this::firstObject);
     }
@@ -138,16 +253,136 @@ public class JdbcDataStore<T> implements DataStore<T> {
                 stmt -> stmt.setString(1, adapter.serializableId(id))) > 0;
     }
 
+    @Override
+    public long deleteAll(Collection<String> ids) {
+        var storedIds = ids.stream()
+                .map(adapter::serializableId)
+                .distinct()
+                .toList();
+        var deleted = 0L;
+        for (List<String> chunk :
+                ListUtils.partition(storedIds, MAX_IN_PARAMS)) {
+            deleted += executeWrite(
+                    "DELETE FROM <table> WHERE id IN ("
+                            + inParams(chunk.size()) + ")",
+                    stmt -> bindIn(stmt, chunk));
+        }
+        return deleted;
+    }
+
     @Override
     public Optional<T> deleteFirst() {
-        Record<T> rec = executeRead(
-                "SELECT id, json FROM <table> ORDER BY modified",
-                NO_ARGS,
-                this::firstRecord);
-        if (!rec.isEmpty()) {
-            delete(rec.id);
+        return claimFirst(1, null).stream()
+                .findFirst()
+                .flatMap(row -> toObject(row.data));
+    }
+
+    @Override
+    public List<T> moveFirst(int maxCount, DataStore<T> target) {
+        if (!(target instanceof JdbcDataStore<T> other)
+                || other.engine != engine) {
+            return DataStore.super.moveFirst(maxCount, target);
+        }
+        List<T> moved = new ArrayList<>();
+        claimFirst(maxCount, other).forEach(
+                row -> toObject(row.data).ifPresent(moved::add));
+        return moved;
+    }
+
+    // Deletes the first rows (oldest first) and inserts them in the target
+    // table, if any, within the same transaction. Where supported, rows
+    // already locked by concurrent claims are skipped. Otherwise, rows
+    // concurrently claimed by others are detected by the delete not
+    // affecting them and are not returned.
+    private List<Row> claimFirst(int maxCount, JdbcDataStore<T> target) {
+        try (var conn = engine.getConnection()) {
+            var autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                List<Row> claimed;
+                List<Row> selected;
+                do {
+                    selected = selectFirstRows(conn, maxCount);
+                    claimed = deleteRows(conn, selected);
+                    if (claimed.isEmpty() && !selected.isEmpty()) {
+                        // all claimed by others, try again with a new
+                        // transaction so they are no longer visible
+                        conn.commit();
+                    }
+                } while (claimed.isEmpty() && !selected.isEmpty());
+                if (target != null && !claimed.isEmpty()) {
+                    target.insertRows(conn, claimed);
+                }
+                conn.commit();
+                return claimed;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new DataStoreException(
+                    "Could not claim records from table '"
+                            + tableName + "'.", e);
+        }
+    }
+    private List<Row> selectFirstRows(Connection conn, int maxCount)
+            throws SQLException {
+        var sql = adapter.selectFirstRows(
+                "SELECT id, data FROM %s ORDER BY modified"
+                        .formatted(tableName), maxCount);
+        if (adapter.isSkipLockedSupported()) {
+            // rows being claimed by concurrent transactions are skipped
+            sql = adapter.selectSkipLocked(sql);
+        }
+        try (var stmt = conn.prepareStatement(sql)) {
+            if (!adapter.isFirstRowsSupported()) {
+                stmt.setMaxRows(maxCount);
+            }
+            List<Row> rows = new ArrayList<>();
+            try (var rs = stmt.executeQuery()) {
+                while (rs.next() && rows.size() < maxCount) {
+                    rows.add(new Row(rs.getString(1), rs.getBytes(2)));
+                }
+            }
+            return rows;
+        }
+    }
+    private List<Row> deleteRows(Connection conn, List<Row> rows)
+            throws SQLException {
+        if (rows.isEmpty()) {
+            return rows;
+        }
+        try (var stmt = conn.prepareStatement(
+                "DELETE FROM %s WHERE id = ?".formatted(tableName))) {
+            for (Row row : rows) {
+                stmt.setString(1, row.id);
+                stmt.addBatch();
+            }
+            var counts = stmt.executeBatch();
+            List<Row> deleted = new ArrayList<>(rows.size());
+            for (var i = 0; i < counts.length; i++) {
+                // zero means another transaction deleted it first
+                if (counts[i] != 0) {
+                    deleted.add(rows.get(i));
+                }
+            }
+            return deleted;
+        }
+    }
+    private void insertRows(Connection conn, List<Row> rows)
+            throws SQLException {
+        try (var stmt = conn.prepareStatement(
+                saveSql().replace("<table>", tableName))) {
+            for (Row row : rows) {
+                stmt.setString(1, row.id);
+                stmt.setTimestamp(2, new Timestamp(currentTimeMillis()));
+                stmt.setBytes(3, row.data);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
         }
-        return rec.object;
     }
 
     @Override
@@ -155,6 +390,45 @@ public class JdbcDataStore<T> implements DataStore<T> {
         executeWrite("DELETE FROM <table>", NO_ARGS);
     }
 
+    @Override
+    public long moveAll(DataStore<T> target) {
+        if (!(target instanceof JdbcDataStore<T> other)
+                || other.engine != engine) {
+            return DataStore.super.moveAll(target);
+        }
+        // Same database: copied and deleted in a single transaction
+        // without records leaving the database.
+        try (var conn = engine.getConnection()) {
+            var autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (var stmt = conn.createStatement()) {
+                var moved = stmt.executeUpdate("""
+                        MERGE INTO %s AS t
+                        USING (SELECT id, modified, data FROM %s) AS s
+                          ON t.id = s.id
+                        WHEN NOT MATCHED THEN
+                          INSERT (id, modified, data)
+                          VALUES (s.id, s.modified, s.data)
+                        WHEN MATCHED THEN
+                          UPDATE SET
+                            t.modified = s.modified,
+                            t.data = s.data
+                        """.formatted(other.tableName, tableName));
+                stmt.executeUpdate("DELETE FROM " + tableName);
+                conn.commit();
+                return moved;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new DataStoreException("Could not move records from table '"
+                    + tableName + "' to table '" + other.tableName + "'.", e);
+        }
+    }
+
     @Override
     public void close() {
         //NOOP: Closed implicitly when datasource is closed.
@@ -164,7 +438,7 @@ public class JdbcDataStore<T> implements DataStore<T> {
     @Override
     public boolean forEach(BiPredicate<String, T> predicate) {
         return executeRead(
-                "SELECT id, json FROM <table>",
+                "SELECT id, data FROM <table>",
                 NO_ARGS,
                 rs -> {
                     while (rs.next()) {
@@ -183,6 +457,68 @@ public class JdbcDataStore<T> implements DataStore<T> {
                 "SELECT * FROM <table>", NO_ARGS, rs -> !rs.next());
     }
 
+    // Pages through records ordered by ID, each page read with its own
+    // short query so no connection is held between pages.
+    @Override
+    public Stream<Entry<String, T>> stream(int pageSize) {
+        var size = Math.max(1, pageSize);
+        Iterator<Entry<String, T>> it = new Iterator<>() {
+            private List<Entry<String, T>> page = Collections.emptyList();
+            private int index;
+            private String lastId;
+            private boolean lastPage;
+            @Override
+            public boolean hasNext() {
+                if (index < page.size()) {
+                    return true;
+                }
+                if (lastPage) {
+                    return false;
+                }
+                page = readPage(lastId, size);
+                index = 0;
+                lastPage = page.size() < size;
+                if (!page.isEmpty()) {
+                    lastId = page.get(page.size() - 1).getKey();
+                }
+                return !page.isEmpty();
+            }
+            @Override
+            public Entry<String, T> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.get(index++);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                it, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private List<Entry<String, T>> readPage(String afterId, int size) {
+        return executeRead(
+                afterId == null
+                        ? "SELECT id, data FROM <table> ORDER BY id"
+                        : "SELECT id, data FROM <table> WHERE id > ? "
+                                + "ORDER BY id",
+                stmt -> {
+                    stmt.setMaxRows(size);
+                    stmt.setFetchSize(size);
+                    if (afterId != null) {
+                        stmt.setString(1, afterId);
+                    }
+                },
+                rs -> {
+                    List<Entry<String, T>> recs = new ArrayList<>(size);
+                    while (rs.next()) {
+                        var rec = toRecord(rs);
+                        recs.add(new SimpleImmutableEntry<>(
+                                rec.id, rec.object.orElse(null)));
+                    }
+                    return recs;
+                });
+    }
+
     private void createTable() {
         try (var conn = engine.getConnection()) {
             try (var stmt = conn.createStatement()) {
@@ -190,14 +526,14 @@ public class JdbcDataStore<T> implements DataStore<T> {
                         CREATE TABLE %s (
                           id %s NOT NULL,
                           modified %s,
-                          json %s,
+                          data %s,
                           PRIMARY KEY (id)
                         )
                         """.formatted(
                                 tableName,
                                 adapter.idType(),
                                 adapter.modifiedType(),
-                                adapter.jsonType()));
+                                adapter.dataType()));
                 stmt.executeUpdate(
                         "CREATE INDEX %s_modified_index ON %s(modified)"
                                 .formatted(tableName, tableName));
@@ -211,6 +547,114 @@ public class JdbcDataStore<T> implements DataStore<T> {
         }
     }
 
+    // Tables created before records were stored as binary data have them
+    // in a "json" text column. Those not yet copied are copied as UTF-8
+    // bytes to the "data" column (JSON is detected when decoding). The
+    // "json" column is kept to allow rolling back to a previous version,
+    // unless configured to drop it (irreversible). If interrupted, it
+    // resumes where it left off.
+    private void migrateLegacyTable() {
+        try (var conn = engine.getConnection()) {
+            var columns = columnNames(conn);
+            if (!columns.contains("JSON")) {
+                return;
+            }
+            var autoCommit = conn.getAutoCommit();
+            try (var stmt = conn.createStatement()) {
+                if (!columns.contains("DATA")) {
+                    LOG.info("Migrating table '{}' to binary records...",
+                            tableName);
+                    stmt.executeUpdate("ALTER TABLE %s ADD data %s"
+                            .formatted(tableName, adapter.dataType()));
+                }
+                conn.setAutoCommit(false);
+                var migrated = 0L;
+                String lastId = null;
+                List<Entry<String, String>> page;
+                do {
+                    page = selectLegacyPage(conn, lastId);
+                    updateLegacyPage(conn, page);
+                    conn.commit();
+                    if (!page.isEmpty()) {
+                        lastId = page.get(page.size() - 1).getKey();
+                    }
+                    migrated += page.size();
+                } while (page.size() == DEFAULT_PAGE_SIZE);
+                if (migrated > 0) {
+                    LOG.info("Migrated {} records from table '{}'.",
+                            migrated, tableName);
+                }
+                if (engine.getConfiguration().isDropLegacyColumns()) {
+                    stmt.executeUpdate("ALTER TABLE %s DROP COLUMN json"
+                            .formatted(tableName));
+                    conn.commit();
+                    LOG.info("Dropped legacy column 'json' from table '{}'.",
+                            tableName);
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new DataStoreException(
+                    "Could not migrate table '" + tableName + "'.", e);
+        }
+    }
+    private Set<String> columnNames(Connection conn) throws SQLException {
+        try (var stmt = conn.createStatement();
+                var rs = stmt.executeQuery(
+                        "SELECT * FROM %s WHERE 1 = 0".formatted(tableName))) {
+            var meta = rs.getMetaData();
+            Set<String> names = new HashSet<>();
+            for (var i = 1; i <= meta.getColumnCount(); i++) {
+                names.add(meta.getColumnName(i).toUpperCase());
+            }
+            return names;
+        }
+    }
+    private List<Entry<String, String>> selectLegacyPage(
+            Connection conn, String afterId) throws SQLException {
+        try (var stmt = conn.prepareStatement(afterId == null
+                ? ("SELECT id, json FROM %s WHERE data IS NULL "
+                        + "AND json IS NOT NULL ORDER BY id")
+                        .formatted(tableName)
+                : ("SELECT id, json FROM %s WHERE data IS NULL "
+                        + "AND json IS NOT NULL AND id > ? ORDER BY id")
+                        .formatted(tableName))) {
+            stmt.setMaxRows(DEFAULT_PAGE_SIZE);
+            if (afterId != null) {
+                stmt.setString(1, afterId);
+            }
+            List<Entry<String, String>> page = new ArrayList<>();
+            try (var rs = stmt.executeQuery()) {
+                while (rs.next() && page.size() < DEFAULT_PAGE_SIZE) {
+                    page.add(new SimpleImmutableEntry<>(
+                            rs.getString(1), rs.getString(2)));
+                }
+            }
+            return page;
+        }
+    }
+    private void updateLegacyPage(
+            Connection conn, List<Entry<String, String>> page)
+                    throws SQLException {
+        if (page.isEmpty()) {
+            return;
+        }
+        try (var stmt = conn.prepareStatement(
+                "UPDATE %s SET data = ? WHERE id = ?".formatted(tableName))) {
+            for (Entry<String, String> en : page) {
+                stmt.setBytes(1, en.getValue() == null
+                        ? null : en.getValue().getBytes(UTF_8));
+                stmt.setString(2, en.getKey());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
     boolean rename(String newStoreName) {
         var newTableName = engine.tableName(newStoreName);
         var targetExists = engine.tableExist(newTableName);
@@ -226,41 +670,41 @@ public class JdbcDataStore<T> implements DataStore<T> {
     private Optional<T> firstObject(ResultSet rs) {
         try {
             if (rs.first()) {
-                return toObject(rs.getClob(2).getCharacterStream());
+                return toObject(rs.getBytes(2));
             }
             return Optional.empty();
-        } catch (IOException | SQLException e) {
+        } catch (SQLException e) {
             throw new DataStoreException(
                     "Could not get object from table '" + tableName + "'.", e);
         }
     }
-    private Record<T> firstRecord(ResultSet rs) {
-        try {
-            if (rs.first()) {
-                return toRecord(rs);
-            }
-            return new Record<>();
-        } catch (IOException | SQLException e) {
-            throw new DataStoreException(
-                    "Could not get record from table '" + tableName + "'.", e);
-        }
-    }
-    private Record<T> toRecord(ResultSet rs) throws IOException, SQLException {
+    private Record<T> toRecord(ResultSet rs) throws SQLException {
         var rec = new Record<T>();
         rec.id = rs.getString(1);
-        rec.object = toObject(rs.getClob(2).getCharacterStream());
+        rec.object = toObject(rs.getBytes(2));
         return rec;
     }
-    private Optional<T> toObject(Reader reader) throws IOException {
-        try (var r = reader) {
-            return Optional.ofNullable(SerialUtil.fromJson(r, type));
+    private Optional<T> toObject(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return Optional.empty();
         }
+        return Optional.ofNullable(codec.decode(bytes));
     }
 
     Class<?> getType() {
         return type;
     }
 
+    private static String inParams(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+    private static void bindIn(PreparedStatement stmt, List<String> ids)
+            throws SQLException {
+        for (var i = 0; i < ids.size(); i++) {
+            stmt.setString(i + 1, ids.get(i));
+        }
+    }
+
     private <R> R executeRead(
             String sql,
             PreparedStatementConsumer psc,
@@ -307,8 +751,8 @@ public class JdbcDataStore<T> implements DataStore<T> {
     private static class Record<T> {
         private String id;
         private Optional<T> object = Optional.empty();
-        private boolean isEmpty() {
-            return id == null;
-        }
     }
+
+    // A row as stored (stored ID and encoded object)
+    private record Row(String id, byte[] data) {}
 }
@@ -1,4 +1,4 @@
-/* Copyright 2021-2023 Norconex Inc.
+/* Copyright 2021-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -33,6 +33,7 @@ import com.norconex.crawler.core.crawler.Crawler;
 import com.norconex.crawler.core.store.DataStore;
 import com.norconex.crawler.core.store.DataStoreEngine;
 import com.norconex.crawler.core.store.DataStoreException;
+import com.norconex.crawler.core.store.codec.RecordCodecs;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 
@@ -68,6 +69,22 @@ import lombok.extern.slf4j.Slf4j;
  * get errors related to field data types not being supported, you have
  * the option to redefined them.
  * </p>
+ * <h3>Record format</h3>
+ * <p>
+ * Records are stored as binary data. Record types having a registered
+ * binary codec are stored in a compact binary format, while
+ * others are stored as JSON bytes. You can force JSON for all records
+ * with <code>recordFormat</code>.
+ * </p>
+ * <h3>Legacy tables</h3>
+ * <p>
+ * Tables created by earlier versions store records in a "json" text
+ * column. When opened, their records are copied to the binary column.
+ * The "json" column is kept so you can roll back to an earlier version,
+ * unless <code>dropLegacyColumns</code> is <code>true</code>, in which
+ * case it is dropped after the copy. Dropping it is a one-way step.
+ * Records saved after the copy are only stored in the binary column.
+ * </p>
  *
  * {@nx.xml.usage
  * <dataStoreEngine class="com.norconex.crawler.core.store.impl.jdbc.JdbcDataStoreEngine">
@@ -83,6 +100,14 @@ import lombok.extern.slf4j.Slf4j;
  *      characters are: alphanumeric, period, and underscore.
  *      )
  *   </tablePrefix>
+ *   <recordFormat>[BINARY|JSON]</recordFormat>
+ *   <dropLegacyColumns>
+ *     [false|true]
+ *     (Whether to drop the "json" column of tables created by earlier
+ *      versions once their records are copied to the binary column.
+ *      Irreversible: previous versions can no longer read the tables.
+ *      Default is false.)
+ *   </dropLegacyColumns>
  *   <!--
  *     Optionally overwrite default SQL data type used.  You should only
  *     use if you get data type-related errors.
@@ -90,7 +115,7 @@ import lombok.extern.slf4j.Slf4j;
  *   <dataTypes>
  *     <varchar   use="(equivalent data type for your database)" />
  *     <timestamp use="(equivalent data type for your database)" />
- *     <text      use="(equivalent data type for your database)" />
+ *     <binary    use="(equivalent data type for your database)" />
  *   </dataTypes>
  * </dataStoreEngine>
  * }
@@ -142,7 +167,9 @@ public class JdbcDataStoreEngine
         tableAdapter = resolveTableAdapter();
 
         // store types for each table
-        storeTypes = new JdbcDataStore<>(this, STORE_TYPES_NAME, String.class);
+        storeTypes = new JdbcDataStore<>(this, STORE_TYPES_NAME, String.class,
+                RecordCodecs.forType(
+                        String.class, configuration.getRecordFormat()));
     }
 
     private TableAdapter resolveTableAdapter() {
@@ -150,7 +177,7 @@ public class JdbcDataStoreEngine
                 datasource.getJdbcUrl(), datasource.getDriverClassName()))
             .withIdType(configuration.getVarcharType())
             .withModifiedType(configuration.getTimestampType())
-            .withJsonType(configuration.getTextType());
+            .withDataType(configuration.getBinaryType());
     }
 
     @Override
@@ -182,7 +209,8 @@ public class JdbcDataStoreEngine
     public <T> DataStore<T> openStore(
             String storeName, Class<? extends T> type) {
         storeTypes.save(storeName, type.getName());
-        return new JdbcDataStore<>(this, storeName, type);
+        return new JdbcDataStore<>(this, storeName, type,
+                RecordCodecs.forType(type, configuration.getRecordFormat()));
     }
 
     @Override
@@ -1,4 +1,4 @@
-/* Copyright 2021-2023 Norconex Inc.
+/* Copyright 2021-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -14,10 +14,14 @@
  */
 package com.norconex.crawler.core.store.impl.jdbc;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.norconex.commons.lang.map.Properties;
+import com.norconex.crawler.core.store.codec.RecordFormat;
 
 import lombok.Data;
 import lombok.experimental.Accessors;
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * <p>
@@ -61,6 +65,14 @@ import lombok.experimental.Accessors;
  *      characters are: alphanumeric, period, and underscore.
  *      )
  *   </tablePrefix>
+ *   <recordFormat>[BINARY|JSON]</recordFormat>
+ *   <dropLegacyColumns>
+ *     [false|true]
+ *     (Whether to drop the "json" column of tables created by earlier
+ *      versions once their records are copied to the binary column.
+ *      Irreversible: previous versions can no longer read the tables.
+ *      Default is false.)
+ *   </dropLegacyColumns>
  *   <!--
  *     Optionally overwrite default SQL data type used.  You should only
  *     use if you get data type-related errors.
@@ -68,7 +80,7 @@ import lombok.experimental.Accessors;
  *   <dataTypes>
  *     <varchar   use="(equivalent data type for your database)" />
  *     <timestamp use="(equivalent data type for your database)" />
- *     <text      use="(equivalent data type for your database)" />
+ *     <binary    use="(equivalent data type for your database)" />
  *   </dataTypes>
  * </dataStoreEngine>
  * }
@@ -89,10 +101,50 @@ import lombok.experimental.Accessors;
  */
 @Data
 @Accessors(chain = true)
+@Slf4j
 public class JdbcDataStoreEngineConfig {
 
     private Properties properties = new Properties();
     private String varcharType;
     private String timestampType;
-    private String textType;
+    private String binaryType;
+    private RecordFormat recordFormat = RecordFormat.BINARY;
+    /**
+     * Whether to drop the "json" column of legacy tables once
+     * migrated. This is irreversible.
+     * @param dropLegacyColumns <code>true</code> to drop legacy columns
+     * @return <code>true</code> if dropping legacy columns
+     */
+    @SuppressWarnings("javadoc")
+    private boolean dropLegacyColumns;
+
+    /**
+     * Always <code>null</code>. Records are now stored as binary data.
+     * @return <code>null</code>
+     * @deprecated since 4.0.0, use {@link #getBinaryType()} instead
+     */
+    @Deprecated(since = "4.0.0")
+    @JsonIgnore
+    public String getTextType() {
+        return null;
+    }
+    /**
+     * Ignored. Records are now stored as binary data, so a text type
+     * can no longer be used to store them. Use
+     * {@link #setBinaryType(String)} to overwrite the record data type.
+     * @param textType data type (ignored)
+     * @return this
+     * @deprecated since 4.0.0, use {@link #setBinaryType(String)} instead
+     */
+    @Deprecated(since = "4.0.0")
+    @JsonProperty("textType")
+    public JdbcDataStoreEngineConfig setTextType(String textType) {
+        if (textType != null) {
+            LOG.warn("The JDBC data store engine \"textType\" configuration "
+                    + "option is deprecated and ignored (records are now "
+                    + "stored as binary data). Use \"binaryType\" instead "
+                    + "if you need to overwrite the record data type.");
+        }
+        return this;
+    }
 }
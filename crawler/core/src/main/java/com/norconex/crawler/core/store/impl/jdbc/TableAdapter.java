@@ -1,4 +1,4 @@
-/* Copyright 2021-2022 Norconex Inc.
+/* Copyright 2021-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -33,28 +33,47 @@ import com.norconex.commons.lang.text.StringUtil;
  */
 final class TableAdapter {
 
+    private static final String FETCH_FIRST = "FETCH FIRST %d ROWS ONLY";
+    private static final String SKIP_LOCKED = "FOR UPDATE SKIP LOCKED";
+
     private static final TableAdapter DEFAULT =
-            of("VARCHAR",  "TIMESTAMP", "TEXT");
+            of("VARCHAR",  "TIMESTAMP", "BLOB");
     private static final Map<String, TableAdapter> ADAPTERS = MapUtil.toMap(
-            "DERBY", DEFAULT.withJsonType("CLOB"),
-            "DB2", DEFAULT.withJsonType("CLOB"),
-            "H2", DEFAULT.withJsonType("CLOB"),
-            "MYSQL", DEFAULT.withJsonType("LONGTEXT"),
-            "ORACLE", of("VARCHAR2",  "TIMESTAMP", "CLOB"),
-            "POSTGRESQL", DEFAULT,
-            "SQLSERVER", of("VARCHAR",  "DATETIME",  "NTEXT"),
-            "SYBASE", DEFAULT
+            "DERBY", DEFAULT,
+            "DB2", DEFAULT,
+            "H2", DEFAULT,
+            "MYSQL", DEFAULT
+                    .withDataType("LONGBLOB")
+                    .withFirstRows("LIMIT %d")
+                    .withSkipLocked(SKIP_LOCKED),
+            // Oracle does not support row locking with "FETCH FIRST"
+            "ORACLE", of("VARCHAR2",  "TIMESTAMP", "BLOB"),
+            "POSTGRESQL", DEFAULT
+                    .withDataType("BYTEA")
+                    .withSkipLocked(SKIP_LOCKED),
+            "SQLSERVER", of("VARCHAR",  "DATETIME",  "VARBINARY(MAX)")
+                    .withFirstRows("OFFSET 0 ROWS FETCH NEXT %d ROWS ONLY"),
+            "SYBASE", DEFAULT.withDataType("IMAGE").withFirstRows(null)
     );
 
     private static final int ID_MAX_LENGTH = 2048;
 
     private final String idType;
     private final String modifiedType;
-    private final String jsonType;
-    private TableAdapter(String idType, String modifiedType, String jsonType) {
+    private final String dataType;
+    // SQL clause limiting the number of rows returned (null if not
+    // supported, relying on JDBC max rows)
+    private final String firstRows;
+    // SQL clause locking selected rows while skipping those already
+    // locked (null if not supported)
+    private final String skipLocked;
+    private TableAdapter(String idType, String modifiedType, String dataType,
+            String firstRows, String skipLocked) {
         this.idType = idType;
         this.modifiedType = modifiedType;
-        this.jsonType = jsonType;
+        this.dataType = dataType;
+        this.firstRows = firstRows;
+        this.skipLocked = skipLocked;
     }
 
     String serializableId(String id) {
@@ -71,31 +90,74 @@ final class TableAdapter {
     String modifiedType() {
         return modifiedType;
     }
-    String jsonType() {
-        return jsonType;
+    String dataType() {
+        return dataType;
+    }
+
+    /**
+     * Appends to an ordered <code>SELECT</code> statement what is needed
+     * to only return the first rows, if supported.
+     * @param orderedSelect select statement ending with "ORDER BY"
+     * @param maxRows maximum number of rows
+     * @return select statement
+     */
+    String selectFirstRows(String orderedSelect, int maxRows) {
+        if (firstRows == null) {
+            return orderedSelect;
+        }
+        return orderedSelect + " " + firstRows.formatted(maxRows);
+    }
+    /**
+     * Appends to a <code>SELECT</code> statement what is needed to lock
+     * selected rows for the current transaction, skipping rows already
+     * locked by other transactions. Only call when
+     * {@link #isSkipLockedSupported()} is <code>true</code>.
+     * @param select select statement
+     * @return select statement
+     */
+    String selectSkipLocked(String select) {
+        return select + " " + skipLocked;
+    }
+    boolean isFirstRowsSupported() {
+        return firstRows != null;
+    }
+    boolean isSkipLockedSupported() {
+        return skipLocked != null;
     }
 
     TableAdapter withIdType(String idType) {
         if (StringUtils.isBlank(idType)) {
             return this;
         }
-        return new TableAdapter(idType, modifiedType, jsonType);
+        return new TableAdapter(
+                idType, modifiedType, dataType, firstRows, skipLocked);
     }
     TableAdapter withModifiedType(String modifiedType) {
         if (StringUtils.isBlank(modifiedType)) {
             return this;
         }
-        return new TableAdapter(idType, modifiedType, jsonType);
+        return new TableAdapter(
+                idType, modifiedType, dataType, firstRows, skipLocked);
     }
-    TableAdapter withJsonType(String jsonType) {
-        if (StringUtils.isBlank(jsonType)) {
+    TableAdapter withDataType(String dataType) {
+        if (StringUtils.isBlank(dataType)) {
             return this;
         }
-        return new TableAdapter(idType, modifiedType, jsonType);
+        return new TableAdapter(
+                idType, modifiedType, dataType, firstRows, skipLocked);
+    }
+    TableAdapter withFirstRows(String firstRows) {
+        return new TableAdapter(
+                idType, modifiedType, dataType, firstRows, skipLocked);
+    }
+    TableAdapter withSkipLocked(String skipLocked) {
+        return new TableAdapter(
+                idType, modifiedType, dataType, firstRows, skipLocked);
     }
     static TableAdapter of(
-            String idType, String modifiedType, String jsonType) {
-        return new TableAdapter(idType, modifiedType, jsonType);
+            String idType, String modifiedType, String dataType) {
+        return new TableAdapter(
+                idType, modifiedType, dataType, FETCH_FIRST, null);
     }
 
     static TableAdapter detect(String jdbcUrlOrDataSource) {
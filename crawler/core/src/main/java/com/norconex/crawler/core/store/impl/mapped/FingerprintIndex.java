@@ -0,0 +1,364 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.store.impl.mapped;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongPredicate;
+
+import com.norconex.crawler.core.checksum.ChecksumUtil;
+import com.norconex.crawler.core.store.DataStoreException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <p>
+ * Off-heap hash index from record ID fingerprints (64-bit hashes) to
+ * record locations, held in a memory-mapped file. Uses open
+ * addressing with linear probing. Since different IDs can share the same
+ * fingerprint, lookups are given a way to confirm a candidate location
+ * holds the expected ID.
+ * </p>
+ * <p>
+ * The index file is flagged as clean when closed. An index not closed
+ * cleanly should be rebuilt from the records it indexes.
+ * </p>
+ * <p>
+ * Not thread-safe for writing. Callers are expected to synchronize
+ * writes, and reads happening concurrently with writes.
+ * </p>
+ */
+@Slf4j
+class FingerprintIndex {
+
+    private static final long EMPTY = 0;
+    private static final long REMOVED = -1;
+
+    // Header: magic, clean flag, capacity, size, used slots (incl. removed)
+    private static final int MAGIC = 0x4E584649;
+    private static final int MAGIC_POS = 0;
+    private static final int CLEAN_POS = 4;
+    private static final int CAPACITY_POS = 8;
+    private static final int SIZE_POS = 16;
+    private static final int USED_POS = 24;
+    private static final int HEADER_SIZE = 32;
+
+    private static final int SLOT_SIZE = 16;
+    // slots are mapped by chunks, as a mapped buffer is limited to 2GB
+    private static final int CHUNK_BITS = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+    private static final String INDEX_PREFIX = "index-";
+    private static final String INDEX_EXT = ".idx";
+
+    private final Path dir;
+    private final int initialCapacity;
+    private int generation;
+    private MappedByteBuffer header;
+    private MappedByteBuffer[] chunks;
+    private long capacity;
+    private long size;
+    private long used;
+    private final boolean wasClean;
+
+    FingerprintIndex(Path dir, int initialCapacity) {
+        this.dir = dir;
+        this.initialCapacity = Integer.highestOneBit(
+                Math.max(16, initialCapacity - 1) << 1);
+        var clean = false;
+        try {
+            Files.createDirectories(dir);
+            var latest = latestGeneration();
+            if (latest > 0) {
+                generation = latest;
+                map(indexFile(generation), -1);
+                clean = header.getInt(MAGIC_POS) == MAGIC
+                        && header.getInt(CLEAN_POS) == 1;
+            }
+            if (!clean) {
+                generation = latest + 1;
+                reset(this.initialCapacity);
+                if (latest > 0) {
+                    deleteQuietly(indexFile(latest));
+                }
+            }
+        } catch (IOException e) {
+            throw new DataStoreException(
+                    "Could not open index in: " + dir, e);
+        }
+        wasClean = clean;
+        // flagged as clean again only when properly closed
+        header.putInt(CLEAN_POS, 0);
+        header.force();
+    }
+
+    /**
+     * Whether the index was properly closed last time it was used
+     * and can be trusted.
+     * @return <code>true</code> if the index was closed cleanly
+     */
+    boolean wasClean() {
+        return wasClean;
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * Finds the location of the record having the given fingerprint,
+     * and for which the matcher returns <code>true</code>.
+     * @param fingerprint record ID fingerprint
+     * @param matcher confirms a location holds the expected record
+     * @return record location, or zero if not found
+     */
+    long find(long fingerprint, LongPredicate matcher) {
+        var slot = slotOf(fingerprint);
+        while (true) {
+            var location = location(slot);
+            if (location == EMPTY) {
+                return 0;
+            }
+            if (location != REMOVED && fingerprint(slot) == fingerprint
+                    && matcher.test(location)) {
+                return location;
+            }
+            slot = (slot + 1) & (capacity - 1);
+        }
+    }
+
+    void insert(long fingerprint, long location) {
+        if ((used + 1) * 4 > capacity * 3) {
+            rebuild();
+        }
+        var slot = slotOf(fingerprint);
+        long existing;
+        while ((existing = location(slot)) != EMPTY && existing != REMOVED) {
+            slot = (slot + 1) & (capacity - 1);
+        }
+        put(slot, fingerprint, location);
+        if (existing == EMPTY) {
+            used++;
+        }
+        size++;
+        updateCounts();
+    }
+
+    boolean replace(long fingerprint, long oldLocation, long newLocation) {
+        var slot = findSlot(fingerprint, oldLocation);
+        if (slot < 0) {
+            return false;
+        }
+        put(slot, fingerprint, newLocation);
+        return true;
+    }
+
+    boolean remove(long fingerprint, long location) {
+        var slot = findSlot(fingerprint, location);
+        if (slot < 0) {
+            return false;
+        }
+        put(slot, fingerprint, REMOVED);
+        size--;
+        updateCounts();
+        return true;
+    }
+
+    void clear() {
+        var oldFile = indexFile(generation);
+        try {
+            generation++;
+            reset(initialCapacity);
+        } catch (IOException e) {
+            throw new DataStoreException("Could not clear index.", e);
+        }
+        deleteQuietly(oldFile);
+    }
+
+    void close() {
+        header.putInt(CLEAN_POS, 1);
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+        header.force();
+    }
+
+    //--- Private methods ------------------------------------------------------
+
+    private long findSlot(long fingerprint, long location) {
+        var slot = slotOf(fingerprint);
+        long existing;
+        while ((existing = location(slot)) != EMPTY) {
+            if (existing == location && fingerprint(slot) == fingerprint) {
+                return slot;
+            }
+            slot = (slot + 1) & (capacity - 1);
+        }
+        return -1;
+    }
+
+    // Grows the index, or only gets rid of removed slots if large enough.
+    private void rebuild() {
+        var newCapacity = capacity;
+        while ((size + 1) * 2 > newCapacity) {
+            newCapacity <<= 1;
+        }
+        LOG.debug("Rebuilding index {} with capacity {} (size: {}).",
+                dir, newCapacity, size);
+        var oldFile = indexFile(generation);
+        var oldChunks = chunks;
+        var oldCapacity = capacity;
+        try {
+            generation++;
+            reset(newCapacity);
+        } catch (IOException e) {
+            throw new DataStoreException("Could not grow index.", e);
+        }
+        for (var slot = 0L; slot < oldCapacity; slot++) {
+            var pos = slot * SLOT_SIZE;
+            var chunk = oldChunks[(int) (pos >>> CHUNK_BITS)];
+            var offset = (int) (pos & CHUNK_MASK);
+            var location = chunk.getLong(offset + 8);
+            if (location != EMPTY && location != REMOVED) {
+                var fingerprint = chunk.getLong(offset);
+                var newSlot = slotOf(fingerprint);
+                while (location(newSlot) != EMPTY) {
+                    newSlot = (newSlot + 1) & (capacity - 1);
+                }
+                put(newSlot, fingerprint, location);
+                size++;
+                used++;
+            }
+        }
+        updateCounts();
+        deleteQuietly(oldFile);
+    }
+
+    private void reset(long newCapacity) throws IOException {
+        var file = indexFile(generation);
+        Files.deleteIfExists(file);
+        map(file, newCapacity);
+        header.putInt(MAGIC_POS, MAGIC);
+        header.putInt(CLEAN_POS, 0);
+        header.putLong(CAPACITY_POS, newCapacity);
+        size = 0;
+        used = 0;
+        updateCounts();
+    }
+
+    // negative capacity means read it from existing file
+    private void map(Path file, long newCapacity) throws IOException {
+        try (var channel = FileChannel.open(file,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            header = channel.map(MapMode.READ_WRITE, 0, HEADER_SIZE);
+            capacity = newCapacity < 0
+                    ? header.getLong(CAPACITY_POS) : newCapacity;
+            if (newCapacity < 0) {
+                size = header.getLong(SIZE_POS);
+                used = header.getLong(USED_POS);
+            }
+            var bytes = capacity * SLOT_SIZE;
+            var chunkSize = 1L << CHUNK_BITS;
+            chunks = new MappedByteBuffer[
+                    (int) ((bytes + chunkSize - 1) >>> CHUNK_BITS)];
+            for (var i = 0; i < chunks.length; i++) {
+                var start = i * chunkSize;
+                chunks[i] = channel.map(MapMode.READ_WRITE, HEADER_SIZE + start,
+                        Math.min(chunkSize, bytes - start));
+            }
+        }
+    }
+
+    private int latestGeneration() throws IOException {
+        var latest = 0;
+        try (var files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                var name = file.getFileName().toString();
+                if (name.startsWith(INDEX_PREFIX)
+                        && name.endsWith(INDEX_EXT)) {
+                    var gen = Integer.parseInt(name.substring(
+                            INDEX_PREFIX.length(),
+                            name.length() - INDEX_EXT.length()));
+                    if (gen > latest) {
+                        deleteQuietly(indexFile(latest));
+                        latest = gen;
+                    } else {
+                        deleteQuietly(file);
+                    }
+                }
+            }
+        }
+        return latest;
+    }
+
+    private Path indexFile(int gen) {
+        return dir.resolve(String.format("%s%010d%s",
+                INDEX_PREFIX, gen, INDEX_EXT));
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Some operating systems do not allow deleting mapped files.
+            LOG.debug("Could not delete index file: {}", file, e);
+        }
+    }
+
+    private long slotOf(long fingerprint) {
+        return fingerprint & (capacity - 1);
+    }
+
+    private long fingerprint(long slot) {
+        var pos = slot * SLOT_SIZE;
+        return chunks[(int) (pos >>> CHUNK_BITS)].getLong(
+                (int) (pos & CHUNK_MASK));
+    }
+
+    private long location(long slot) {
+        var pos = slot * SLOT_SIZE;
+        return chunks[(int) (pos >>> CHUNK_BITS)].getLong(
+                (int) (pos & CHUNK_MASK) + 8);
+    }
+
+    private void put(long slot, long fingerprint, long location) {
+        var pos = slot * SLOT_SIZE;
+        var chunk = chunks[(int) (pos >>> CHUNK_BITS)];
+        var offset = (int) (pos & CHUNK_MASK);
+        chunk.putLong(offset, fingerprint);
+        chunk.putLong(offset + 8, location);
+    }
+
+    private void updateCounts() {
+        header.putLong(SIZE_POS, size);
+        header.putLong(USED_POS, used);
+    }
+
+    /**
+     * Computes a 64-bit fingerprint of a record ID.
+     * @param id record ID
+     * @return fingerprint
+     */
+    static long fingerprint(String id) {
+        return ChecksumUtil.checksum64(id);
+    }
+}
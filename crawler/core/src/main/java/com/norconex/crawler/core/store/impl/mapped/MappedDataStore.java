@@ -0,0 +1,394 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.store.impl.mapped;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiPredicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.norconex.crawler.core.store.DataStore;
+import com.norconex.crawler.core.store.codec.RecordCodec;
+
+import lombok.NonNull;
+
+/**
+ * <p>
+ * Data store backed by memory-mapped files: an append-only segment log
+ * for records and an off-heap index of record locations. Records
+ * are kept in the order they were last saved, so
+ * {@link #findFirst()}, {@link #deleteFirst()} and
+ * {@link #moveFirst(int, DataStore)} behave as a FIFO queue.
+ * </p>
+ * <p>
+ * Instances are closed when their engine is closed.
+ * </p>
+ * @param <T> type of stored objects
+ * @since 4.0.0
+ */
+public class MappedDataStore<T> implements DataStore<T> {
+
+    private String name;
+    private final StoreFiles files;
+    private final RecordCodec<T> codec;
+
+    MappedDataStore(
+            @NonNull String name,
+            @NonNull StoreFiles files,
+            @NonNull RecordCodec<T> codec) {
+        this.name = name;
+        this.files = files;
+        this.codec = codec;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+    void setName(String name) {
+        this.name = name;
+    }
+    StoreFiles getFiles() {
+        return files;
+    }
+
+    @Override
+    public void save(String id, @NonNull T object) {
+        var data = codec.encode(object);
+        files.lock().writeLock().lock();
+        try {
+            doSave(id, data);
+        } finally {
+            files.lock().writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void saveAll(Map<String, T> objects) {
+        Map<String, byte[]> encoded = new LinkedHashMap<>();
+        objects.forEach((id, obj) -> encoded.put(id, codec.encode(obj)));
+        files.lock().writeLock().lock();
+        try {
+            encoded.forEach(this::doSave);
+        } finally {
+            files.lock().writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean saveIfAbsent(String id, @NonNull T object) {
+        var data = codec.encode(object);
+        files.lock().writeLock().lock();
+        try {
+            if (locate(id) != 0) {
+                return false;
+            }
+            doSave(id, data);
+            return true;
+        } finally {
+            files.lock().writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<T> find(String id) {
+        byte[] data = null;
+        files.lock().readLock().lock();
+        try {
+            var location = locate(id);
+            if (location != 0) {
+                data = files.log().readData(location);
+            }
+        } finally {
+            files.lock().readLock().unlock();
+        }
+        return toObject(data);
+    }
+
+    @Override
+    public Optional<T> findFirst() {
+        byte[] data = null;
+        files.lock().readLock().lock();
+        try {
+            var location = files.log().firstLive(files.readPointer());
+            if (location != SegmentLog.NO_LOCATION) {
+                files.readPointer(location);
+                data = files.log().readData(location);
+            }
+        } finally {
+            files.lock().readLock().unlock();
+        }
+        return toObject(data);
+    }
+
+    @Override
+    public boolean exists(String id) {
+        files.lock().readLock().lock();
+        try {
+            return locate(id) != 0;
+        } finally {
+            files.lock().readLock().unlock();
+        }
+    }
+
+    @Override
+    public long count() {
+        files.lock().readLock().lock();
+        try {
+            return files.index().size();
+        } finally {
+            files.lock().readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean delete(String id) {
+        files.lock().writeLock().lock();
+        try {
+            return doDelete(id);
+        } finally {
+            files.lock().writeLock().unlock();
+        }
+    }
+
+    @Override
+    public long deleteAll(Collection<String> ids) {
+        files.lock().writeLock().lock();
+        try {
+            return ids.stream().filter(this::doDelete).count();
+        } finally {
+            files.lock().writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<T> deleteFirst() {
+        files.takeLock().lock();
+        try {
+            var first = readFirst(1);
+            removeFirst(first);
+            return first.isEmpty()
+                    ? Optional.empty() : toObject(first.get(0).data());
+        } finally {
+            files.takeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<T> moveFirst(int maxCount, DataStore<T> target) {
+        // Saved to the target before being removed, so records are never
+        // lost if saving fails. The take lock keeps concurrent callers
+        // from getting the same records without holding this store lock
+        // while the target one is acquired.
+        files.takeLock().lock();
+        try {
+            var first = readFirst(maxCount);
+            Map<String, T> moved = new LinkedHashMap<>();
+            for (LogRecord rec : first) {
+                toObject(rec.data()).ifPresent(
+                        obj -> moved.put(rec.id(), obj));
+            }
+            target.saveAll(moved);
+            removeFirst(first);
+            return new ArrayList<>(moved.values());
+        } finally {
+            files.takeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        files.lock().writeLock().lock();
+        try {
+            files.log().clear();
+            files.index().clear();
+            files.readPointer(0);
+        } finally {
+            files.lock().writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        //NOOP, Closed implicitly when engine is closed.
+    }
+
+    @Override
+    public boolean forEach(BiPredicate<String, T> predicate) {
+        // The lock is not held while the predicate is invoked,
+        // so it can modify the store.
+        var it = iterator();
+        while (it.hasNext()) {
+            var en = it.next();
+            if (!predicate.test(en.getKey(), en.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return count() == 0;
+    }
+
+    @Override
+    public Stream<Entry<String, T>> stream(int pageSize) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                iterator(), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    //--- Private methods ------------------------------------------------------
+
+    // 0 if not found
+    private long locate(String id) {
+        var log = files.log();
+        return files.index().find(FingerprintIndex.fingerprint(id),
+                location -> id.equals(log.readId(location)));
+    }
+
+    private void doSave(String id, byte[] data) {
+        var fingerprint = FingerprintIndex.fingerprint(id);
+        var oldLocation = locate(id);
+        var newLocation = files.log().append(id, data);
+        if (oldLocation != 0) {
+            files.index().replace(fingerprint, oldLocation, newLocation);
+            files.log().delete(oldLocation);
+        } else {
+            files.index().insert(fingerprint, newLocation);
+        }
+    }
+
+    private boolean doDelete(String id) {
+        var location = locate(id);
+        if (location == 0) {
+            return false;
+        }
+        files.index().remove(FingerprintIndex.fingerprint(id), location);
+        files.log().delete(location);
+        return true;
+    }
+
+    // Reads up to the given number of live records from the read pointer.
+    private List<LogRecord> readFirst(int maxCount) {
+        List<LogRecord> records = new ArrayList<>();
+        files.lock().readLock().lock();
+        try {
+            var log = files.log();
+            var location = files.readPointer();
+            while (records.size() < maxCount) {
+                location = log.firstLive(location);
+                if (location == SegmentLog.NO_LOCATION) {
+                    break;
+                }
+                records.add(new LogRecord(location,
+                        log.readId(location), log.readData(location)));
+                location = log.after(location);
+            }
+        } finally {
+            files.lock().readLock().unlock();
+        }
+        return records;
+    }
+
+    // Removes records read with readFirst, unless modified since.
+    private void removeFirst(List<LogRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        files.lock().writeLock().lock();
+        try {
+            var log = files.log();
+            // the location remains valid as a pointer even if its
+            // segment gets deleted
+            var next = log.after(records.get(records.size() - 1).location());
+            for (LogRecord rec : records) {
+                if (locate(rec.id()) == rec.location()) {
+                    files.index().remove(FingerprintIndex.fingerprint(
+                            rec.id()), rec.location());
+                    log.delete(rec.location());
+                }
+            }
+            // records are only appended, so none are left before it
+            files.readPointer(next);
+        } finally {
+            files.lock().writeLock().unlock();
+        }
+    }
+
+    // Reads one record at a time under lock, resuming from the last
+    // location read.
+    private Iterator<Entry<String, T>> iterator() {
+        return new Iterator<>() {
+            private long location;
+            private Entry<String, T> next;
+            @Override
+            public boolean hasNext() {
+                if (next == null && location != SegmentLog.NO_LOCATION) {
+                    next = readNext();
+                }
+                return next != null;
+            }
+            @Override
+            public Entry<String, T> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                var en = next;
+                next = null;
+                return en;
+            }
+            private Entry<String, T> readNext() {
+                String id;
+                byte[] data;
+                files.lock().readLock().lock();
+                try {
+                    var log = files.log();
+                    location = log.firstLive(
+                            location == 0 ? 0 : log.after(location));
+                    if (location == SegmentLog.NO_LOCATION) {
+                        return null;
+                    }
+                    id = log.readId(location);
+                    data = log.readData(location);
+                } finally {
+                    files.lock().readLock().unlock();
+                }
+                return new SimpleImmutableEntry<>(
+                        id, toObject(data).orElse(null));
+            }
+        };
+    }
+
+    private Optional<T> toObject(byte[] data) {
+        if (data == null || data.length == 0) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(codec.decode(data));
+    }
+
+    private record LogRecord(long location, String id, byte[] data) {}
+}
@@ -0,0 +1,300 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.store.impl.mapped;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.ClassUtils;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.norconex.commons.lang.config.Configurable;
+import com.norconex.commons.lang.file.FileUtil;
+import com.norconex.crawler.core.crawler.Crawler;
+import com.norconex.crawler.core.store.DataStore;
+import com.norconex.crawler.core.store.DataStoreEngine;
+import com.norconex.crawler.core.store.DataStoreException;
+import com.norconex.crawler.core.store.codec.RecordCodecs;
+
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <p>
+ * Data store engine purpose-built for crawl frontiers (e.g., queued,
+ * active, and processed references), using memory-mapped files.
+ * Each store is made of:
+ * </p>
+ * <ul>
+ *   <li>An append-only log of records, split into fixed-size segment
+ *       files. Records are read in the order they were saved, making
+ *       first record retrieval (i.e., queue polling) a sequential read.
+ *       Segments are deleted once all their records are deleted
+ *       (e.g., fully consumed queue segments).</li>
+ *   <li>An off-heap hash index of record ID fingerprints to record
+ *       locations in the log.</li>
+ * </ul>
+ * <p>
+ * Record data and indices live in memory-mapped files, so Java heap
+ * usage does not grow with the number of references crawled. Restarting
+ * after a normal shutdown only requires remapping the files. After
+ * an abnormal termination, indices are rebuilt from the logs.
+ * </p>
+ * <p>
+ * Writes are persisted by the operating system, so they survive
+ * the crawler process terminating abnormally, but not necessarily an
+ * operating system crash or power failure. Files are flushed to disk
+ * when the engine is closed.
+ * </p>
+ * <p>
+ * This engine can't be shared between crawler processes.
+ * </p>
+ *
+ * {@nx.xml.usage
+ * <dataStoreEngine class="MappedDataStoreEngine">
+ *   <segmentSize>(segment file size, in bytes)</segmentSize>
+ *   <indexCapacity>(initial index capacity, in records)</indexCapacity>
+ *   <recordFormat>[BINARY|JSON]</recordFormat>
+ * </dataStoreEngine>
+ * }
+ * @since 4.0.0
+ */
+@EqualsAndHashCode
+@ToString
+@Slf4j
+public class MappedDataStoreEngine
+        implements DataStoreEngine, Configurable<MappedDataStoreEngineConfig> {
+
+    private static final String STORE_TYPES_FILE = "storetypes.properties";
+    private static final String STORE_DIRS_FILE = "storedirs.properties";
+
+    @JsonProperty(Configurable.PROPERTY)
+    private final MappedDataStoreEngineConfig cfg =
+            new MappedDataStoreEngineConfig();
+
+    private Path engineDir;
+    // store name -> store type
+    private final Properties storeTypes = new Properties();
+    // store name -> store directory name. Renaming a store only renames
+    // its entry, as mapped files can't be moved on some operating systems.
+    private final Properties storeDirs = new Properties();
+    private final Map<String, StoreFiles> openStores = new HashMap<>();
+
+    @Override
+    public MappedDataStoreEngineConfig getConfiguration() {
+        return cfg;
+    }
+
+    @Override
+    public synchronized void init(Crawler crawler) {
+        if (cfg.getSegmentSize() <= SegmentLog.HEADER_SIZE
+                || cfg.getSegmentSize()
+                        > MappedDataStoreEngineConfig.MAX_SEGMENT_SIZE) {
+            throw new DataStoreException(
+                    "Invalid segment size: " + cfg.getSegmentSize());
+        }
+        engineDir = crawler.getWorkDir().resolve("mappedstore");
+        storeTypes.clear();
+        storeDirs.clear();
+        try {
+            Files.createDirectories(engineDir);
+            loadProperties(storeTypes, STORE_TYPES_FILE);
+            loadProperties(storeDirs, STORE_DIRS_FILE);
+        } catch (IOException e) {
+            throw new DataStoreException(
+                    "Could not initialize data store engine in: "
+                            + engineDir, e);
+        }
+        // stores created before directories were mapped use their name
+        var mapped = false;
+        for (String name : storeTypes.stringPropertyNames()) {
+            if (!storeDirs.containsKey(name)) {
+                storeDirs.setProperty(name, FileUtil.toSafeFileName(name));
+                mapped = true;
+            }
+        }
+        if (mapped) {
+            saveStoreDirs();
+        }
+    }
+
+    @Override
+    public synchronized boolean clean() {
+        var hadStores = !storeTypes.isEmpty();
+        getStoreNames().forEach(this::dropStore);
+        openStores.clear();
+        storeTypes.clear();
+        storeDirs.clear();
+        try {
+            FileUtils.deleteDirectory(engineDir.toFile());
+        } catch (IOException e) {
+            throw new DataStoreException(
+                    "Could not delete data store directory.", e);
+        }
+        return hadStores;
+    }
+
+    @Override
+    public synchronized void close() {
+        LOG.info("Closing data store engine...");
+        openStores.values().forEach(StoreFiles::close);
+        openStores.clear();
+        LOG.info("Data store engine closed.");
+    }
+
+    @Override
+    public synchronized <T> DataStore<T> openStore(
+            String name, Class<? extends T> type) {
+        if (!storeDirs.containsKey(name)) {
+            storeDirs.setProperty(name, newStoreDirName(name));
+            saveStoreDirs();
+        }
+        var files = openStores.computeIfAbsent(
+                name, n -> new StoreFiles(storeDir(n), cfg));
+        if (!type.getName().equals(storeTypes.getProperty(name))) {
+            storeTypes.setProperty(name, type.getName());
+            saveStoreTypes();
+        }
+        return new MappedDataStore<>(name, files,
+                RecordCodecs.forType(type, cfg.getRecordFormat()));
+    }
+
+    @Override
+    public synchronized boolean dropStore(String name) {
+        var files = openStores.remove(name);
+        // a store never opened has no directory of its own
+        var existed = files != null || (storeDirs.containsKey(name)
+                && Files.exists(storeDir(name)));
+        if (files != null) {
+            files.delete();
+        } else if (storeDirs.containsKey(name)) {
+            FileUtils.deleteQuietly(storeDir(name).toFile());
+        }
+        if (storeTypes.remove(name) != null) {
+            saveStoreTypes();
+        }
+        if (storeDirs.remove(name) != null) {
+            saveStoreDirs();
+        }
+        return existed;
+    }
+
+    @Override
+    public synchronized boolean renameStore(
+            DataStore<?> store, String newName) {
+        var mappedStore = (MappedDataStore<?>) store;
+        var oldName = mappedStore.getName();
+        var hadStore = dropStore(newName);
+        // files stay where they are, only the store name changes
+        var dir = storeDirs.remove(oldName);
+        if (dir == null) {
+            dir = FileUtil.toSafeFileName(oldName);
+        }
+        storeDirs.put(newName, dir);
+        saveStoreDirs();
+        var files = openStores.remove(oldName);
+        if (files == null) {
+            files = mappedStore.getFiles();
+        }
+        openStores.put(newName, files);
+        mappedStore.setName(newName);
+        var type = storeTypes.remove(oldName);
+        if (type != null) {
+            storeTypes.put(newName, type);
+        }
+        saveStoreTypes();
+        return hadStore;
+    }
+
+    @Override
+    @JsonIgnore
+    public synchronized Set<String> getStoreNames() {
+        return new TreeSet<>(storeTypes.stringPropertyNames());
+    }
+
+    @Override
+    @JsonIgnore
+    public synchronized Optional<Class<?>> getStoreType(String name) {
+        var type = storeTypes.getProperty(name);
+        if (type == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(ClassUtils.getClass(type));
+        } catch (ClassNotFoundException e) {
+            throw new DataStoreException(
+                    "Could not determine type of: " + name, e);
+        }
+    }
+
+    private Path storeDir(String name) {
+        return engineDir.resolve(storeDirs.getProperty(name));
+    }
+
+    // The store name, unless a renamed store already uses it.
+    private String newStoreDirName(String name) {
+        var used = new HashSet<>(storeDirs.values());
+        var dirName = FileUtil.toSafeFileName(name);
+        var candidate = dirName;
+        for (var i = 1; used.contains(candidate)
+                || Files.exists(engineDir.resolve(candidate)); i++) {
+            candidate = dirName + "-" + i;
+        }
+        return candidate;
+    }
+
+    private void loadProperties(Properties props, String fileName)
+            throws IOException {
+        var file = engineDir.resolve(fileName);
+        if (Files.exists(file)) {
+            try (Reader r = Files.newBufferedReader(file)) {
+                props.load(r);
+            }
+        }
+    }
+
+    private void saveStoreTypes() {
+        saveProperties(storeTypes, STORE_TYPES_FILE, "store types");
+    }
+    private void saveStoreDirs() {
+        saveProperties(storeDirs, STORE_DIRS_FILE, "store directories");
+    }
+    private void saveProperties(
+            Properties props, String fileName, String description) {
+        try {
+            Files.createDirectories(engineDir);
+            try (Writer w = Files.newBufferedWriter(
+                    engineDir.resolve(fileName))) {
+                props.store(w, null);
+            }
+        } catch (IOException e) {
+            throw new DataStoreException(
+                    "Could not save " + description + ".", e);
+        }
+    }
+}
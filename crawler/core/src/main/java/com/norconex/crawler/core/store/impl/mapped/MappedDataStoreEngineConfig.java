@@ -0,0 +1,68 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.store.impl.mapped;
+
+import com.norconex.crawler.core.store.codec.RecordCodecProvider;
+import com.norconex.crawler.core.store.codec.RecordFormat;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * <p>
+ * Memory-mapped data store engine configuration.
+ * </p>
+ * @since 4.0.0
+ */
+@Data
+@Accessors(chain = true)
+public class MappedDataStoreEngineConfig {
+
+    public static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+    public static final long MAX_SEGMENT_SIZE = 1024L * 1024 * 1024;
+    public static final int DEFAULT_INDEX_CAPACITY = 64 * 1024;
+
+    /**
+     * The size in bytes of each segment file records are appended to.
+     * A record can't be larger than a segment. Segment files are
+     * created with their full size, but are sparse on most file
+     * systems. Default is 64MB, and maximum is 1GB.
+     * @param segmentSize segment size
+     * @return segment size
+     */
+    @SuppressWarnings("javadoc")
+    private long segmentSize = DEFAULT_SEGMENT_SIZE;
+
+    /**
+     * The initial number of records each store index can hold before
+     * it needs to grow. Each record takes 16 bytes of off-heap memory
+     * (memory-mapped file). Default is {@value #DEFAULT_INDEX_CAPACITY}.
+     * @param indexCapacity initial index capacity
+     * @return initial index capacity
+     */
+    @SuppressWarnings("javadoc")
+    private int indexCapacity = DEFAULT_INDEX_CAPACITY;
+
+    /**
+     * The format used to store records. Default is
+     * {@link RecordFormat#BINARY}, which uses a compact binary encoding
+     * for record types having a {@link RecordCodecProvider}
+     * (falling back to JSON for other types).
+     * @param recordFormat record format
+     * @return record format
+     */
+    @SuppressWarnings("javadoc")
+    private RecordFormat recordFormat = RecordFormat.BINARY;
+}
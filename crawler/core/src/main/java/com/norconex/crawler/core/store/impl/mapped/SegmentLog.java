@@ -0,0 +1,357 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.store.impl.mapped;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.LongConsumer;
+
+import com.norconex.crawler.core.store.DataStoreException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <p>
+ * Append-only log of records, split into fixed-size memory-mapped
+ * segment files. Records are never modified once written, other than
+ * being marked as deleted. Segments having no live records left
+ * are deleted, except for the one being written to, so a log consumed
+ * in the order it was written (e.g., a queue) only ever uses a couple of
+ * segments.
+ * </p>
+ * <p>
+ * Records are identified by their location: the segment number in the
+ * upper 32 bits, and the offset within the segment in the lower 32 bits.
+ * </p>
+ * <p>
+ * Not thread-safe for writing. Callers are expected to synchronize
+ * writes, and reads happening concurrently with writes.
+ * </p>
+ */
+@Slf4j
+class SegmentLog {
+
+    static final long NO_LOCATION = -1;
+
+    // Segment header: magic, live record count, end of last record
+    private static final int MAGIC = 0x4E584D4C;
+    private static final int MAGIC_POS = 0;
+    private static final int LIVE_POS = 4;
+    private static final int END_POS = 8;
+    static final int HEADER_SIZE = 16;
+
+    // Record: length of what follows, status, id length, id, data
+    private static final int RECORD_OVERHEAD = 9;
+    private static final byte LIVE = 1;
+    private static final byte DEAD = 0;
+
+    private static final String SEGMENT_EXT = ".seg";
+
+    private final Path dir;
+    private final int segmentSize;
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private final List<Path> undeleted = new ArrayList<>();
+    private Segment current;
+    private int nextSegmentId = 1;
+
+    SegmentLog(Path dir, int segmentSize) {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        try {
+            Files.createDirectories(dir);
+            try (var files = Files.list(dir)) {
+                for (Path file : files.filter(f -> f.getFileName()
+                        .toString().endsWith(SEGMENT_EXT)).toList()) {
+                    var segment = openSegment(file);
+                    segments.put(segment.id, segment);
+                }
+            }
+        } catch (IOException e) {
+            throw new DataStoreException(
+                    "Could not open segments in: " + dir, e);
+        }
+        if (!segments.isEmpty()) {
+            current = segments.lastEntry().getValue();
+            nextSegmentId = current.id + 1;
+        }
+    }
+
+    //--- Writes ---------------------------------------------------------------
+
+    long append(String id, byte[] data) {
+        var idBytes = id.getBytes(UTF_8);
+        var length = RECORD_OVERHEAD - 4 + idBytes.length + data.length;
+        var total = 4 + length;
+        if (total > segmentSize - HEADER_SIZE) {
+            throw new DataStoreException("Record too large (" + total
+                    + " bytes) for segment size: " + segmentSize);
+        }
+        if (current == null || current.end() + total > segmentSize) {
+            rollSegment();
+        }
+        var buf = current.buf;
+        var pos = current.end();
+        buf.putInt(pos, length);
+        buf.put(pos + 4, LIVE);
+        buf.putInt(pos + 5, idBytes.length);
+        buf.put(pos + RECORD_OVERHEAD, idBytes);
+        buf.put(pos + RECORD_OVERHEAD + idBytes.length, data);
+        // header updated last, so a partially written record is ignored
+        current.live(current.live() + 1);
+        current.end(pos + total);
+        return location(current.id, pos);
+    }
+
+    /**
+     * Marks a record as deleted, deleting its segment if it has no
+     * live records left.
+     * @param location record location
+     * @return <code>true</code> if the record was live
+     */
+    boolean delete(long location) {
+        var segment = segments.get(segmentId(location));
+        var pos = offset(location);
+        if (segment == null || segment.buf.get(pos + 4) != LIVE) {
+            return false;
+        }
+        segment.buf.put(pos + 4, DEAD);
+        segment.live(segment.live() - 1);
+        if (segment.live() <= 0 && segment != current) {
+            deleteSegment(segment);
+        }
+        return true;
+    }
+
+    void clear() {
+        new ArrayList<>(segments.values()).forEach(this::deleteSegment);
+        current = null;
+    }
+
+    //--- Reads ----------------------------------------------------------------
+
+    String readId(long location) {
+        var segment = segment(location);
+        var pos = offset(location);
+        var idBytes = new byte[segment.buf.getInt(pos + 5)];
+        segment.buf.get(pos + RECORD_OVERHEAD, idBytes);
+        return new String(idBytes, UTF_8);
+    }
+
+    byte[] readData(long location) {
+        var segment = segment(location);
+        var pos = offset(location);
+        var idLength = segment.buf.getInt(pos + 5);
+        var data = new byte[segment.buf.getInt(pos)
+                - (RECORD_OVERHEAD - 4) - idLength];
+        segment.buf.get(pos + RECORD_OVERHEAD + idLength, data);
+        return data;
+    }
+
+    /**
+     * Finds the first live record at or after the given location.
+     * @param from location to start from, or zero to start from the
+     *     beginning
+     * @return live record location or {@link #NO_LOCATION}
+     */
+    long firstLive(long from) {
+        var entry = from <= 0
+                ? segments.firstEntry()
+                : segments.ceilingEntry(segmentId(from));
+        var pos = entry != null && entry.getKey() == segmentId(from)
+                ? Math.max(offset(from), HEADER_SIZE)
+                : HEADER_SIZE;
+        while (entry != null) {
+            var segment = entry.getValue();
+            if (segment.live() > 0) {
+                var end = segment.end();
+                while (pos < end) {
+                    if (segment.buf.get(pos + 4) == LIVE) {
+                        return location(segment.id, pos);
+                    }
+                    pos += 4 + segment.buf.getInt(pos);
+                }
+            }
+            entry = segments.higherEntry(entry.getKey());
+            pos = HEADER_SIZE;
+        }
+        return NO_LOCATION;
+    }
+
+    /**
+     * Gets the location following the record at the given location,
+     * whether a record exists there or not.
+     * @param location record location
+     * @return next location
+     */
+    long after(long location) {
+        var segment = segments.get(segmentId(location));
+        if (segment == null) {
+            // segment deleted since, resume with the next one
+            return location(segmentId(location) + 1, HEADER_SIZE);
+        }
+        var pos = offset(location);
+        return location(segment.id, pos + 4 + segment.buf.getInt(pos));
+    }
+
+    /**
+     * Scans all live records, recomputing each segment live record
+     * count. Used to recover after an abnormal termination.
+     * @param consumer receives the location of each live record
+     */
+    void scan(LongConsumer consumer) {
+        for (Segment segment : segments.values()) {
+            var live = 0;
+            var pos = HEADER_SIZE;
+            var end = segment.end();
+            while (pos < end) {
+                if (segment.buf.get(pos + 4) == LIVE) {
+                    consumer.accept(location(segment.id, pos));
+                    live++;
+                }
+                pos += 4 + segment.buf.getInt(pos);
+            }
+            segment.live(live);
+        }
+    }
+
+    void force() {
+        segments.values().forEach(s -> s.buf.force());
+    }
+
+    void close() {
+        force();
+        segments.clear();
+        current = null;
+        retryDeletes();
+    }
+
+    //--- Segments -------------------------------------------------------------
+
+    private void rollSegment() {
+        if (current != null && current.live() <= 0) {
+            deleteSegment(current);
+        }
+        var id = nextSegmentId++;
+        var file = dir.resolve(String.format("%010d%s", id, SEGMENT_EXT));
+        try {
+            Files.createDirectories(dir);
+            current = openSegment(file);
+        } catch (IOException e) {
+            throw new DataStoreException(
+                    "Could not create segment: " + file, e);
+        }
+        segments.put(current.id, current);
+        retryDeletes();
+    }
+
+    private Segment openSegment(Path file) throws IOException {
+        var name = file.getFileName().toString();
+        var id = Integer.parseInt(
+                name.substring(0, name.length() - SEGMENT_EXT.length()));
+        try (var channel = FileChannel.open(file,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            var size = (int) Math.max(channel.size(), segmentSize);
+            var segment = new Segment(
+                    id, file, channel.map(MapMode.READ_WRITE, 0, size));
+            if (segment.buf.getInt(MAGIC_POS) != MAGIC) {
+                // new segment (or never fully created)
+                segment.buf.putInt(MAGIC_POS, MAGIC);
+                segment.live(0);
+                segment.end(HEADER_SIZE);
+            }
+            return segment;
+        }
+    }
+
+    private void deleteSegment(Segment segment) {
+        segments.remove(segment.id);
+        if (segment == current) {
+            current = null;
+        }
+        try {
+            Files.deleteIfExists(segment.file);
+        } catch (IOException e) {
+            // Some operating systems do not allow deleting mapped files.
+            LOG.debug("Could not delete segment {}. Will retry later.",
+                    segment.file, e);
+            undeleted.add(segment.file);
+        }
+    }
+
+    private void retryDeletes() {
+        undeleted.removeIf(file -> {
+            try {
+                Files.deleteIfExists(file);
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        });
+    }
+
+    private Segment segment(long location) {
+        var segment = segments.get(segmentId(location));
+        if (segment == null) {
+            throw new DataStoreException(
+                    "No segment for location: " + location);
+        }
+        return segment;
+    }
+
+    static long location(int segmentId, int offset) {
+        return ((long) segmentId << 32) | (offset & 0xFFFFFFFFL);
+    }
+    static int segmentId(long location) {
+        return (int) (location >>> 32);
+    }
+    static int offset(long location) {
+        return (int) location;
+    }
+
+    private static final class Segment {
+        private final int id;
+        private final Path file;
+        private final MappedByteBuffer buf;
+        private Segment(int id, Path file, MappedByteBuffer buf) {
+            this.id = id;
+            this.file = file;
+            this.buf = buf;
+        }
+        private int live() {
+            return buf.getInt(LIVE_POS);
+        }
+        private void live(int live) {
+            buf.putInt(LIVE_POS, live);
+        }
+        private int end() {
+            return buf.getInt(END_POS);
+        }
+        private void end(int end) {
+            buf.putInt(END_POS, end);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.store.impl.mapped;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.io.FileUtils;
+
+import com.norconex.crawler.core.store.DataStoreException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Files of a single store: a segment log holding the records and an
+ * index of their locations, with the lock protecting them. Shared by all
+ * {@link MappedDataStore} instances opened for the same store.
+ */
+@Slf4j
+class StoreFiles {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock takeLock = new ReentrantLock();
+    private final Path dir;
+    private final SegmentLog log;
+    private final FingerprintIndex index;
+    // No live record is located before it. Only used as a hint.
+    private volatile long readPointer;
+    private boolean closed;
+
+    StoreFiles(Path dir, MappedDataStoreEngineConfig cfg) {
+        this.dir = dir;
+        log = new SegmentLog(dir, (int) cfg.getSegmentSize());
+        index = new FingerprintIndex(dir, cfg.getIndexCapacity());
+        if (!index.wasClean()) {
+            LOG.info("Rebuilding index of store: {}", dir.getFileName());
+            rebuildIndex();
+        }
+    }
+
+    ReentrantReadWriteLock lock() {
+        return lock;
+    }
+    // Held while records are taken from the beginning of the store, so
+    // concurrent callers never take the same ones.
+    ReentrantLock takeLock() {
+        return takeLock;
+    }
+    SegmentLog log() {
+        checkOpen();
+        return log;
+    }
+    FingerprintIndex index() {
+        checkOpen();
+        return index;
+    }
+    long readPointer() {
+        return readPointer;
+    }
+    void readPointer(long readPointer) {
+        this.readPointer = readPointer;
+    }
+
+    void close() {
+        lock.writeLock().lock();
+        try {
+            if (!closed) {
+                log.close();
+                index.close();
+                closed = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void delete() {
+        lock.writeLock().lock();
+        try {
+            closed = true;
+            FileUtils.deleteQuietly(dir.toFile());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new DataStoreException("Store closed: " + dir);
+        }
+    }
+
+    // A record saved again is appended before its former location is
+    // deleted, so both can be live after an abnormal termination. Records
+    // are scanned oldest first, so the last one found for an ID is kept.
+    private void rebuildIndex() {
+        List<Long> stale = new ArrayList<>();
+        log.scan(location -> {
+            var id = log.readId(location);
+            var fingerprint = FingerprintIndex.fingerprint(id);
+            var older = index.find(
+                    fingerprint, loc -> id.equals(log.readId(loc)));
+            if (older != 0) {
+                index.replace(fingerprint, older, location);
+                stale.add(older);
+            } else {
+                index.insert(fingerprint, location);
+            }
+        });
+        stale.forEach(log::delete);
+    }
+}
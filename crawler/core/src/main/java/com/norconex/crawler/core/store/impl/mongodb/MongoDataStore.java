@@ -1,4 +1,4 @@
-/* Copyright 2021-2023 Norconex Inc.
+/* Copyright 2021-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,28 +17,53 @@ package com.norconex.crawler.core.store.impl.mongodb;
 import static java.util.Objects.requireNonNull;
 
 import java.time.Instant;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiPredicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.bson.Document;
 import org.bson.conversions.Bson;
 
+import com.mongodb.ErrorCategory;
 import com.mongodb.MongoNamespace;
+import com.mongodb.MongoWriteException;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.FindOneAndDeleteOptions;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
 import com.mongodb.client.model.IndexOptions;
 import com.mongodb.client.model.Indexes;
 import com.mongodb.client.model.RenameCollectionOptions;
+import com.mongodb.client.model.ReplaceOneModel;
 import com.mongodb.client.model.ReplaceOptions;
 import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
 import com.norconex.crawler.core.store.DataStore;
 import com.norconex.crawler.core.store.impl.SerialUtil;
 
 public class MongoDataStore<T> implements DataStore<T> {
 
     private static final String SORT_TIME_FIELD = "timestamp";
+    private static final String CLAIM_FIELD = "claimedBy";
+    private static final String CLAIM_TIME_FIELD = "claimedAt";
+    // Claimed records not moved within that time are claimable again.
+    private static final long CLAIM_TIMEOUT_MS =
+            TimeUnit.MINUTES.toMillis(5);
 
     private String name;
     private final MongoCollection<Document> collection;
@@ -46,6 +71,8 @@ public class MongoDataStore<T> implements DataStore<T> {
             new ReplaceOptions().upsert(true);
     private final FindOneAndDeleteOptions findOneAndDeleteOptions =
             new FindOneAndDeleteOptions().sort(fifoSort());
+    private final FindOneAndUpdateOptions findOneAndUpdateOptions =
+            new FindOneAndUpdateOptions().sort(fifoSort());
     private final Class<? extends T> type;
 
     MongoDataStore(
@@ -74,14 +101,55 @@ public class MongoDataStore<T> implements DataStore<T> {
                 replaceOptions);
     }
 
+    @Override
+    public void saveAll(Map<String, T> objects) {
+        if (objects.isEmpty()) {
+            return;
+        }
+        List<WriteModel<Document>> writes = new ArrayList<>(objects.size());
+        objects.forEach((id, obj) -> writes.add(new ReplaceOneModel<>(
+                idFilter(id), toDocument(id, obj), replaceOptions)));
+        collection.bulkWrite(writes);
+    }
+
+    @Override
+    public boolean saveIfAbsent(String id, T object) {
+        try {
+            collection.insertOne(toDocument(id, object));
+            return true;
+        } catch (MongoWriteException e) {
+            if (e.getError().getCategory() == ErrorCategory.DUPLICATE_KEY) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
     @Override
     public Optional<T> find(String id) {
         return unwrap(collection.find(idFilter(id)).first());
     }
 
+    @Override
+    public Map<String, T> findAll(Collection<String> ids) {
+        Map<String, T> found = new HashMap<>();
+        for (Document doc : collection.find(Filters.in("id", ids))) {
+            found.put(doc.getString("id"), fromDocument(doc, type));
+        }
+        Map<String, T> ordered = new LinkedHashMap<>();
+        ids.forEach(id -> {
+            var obj = found.get(id);
+            if (obj != null) {
+                ordered.put(id, obj);
+            }
+        });
+        return ordered;
+    }
+
     @Override
     public Optional<T> findFirst() {
-        return unwrap(collection.find().sort(fifoSort()).first());
+        return unwrap(collection.find(
+                unclaimedFilter()).sort(fifoSort()).first());
     }
 
     @Override
@@ -99,10 +167,51 @@ public class MongoDataStore<T> implements DataStore<T> {
         return collection.deleteOne(idFilter(id)).getDeletedCount() > 0;
     }
 
+    @Override
+    public long deleteAll(Collection<String> ids) {
+        return collection.deleteMany(Filters.in("id", ids)).getDeletedCount();
+    }
+
     @Override
     public Optional<T> deleteFirst() {
         return unwrap(collection.findOneAndDelete(
-                new Document(), findOneAndDeleteOptions));
+                unclaimedFilter(), findOneAndDeleteOptions));
+    }
+
+    @Override
+    public List<T> moveFirst(int maxCount, DataStore<T> target) {
+        // Each record is claimed atomically, saved to the target, and
+        // only then deleted, so they are always in one store or another.
+        // Claims are released if saving fails, or expire if never deleted
+        // (e.g., the process died).
+        var claim = UUID.randomUUID().toString();
+        var claimUpdate = Updates.combine(
+                Updates.set(CLAIM_FIELD, claim),
+                Updates.set(CLAIM_TIME_FIELD, Instant.now().toEpochMilli()));
+        Map<String, T> moved = new LinkedHashMap<>();
+        while (moved.size() < maxCount) {
+            var doc = collection.findOneAndUpdate(
+                    unclaimedFilter(), claimUpdate, findOneAndUpdateOptions);
+            if (doc == null) {
+                break;
+            }
+            moved.put(doc.getString("id"), fromDocument(doc, type));
+        }
+        if (moved.isEmpty()) {
+            return List.of();
+        }
+        var claimFilter = Filters.eq(CLAIM_FIELD, claim);
+        try {
+            target.saveAll(moved);
+        } catch (RuntimeException e) {
+            collection.updateMany(claimFilter, Updates.combine(
+                    Updates.unset(CLAIM_FIELD),
+                    Updates.unset(CLAIM_TIME_FIELD)));
+            throw e;
+        }
+        collection.deleteMany(Filters.and(
+                Filters.in("id", moved.keySet()), claimFilter));
+        return new ArrayList<>(moved.values());
     }
 
     @Override
@@ -110,6 +219,48 @@ public class MongoDataStore<T> implements DataStore<T> {
         collection.deleteMany(new Document());
     }
 
+    @Override
+    public long moveAll(DataStore<T> target) {
+        if (!(target instanceof MongoDataStore<T> other) || other == this) {
+            return DataStore.super.moveAll(target);
+        }
+        // Stored documents are copied as is, without decoding them, and
+        // saved to the target before being deleted, one batch at a time.
+        var count = 0L;
+        List<WriteModel<Document>> writes = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        try (var cursor = collection.find()
+                .batchSize(DEFAULT_PAGE_SIZE).cursor()) {
+            while (cursor.hasNext()) {
+                var doc = cursor.next();
+                // the target has its own internal ids, and claims
+                doc.remove("_id");
+                doc.remove(CLAIM_FIELD);
+                doc.remove(CLAIM_TIME_FIELD);
+                var id = doc.getString("id");
+                ids.add(id);
+                writes.add(new ReplaceOneModel<>(
+                        idFilter(id), doc, replaceOptions));
+                if (ids.size() >= DEFAULT_PAGE_SIZE) {
+                    count += moveBatch(other, writes, ids);
+                }
+            }
+        }
+        return count + moveBatch(other, writes, ids);
+    }
+    private long moveBatch(MongoDataStore<T> target,
+            List<WriteModel<Document>> writes, List<String> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        target.collection.bulkWrite(writes);
+        collection.deleteMany(Filters.in("id", ids));
+        var count = ids.size();
+        writes.clear();
+        ids.clear();
+        return count;
+    }
+
     @Override
     public void close() {
         //NOOP: Closed implicitly when engine is closed.
@@ -131,6 +282,16 @@ public class MongoDataStore<T> implements DataStore<T> {
         return !collection.find().limit(1).iterator().hasNext();
     }
 
+    @Override
+    public Stream<Entry<String, T>> stream(int pageSize) {
+        var cursor = collection.find().batchSize(pageSize).cursor();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                cursor, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .<Entry<String, T>>map(doc -> new SimpleImmutableEntry<>(
+                        doc.getString("id"), fromDocument(doc, type)))
+                .onClose(cursor::close);
+    }
+
     Class<?> getType() {
         return type;
     }
@@ -148,6 +309,12 @@ public class MongoDataStore<T> implements DataStore<T> {
     private Bson fifoSort() {
         return Sorts.ascending(SORT_TIME_FIELD);
     }
+    private static Bson unclaimedFilter() {
+        return Filters.or(
+                Filters.exists(CLAIM_TIME_FIELD, false),
+                Filters.lt(CLAIM_TIME_FIELD,
+                        Instant.now().toEpochMilli() - CLAIM_TIMEOUT_MS));
+    }
     private Optional<T> unwrap(Document doc) {
         if (doc == null) {
             return Optional.empty();
@@ -0,0 +1,119 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.store.impl.mvstore;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.h2.mvstore.MVStore;
+
+import com.norconex.crawler.core.store.impl.mvstore.MVStoreDataStoreEngineConfig.Durability;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Commits MVStore changes according to the configured durability, when
+ * not relying on MVStore auto-commit. Stores report their write
+ * operations so changes can be committed in groups.
+ */
+@Slf4j
+class MVStoreCommitter {
+
+    private final MVStore mvstore;
+    private final Durability durability;
+    private final int groupSize;
+    private final AtomicLong pending = new AtomicLong();
+    private final ReentrantLock commitLock = new ReentrantLock();
+    private ScheduledExecutorService scheduler;
+
+    MVStoreCommitter(MVStore mvstore, MVStoreDataStoreEngineConfig cfg) {
+        this.mvstore = mvstore;
+        durability = cfg.getDurability() == null
+                ? Durability.AUTO : cfg.getDurability();
+        groupSize = Math.max(1, cfg.getGroupCommitSize());
+        Duration interval = null;
+        if (durability == Durability.GROUP) {
+            interval = cfg.getGroupCommitInterval();
+        } else if (durability == Durability.CHECKPOINT) {
+            interval = cfg.getCheckpointInterval();
+        }
+        if (interval != null && !interval.isZero()
+                && !interval.isNegative()) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                var t = new Thread(r, "mvstore-committer");
+                t.setDaemon(true);
+                return t;
+            });
+            scheduler.scheduleWithFixedDelay(this::commitPending,
+                    interval.toMillis(), interval.toMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Whether changes are committed by this committer rather than by
+     * MVStore auto-commit.
+     * @return <code>true</code> if managing commits
+     */
+    boolean isManaged() {
+        return durability != Durability.AUTO;
+    }
+
+    /**
+     * Reports write operations, committing them if they complete a group.
+     * @param operations number of write operations
+     */
+    void written(long operations) {
+        if (!isManaged() || operations <= 0) {
+            return;
+        }
+        if (pending.addAndGet(operations) >= groupSize
+                && durability == Durability.GROUP) {
+            commitPending();
+        }
+    }
+
+    /**
+     * Commits pending changes, if any.
+     */
+    void commitPending() {
+        // if already committing, changes will be part of that commit
+        // or the next one
+        if (pending.get() == 0 || !commitLock.tryLock()) {
+            return;
+        }
+        try {
+            if (pending.getAndSet(0) > 0 && !mvstore.isClosed()) {
+                mvstore.commit();
+            }
+        } catch (RuntimeException e) {
+            LOG.error("Could not commit data store changes.", e);
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        commitPending();
+    }
+}
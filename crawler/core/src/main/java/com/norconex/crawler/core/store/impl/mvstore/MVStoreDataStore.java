@@ -1,4 +1,4 @@
-/* Copyright 2020-2022 Norconex Inc.
+/* Copyright 2020-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -14,34 +14,53 @@
  */
 package com.norconex.crawler.core.store.impl.mvstore;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Objects.requireNonNull;
 
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.function.BiPredicate;
+import java.util.stream.Stream;
 
-import org.apache.commons.lang3.StringUtils;
 import org.h2.mvstore.MVMap;
 import org.h2.mvstore.MVStore;
 
 import com.norconex.crawler.core.store.DataStore;
-import com.norconex.crawler.core.store.impl.SerialUtil;
+import com.norconex.crawler.core.store.codec.RecordCodec;
 
 import lombok.NonNull;
 
 public class MVStoreDataStore<T> implements DataStore<T> {
 
-    private final MVMap<String, String> map;
+    // Values are byte arrays, or JSON strings for stores created
+    // before binary records were introduced.
+    private final MVMap<String, Object> map;
     private String storeName;
-    private final Class<? extends T> type;
+    private final RecordCodec<T> codec;
+    // null when relying on MVStore auto-commit
+    private final MVStoreCommitter committer;
 
     protected MVStoreDataStore(
             @NonNull MVStore mvstore,
             @NonNull String storeName,
-            @NonNull Class<? extends T> type) {
+            @NonNull RecordCodec<T> codec) {
+        this(mvstore, storeName, codec, null);
+    }
+    MVStoreDataStore(
+            @NonNull MVStore mvstore,
+            @NonNull String storeName,
+            @NonNull RecordCodec<T> codec,
+            MVStoreCommitter committer) {
         requireNonNull(mvstore, "'mvstore' must not be null.");
         this.storeName = requireNonNull(storeName, "'name' must not be null.");
-        this.type = type;
+        this.codec = codec;
+        this.committer = committer;
         map = mvstore.openMap(storeName);
     }
 
@@ -58,7 +77,21 @@ public class MVStoreDataStore<T> implements DataStore<T> {
 
     @Override
     public void save(String id, @NonNull T object) {
-        map.put(id, SerialUtil.toJsonString(object));
+        map.put(id, codec.encode(object));
+        written(1);
+    }
+
+    @Override
+    public void saveAll(Map<String, T> objects) {
+        objects.forEach((id, obj) -> map.put(id, codec.encode(obj)));
+        written(objects.size());
+    }
+
+    @Override
+    public boolean saveIfAbsent(String id, @NonNull T object) {
+        var saved = map.putIfAbsent(id, codec.encode(object)) == null;
+        written(saved ? 1 : 0);
+        return saved;
     }
 
     @Override
@@ -66,6 +99,14 @@ public class MVStoreDataStore<T> implements DataStore<T> {
         return toObject(map.get(id));
     }
 
+    @Override
+    public Map<String, T> findAll(Collection<String> ids) {
+        Map<String, T> found = new LinkedHashMap<>();
+        ids.forEach(id -> toObject(map.get(id)).ifPresent(
+                obj -> found.put(id, obj)));
+        return found;
+    }
+
     @Override
     public Optional<T> findFirst() {
         var id = map.firstKey();
@@ -87,7 +128,17 @@ public class MVStoreDataStore<T> implements DataStore<T> {
 
     @Override
     public boolean delete(String id) {
-        return map.remove(id) != null;
+        var deleted = map.remove(id) != null;
+        written(deleted ? 1 : 0);
+        return deleted;
+    }
+
+    @Override
+    public long deleteAll(Collection<String> ids) {
+        var deleted =
+                ids.stream().filter(id -> map.remove(id) != null).count();
+        written(deleted);
+        return deleted;
     }
 
     @Override
@@ -95,11 +146,66 @@ public class MVStoreDataStore<T> implements DataStore<T> {
         var id = map.firstKey();
         if (id != null) {
             var removed = map.remove(id);
+            written(removed != null ? 1 : 0);
             return toObject(removed);
         }
         return Optional.empty();
     }
 
+    @Override
+    public List<T> moveFirst(int maxCount, DataStore<T> target) {
+        if (!(target instanceof MVStoreDataStore<T> other)
+                || other.map.store != map.store) {
+            return moveFirstToOtherStore(maxCount, target);
+        }
+        List<T> moved = new ArrayList<>();
+        while (moved.size() < maxCount) {
+            var id = map.firstKey();
+            if (id == null) {
+                break;
+            }
+            var value = map.remove(id);
+            if (value == null) {
+                continue;
+            }
+            other.map.put(id, value);
+            toObject(value).ifPresent(moved::add);
+        }
+        written(moved.size() * 2L);
+        return moved;
+    }
+
+    // Saved to the target store before being removed from this one so
+    // records are never lost if saving fails.
+    private List<T> moveFirstToOtherStore(int maxCount, DataStore<T> target) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        var it = map.keyIterator(null);
+        while (values.size() < maxCount && it.hasNext()) {
+            var id = it.next();
+            var value = map.get(id);
+            if (value != null) {
+                values.put(id, value);
+            }
+        }
+        Map<String, T> objects = new LinkedHashMap<>();
+        values.forEach((id, value) ->
+                toObject(value).ifPresent(o -> objects.put(id, o)));
+        target.saveAll(objects);
+        List<T> moved = new ArrayList<>();
+        values.forEach((id, value) -> {
+            // skip records claimed by concurrent calls meanwhile
+            if (map.remove(id, value)) {
+                var obj = objects.get(id);
+                if (obj != null) {
+                    moved.add(obj);
+                }
+            }
+        });
+        // the target store reports its own writes
+        written(moved.size());
+        return moved;
+    }
+
     @Override
     public boolean isEmpty() {
         return map.isEmpty();
@@ -108,6 +214,25 @@ public class MVStoreDataStore<T> implements DataStore<T> {
     @Override
     public void clear() {
         map.clear();
+        written(1);
+    }
+
+    @Override
+    public long moveAll(DataStore<T> target) {
+        if (!(target instanceof MVStoreDataStore<T> other)
+                || other.map.store != map.store) {
+            return DataStore.super.moveAll(target);
+        }
+        // Same MVStore: stored values are copied as is, without
+        // decoding/encoding them.
+        var count = 0L;
+        for (Entry<String, Object> en : map.entrySet()) {
+            other.map.put(en.getKey(), en.getValue());
+            count++;
+        }
+        map.clear();
+        written(count + 1);
+        return count;
     }
 
     @Override
@@ -118,7 +243,7 @@ public class MVStoreDataStore<T> implements DataStore<T> {
     // returns true if was all read
     @Override
     public boolean forEach(BiPredicate<String, T> predicate) {
-        for (Entry<String, String> en : map.entrySet()) {
+        for (Entry<String, Object> en : map.entrySet()) {
             if (!predicate.test(
                     en.getKey(),
                     toObject(en.getValue()).orElse(null))) {
@@ -128,14 +253,36 @@ public class MVStoreDataStore<T> implements DataStore<T> {
         return true;
     }
 
-    private Optional<T> toObject(String json) {
-        if (StringUtils.isBlank(json)) {
+    // MVMap iteration is already a lazy cursor over the map pages
+    @Override
+    public Stream<Entry<String, T>> stream(int pageSize) {
+        return map.entrySet().stream().<Entry<String, T>>map(en ->
+                new SimpleImmutableEntry<>(
+                        en.getKey(), toObject(en.getValue()).orElse(null)));
+    }
+
+    private Optional<T> toObject(Object value) {
+        byte[] bytes;
+        if (value instanceof byte[] b) {
+            bytes = b;
+        } else if (value instanceof String json) {
+            bytes = json.getBytes(UTF_8);
+        } else {
             return Optional.empty();
         }
-        return Optional.ofNullable(SerialUtil.fromJson(json, type));
+        if (bytes.length == 0) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(codec.decode(bytes));
+    }
+
+    private void written(long operations) {
+        if (committer != null) {
+            committer.written(operations);
+        }
     }
 
-    MVMap<String, String> getMVMap() {
+    MVMap<String, Object> getMVMap() {
         return map;
     }
 }
@@ -1,4 +1,4 @@
-/* Copyright 2020-2023 Norconex Inc.
+/* Copyright 2020-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -33,6 +33,8 @@ import com.norconex.crawler.core.crawler.CrawlerException;
 import com.norconex.crawler.core.store.DataStore;
 import com.norconex.crawler.core.store.DataStoreEngine;
 import com.norconex.crawler.core.store.DataStoreException;
+import com.norconex.crawler.core.store.codec.RecordCodecs;
+import com.norconex.crawler.core.store.impl.mvstore.MVStoreDataStoreEngineConfig.Durability;
 
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
@@ -54,6 +56,7 @@ public class MVStoreDataStoreEngine
     private MVStore mvstore;
     private Path engineDir;
     private MVMap<String, Class<?>> storeTypes;
+    private MVStoreCommitter committer;
 
     @Override
     public MVStoreDataStoreEngineConfig getConfiguration() {
@@ -90,7 +93,10 @@ public class MVStoreDataStoreEngine
             builder.autoCommitBufferSize(DataUnit.B.to(
                     cfg.getAutoCommitBufferSize(), DataUnit.KB).intValue());
         }
-        if (Long.valueOf(0).equals(cfg.getAutoCommitDelay())) {
+        var durability = cfg.getDurability();
+        var autoCommit = durability == null || durability == Durability.AUTO;
+        if (!autoCommit
+                || Long.valueOf(0).equals(cfg.getAutoCommitDelay())) {
             builder.autoCommitDisabled();
         }
 
@@ -123,7 +129,7 @@ public class MVStoreDataStoreEngine
             LOG.warn("Store engine recovery appears to be successful.");
         }
 
-        if (cfg.getAutoCommitDelay() != null) {
+        if (autoCommit && cfg.getAutoCommitDelay() != null) {
             //MVStore expects it as milliseconds
             mvstore.setAutoCommitDelay(cfg.getAutoCommitDelay().intValue());
         }
@@ -131,6 +137,11 @@ public class MVStoreDataStoreEngine
         storeTypes = mvstore.openMap(STORE_TYPES_KEY);
 
         mvstore.commit();
+
+        if (!autoCommit) {
+            LOG.info("Data store durability: {}", durability);
+            committer = new MVStoreCommitter(mvstore, cfg);
+        }
     }
     private Integer asInt(Long l) {
         if (l == null) {
@@ -160,6 +171,10 @@ public class MVStoreDataStoreEngine
     @Override
     public synchronized void close() {
         LOG.info("Closing data store engine...");
+        if (committer != null) {
+            committer.close();
+            committer = null;
+        }
         if (mvstore != null && !mvstore.isClosed()) {
             LOG.info("Compacting data store...");
             mvstore.commit();
@@ -175,7 +190,8 @@ public class MVStoreDataStoreEngine
     public synchronized <T> DataStore<T> openStore(
             String name, Class<? extends T> type) {
         storeTypes.put(name, type);
-        return new MVStoreDataStore<>(mvstore, name, type);
+        return new MVStoreDataStore<>(mvstore, name,
+                RecordCodecs.forType(type, cfg.getRecordFormat()), committer);
     }
     @Override
     public synchronized boolean dropStore(String name) {
@@ -186,6 +202,7 @@ public class MVStoreDataStoreEngine
             } else {
                 storeTypes.remove(name);
             }
+            checkpoint();
             return true;
         }
         return false;
@@ -199,9 +216,18 @@ public class MVStoreDataStoreEngine
             hadMap = true;
         }
         storeTypes.put(newName, storeTypes.remove(mvDateStore.rename(newName)));
+        checkpoint();
         return hadMap;
     }
 
+    // Structural changes are persisted right away when not relying
+    // on auto-commit.
+    private void checkpoint() {
+        if (committer != null && !mvstore.isClosed()) {
+            mvstore.commit();
+        }
+    }
+
     @Override
     @JsonIgnore
     public Set<String> getStoreNames() {
@@ -1,4 +1,4 @@
-/* Copyright 2019-2023 Norconex Inc.
+/* Copyright 2019-2024 Norconex Inc.
 *
 * Licensed under the Apache License, Version 2.0 (the "License");
 * you may not use this file except in compliance with the License.
@@ -14,6 +14,11 @@
 */
 package com.norconex.crawler.core.store.impl.mvstore;
 
+import java.time.Duration;
+
+import com.norconex.crawler.core.store.codec.RecordCodecProvider;
+import com.norconex.crawler.core.store.codec.RecordFormat;
+
 import lombok.Data;
 import lombok.experimental.Accessors;
 import lombok.experimental.FieldNameConstants;
@@ -42,6 +47,45 @@ import lombok.experimental.FieldNameConstants;
 @FieldNameConstants
 public class MVStoreDataStoreEngineConfig {
 
+    public static final Duration DEFAULT_GROUP_COMMIT_INTERVAL =
+            Duration.ofSeconds(1);
+    public static final int DEFAULT_GROUP_COMMIT_SIZE = 1000;
+    public static final Duration DEFAULT_CHECKPOINT_INTERVAL =
+            Duration.ofMinutes(5);
+
+    /**
+     * How store changes are persisted, trading throughput for how much
+     * crawl progress can be lost (and references reprocessed) after an
+     * abnormal termination (e.g., JVM crash or power failure).
+     * A normal shutdown, including a crawler stop request, always
+     * persists all changes.
+     * @since 4.0.0
+     */
+    public enum Durability {
+        /**
+         * MVStore auto-commit: changes are persisted in the background
+         * at most every "autoCommitDelay", or sooner when the
+         * write buffer ("autoCommitBufferSize") is full.
+         * After a crash, changes made in the last second or so (by default)
+         * are lost.
+         */
+        AUTO,
+        /**
+         * Changes are committed in groups, every "groupCommitInterval"
+         * or every "groupCommitSize" write operations, whichever comes
+         * first. After a crash, at most the last group of changes is
+         * lost.
+         */
+        GROUP,
+        /**
+         * Fastest but unsafe: changes are only persisted at checkpoints,
+         * every "checkpointInterval", and when stores are renamed or
+         * dropped. Uncommitted changes are kept in memory in between.
+         * After a crash, all changes since the last checkpoint are lost.
+         */
+        CHECKPOINT
+    }
+
     /**
      * The max memory page size in bytes before splitting it.
      * Defaults to 4KB for memory, and  16KB for disk.
@@ -99,7 +143,7 @@ public class MVStoreDataStoreEngineConfig {
 
     /**
      * The maximum delay in milliseconds to auto-commit changes. Defaults
-     * to 1000ms (1 second).
+     * to 1000ms (1 second). Only applies to {@link Durability#AUTO}.
      * @param autoCommitDelay maximum delay to auto-commit changes
      * @return maximum delay to auto-commit changes
      */
@@ -117,4 +161,63 @@ public class MVStoreDataStoreEngineConfig {
      */
     @SuppressWarnings("javadoc")
     private boolean ephemeral;
-}
\ No newline at end of file
+
+    /**
+     * The format used to store records. Default is
+     * {@link RecordFormat#BINARY}, which uses a compact binary encoding
+     * for record types having a {@link RecordCodecProvider}
+     * (falling back to JSON for other types).
+     * Records already stored in a different format remain readable.
+     * @param recordFormat record format
+     * @return record format
+     * @since 4.0.0
+     */
+    @SuppressWarnings("javadoc")
+    private RecordFormat recordFormat = RecordFormat.BINARY;
+
+    /**
+     * How store changes are persisted. Default is
+     * {@link Durability#AUTO}. Lost changes (e.g., references processed
+     * but not yet persisted as such) are simply redone when the crawler
+     * resumes after an abnormal termination.
+     * @param durability durability mode
+     * @return durability mode
+     * @since 4.0.0
+     */
+    @SuppressWarnings("javadoc")
+    private Durability durability = Durability.AUTO;
+
+    /**
+     * Maximum delay between group commits, when durability is
+     * {@link Durability#GROUP}. Default is
+     * {@value #DEFAULT_GROUP_COMMIT_INTERVAL}.
+     * @param groupCommitInterval maximum delay between group commits
+     * @return maximum delay between group commits
+     * @since 4.0.0
+     */
+    @SuppressWarnings("javadoc")
+    private Duration groupCommitInterval = DEFAULT_GROUP_COMMIT_INTERVAL;
+
+    /**
+     * Number of write operations triggering a group commit,
+     * when durability is {@link Durability#GROUP}. Default is
+     * {@value #DEFAULT_GROUP_COMMIT_SIZE}.
+     * @param groupCommitSize number of write operations per group
+     * @return number of write operations per group
+     * @since 4.0.0
+     */
+    @SuppressWarnings("javadoc")
+    private int groupCommitSize = DEFAULT_GROUP_COMMIT_SIZE;
+
+    /**
+     * Delay between checkpoints, when durability is
+     * {@link Durability#CHECKPOINT}. Since uncommitted changes are kept
+     * in memory, a long interval on a busy crawler increases memory
+     * usage. Default is {@value #DEFAULT_CHECKPOINT_INTERVAL}.
+     * @param checkpointInterval delay between checkpoints
+     * @return delay between checkpoints
+     * @since 4.0.0
+     */
+    @SuppressWarnings("javadoc")
+    private Duration checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+}
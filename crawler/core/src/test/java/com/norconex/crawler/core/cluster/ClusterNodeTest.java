@@ -0,0 +1,246 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.cluster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.norconex.commons.lang.Sleeper;
+import com.norconex.commons.lang.map.Properties;
+import com.norconex.crawler.core.TestUtil;
+import com.norconex.crawler.core.crawler.Crawler;
+import com.norconex.crawler.core.doc.CrawlDocRecord;
+import com.norconex.crawler.core.store.DataStore;
+import com.norconex.crawler.core.store.impl.jdbc.JdbcDataStoreEngine;
+
+class ClusterNodeTest {
+
+    private static final Duration SHORT_LEASE = Duration.ofMillis(500);
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testConcurrentJoinElectsOneInitializer() {
+        withinTwoNodeCluster((node1, node2) -> {
+            var queues = List.of(queue(node1), queue(node2));
+
+            // several runs, each having to replace the former initializer
+            for (var run = 0; run < 5; run++) {
+                var nodes = List.of(
+                        new ClusterNode<CrawlDocRecord>(
+                                node1, clusterConfig("node1"),
+                                CrawlDocRecord.class),
+                        new ClusterNode<CrawlDocRecord>(
+                                node2, clusterConfig("node2"),
+                                CrawlDocRecord.class));
+                var phaser = new Phaser(2);
+                var executor = Executors.newFixedThreadPool(2);
+                List<CompletableFuture<Boolean>> joins = new ArrayList<>();
+                for (var i = 0; i < 2; i++) {
+                    var node = nodes.get(i);
+                    var queue = queues.get(i);
+                    joins.add(CompletableFuture.supplyAsync(() -> {
+                        // both nodes join at the same time
+                        phaser.arriveAndAwaitAdvance();
+                        var first = node.join(queue);
+                        if (first) {
+                            node.ready();
+                        }
+                        return first;
+                    }, executor));
+                }
+                var firstCount = joins.stream()
+                        .filter(CompletableFuture::join)
+                        .count();
+                executor.shutdown();
+                assertThat(firstCount).isOne();
+
+                // partitions are split between both nodes
+                nodes.get(0).getOwnedPartitions().forEach(p ->
+                        assertThat(nodes.get(1).getOwnedPartitions())
+                                .doesNotContain(p));
+
+                for (var i = 0; i < 2; i++) {
+                    nodes.get(i).leave(queues.get(i));
+                }
+            }
+        });
+    }
+
+    @Test
+    void testJoinInitializedCrawl() {
+        withinTwoNodeCluster((node1, node2) -> {
+            var queue1 = queue(node1);
+            var queue2 = queue(node2);
+            var cluster1 = new ClusterNode<CrawlDocRecord>(
+                    node1, clusterConfig("node1"), CrawlDocRecord.class);
+            var cluster2 = new ClusterNode<CrawlDocRecord>(
+                    node2, clusterConfig("node2"), CrawlDocRecord.class);
+
+            assertThat(cluster1.join(queue1)).isTrue();
+            cluster1.ready();
+            // node 1 is running, so node 2 does not reset the crawl
+            assertThat(cluster2.join(queue2)).isFalse();
+
+            cluster2.leave(queue2);
+            cluster1.leave(queue1);
+        });
+    }
+
+    @Test
+    void testStalledNodeRejoins() {
+        withinTwoNodeCluster((node1, node2) -> {
+            var queue1 = queue(node1);
+            var queue2 = queue(node2);
+            var cluster1 = new ClusterNode<CrawlDocRecord>(node1,
+                    clusterConfig("node1", SHORT_LEASE), CrawlDocRecord.class);
+            var cluster2 = new ClusterNode<CrawlDocRecord>(node2,
+                    clusterConfig("node2", SHORT_LEASE), CrawlDocRecord.class);
+            assertThat(cluster1.join(queue1)).isTrue();
+            cluster1.ready();
+            cluster1.start(queue1, null, null);
+            assertThat(cluster2.join(queue2)).isFalse();
+
+            // node 2 claims a reference, then stalls past its lease
+            var stalledId = cluster2.getId();
+            var stalledActive = cluster2.getActiveStore();
+            assertThat(cluster2.claim(() -> {
+                stalledActive.save("ref1", new CrawlDocRecord("ref1"));
+                return List.of("ref1");
+            })).hasSize(1);
+            await(() -> queue1.exists("ref1"));
+
+            // node 1 returned its reference without dropping its store
+            assertThat(stalledActive.isEmpty()).isTrue();
+            stalledActive.save("ref2", new CrawlDocRecord("ref2"));
+            stalledActive.delete("ref2");
+
+            // node 2 claims nothing until it has rejoined under a new id
+            assertThat(cluster2.claim(() -> List.of("ref3"))).isEmpty();
+            cluster2.heartbeat(queue2);
+            assertThat(cluster2.getId()).isNotEqualTo(stalledId);
+            assertThat(cluster2.getActiveStore()).isNotSameAs(stalledActive);
+            assertThat(cluster2.claim(() -> List.of("ref3")))
+                .containsExactly("ref3");
+
+            cluster2.leave(queue2);
+            cluster1.leave(queue1);
+        });
+    }
+
+    @Test
+    void testPartitionsDrainedBeforeRelease() {
+        withinTwoNodeCluster((node1, node2) -> {
+            var queue1 = queue(node1);
+            var queue2 = queue(node2);
+            var cluster1 = new ClusterNode<CrawlDocRecord>(
+                    node1, clusterConfig("node1"), CrawlDocRecord.class);
+            var cluster2 = new ClusterNode<CrawlDocRecord>(
+                    node2, clusterConfig("node2"), CrawlDocRecord.class);
+            assertThat(cluster1.join(queue1)).isTrue();
+            cluster1.ready();
+            assertThat(cluster1.getOwnedPartitions()).hasSize(4);
+
+            // node 1 has active references in every partition
+            var refs = new ArrayList<String>();
+            for (var i = 0; refs.size() < 4; i++) {
+                var ref = "http://host" + i + ".com/";
+                if (PartitionedDataStore.partitionOf(ref, 4) == refs.size()) {
+                    refs.add(ref);
+                }
+            }
+            var active1 = cluster1.getActiveStore();
+            refs.forEach(ref -> active1.save(ref, new CrawlDocRecord(ref)));
+
+            // node 1 stops claiming from its excess partitions but keeps
+            // them while its references are active
+            assertThat(cluster2.join(queue2)).isFalse();
+            cluster1.heartbeat(queue1);
+            cluster2.heartbeat(queue2);
+            assertThat(cluster1.getOwnedPartitions()).hasSize(2);
+            assertThat(cluster2.getOwnedPartitions()).isEmpty();
+
+            // once processed, drained partitions are released
+            refs.forEach(active1::delete);
+            cluster1.heartbeat(queue1);
+            cluster2.heartbeat(queue2);
+            assertThat(cluster1.getOwnedPartitions()).hasSize(2);
+            assertThat(cluster2.getOwnedPartitions())
+                .hasSize(2)
+                .doesNotContainAnyElementsOf(cluster1.getOwnedPartitions());
+
+            cluster2.leave(queue2);
+            cluster1.leave(queue1);
+        });
+    }
+
+    private static void await(BooleanSupplier condition) {
+        var timeout = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).isLessThan(timeout);
+            Sleeper.sleepMillis(20);
+        }
+    }
+
+    private void withinTwoNodeCluster(BiConsumer<Crawler, Crawler> c) {
+        var jdbcUrl = "jdbc:h2:file:" + tempDir.resolve("cluster")
+                .toAbsolutePath().toString().replace('\\', '/');
+        TestUtil.withinInitializedCrawler(tempDir.resolve("node1"),
+                node1 -> TestUtil.withinInitializedCrawler(
+                        tempDir.resolve("node2"),
+                        node2 -> c.accept(node1, node2),
+                        cfg -> cfg.setDataStoreEngine(jdbcEngine(jdbcUrl))),
+                cfg -> cfg.setDataStoreEngine(jdbcEngine(jdbcUrl)));
+    }
+
+    private static JdbcDataStoreEngine jdbcEngine(String jdbcUrl) {
+        var engine = new JdbcDataStoreEngine();
+        var props = new Properties();
+        props.add("jdbcUrl", jdbcUrl);
+        engine.getConfiguration().setProperties(props);
+        return engine;
+    }
+
+    private static ClusterConfig clusterConfig(String nodeName) {
+        return clusterConfig(nodeName, Duration.ofSeconds(30));
+    }
+    private static ClusterConfig clusterConfig(
+            String nodeName, Duration leaseDuration) {
+        return new ClusterConfig()
+                .setEnabled(true)
+                .setNodeName(nodeName)
+                .setHeartbeatInterval(Duration.ofMillis(50))
+                .setLeaseDuration(leaseDuration)
+                .setPartitions(4);
+    }
+
+    private static DataStore<CrawlDocRecord> queue(Crawler crawler) {
+        return crawler.getDataStoreEngine().openStore(
+                "test-queue", CrawlDocRecord.class);
+    }
+}
@@ -0,0 +1,92 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.cluster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.norconex.crawler.core.CoreStubber;
+import com.norconex.crawler.core.TestUtil;
+import com.norconex.crawler.core.doc.CrawlDocRecord;
+
+class PartitionedDataStoreTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testPartitionOf() {
+        var p = PartitionedDataStore.partitionOf(
+                "http://Example.com/page1.html", 16);
+        assertThat(p).isBetween(0, 15);
+        assertThat(PartitionedDataStore.partitionOf(
+                "https://user@example.com:8080/page2.html?a=b", 16))
+            .isEqualTo(p);
+        assertThat(PartitionedDataStore.partitionOf("example.com", 16))
+            .isEqualTo(p);
+        assertThat(PartitionedDataStore.partitionOf("/not/a/url", 16))
+            .isBetween(0, 15);
+    }
+
+    @Test
+    void testClaimOwnedPartitionsOnly() {
+        TestUtil.withinInitializedCrawler(tempDir, crawler -> {
+            var engine = crawler.getDataStoreEngine();
+            Set<Integer> owned = new HashSet<>();
+            var queue = new PartitionedDataStore<CrawlDocRecord>(
+                    engine, "test-queue", CrawlDocRecord.class, 4,
+                    () -> owned);
+            var active = engine.<CrawlDocRecord>openStore(
+                    "test-active", CrawlDocRecord.class);
+
+            for (var host : List.of("a.com", "b.com", "c.com", "d.com")) {
+                for (var i = 0; i < 3; i++) {
+                    var ref = "http://" + host + "/" + i;
+                    queue.save(ref, CoreStubber.crawlDocRecord(ref));
+                }
+            }
+            assertThat(queue.count()).isEqualTo(12);
+            assertThat(queue.exists("http://c.com/1")).isTrue();
+
+            // nothing claimable until a partition is owned
+            assertThat(queue.moveFirst(100, active)).isEmpty();
+            assertThat(queue.findFirst()).isEmpty();
+
+            var partition =
+                    PartitionedDataStore.partitionOf("http://b.com/", 4);
+            owned.add(partition);
+            var claimed = queue.moveFirst(100, active);
+            assertThat(claimed).isNotEmpty().allMatch(rec ->
+                    PartitionedDataStore.partitionOf(
+                            rec.getReference(), 4) == partition);
+            assertThat(claimed).anyMatch(
+                    rec -> rec.getReference().startsWith("http://b.com/"));
+            assertThat(queue.count()).isEqualTo(12L - claimed.size());
+            assertThat(active.count()).isEqualTo(claimed.size());
+
+            assertThat(active.moveAll(queue)).isEqualTo(claimed.size());
+            assertThat(queue.count()).isEqualTo(12);
+            queue.clear();
+            assertThat(queue.isEmpty()).isTrue();
+        });
+    }
+}
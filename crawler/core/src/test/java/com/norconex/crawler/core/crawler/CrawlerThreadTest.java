@@ -1,4 +1,4 @@
-/* Copyright 2023 Norconex Inc.
+/* Copyright 2023-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import java.nio.file.Path;
 import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,8 +26,14 @@ import org.apache.commons.lang3.mutable.MutableObject;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import com.norconex.commons.lang.Sleeper;
 import com.norconex.crawler.core.TestUtil;
+import com.norconex.crawler.core.doc.CrawlDocRecord;
+import com.norconex.crawler.core.pipeline.DocRecordPipelineContext;
+import com.norconex.crawler.core.pipeline.importer.MockImporterPipeline;
 import com.norconex.crawler.core.pipeline.queue.MockQueueInitializer;
+import com.norconex.crawler.core.pipeline.queue.MockQueuePipeline;
+import com.norconex.crawler.core.pipeline.queue.QueuePipeline;
 import com.norconex.crawler.core.store.DataStore;
 import com.norconex.crawler.core.store.MockDataStore;
 import com.norconex.crawler.core.store.MockDataStoreEngine;
@@ -46,6 +53,18 @@ class CrawlerThreadTest {
         assertThat(mem.getUpsertCount()).isEqualTo(3);
     }
 
+    @Test
+    void testVirtualThreadRun() {
+        // falls back to platform threads when not supported
+        var mem = TestUtil.runSingleCrawler(
+                tempDir,
+                cfg -> cfg
+                    .setThreadMode(CrawlerConfig.ThreadMode.VIRTUAL)
+                    .setNumVirtualThreads(20),
+                "ref1", "ref2", "ref3", "ref4", "ref5");
+        assertThat(mem.getUpsertCount()).isEqualTo(5);
+    }
+
     @Test
     void testCrawlerError() {
         var exception = new MutableObject<Throwable>();
@@ -145,6 +164,40 @@ class CrawlerThreadTest {
         assertThat(mem.getUpsertCount()).isEqualTo(6);
     }
 
+    @Test
+    void testPendingQueuingKeepsCrawlerActive() {
+        // The only reference is done processing well before the one it
+        // "extracted" is queued. The crawler must wait for it.
+        var mem = TestUtil.runSingleCrawler(
+                tempDir,
+                cfg -> cfg.setNumThreads(2),
+                implBuilder -> {
+                    var importer = new MockImporterPipeline();
+                    implBuilder.importerPipeline(ctx -> {
+                        if ("ref1".equals(ctx.getDocRecord().getReference())) {
+                            ctx.getCrawler().queueDocRecords(List.of(
+                                    new CrawlDocRecord("ref1-child")));
+                        }
+                        return importer.apply(ctx);
+                    });
+                    var queuer = new MockQueuePipeline();
+                    implBuilder.queuePipeline(new QueuePipeline() {
+                        @Override
+                        public void accept(DocRecordPipelineContext ctx) {
+                            queuer.accept(ctx);
+                        }
+                        @Override
+                        public void acceptAll(
+                                Collection<DocRecordPipelineContext> ctxs) {
+                            Sleeper.sleepMillis(500);
+                            QueuePipeline.super.acceptAll(ctxs);
+                        }
+                    });
+                },
+                "ref1");
+        assertThat(mem.getUpsertCount()).isEqualTo(2);
+    }
+
     @Test
     void testActiveTimeout() {
         var mem = TestUtil.runSingleCrawler(
@@ -0,0 +1,114 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.crawler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.norconex.commons.lang.Sleeper;
+import com.norconex.crawler.core.CoreStubber;
+import com.norconex.crawler.core.doc.CrawlDocRecord;
+import com.norconex.crawler.core.pipeline.queue.QueuePipeline;
+
+class DocRecordQueuerTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testPendingUntilQueued() {
+        var release = new CountDownLatch(1);
+        List<String> queued = new CopyOnWriteArrayList<>();
+        withinQueuer(ctx -> {
+            await(release);
+            queued.add(ctx.getDocRecord().getReference());
+        }, queuer -> {
+            queuer.submit(List.of(new CrawlDocRecord("ref1")));
+            queuer.submit(List.of(
+                    new CrawlDocRecord("ref2"), new CrawlDocRecord("ref3")));
+            assertThat(queuer.isPending()).isTrue();
+
+            release.countDown();
+            queuer.close();
+            assertThat(queuer.isPending()).isFalse();
+            assertThat(queued).containsExactlyInAnyOrder(
+                    "ref1", "ref2", "ref3");
+        });
+    }
+
+    @Test
+    void testSlowBatchDoesNotHoldBackOthers() {
+        var slowStarted = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        List<String> queued = new CopyOnWriteArrayList<>();
+        withinQueuer(ctx -> {
+            var ref = ctx.getDocRecord().getReference();
+            if ("slow".equals(ref)) {
+                slowStarted.countDown();
+                await(release);
+            }
+            queued.add(ref);
+        }, queuer -> {
+            queuer.submit(List.of(new CrawlDocRecord("slow")));
+            await(slowStarted);
+            queuer.submit(List.of(new CrawlDocRecord("fast")));
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                while (!queued.contains("fast")) {
+                    Sleeper.sleepMillis(10);
+                }
+            });
+            assertThat(queued).containsExactly("fast");
+            assertThat(queuer.isPending()).isTrue();
+
+            release.countDown();
+            queuer.close();
+            assertThat(queued).containsExactly("fast", "slow");
+        });
+    }
+
+    private void withinQueuer(
+            QueuePipeline queuePipeline, Consumer<DocRecordQueuer> c) {
+        var crawler = CoreStubber.crawler(
+                tempDir, b -> b.queuePipeline(queuePipeline));
+        crawler.getConfiguration().setNumThreads(2);
+        crawler.getCrawlSession().sneakyInitCrawlSession();
+        crawler.sneakyInitCrawler();
+        try {
+            c.accept(new DocRecordQueuer(crawler));
+        } finally {
+            crawler.sneakyDestroyCrawler();
+            crawler.getCrawlSession().sneakyDestroyCrawlSession();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,4 +1,4 @@
-/* Copyright 2023 Norconex Inc.
+/* Copyright 2023-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,8 +15,14 @@
 package com.norconex.crawler.core.doc;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -90,4 +96,173 @@ class CrawlDocRecordServiceTest {
             service.close();
         });
     }
+
+    @Test
+    void testPollQueueClaimsInBatches() {
+        TestUtil.withinInitializedCrawler(tempDir, crawler -> {
+            var service = crawler.getDocRecordService();
+            service.prepareForCrawlerStart();
+            for (var i = 1; i <= 5; i++) {
+                service.queue(CoreStubber.crawlDocRecord("ref" + i));
+            }
+
+            // two threads: two records claimed as active at once
+            assertThat(service.pollQueue()).isPresent();
+            assertThat(service.getActiveCount()).isEqualTo(2);
+            assertThat(service.getQueueCount()).isEqualTo(3);
+            assertThat(service.pollQueue()).isPresent();
+            assertThat(service.getActiveCount()).isEqualTo(2);
+            assertThat(service.getQueueCount()).isEqualTo(3);
+
+            // third one triggers a new claim
+            assertThat(service.pollQueue()).isPresent();
+            assertThat(service.getActiveCount()).isEqualTo(4);
+            assertThat(service.getQueueCount()).isOne();
+            service.close();
+
+            // claimed but unprocessed records go back to the queue
+            service.open();
+            service.prepareForCrawlerStart();
+            assertThat(service.getActiveCount()).isZero();
+            assertThat(service.getQueueCount()).isEqualTo(5);
+            service.close();
+        }, cfg -> cfg.setNumThreads(2));
+    }
+
+    @Test
+    void testQueueIfAbsent() {
+        TestUtil.withinInitializedCrawler(tempDir, crawler -> {
+            var service = crawler.getDocRecordService();
+            service.prepareForCrawlerStart();
+            service.processed(CoreStubber.crawlDocRecord("p-ref"));
+
+            assertThat(service.queueIfAbsent(
+                    CoreStubber.crawlDocRecord("q-ref"))).isNull();
+            assertThat(service.queueIfAbsent(
+                    CoreStubber.crawlDocRecord("q-ref"))).isSameAs(
+                            Stage.QUEUED);
+            assertThat(service.queueIfAbsent(
+                    CoreStubber.crawlDocRecord("p-ref"))).isSameAs(
+                            Stage.PROCESSED);
+            assertThat(service.getQueueCount()).isOne();
+            service.close();
+
+            // seen references are known again after restarting
+            service.open();
+            service.prepareForCrawlerStart();
+            assertThat(service.queueIfAbsent(
+                    CoreStubber.crawlDocRecord("q-ref"))).isSameAs(
+                            Stage.QUEUED);
+            assertThat(service.getQueueCount()).isOne();
+            service.close();
+        });
+    }
+
+    @Test
+    void testQueueAllIfAbsent() {
+        TestUtil.withinInitializedCrawler(tempDir, crawler -> {
+            var service = crawler.getDocRecordService();
+            service.prepareForCrawlerStart();
+            service.processed(CoreStubber.crawlDocRecord("p-ref"));
+            service.queue(CoreStubber.crawlDocRecord("q-ref"));
+
+            var stages = service.queueAllIfAbsent(List.of(
+                    CoreStubber.crawlDocRecord("new-ref"),
+                    CoreStubber.crawlDocRecord("q-ref"),
+                    CoreStubber.crawlDocRecord("p-ref"),
+                    CoreStubber.crawlDocRecord("new-ref")));
+
+            assertThat(stages).containsOnly(
+                    entry("q-ref", Stage.QUEUED),
+                    entry("p-ref", Stage.PROCESSED));
+            assertThat(service.getQueueCount()).isEqualTo(2);
+            assertThat(service.getProcessingStage("new-ref")).isSameAs(
+                    Stage.QUEUED);
+            service.close();
+        });
+    }
+
+    @Test
+    void testStreamCachedOrphans() {
+        TestUtil.withinInitializedCrawler(tempDir, crawler -> {
+            var service = crawler.getDocRecordService();
+            service.prepareForCrawlerStart();
+            service.processed(CoreStubber.crawlDocRecord("ref1"));
+            service.processed(CoreStubber.crawlDocRecord("ref2"));
+            service.processed(CoreStubber.crawlDocRecord("ref3"));
+            service.close();
+
+            // new crawl: previously processed references are now cached
+            service.open();
+            service.prepareForCrawlerStart();
+            assertThat(service.getCachedCount()).isEqualTo(3);
+
+            // processing removes from cache, leaving only orphans
+            service.processed(CoreStubber.crawlDocRecord("ref2"));
+            try (var orphans = service.streamCached()) {
+                assertThat(orphans.map(Entry::getKey)).containsExactly(
+                        "ref1", "ref3");
+            }
+            service.close();
+        });
+    }
+
+    @Test
+    void testStageCounts() {
+        TestUtil.withinInitializedCrawler(tempDir, crawler -> {
+            var service = crawler.getDocRecordService();
+            service.prepareForCrawlerStart();
+            service.queue(CoreStubber.crawlDocRecord("ref1"));
+            service.queue(CoreStubber.crawlDocRecord("ref2"));
+            // queueing the same reference twice counts once
+            service.queue(CoreStubber.crawlDocRecord("ref2"));
+            assertThat(service.getQueueCount()).isEqualTo(2);
+
+            var rec = service.pollQueue().get();
+            assertThat(service.getQueueCount()).isOne();
+            assertThat(service.getActiveCount()).isOne();
+
+            service.processed(rec);
+            // processed without having been active
+            service.processed(CoreStubber.crawlDocRecord("ref3"));
+            service.processed(CoreStubber.crawlDocRecord("ref3"));
+            assertThat(service.getActiveCount()).isZero();
+            assertThat(service.getProcessedCount()).isEqualTo(2);
+            service.close();
+
+            // counts are restored from stores
+            service.open();
+            assertThat(service.getQueueCount()).isOne();
+            assertThat(service.getActiveCount()).isZero();
+            assertThat(service.getProcessedCount()).isEqualTo(2);
+            service.close();
+        });
+    }
+
+    @Test
+    void testAwaitActivity() {
+        TestUtil.withinInitializedCrawler(tempDir, crawler -> {
+            var service = crawler.getDocRecordService();
+            service.prepareForCrawlerStart();
+
+            // nothing happening
+            var stamp = service.getActivityStamp();
+            assertThat(service.awaitActivity(
+                    stamp, Duration.ofMillis(50))).isFalse();
+
+            // activity before waiting is not missed
+            service.queue(CoreStubber.crawlDocRecord("ref1"));
+            assertThat(service.awaitActivity(
+                    stamp, Duration.ofMillis(50))).isTrue();
+
+            // waiting thread is woken up when a reference is queued
+            var stamp2 = service.getActivityStamp();
+            var waiter = CompletableFuture.supplyAsync(() ->
+                    service.awaitActivity(stamp2, Duration.ofMinutes(1)));
+            service.queue(CoreStubber.crawlDocRecord("ref2"));
+            assertThat(waiter).succeedsWithin(5, TimeUnit.SECONDS)
+                    .isEqualTo(true);
+            service.close();
+        });
+    }
 }
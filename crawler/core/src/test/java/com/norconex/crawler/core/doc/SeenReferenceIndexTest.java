@@ -0,0 +1,73 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.doc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class SeenReferenceIndexTest {
+
+    @Test
+    void testExactTier() {
+        var index = new SeenReferenceIndex();
+        for (var i = 0; i < 10_000; i++) {
+            index.add("http://example.com/seen/" + i);
+        }
+        // adding again is ignored
+        index.add("http://example.com/seen/0");
+        assertThat(index.size()).isEqualTo(10_000);
+
+        for (var i = 0; i < 10_000; i++) {
+            assertThat(index.mightContain("http://example.com/seen/" + i))
+                    .isTrue();
+            assertThat(index.mightContain("http://example.com/unseen/" + i))
+                    .isFalse();
+        }
+    }
+
+    @Test
+    void testBloomTier() {
+        var index = new SeenReferenceIndex(1_000);
+        for (var i = 0; i < 20_000; i++) {
+            index.add("http://example.com/seen/" + i);
+        }
+        assertThat(index.size()).isGreaterThan(19_000);
+
+        // never any false negatives
+        for (var i = 0; i < 20_000; i++) {
+            assertThat(index.mightContain("http://example.com/seen/" + i))
+                    .isTrue();
+        }
+        // false positives are rare
+        var falsePositives = 0;
+        for (var i = 0; i < 20_000; i++) {
+            if (index.mightContain("http://example.com/unseen/" + i)) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(400);
+    }
+
+    @Test
+    void testStripe() {
+        for (var i = 0; i < 1_000; i++) {
+            var ref = "ref" + i;
+            assertThat(SeenReferenceIndex.stripe(ref, 64))
+                    .isBetween(0, 63)
+                    .isEqualTo(SeenReferenceIndex.stripe(ref, 64));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.norconex.commons.lang.text.TextMatcher;
+import com.norconex.crawler.core.filter.impl.ExtensionReferenceFilter;
+import com.norconex.crawler.core.filter.impl.GenericReferenceFilter;
+
+class CompiledFilterGroupTest {
+
+    private static final List<String> REFS = List.of(
+            "http://example.com/",
+            "http://example.com/file.pdf",
+            "http://example.com/file.PDF",
+            "http://example.com/login/file.html",
+            "http://example.com/dir.pdf/file.html?q=a.pdf",
+            "http://example.com/docs/file.doc",
+            "C:\\example\\file.xml",
+            "not a url");
+
+    @Test
+    void testSameOutcomeAsFilterGroupResolver() {
+        List<ReferenceFilter> filters = List.of(
+                genericFilter(".*/login/.*", OnMatch.EXCLUDE),
+                extensionFilter(OnMatch.EXCLUDE, true, "xml", "js"),
+                genericFilter(".*/docs/.*", OnMatch.INCLUDE),
+                extensionFilter(OnMatch.INCLUDE, true, "pdf"),
+                extensionFilter(OnMatch.INCLUDE, false, "html"));
+        var group = CompiledFilterGroup.ofReferenceFilters(
+                "reference", filters);
+
+        for (String ref : REFS) {
+            var rejectedBy = new ArrayList<Object>();
+            var accepted = FilterGroupResolver.<ReferenceFilter>builder()
+                    .filterResolver(f -> f.acceptReference(ref))
+                    .onRejected(rejectedBy::add)
+                    .onRejectedNoInclude(f -> rejectedBy.add(null))
+                    .build()
+                    .accepts(filters);
+
+            var rejection = group.test(ref, null);
+            assertThat(rejection == null).as(ref).isEqualTo(accepted);
+            if (rejection != null) {
+                assertThat(rejection.filter()).as(ref).isSameAs(
+                        rejectedBy.get(0));
+            }
+        }
+    }
+
+    @Test
+    void testHitCounts() {
+        var group = CompiledFilterGroup.ofReferenceFilters("reference",
+                List.of(
+                    genericFilter(".*/login/.*", OnMatch.EXCLUDE),
+                    extensionFilter(OnMatch.INCLUDE, true, "pdf", "html")));
+        REFS.forEach(ref -> group.test(ref, null));
+
+        assertThat(group.getHitCounts()).containsExactly(
+                entry("reference.0.GenericReferenceFilter", 1L),
+                entry("reference.1.ExtensionReferenceFilter", 3L),
+                entry("reference.noIncludeMatch", 4L));
+    }
+
+    private static ReferenceFilter genericFilter(
+            String regex, OnMatch onMatch) {
+        var f = new GenericReferenceFilter();
+        f.getConfiguration()
+            .setValueMatcher(TextMatcher.regex(regex))
+            .setOnMatch(onMatch);
+        return f;
+    }
+
+    private static ReferenceFilter extensionFilter(
+            OnMatch onMatch, boolean ignoreCase, String... extensions) {
+        var f = new ExtensionReferenceFilter();
+        f.getConfiguration()
+            .setIgnoreCase(ignoreCase)
+            .setExtensions(List.of(extensions))
+            .setOnMatch(onMatch);
+        return f;
+    }
+}
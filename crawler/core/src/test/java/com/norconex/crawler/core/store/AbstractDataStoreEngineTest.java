@@ -1,4 +1,4 @@
-/* Copyright 2019-2023 Norconex Inc.
+/* Copyright 2019-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,10 +15,22 @@
 package com.norconex.crawler.core.store;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatNoException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 
 import org.junit.jupiter.api.Assertions;
@@ -154,6 +166,157 @@ public abstract class AbstractDataStoreEngineTest {
         });
     }
 
+    @Test
+    void testStoreSaveIfAbsent() {
+        inNewStoreSession(store -> {
+            Assertions.assertTrue(store.saveIfAbsent("areference", obj));
+            var obj2 = new TestObject("areference", 67, "blah", "ipsum");
+            Assertions.assertFalse(store.saveIfAbsent("areference", obj2));
+            Assertions.assertEquals(1, store.count());
+            Assertions.assertEquals(obj, store.find("areference").get());
+        });
+    }
+
+    @Test
+    void testStoreSaveAllFindAll() {
+        inNewStoreSession(store -> store.saveAll(testObjects(5)));
+        inNewStoreSession(store -> {
+            assertThat(store.count()).isEqualTo(5);
+            var found = store.findAll(List.of("ref4", "ref2", "nope"));
+            assertThat(found.keySet()).containsExactly("ref4", "ref2");
+            assertThat(found.get("ref2").getCount()).isEqualTo(2);
+        });
+    }
+
+    @Test
+    void testStoreDeleteAll() {
+        inNewStoreSession(store -> store.saveAll(testObjects(5)));
+        inNewStoreSession(store -> {
+            assertThat(store.deleteAll(
+                    List.of("ref1", "ref3", "nope"))).isEqualTo(2);
+            assertThat(store.count()).isEqualTo(3);
+            assertThat(store.exists("ref1")).isFalse();
+            assertThat(store.exists("ref2")).isTrue();
+        });
+    }
+
+    @Test
+    void testStoreMoveAll() {
+        inNewStoreSession(store -> store.saveAll(testObjects(5)));
+        inNewStoreEngineSession(engine -> {
+            DataStore<TestObject> source =
+                    engine.openStore(TEST_STORE_NAME, TestObject.class);
+            DataStore<TestObject> target =
+                    engine.openStore("targetStore", TestObject.class);
+            target.save("ref1", new TestObject("ref1", 66, "old", "old"));
+            assertThat(source.moveAll(target)).isEqualTo(5);
+            assertThat(source.isEmpty()).isTrue();
+            assertThat(target.count()).isEqualTo(5);
+            assertThat(target.find("ref1").get().getCount()).isOne();
+        });
+    }
+
+    @Test
+    void testStoreMoveFirst() {
+        inNewStoreSession(store -> store.saveAll(testObjects(5)));
+        inNewStoreEngineSession(engine -> {
+            DataStore<TestObject> source =
+                    engine.openStore(TEST_STORE_NAME, TestObject.class);
+            DataStore<TestObject> target =
+                    engine.openStore("targetStore", TestObject.class);
+            var moved = source.moveFirst(2, target);
+            assertThat(moved).hasSize(2);
+            assertThat(source.count()).isEqualTo(3);
+            assertThat(target.count()).isEqualTo(2);
+            moved.forEach(obj -> {
+                assertThat(source.exists(obj.getReference())).isFalse();
+                assertThat(target.exists(obj.getReference())).isTrue();
+            });
+            assertThat(source.moveFirst(10, target)).hasSize(3);
+            assertThat(source.moveFirst(10, target)).isEmpty();
+            assertThat(target.count()).isEqualTo(5);
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void testStoreMoveFirstTargetFailure() {
+        inNewStoreSession(store -> store.saveAll(testObjects(5)));
+        inNewStoreEngineSession(engine -> {
+            DataStore<TestObject> source =
+                    engine.openStore(TEST_STORE_NAME, TestObject.class);
+            DataStore<TestObject> target = mock(DataStore.class);
+            doThrow(new DataStoreException("Target unavailable."))
+                    .when(target).saveAll(any());
+            assertThatExceptionOfType(DataStoreException.class)
+                    .isThrownBy(() -> source.moveFirst(2, target));
+            // nothing lost and records can still be moved
+            assertThat(source.count()).isEqualTo(5);
+            for (var i = 0; i < 5; i++) {
+                assertThat(source.exists("ref" + i)).isTrue();
+            }
+            DataStore<TestObject> other =
+                    engine.openStore("targetStore", TestObject.class);
+            assertThat(source.moveFirst(10, other)).hasSize(5);
+            assertThat(other.count()).isEqualTo(5);
+        });
+    }
+
+    @Test
+    void testStoreMoveFirstConcurrently() {
+        inNewStoreSession(store -> store.saveAll(testObjects(200)));
+        inNewStoreEngineSession(engine -> {
+            DataStore<TestObject> source =
+                    engine.openStore(TEST_STORE_NAME, TestObject.class);
+            DataStore<TestObject> target =
+                    engine.openStore("targetStore", TestObject.class);
+            List<String> claimed =
+                    Collections.synchronizedList(new ArrayList<>());
+            List<Callable<Void>> claimers = new ArrayList<>();
+            for (var i = 0; i < 4; i++) {
+                claimers.add(() -> {
+                    List<TestObject> batch;
+                    do {
+                        batch = source.moveFirst(3, target);
+                        batch.forEach(obj -> claimed.add(obj.getReference()));
+                    } while (!batch.isEmpty());
+                    return null;
+                });
+            }
+            var executor = Executors.newFixedThreadPool(4);
+            try {
+                for (var future : executor.invokeAll(claimers)) {
+                    future.get();
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            } finally {
+                executor.shutdown();
+            }
+            // each record claimed exactly once
+            assertThat(claimed).hasSize(200).doesNotHaveDuplicates();
+            assertThat(source.isEmpty()).isTrue();
+            assertThat(target.count()).isEqualTo(200);
+        });
+    }
+
+    @Test
+    void testStoreStream() {
+        inNewStoreSession(store -> store.saveAll(testObjects(5)));
+        inNewStoreSession(store -> {
+            // page size smaller than record count
+            try (var stream = store.stream(2)) {
+                assertThat(stream.map(Entry::getKey))
+                    .containsExactlyInAnyOrder(
+                            "ref0", "ref1", "ref2", "ref3", "ref4");
+            }
+            try (var stream = store.stream()) {
+                assertThat(stream.mapToInt(en -> en.getValue().getCount())
+                        .sum()).isEqualTo(10);
+            }
+        });
+    }
+
     @Test
     void testEngineRenameStore() {
         inNewStoreEngineSession(engine -> {
@@ -260,6 +423,15 @@ public abstract class AbstractDataStoreEngineTest {
                 BeanMapper.DEFAULT.assertWriteRead(engine));
     }
 
+    private static Map<String, TestObject> testObjects(int qty) {
+        Map<String, TestObject> objects = new LinkedHashMap<>();
+        for (var i = 0; i < qty; i++) {
+            objects.put("ref" + i,
+                    new TestObject("ref" + i, i, "checksum" + i, "parent"));
+        }
+        return objects;
+    }
+
     private void savePojo(TestObject testPojo) {
         inNewStoreSession(store -> {
             store.save(testPojo.getReference(), testPojo);
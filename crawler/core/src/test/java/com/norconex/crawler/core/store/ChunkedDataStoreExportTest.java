@@ -0,0 +1,125 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.norconex.crawler.core.CoreStubber;
+import com.norconex.crawler.core.TestUtil;
+import com.norconex.crawler.core.crawler.Crawler;
+import com.norconex.crawler.core.doc.CrawlDocRecord;
+
+class ChunkedDataStoreExportTest {
+
+    // spans 3 chunks
+    private static final int NUM_RECORDS = 25_000;
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testExportImport() {
+        TestUtil.withinInitializedCrawler(tempDir, crawler -> {
+            var store = populateStore(crawler.getDataStoreEngine());
+
+            var exportDir = export(crawler);
+            assertThat(ChunkedDataStoreImporter.isChunkedExport(exportDir))
+                    .isTrue();
+            assertThat(exportDir.resolve("test-store")).isDirectory();
+
+            store.clear();
+            importDataStore(crawler, exportDir);
+
+            assertThat(store.count()).isEqualTo(NUM_RECORDS);
+            assertThat(store.find("ref-12345").get().getReference())
+                    .isEqualTo("ref-12345");
+        });
+    }
+
+    @Test
+    void testResumeImport() {
+        TestUtil.withinInitializedCrawler(tempDir, crawler -> {
+            var store = populateStore(crawler.getDataStoreEngine());
+            var exportDir = export(crawler);
+            store.clear();
+
+            // a corrupted chunk interrupts the import
+            var chunk = exportDir.resolve("test-store/chunk-000001.bin");
+            var chunkBytes = readAllBytes(chunk);
+            writeBytes(chunk, new byte[] { 1, 2, 3 });
+            assertThatExceptionOfType(IOException.class).isThrownBy(() ->
+                    ChunkedDataStoreImporter.importDataStore(
+                            crawler, exportDir, 2));
+            assertThat(store.count()).isLessThan(NUM_RECORDS);
+
+            // importing again completes it
+            writeBytes(chunk, chunkBytes);
+            importDataStore(crawler, exportDir);
+            assertThat(store.count()).isEqualTo(NUM_RECORDS);
+            assertThat(crawler.getWorkDir().resolve("storeimport"))
+                    .isEmptyDirectory();
+        });
+    }
+
+    private DataStore<CrawlDocRecord> populateStore(DataStoreEngine engine) {
+        DataStore<CrawlDocRecord> store =
+                engine.openStore("test-store", CrawlDocRecord.class);
+        for (var i = 0; i < NUM_RECORDS; i++) {
+            var ref = "ref-" + i;
+            store.save(ref, CoreStubber.crawlDocRecord(ref));
+        }
+        return store;
+    }
+
+    private Path export(Crawler crawler) {
+        try {
+            return ChunkedDataStoreExporter.exportDataStore(
+                    crawler, tempDir.resolve("export"), 4);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    private void importDataStore(
+            Crawler crawler, Path dir) {
+        try {
+            ChunkedDataStoreImporter.importDataStore(crawler, dir, 4);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    private byte[] readAllBytes(Path file) {
+        try {
+            return Files.readAllBytes(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    private void writeBytes(Path file, byte[] bytes) {
+        try {
+            Files.write(file, bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.store.codec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.norconex.commons.lang.file.ContentType;
+import com.norconex.crawler.core.doc.CrawlDocRecord;
+import com.norconex.crawler.core.doc.CrawlDocState;
+import com.norconex.crawler.core.store.impl.SerialUtil;
+
+class CrawlDocRecordCodecTest {
+
+    @Test
+    void testBinaryRoundTrip() {
+        var rec = fullRecord();
+        var codec = RecordCodecs.<CrawlDocRecord>forType(
+                CrawlDocRecord.class, RecordFormat.BINARY);
+        var bytes = codec.encode(rec);
+        assertThat(BinaryRecordCodec.isBinary(bytes)).isTrue();
+        assertThat(bytes.length).isLessThan(SerialUtil.toJsonBytes(rec).length);
+        assertThat(codec.decode(bytes)).isEqualTo(rec);
+    }
+
+    @Test
+    void testEmptyRecordRoundTrip() {
+        var rec = new CrawlDocRecord("ref");
+        var codec = RecordCodecs.<CrawlDocRecord>forType(
+                CrawlDocRecord.class, RecordFormat.BINARY);
+        assertThat(codec.decode(codec.encode(rec))).isEqualTo(rec);
+    }
+
+    @Test
+    void testReadsEitherFormat() {
+        var rec = fullRecord();
+        var binary = RecordCodecs.<CrawlDocRecord>forType(
+                CrawlDocRecord.class, RecordFormat.BINARY);
+        var json = RecordCodecs.<CrawlDocRecord>forType(
+                CrawlDocRecord.class, RecordFormat.JSON);
+
+        var jsonBytes = json.encode(rec);
+        assertThat(BinaryRecordCodec.isBinary(jsonBytes)).isFalse();
+        assertThat(binary.decode(jsonBytes).getReference())
+                .isEqualTo(rec.getReference());
+        assertThat(json.decode(binary.encode(rec))).isEqualTo(rec);
+    }
+
+    @Test
+    void testUnregisteredTypeFallsBackToJson() {
+        var codec = RecordCodecs.<String>forType(
+                String.class, RecordFormat.BINARY);
+        var bytes = codec.encode("abc");
+        assertThat(new String(bytes, StandardCharsets.UTF_8))
+                .isEqualTo("\"abc\"");
+        assertThat(codec.decode(bytes)).isEqualTo("abc");
+    }
+
+    @Test
+    void testTruncatedRecord() {
+        var codec = RecordCodecs.<CrawlDocRecord>forType(
+                CrawlDocRecord.class, RecordFormat.BINARY);
+        var bytes = codec.encode(fullRecord());
+        var truncated = new byte[bytes.length / 2];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        assertThatExceptionOfType(RecordCodecException.class)
+                .isThrownBy(() -> codec.decode(truncated));
+    }
+
+    private CrawlDocRecord fullRecord() {
+        var rec = new CrawlDocRecord("http://example.com/page.html");
+        rec.setContentType(ContentType.HTML);
+        rec.setCharset(StandardCharsets.UTF_8);
+        rec.setEmbeddedParentReferences(List.of("parent1", "parent2"));
+        rec.setDepth(3);
+        rec.setOriginalReference("http://example.com/original.html");
+        rec.setParentRootReference("http://example.com/");
+        rec.setState(CrawlDocState.MODIFIED);
+        rec.setMetaChecksum("metaChecksum");
+        rec.setContentChecksum("contentChecksum");
+        rec.setCrawlDate(ZonedDateTime.of(
+                2024, 1, 2, 3, 4, 5, 6000, ZoneId.of("America/Montreal")));
+        rec.setLastModified(ZonedDateTime.of(
+                1999, 12, 31, 23, 59, 59, 0, ZoneId.of("UTC")));
+        return rec;
+    }
+}
@@ -1,4 +1,4 @@
-/* Copyright 2021-2023 Norconex Inc.
+/* Copyright 2021-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -14,14 +14,25 @@
  */
 package com.norconex.crawler.core.store.impl.jdbc;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.StringReader;
 import java.net.MalformedURLException;
+import java.sql.SQLException;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.SystemUtils;
+import org.junit.jupiter.api.Test;
 
+import com.norconex.commons.lang.bean.BeanMapper;
+import com.norconex.commons.lang.bean.BeanMapper.Format;
 import com.norconex.commons.lang.map.Properties;
+import com.norconex.crawler.core.TestUtil;
+import com.norconex.crawler.core.doc.CrawlDocRecord;
 import com.norconex.crawler.core.store.AbstractDataStoreEngineTest;
+import com.norconex.crawler.core.store.DataStore;
 import com.norconex.crawler.core.store.DataStoreEngine;
+import com.norconex.crawler.core.store.impl.SerialUtil;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -49,4 +60,81 @@ class JdbcDataStoreEngineTest extends AbstractDataStoreEngineTest {
             throw new RuntimeException(e);
         }
     }
+
+    @Test
+    void testLegacyTableLayout() {
+        var legacyObj = new CrawlDocRecord("ref1");
+        legacyObj.setContentChecksum("checksum1");
+        TestUtil.withinInitializedCrawler(getTempDir(), crawler -> {
+            var engine = (JdbcDataStoreEngine) crawler.getDataStoreEngine();
+            var tableName = engine.tableName("legacyStore");
+            try (var conn = engine.getConnection();
+                    var stmt = conn.createStatement()) {
+                stmt.executeUpdate("""
+                        CREATE TABLE %s (
+                          id VARCHAR(2048) NOT NULL,
+                          modified TIMESTAMP,
+                          json CLOB,
+                          PRIMARY KEY (id)
+                        )
+                        """.formatted(tableName));
+                stmt.executeUpdate(
+                        "INSERT INTO %s VALUES ('ref1', NULL, '%s')"
+                            .formatted(tableName,
+                                    SerialUtil.toJsonString(legacyObj)));
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+
+            try (DataStore<CrawlDocRecord> store =
+                    engine.openStore("legacyStore", CrawlDocRecord.class)) {
+                assertThat(store.find("ref1")).contains(legacyObj);
+                var newObj = new CrawlDocRecord("ref2");
+                store.save("ref2", newObj);
+                assertThat(store.find("ref2")).contains(newObj);
+                assertThat(store.count()).isEqualTo(2);
+            }
+            // legacy column is kept unless told otherwise
+            assertThat(hasJsonColumn(engine, tableName)).isTrue();
+
+            engine.getConfiguration().setDropLegacyColumns(true);
+            try (DataStore<CrawlDocRecord> store =
+                    engine.openStore("legacyStore", CrawlDocRecord.class)) {
+                assertThat(store.find("ref1")).contains(legacyObj);
+                assertThat(store.count()).isEqualTo(2);
+            }
+            assertThat(hasJsonColumn(engine, tableName)).isFalse();
+        }, cfg -> cfg.setDataStoreEngine(createEngine()));
+    }
+
+    private boolean hasJsonColumn(
+            JdbcDataStoreEngine engine, String tableName) {
+        try (var conn = engine.getConnection();
+                var stmt = conn.createStatement();
+                var rs = stmt.executeQuery(
+                        "SELECT * FROM %s WHERE 1 = 0".formatted(tableName))) {
+            var meta = rs.getMetaData();
+            for (var i = 1; i <= meta.getColumnCount(); i++) {
+                if ("JSON".equalsIgnoreCase(meta.getColumnName(i))) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    void testLegacyTextTypeConfig() {
+        var engine = BeanMapper.DEFAULT.read(
+                JdbcDataStoreEngine.class,
+                new StringReader("""
+                        <dataStoreEngine>\
+                        <textType>LONGBLOB</textType>\
+                        </dataStoreEngine>"""),
+                Format.XML);
+        // text types can't hold binary records: ignored
+        assertThat(engine.getConfiguration().getBinaryType()).isNull();
+    }
 }
@@ -0,0 +1,185 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.core.store.impl.mapped;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.norconex.crawler.core.CoreStubber;
+import com.norconex.crawler.core.store.AbstractDataStoreEngineTest;
+import com.norconex.crawler.core.store.DataStoreEngine;
+
+class MappedDataStoreEngineTest extends AbstractDataStoreEngineTest {
+
+    @Override
+    protected DataStoreEngine createEngine() {
+        return new MappedDataStoreEngine();
+    }
+
+    @Test
+    void testQueueSegmentsDeleted() throws IOException {
+        var crawler = CoreStubber.crawler(getTempDir());
+        var engine = new MappedDataStoreEngine();
+        engine.getConfiguration().setSegmentSize(4096);
+        engine.init(crawler);
+        try {
+            var queue = engine.<String>openStore("queue", String.class);
+            var active = engine.<String>openStore("active", String.class);
+            for (var i = 0; i < 2000; i++) {
+                queue.save("ref" + i, "value" + i);
+            }
+            var queueDir = crawler.getWorkDir().resolve("mappedstore/queue");
+            assertThat(segmentCount(queueDir)).isGreaterThan(10);
+
+            // FIFO
+            assertThat(queue.moveFirst(2, active))
+                .containsExactly("value0", "value1");
+            while (!queue.moveFirst(100, active).isEmpty()) {
+                // consume all
+            }
+            assertThat(active.count()).isEqualTo(2000);
+            // consumed segments are deleted
+            assertThat(segmentCount(queueDir)).isLessThanOrEqualTo(1);
+        } finally {
+            engine.close();
+        }
+    }
+
+    @Test
+    void testRestart() throws IOException {
+        var crawler = CoreStubber.crawler(getTempDir());
+        var engine = new MappedDataStoreEngine();
+        engine.init(crawler);
+        var store = engine.<String>openStore("processed", String.class);
+        for (var i = 0; i < 1000; i++) {
+            store.save("ref" + i, "value" + i);
+        }
+        store.delete("ref5");
+        engine.close();
+
+        // clean restart: index is reused
+        engine = new MappedDataStoreEngine();
+        engine.init(crawler);
+        store = engine.openStore("processed", String.class);
+        assertThat(store.count()).isEqualTo(999);
+        assertThat(store.find("ref999")).contains("value999");
+        engine.close();
+
+        // lost index: rebuilt from the log
+        var storeDir = crawler.getWorkDir().resolve("mappedstore/processed");
+        try (var files = Files.list(storeDir)) {
+            for (Path file : files.filter(f -> f.getFileName()
+                    .toString().endsWith(".idx")).toList()) {
+                Files.delete(file);
+            }
+        }
+        engine = new MappedDataStoreEngine();
+        engine.init(crawler);
+        store = engine.openStore("processed", String.class);
+        assertThat(store.count()).isEqualTo(999);
+        assertThat(store.exists("ref5")).isFalse();
+        assertThat(store.find("ref999")).contains("value999");
+        engine.close();
+    }
+
+    @Test
+    void testRebuildIndexWithDuplicateRecords() throws IOException {
+        var crawler = CoreStubber.crawler(getTempDir());
+        var engine = new MappedDataStoreEngine();
+        engine.init(crawler);
+        var store = engine.<String>openStore("processed", String.class);
+        store.save("ref1", "value1");
+        store.save("ref2", "value2");
+        engine.close();
+
+        // Simulate a termination while saving "ref1" again: the new
+        // record was appended but the former one not yet deleted.
+        var storeDir = crawler.getWorkDir().resolve("mappedstore/processed");
+        var log = new SegmentLog(storeDir,
+                (int) MappedDataStoreEngineConfig.DEFAULT_SEGMENT_SIZE);
+        List<Long> locations = new ArrayList<>();
+        log.scan(locations::add);
+        var value2 = locations.stream()
+                .filter(loc -> "ref2".equals(log.readId(loc)))
+                .map(log::readData)
+                .findFirst()
+                .orElseThrow();
+        log.append("ref1", value2);
+        log.close();
+        try (var files = Files.list(storeDir)) {
+            for (Path file : files.filter(f -> f.getFileName()
+                    .toString().endsWith(".idx")).toList()) {
+                Files.delete(file);
+            }
+        }
+
+        engine = new MappedDataStoreEngine();
+        engine.init(crawler);
+        store = engine.openStore("processed", String.class);
+        assertThat(store.count()).isEqualTo(2);
+        assertThat(store.find("ref1")).contains("value2");
+        assertThat(store.moveFirst(10, engine.openStore(
+                "target", String.class))).containsExactly("value2", "value2");
+        assertThat(store.isEmpty()).isTrue();
+        engine.close();
+    }
+
+    @Test
+    void testRenameKeepsFilesInPlace() throws IOException {
+        var crawler = CoreStubber.crawler(getTempDir());
+        var engineDir = crawler.getWorkDir().resolve("mappedstore");
+        var engine = new MappedDataStoreEngine();
+        engine.init(crawler);
+        var processed = engine.<String>openStore("processed", String.class);
+        processed.save("ref1", "value1");
+
+        // like on incremental starts: mapped files are not moved
+        engine.renameStore(processed, "cached");
+        assertThat(segmentCount(engineDir.resolve("processed"))).isOne();
+        assertThat(processed.find("ref1")).contains("value1");
+        processed = engine.openStore("processed", String.class);
+        assertThat(processed.isEmpty()).isTrue();
+        processed.save("ref2", "value2");
+        engine.close();
+
+        engine = new MappedDataStoreEngine();
+        engine.init(crawler);
+        var cached = engine.<String>openStore("cached", String.class);
+        processed = engine.openStore("processed", String.class);
+        assertThat(cached.find("ref1")).contains("value1");
+        assertThat(cached.exists("ref2")).isFalse();
+        assertThat(processed.find("ref2")).contains("value2");
+        assertThat(processed.exists("ref1")).isFalse();
+
+        // dropping the renamed store leaves the new one alone
+        assertThat(engine.dropStore("cached")).isTrue();
+        assertThat(processed.find("ref2")).contains("value2");
+        engine.close();
+    }
+
+    private long segmentCount(Path dir) throws IOException {
+        try (var files = Files.list(dir)) {
+            return files.filter(
+                    f -> f.getFileName().toString().endsWith(".seg")).count();
+        }
+    }
+}
@@ -1,4 +1,4 @@
-/* Copyright 2019-2023 Norconex Inc.
+/* Copyright 2019-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -14,8 +14,18 @@
  */
 package com.norconex.crawler.core.store.impl.mvstore;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+import com.norconex.crawler.core.CoreStubber;
+import com.norconex.crawler.core.crawler.Crawler;
 import com.norconex.crawler.core.store.AbstractDataStoreEngineTest;
 import com.norconex.crawler.core.store.DataStoreEngine;
+import com.norconex.crawler.core.store.impl.mvstore.MVStoreDataStoreEngineConfig.Durability;
 
 class MVStoreDataStoreEngineTest extends AbstractDataStoreEngineTest {
 
@@ -24,4 +34,74 @@ class MVStoreDataStoreEngineTest extends AbstractDataStoreEngineTest {
         return new MVStoreDataStoreEngine();
     }
 
+    @Test
+    void testGroupCommitCrash() {
+        var crawler = CoreStubber.crawler(getTempDir());
+        Consumer<MVStoreDataStoreEngineConfig> cfg = c -> c
+                .setDurability(Durability.GROUP)
+                .setGroupCommitSize(10)
+                .setGroupCommitInterval(Duration.ofHours(1));
+        saveAndCrash(crawler, cfg, 25);
+        // only the last (incomplete) group is lost
+        assertThat(countAfterRestart(crawler, cfg)).isEqualTo(20);
+    }
+
+    @Test
+    void testCheckpointCrash() {
+        var crawler = CoreStubber.crawler(getTempDir());
+        Consumer<MVStoreDataStoreEngineConfig> cfg = c -> c
+                .setDurability(Durability.CHECKPOINT)
+                .setCheckpointInterval(Duration.ofHours(1));
+        saveAndCrash(crawler, cfg, 25);
+        // everything since last checkpoint is lost
+        assertThat(countAfterRestart(crawler, cfg)).isZero();
+    }
+
+    @Test
+    void testGroupCommitClose() {
+        var crawler = CoreStubber.crawler(getTempDir());
+        Consumer<MVStoreDataStoreEngineConfig> cfg = c -> c
+                .setDurability(Durability.GROUP)
+                .setGroupCommitSize(10)
+                .setGroupCommitInterval(Duration.ofHours(1));
+        var engine = createEngine(crawler, cfg);
+        var store = engine.<String>openStore("durability", String.class);
+        for (var i = 0; i < 25; i++) {
+            store.save("ref" + i, "value" + i);
+        }
+        engine.close();
+        // a normal shutdown persists everything
+        assertThat(countAfterRestart(crawler, cfg)).isEqualTo(25);
+    }
+
+    private void saveAndCrash(Crawler crawler,
+            Consumer<MVStoreDataStoreEngineConfig> cfg, int qty) {
+        var engine = createEngine(crawler, cfg);
+        var store = (MVStoreDataStore<String>)
+                engine.<String>openStore("durability", String.class);
+        for (var i = 0; i < qty; i++) {
+            store.save("ref" + i, "value" + i);
+        }
+        // closes without writing pending changes, as a crash would
+        store.getMVMap().store.closeImmediately();
+        engine.close();
+    }
+
+    private long countAfterRestart(Crawler crawler,
+            Consumer<MVStoreDataStoreEngineConfig> cfg) {
+        var engine = createEngine(crawler, cfg);
+        try {
+            return engine.openStore("durability", String.class).count();
+        } finally {
+            engine.close();
+        }
+    }
+
+    private MVStoreDataStoreEngine createEngine(Crawler crawler,
+            Consumer<MVStoreDataStoreEngineConfig> cfg) {
+        var engine = new MVStoreDataStoreEngine();
+        cfg.accept(engine.getConfiguration());
+        engine.init(crawler);
+        return engine;
+    }
 }
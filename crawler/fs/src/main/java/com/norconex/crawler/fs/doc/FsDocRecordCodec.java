@@ -0,0 +1,51 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.fs.doc;
+
+import com.norconex.crawler.core.store.codec.BinaryRecordInput;
+import com.norconex.crawler.core.store.codec.BinaryRecordOutput;
+import com.norconex.crawler.core.store.codec.CrawlDocRecordCodec;
+import com.norconex.crawler.core.store.codec.RecordCodecException;
+
+/**
+ * Binary codec for {@link FsDocRecord}.
+ * @since 4.0.0
+ */
+public class FsDocRecordCodec extends CrawlDocRecordCodec<FsDocRecord> {
+
+    private static final int VERSION = 1;
+
+    public FsDocRecordCodec() {
+        super(FsDocRecord::new);
+    }
+
+    @Override
+    protected void writeExtra(FsDocRecord rec, BinaryRecordOutput out) {
+        out.writeByte(VERSION);
+        out.writeBoolean(rec.isFile());
+        out.writeBoolean(rec.isFolder());
+    }
+
+    @Override
+    protected void readExtra(FsDocRecord rec, BinaryRecordInput in) {
+        var version = in.readByte();
+        if (version > VERSION) {
+            throw new RecordCodecException("Unsupported file system doc "
+                    + "record binary version: " + version);
+        }
+        rec.setFile(in.readBoolean());
+        rec.setFolder(in.readBoolean());
+    }
+}
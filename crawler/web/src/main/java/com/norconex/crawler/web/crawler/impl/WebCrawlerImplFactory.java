@@ -1,4 +1,4 @@
-/* Copyright 2023 Norconex Inc.
+/* Copyright 2023-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ import java.util.List;
 import com.norconex.crawler.core.crawler.CoreQueueInitializer;
 import com.norconex.crawler.core.crawler.CrawlerImpl;
 import com.norconex.crawler.web.crawler.WebCrawlerContext;
+import com.norconex.crawler.web.delay.impl.SiteCrawlDocRecordScheduler;
 import com.norconex.crawler.web.doc.WebDocRecord;
 import com.norconex.crawler.web.fetch.HttpFetcherProvider;
 import com.norconex.crawler.web.pipeline.committer.WebCommitterPipeline;
@@ -46,6 +47,7 @@ public class WebCrawlerImplFactory {
                 .committerPipeline(new WebCommitterPipeline())
                 .beforeDocumentProcessing(new WebCrawlDocInitializer())
                 .beforeDocumentFinalizing(new BeforeWebCrawlDocFinalizing())
+                .docRecordScheduler(SiteCrawlDocRecordScheduler::new)
 
                 // Needed??
                 .crawlDocRecordType(WebDocRecord.class)
@@ -1,4 +1,4 @@
-/* Copyright 2010-2023 Norconex Inc.
+/* Copyright 2010-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -14,6 +14,8 @@
  */
 package com.norconex.crawler.web.delay;
 
+import java.time.Duration;
+
 import com.norconex.crawler.web.robot.RobotsTxt;
 
 /**
@@ -32,4 +34,19 @@ public interface DelayResolver {
      * @param url the URL being crawled
      */
     void delay(RobotsTxt robotsTxt, String url);
+
+    /**
+     * Gets the minimum time to observe between two downloads from the
+     * same site as the given URL, without waiting. Used to give priority to
+     * URLs from sites that can be downloaded from right away.
+     * Implementations not delaying downloads per site should return
+     * {@link Duration#ZERO} (default).
+     * @param robotsTxt robots.txt instance (if applicable)
+     * @param url the URL about to be crawled
+     * @return site delay (never <code>null</code>)
+     * @since 4.0.0
+     */
+    default Duration getSiteDelay(RobotsTxt robotsTxt, String url) {
+        return Duration.ZERO;
+    }
 }
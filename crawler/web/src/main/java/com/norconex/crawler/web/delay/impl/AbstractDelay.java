@@ -1,4 +1,4 @@
-/* Copyright 2010-2023 Norconex Inc.
+/* Copyright 2010-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -30,7 +30,6 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public abstract class AbstractDelay {
 
-    protected static final int TINY_SLEEP_MS = 10;
     private static final float THOUSAND_MILLIS = 1000f;
 
     public abstract void delay(long expectedDelayNanos, String url);
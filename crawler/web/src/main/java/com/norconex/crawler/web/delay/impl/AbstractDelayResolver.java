@@ -1,4 +1,4 @@
-/* Copyright 2016-2023 Norconex Inc.
+/* Copyright 2016-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -56,7 +56,9 @@ import lombok.extern.slf4j.Slf4j;
  *   <li><b>site</b>: the delay is applied between each URL download
  *       from the same site within a crawler instance, regardless how many
  *       threads are defined. A site is defined by a URL protocol and its
- *       domain (e.g. http://example.com).</li>
+ *       domain (e.g. http://example.com). Threads are given URLs from
+ *       sites that are ready to be crawled first, so they are not kept
+ *       waiting while other sites could be crawled.</li>
  *   <li><b>thread</b>: the delay is applied between each URL download from
  *       any given thread.  The more threads you have the less of an
  *       impact the delay will have.</li>
@@ -110,6 +112,15 @@ public abstract class AbstractDelayResolver<T extends BaseDelayResolverConfig>
         delay.delay(expectedDelayNanos, url);
     }
 
+    @Override
+    public Duration getSiteDelay(RobotsTxt robotsTxt, String url) {
+        if (getConfiguration().getScope() != DelayResolverScope.SITE) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(
+                Math.max(0, getExpectedDelayNanos(robotsTxt, url)));
+    }
+
     private long getExpectedDelayNanos(
             RobotsTxt robotsTxt, String url) {
         var delayNanos = Optional
@@ -1,4 +1,4 @@
-/* Copyright 2010-2023 Norconex Inc.
+/* Copyright 2010-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -14,35 +14,29 @@
  */
 package com.norconex.crawler.web.delay.impl;
 
-import org.apache.commons.lang3.mutable.MutableLong;
-
-import com.norconex.commons.lang.Sleeper;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * It is assumed there will be one instance of this class per crawler defined.
  */
 public class CrawlerDelay extends AbstractDelay {
 
-    private MutableLong lastHitEpochNanos = new MutableLong(-1);
-    private boolean sleeping = false;
+    // Explicit lock (as opposed to "synchronized") so waiting virtual
+    // threads do not pin their carrier thread.
+    private final ReentrantLock lock = new ReentrantLock();
+    private long lastHitEpochNanos = -1;
 
     @Override
     public void delay(long expectedDelayNanos, String url) {
         if (expectedDelayNanos <= 0) {
             return;
         }
+        lock.lock();
         try {
-            synchronized (lastHitEpochNanos) {
-                while (sleeping) {
-                    Sleeper.sleepNanos(Math.min(
-                            TINY_SLEEP_MS, expectedDelayNanos));
-                }
-                sleeping = true;
-            }
-            delay(expectedDelayNanos, lastHitEpochNanos.longValue());
-            lastHitEpochNanos.setValue(System.nanoTime());
+            delay(expectedDelayNanos, lastHitEpochNanos);
+            lastHitEpochNanos = System.nanoTime();
         } finally {
-            sleeping = false;
+            lock.unlock();
         }
     }
 }
@@ -0,0 +1,222 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.web.delay.impl;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.norconex.commons.lang.url.HttpURL;
+import com.norconex.crawler.core.crawler.Crawler;
+import com.norconex.crawler.core.doc.CrawlDocRecord;
+import com.norconex.crawler.core.doc.CrawlDocRecordScheduler;
+import com.norconex.crawler.web.util.Web;
+
+import lombok.NonNull;
+
+/**
+ * <p>
+ * Schedules URLs claimed from the crawl queue by site, so crawler threads
+ * always get a URL that can be downloaded right away instead of waiting
+ * for a site politeness delay while URLs from other sites are waiting.
+ * A site is defined by a URL protocol and its domain
+ * (e.g. http://example.com).
+ * </p>
+ * <p>
+ * Each site has its own ready queue. A site URL is only handed out once
+ * the site delay (as returned by
+ * {@link com.norconex.crawler.web.delay.DelayResolver#getSiteDelay(
+ * com.norconex.crawler.web.robot.RobotsTxt, String)}) has elapsed since
+ * its previous URL was handed out. When the delay resolver scope is not
+ * "site", there is no site delay and URLs are handed out in a
+ * round-robin fashion between sites.
+ * </p>
+ * <p>
+ * This does not replace the delay resolver, which still enforces the
+ * configured delay when URLs are processed.
+ * </p>
+ * @since 4.0.0
+ */
+public class SiteCrawlDocRecordScheduler implements CrawlDocRecordScheduler {
+
+    /** Minimum number of URLs that can be scheduled at once. */
+    public static final int MIN_CAPACITY = 100;
+    // Number of URLs that can be scheduled per crawler thread
+    private static final int CAPACITY_PER_THREAD = 10;
+    // Number of sites tracked before idle ones are discarded
+    private static final int SITES_PRUNE_THRESHOLD = 10_000;
+
+    private final int capacity;
+    private final Function<String, Duration> siteDelayResolver;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Site> sites = new HashMap<>();
+    // sites with scheduled URLs, next ready site first
+    private final Queue<Site> readySites = new PriorityQueue<>(
+            Comparator.comparingLong(s -> s.nextHitNanos));
+    private int size;
+
+    public SiteCrawlDocRecordScheduler(@NonNull Crawler crawler) {
+        this(Math.max(MIN_CAPACITY,
+                crawler.getNumWorkerThreads() * CAPACITY_PER_THREAD),
+                url -> Optional.ofNullable(
+                        Web.config(crawler).getDelayResolver())
+                    .map(dr -> dr.getSiteDelay(
+                            Web.robotsTxt(crawler, url), url))
+                    .orElse(Duration.ZERO));
+    }
+
+    /**
+     * Creates a site scheduler.
+     * @param capacity maximum number of URLs scheduled at once
+     * @param siteDelayResolver function returning the site delay
+     *     for a given URL
+     */
+    public SiteCrawlDocRecordScheduler(
+            int capacity,
+            @NonNull Function<String, Duration> siteDelayResolver) {
+        this.capacity = capacity;
+        this.siteDelayResolver = siteDelayResolver;
+    }
+
+    @Override
+    public void schedule(CrawlDocRecord docRecord) {
+        var key = StringUtils.lowerCase(
+                HttpURL.getRoot(docRecord.getReference()));
+        lock.lock();
+        try {
+            if (sites.size() > SITES_PRUNE_THRESHOLD) {
+                pruneIdleSites();
+            }
+            var site = sites.computeIfAbsent(key, k -> new Site());
+            site.docRecords.add(docRecord);
+            if (site.docRecords.size() == 1 && !site.releasing) {
+                readySites.add(site);
+            }
+            size++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<CrawlDocRecord> next() {
+        Site site;
+        CrawlDocRecord docRecord;
+        lock.lock();
+        try {
+            site = readySites.peek();
+            if (site == null || site.nextHitNanos - System.nanoTime() > 0) {
+                return Optional.empty();
+            }
+            readySites.poll();
+            docRecord = site.docRecords.poll();
+            site.releasing = true;
+            size--;
+        } finally {
+            lock.unlock();
+        }
+
+        // Resolving the delay may require fetching robots.txt, so it is
+        // done outside the lock. The site is not ready again until then.
+        var hitNanos = System.nanoTime();
+        var delayNanos = 0L;
+        try {
+            delayNanos = siteDelayResolver.apply(
+                    docRecord.getReference()).toNanos();
+        } finally {
+            lock.lock();
+            try {
+                site.releasing = false;
+                site.nextHitNanos = hitNanos + Math.max(0, delayNanos);
+                if (!site.docRecords.isEmpty()) {
+                    readySites.add(site);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return Optional.of(docRecord);
+    }
+
+    @Override
+    public Duration getNextReadyDelay() {
+        lock.lock();
+        try {
+            var site = readySites.peek();
+            if (site == null) {
+                return null;
+            }
+            return Duration.ofNanos(
+                    Math.max(0, site.nextHitNanos - System.nanoTime()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isFull() {
+        lock.lock();
+        try {
+            return size >= capacity;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            sites.values().forEach(s -> s.docRecords.clear());
+            sites.clear();
+            readySites.clear();
+            size = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void pruneIdleSites() {
+        var now = System.nanoTime();
+        sites.values().removeIf(s -> s.docRecords.isEmpty()
+                && !s.releasing && s.nextHitNanos - now <= 0);
+    }
+
+    private static class Site {
+        private final Queue<CrawlDocRecord> docRecords = new ArrayDeque<>();
+        private long nextHitNanos = System.nanoTime();
+        private boolean releasing;
+    }
+}
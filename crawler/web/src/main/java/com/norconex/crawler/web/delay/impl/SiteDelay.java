@@ -1,4 +1,4 @@
-/* Copyright 2010-2023 Norconex Inc.
+/* Copyright 2010-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,10 +16,10 @@ package com.norconex.crawler.web.delay.impl;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.lang3.StringUtils;
 
-import com.norconex.commons.lang.Sleeper;
 import com.norconex.commons.lang.url.HttpURL;
 
 import lombok.EqualsAndHashCode;
@@ -39,30 +39,26 @@ public class SiteDelay extends AbstractDelay {
         }
 
         var site = StringUtils.lowerCase(HttpURL.getRoot(url));
-        SleepState sleepState = null;
+        var sleepState = siteLastHitNanos.computeIfAbsent(
+                site, k -> new SleepState());
+        // Only threads hitting the same site wait on each other. Using an
+        // explicit lock (as opposed to "synchronized") also ensures
+        // waiting virtual threads do not pin their carrier thread.
+        sleepState.lock.lock();
         try {
-            synchronized (siteLastHitNanos) {
-                sleepState = siteLastHitNanos.computeIfAbsent(
-                        site, k -> new SleepState());
-                while (sleepState.sleeping) {
-                    Sleeper.sleepNanos(Math.min(
-                            TINY_SLEEP_MS, expectedDelayNanos));
-                }
-                sleepState.sleeping = true;
-            }
             delay(expectedDelayNanos, sleepState.lastHitEpochNanos);
             sleepState.lastHitEpochNanos = System.nanoTime();
         } finally {
-            if (sleepState != null) {
-                sleepState.sleeping = false;
-            }
+            sleepState.lock.unlock();
         }
     }
 
     @EqualsAndHashCode
     @ToString
     private static class SleepState {
+        @EqualsAndHashCode.Exclude
+        @ToString.Exclude
+        private final ReentrantLock lock = new ReentrantLock();
         private long lastHitEpochNanos = System.nanoTime();
-        private boolean sleeping;
     }
 }
@@ -0,0 +1,70 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.web.doc;
+
+import com.norconex.crawler.core.store.codec.BinaryRecordInput;
+import com.norconex.crawler.core.store.codec.BinaryRecordOutput;
+import com.norconex.crawler.core.store.codec.CrawlDocRecordCodec;
+import com.norconex.crawler.core.store.codec.RecordCodecException;
+
+/**
+ * Binary codec for {@link WebDocRecord}.
+ * @since 4.0.0
+ */
+public class WebDocRecordCodec extends CrawlDocRecordCodec<WebDocRecord> {
+
+    private static final int VERSION = 1;
+
+    public WebDocRecordCodec() {
+        super(WebDocRecord::new);
+    }
+
+    @Override
+    protected void writeExtra(WebDocRecord rec, BinaryRecordOutput out) {
+        out.writeByte(VERSION);
+        out.writeBoolean(rec.isFromSitemap());
+        out.writeDateTime(rec.getSitemapLastMod());
+        out.writeString(rec.getSitemapChangeFreq());
+        out.writeBoolean(rec.getSitemapPriority() != null);
+        if (rec.getSitemapPriority() != null) {
+            out.writeFloat(rec.getSitemapPriority());
+        }
+        out.writeString(rec.getReferrerReference());
+        out.writeString(rec.getReferrerLinkMetadata());
+        out.writeString(rec.getEtag());
+        out.writeStrings(rec.getReferencedUrls());
+        out.writeStrings(rec.getRedirectTrail());
+    }
+
+    @Override
+    protected void readExtra(WebDocRecord rec, BinaryRecordInput in) {
+        var version = in.readByte();
+        if (version > VERSION) {
+            throw new RecordCodecException("Unsupported web doc record "
+                    + "binary version: " + version);
+        }
+        rec.setFromSitemap(in.readBoolean());
+        rec.setSitemapLastMod(in.readDateTime());
+        rec.setSitemapChangeFreq(in.readString());
+        if (in.readBoolean()) {
+            rec.setSitemapPriority(in.readFloat());
+        }
+        rec.setReferrerReference(in.readString());
+        rec.setReferrerLinkMetadata(in.readString());
+        rec.setEtag(in.readString());
+        rec.setReferencedUrls(in.readStrings());
+        rec.setRedirectTrail(in.readStrings());
+    }
+}
@@ -1,4 +1,4 @@
-/* Copyright 2021-2023 Norconex Inc.
+/* Copyright 2021-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,9 @@ import static org.apache.commons.lang3.StringUtils.startsWithIgnoreCase;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Stream;
 
 import org.apache.commons.lang3.StringUtils;
@@ -55,11 +58,18 @@ public final class HstsResolver {
     private enum HstsSupport { NO, DOMAIN_ONLY, INCLUDE_SUBDOMAINS }
 
     private static final Map<String, HstsSupport> DOMAIN_HSTS =
-            new HashMap<>();
+            new ConcurrentHashMap<>();
+    // HSTS support being fetched, by domain
+    private static final Map<String, CompletableFuture<HstsSupport>>
+            PENDING_HSTS = new HashMap<>();
+    // Guards map updates only, never held while fetching. Explicit lock
+    // (as opposed to "synchronized") so virtual threads do not pin their
+    // carrier thread.
+    private static final ReentrantLock RESOLVE_LOCK = new ReentrantLock();
 
     private HstsResolver() { }
 
-    public static synchronized void clearCache() {
+    public static void clearCache() {
         DOMAIN_HSTS.clear();
     }
 
@@ -101,7 +111,7 @@ public final class HstsResolver {
         }
     }
 
-    private static synchronized void applyHstsSupport(
+    private static void applyHstsSupport(
             WebDocRecord docRecord, String domain, boolean isSubdomain) {
         var support = DOMAIN_HSTS.getOrDefault(domain, HstsSupport.NO);
         if (support == HstsSupport.INCLUDE_SUBDOMAINS
@@ -117,7 +127,45 @@ public final class HstsResolver {
         }
     }
 
-    private static synchronized void resolveHstsSupport(
+    private static void resolveHstsSupport(
+            HttpClient httpClient, String domain) {
+        if (DOMAIN_HSTS.containsKey(domain)) {
+            return;
+        }
+        CompletableFuture<HstsSupport> pending;
+        var fetch = new CompletableFuture<HstsSupport>();
+        RESOLVE_LOCK.lock();
+        try {
+            if (DOMAIN_HSTS.containsKey(domain)) {
+                return;
+            }
+            pending = PENDING_HSTS.putIfAbsent(domain, fetch);
+        } finally {
+            RESOLVE_LOCK.unlock();
+        }
+
+        // Already being fetched by another thread: wait for it.
+        if (pending != null) {
+            pending.join();
+            return;
+        }
+
+        var support = HstsSupport.NO;
+        try {
+            support = fetchHstsSupport(httpClient, domain);
+        } finally {
+            RESOLVE_LOCK.lock();
+            try {
+                DOMAIN_HSTS.put(domain, support);
+                PENDING_HSTS.remove(domain);
+            } finally {
+                RESOLVE_LOCK.unlock();
+            }
+            fetch.complete(support);
+        }
+    }
+
+    private static HstsSupport fetchHstsSupport(
             HttpClient httpClient, String domain) {
 
         var exceptionMsg = """
@@ -127,35 +175,33 @@ public final class HstsResolver {
             all URLs on that domain
             """.formatted(domain);
 
-        DOMAIN_HSTS.computeIfAbsent(domain, d -> {
-            var req = new HttpHead("https://" + d);
-            try {
-                // case-insensitive look-up
-                var header = httpClient.execute(req, response ->
-                    Stream.of(response.getHeaders())
-                        .filter(h -> HSTS_HEADER.equalsIgnoreCase(h.getName()))
-                        .findAny()
-                        .orElse(null));
-                if (header == null) {
-                    LOG.info("No Strict-Transport-Security (HSTS) support "
-                            + "detected for domain \"{}\".", domain);
-                    return HstsSupport.NO;
-                }
-                if (header.getValue().matches(
-                        "(?i).*\\bincludeSubDomains\\b.*")) {
-                    LOG.info("Strict-Transport-Security (HSTS) support "
-                            + "detected for domain \"{}\" and its sub-domains.",
-                            domain);
-                    return HstsSupport.INCLUDE_SUBDOMAINS;
-                }
+        var req = new HttpHead("https://" + domain);
+        try {
+            // case-insensitive look-up
+            var header = httpClient.execute(req, response ->
+                Stream.of(response.getHeaders())
+                    .filter(h -> HSTS_HEADER.equalsIgnoreCase(h.getName()))
+                    .findAny()
+                    .orElse(null));
+            if (header == null) {
+                LOG.info("No Strict-Transport-Security (HSTS) support "
+                        + "detected for domain \"{}\".", domain);
+                return HstsSupport.NO;
+            }
+            if (header.getValue().matches(
+                    "(?i).*\\bincludeSubDomains\\b.*")) {
                 LOG.info("Strict-Transport-Security (HSTS) support "
-                        + "detected for domain \"{}\" (sub-domains excluded).",
+                        + "detected for domain \"{}\" and its sub-domains.",
                         domain);
-                return HstsSupport.DOMAIN_ONLY;
-            } catch (IOException e) {
-                LOG.warn(exceptionMsg, e);
-                return HstsSupport.NO;
+                return HstsSupport.INCLUDE_SUBDOMAINS;
             }
-        });
+            LOG.info("Strict-Transport-Security (HSTS) support "
+                    + "detected for domain \"{}\" (sub-domains excluded).",
+                    domain);
+            return HstsSupport.DOMAIN_ONLY;
+        } catch (IOException e) {
+            LOG.warn(exceptionMsg, e);
+            return HstsSupport.NO;
+        }
     }
 }
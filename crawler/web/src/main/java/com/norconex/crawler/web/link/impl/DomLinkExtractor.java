@@ -1,4 +1,4 @@
-/* Copyright 2020-2023 Norconex Inc.
+/* Copyright 2020-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,12 +18,14 @@ import static org.apache.commons.lang3.StringUtils.join;
 import static org.apache.commons.lang3.StringUtils.trimToNull;
 
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 import java.util.HashSet;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.regex.Pattern;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.jsoup.nodes.Attribute;
 import org.jsoup.nodes.Document;
@@ -224,13 +226,18 @@ public class DomLinkExtractor
                 .matchKeys(configuration.getFieldMatcher())
                 .valueList()
                     .forEach(val -> extractFromJsoupDocument(
-                            links, parser.parseInput(val, doc.getReference())));
+                            links, doc.getDomCache().get(
+                                    val, doc.getReference(), parser)));
         } else {
-            // Body
-            try (var in = new InputStreamReader(doc.getInputStream())) {
-                var jdoc = parser.parseInput(in, doc.getReference());
-                extractFromJsoupDocument(links, jdoc);
-            }
+            // Body, decoded like other DOM-aware components so they
+            // share the same cached DOM.
+            var charset = ObjectUtils.firstNonNull(
+                    configuration.getCharset(),
+                    doc.getDocRecord().getCharset(),
+                    Charset.defaultCharset());
+            var body = IOUtils.toString(doc.getInputStream(), charset);
+            extractFromJsoupDocument(links, doc.getDomCache().get(
+                    body, doc.getReference(), parser));
         }
         return links;
     }
@@ -314,10 +321,15 @@ public class DomLinkExtractor
     }
 
     private Document excludeUnwantedContent(Document doc) {
-        var newDoc = doc;
-
         // we join multiple selectors into one so matches are read in order.
         var extractSelector = join(configuration.getExtractSelectors(), ", ");
+        if (StringUtils.isBlank(extractSelector)
+                && configuration.getNoExtractSelectors().isEmpty()) {
+            return doc;
+        }
+
+        // The DOM is shared with other components, so we modify a copy.
+        var newDoc = doc.clone();
         if (StringUtils.isNotBlank(extractSelector)) {
             var copyDoc = new Document(newDoc.baseUri());
             for (Element el : newDoc.select(extractSelector)) {
@@ -1,4 +1,4 @@
-/* Copyright 2014-2023 Norconex Inc.
+/* Copyright 2014-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -26,7 +26,6 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.BiPredicate;
-import java.util.regex.MatchResult;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
@@ -47,6 +46,7 @@ import com.norconex.crawler.web.doc.WebDocMetadata;
 import com.norconex.crawler.web.link.Link;
 import com.norconex.crawler.web.link.LinkExtractor;
 import com.norconex.crawler.web.link.impl.HtmlLinkExtractorConfig.RegexPair;
+import com.norconex.crawler.web.link.impl.HtmlTagScanner.ScannedTag;
 import com.norconex.crawler.web.url.WebUrlNormalizer;
 import com.norconex.crawler.web.url.impl.GenericUrlNormalizer;
 import com.norconex.crawler.web.util.Web;
@@ -61,7 +61,7 @@ import lombok.extern.slf4j.Slf4j;
  * A memory efficient HTML link extractor.
  * </p>
  * <p>
- * This link extractor uses regular expressions to extract links. It does
+ * This link extractor scans mark-up tags to extract links. It does
  * so on a chunk of text at a time, so that large files are not fully loaded
  * into memory. If you prefer a more flexible implementation that loads the
  * DOM model in memory to perform link extraction, consider using
@@ -279,6 +279,8 @@ public class HtmlLinkExtractor
     private static final int LOGGING_MAX_URL_LENGTH = 200;
 
     private static final String CONTENT = "content";
+    private static final Pattern SCHEME_PATTERN =
+            Pattern.compile("(?i)^[a-z][a-z0-9\\+\\.\\-]*:.*$");
 
     //--- Properties -----------------------------------------------------------
 
@@ -405,12 +407,9 @@ public class HtmlLinkExtractor
             final boolean firstChunk) {
         var ref = refererUrl;
         if (firstChunk) {
-            // make content easier to match by normalizing white spaces
-            var cntnt = content.replace(" =", "=").replace("= ", "=");
-            var matcher = Pattern.compile("(?is)<base\\b([^<>]+)>")
-                    .matcher(cntnt);
-            if (matcher.find()) {
-                var attribs = Web.parseDomAttributes(matcher.group(1), true);
+            var baseAttribs = HtmlTagScanner.baseAttributes(content);
+            if (baseAttribs != null) {
+                var attribs = Web.parseDomAttributes(baseAttribs, true);
                 var baseUrl = attribs.getString("href");
                 if (StringUtils.isNotBlank(baseUrl)) {
                     ref = toCleanAbsoluteURL(refererUrl, baseUrl);
@@ -429,12 +428,11 @@ public class HtmlLinkExtractor
 
         // Get rid of <script> tags content to eliminate possibly
         // generated URLs.
-        content = content.replaceAll(
-                "(?is)(<script\\b[^>]*>)(.*?)(</script>)", "$1$3");
+        content = HtmlTagScanner.stripScriptBodies(content);
 
         // Possibly get rid of comments
         if (!configuration.isCommentsEnabled()) {
-            content = content.replaceAll("(?is)<!--.*?-->", "");
+            content = HtmlTagScanner.stripComments(content);
         }
 
         Set<String> lcTagNames = new HashSet<>(configuration.getTagAttribs()
@@ -443,45 +441,27 @@ public class HtmlLinkExtractor
                 .map(String::toLowerCase)
                 .toList());
 
-        var tagNameMatcher = Pattern.compile("<([\\w-]+)").matcher(content);
-        while (tagNameMatcher.find()) {
-            var tag = parseTagMatch(content, tagNameMatcher.toMatchResult());
+        // Only tags we are interested in get their attributes and body parsed
+        HtmlTagScanner.scan(content, lcTagNames, scannedTag -> {
+            var tag = toTag(scannedTag);
             tag.referrer = referrerUrl;
-            if (!lcTagNames.contains(tag.name)) {
-                continue;
-            }
             tagLinksExtractor.test(tag, links);
-        }
+        });
     }
 
-    private Tag parseTagMatch(String content, MatchResult tagNameMatch) {
+    private Tag toTag(ScannedTag scannedTag) {
         var tag = new Tag();
 
-        tag.name = tagNameMatch.group(1).toLowerCase();
-        String attribsStr = null;
-
-        var attribsMatcher = Pattern
-                .compile("^(.*?)(/)?>")
-                .matcher(content)
-                .region(tagNameMatch.end(), content.length());
-        if (attribsMatcher.find()) {
-            attribsStr = attribsMatcher.group(1);
-            if (attribsMatcher.group(2) == null) { // not self-closed
-                var m = Pattern
-                        .compile("(?i)^(.*?)</" + tag.name + ">")
-                        .matcher(content)
-                        .region(attribsMatcher.end(), content.length());
-                if (m.find()) {
-                    var markup = m.group(1);
-                    tag.bodyText = markup.replaceAll("<[^<>]+>", "");
-                    if (!tag.bodyText.equals(markup)) {
-                        tag.bodyMarkup = markup;
-                    }
-                }
+        tag.name = scannedTag.name();
+        var markup = scannedTag.body();
+        if (markup != null) {
+            tag.bodyText = HtmlTagScanner.stripTags(markup);
+            if (!tag.bodyText.equals(markup)) {
+                tag.bodyMarkup = markup;
             }
         }
 
-        tag.attribs.putAll(Web.parseDomAttributes(attribsStr));
+        tag.attribs.putAll(Web.parseDomAttributes(scannedTag.attributes()));
 
         tag.configAttribNames.addAll(configuration.getTagAttribs()
                 .getStrings(tag.name)
@@ -495,12 +475,7 @@ public class HtmlLinkExtractor
     private String normalizeWhiteSpaces(String content) {
         //MAYBE can replacing all \s+ with " " in body even just for URL
         // extraction be ill-advised? Make sure we do it on tags only?
-        return content
-                .replaceAll("\\s+", " ")
-                .replace("< ", "<")
-                .replace(" >", ">")
-                .replace("</ ", "</")
-                .replace("/ >", "/>");
+        return HtmlTagScanner.normalizeWhiteSpaces(content);
     }
 
     private boolean addAsLink(
@@ -596,11 +571,11 @@ public class HtmlLinkExtractor
             flags = flags | Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
         }
         List<Pair<Integer, Integer>> matches = new ArrayList<>();
-        var leftPattern = Pattern.compile(pair.getStart(), flags);
-        var leftMatch = leftPattern.matcher(content);
+        var leftMatch = Pattern.compile(pair.getStart(), flags)
+                .matcher(content);
+        var rightMatch = Pattern.compile(pair.getEnd(), flags)
+                .matcher(content);
         while (leftMatch.find()) {
-            var rightPattern = Pattern.compile(pair.getEnd(), flags);
-            var rightMatch = rightPattern.matcher(content);
             if (!rightMatch.find(leftMatch.end())) {
                 break;
             }
@@ -673,7 +648,7 @@ public class HtmlLinkExtractor
         }
 
         // if scheme is specified, make sure it is valid
-        if (newURL.matches("(?i)^[a-z][a-z0-9\\+\\.\\-]*:.*$")) {
+        if (SCHEME_PATTERN.matcher(newURL).matches()) {
             var supportedSchemes = configuration.getSchemes();
             if (supportedSchemes.isEmpty()) {
                 supportedSchemes = HtmlLinkExtractorConfig.DEFAULT_SCHEMES;
@@ -0,0 +1,421 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.web.link.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Scans HTML text chunks for tags, their attributes, and body, without
+ * regular expressions. Used by {@link HtmlLinkExtractor}.
+ * </p>
+ * <p>
+ * Each operation (white space normalization, base href lookup, script
+ * and comment removal, tag scanning) is a separate linear pass, applied
+ * in the same order as the regular expressions they replace. They are not
+ * merged into one pass as the result of an operation can differ when
+ * applied to content another operation has not processed yet
+ * (e.g., a comment opened before a script tag but closed inside
+ * the script body). Operations having nothing to remove return the
+ * content as is, without copying it.
+ * </p>
+ * <p>
+ * Matching rules are the same as the regular expressions previously used
+ * by {@link HtmlLinkExtractor}:
+ * </p>
+ * <ul>
+ *   <li>Tag names are made of ASCII letters, digits, underscores,
+ *       and hyphens, and are matched case-insensitively.</li>
+ *   <li>Attributes end with the first "&gt;" (or "/&gt;" for self-closing
+ *       tags).</li>
+ *   <li>A tag body ends with the first matching closing tag.</li>
+ *   <li>Neither attributes nor a body can span line terminators
+ *       (which are normally already replaced with white spaces).</li>
+ * </ul>
+ */
+final class HtmlTagScanner {
+
+    private static final String SCRIPT_OPEN = "<script";
+    private static final String SCRIPT_CLOSE = "</script>";
+    private static final String COMMENT_OPEN = "<!--";
+    private static final String COMMENT_CLOSE = "-->";
+    private static final String BASE_OPEN = "<base";
+
+    private HtmlTagScanner() {}
+
+    /**
+     * A tag found by the scanner.
+     * @param name lower case tag name
+     * @param attributes raw attributes text, or <code>null</code> if the
+     *     tag is not terminated
+     * @param body raw tag body mark-up, or <code>null</code> if the tag
+     *     is self-closed or its closing tag could not be found
+     */
+    record ScannedTag(String name, String attributes, String body) {}
+
+    /**
+     * Collapses white spaces into single spaces and removes spaces
+     * right after "&lt;" or "&lt;/", and right before "&gt;".
+     * @param text the text to normalize
+     * @return normalized text
+     */
+    static String normalizeWhiteSpaces(String text) {
+        var len = text.length();
+        var b = new StringBuilder(len);
+        for (var i = 0; i < len; i++) {
+            var ch = text.charAt(i);
+            if (!isWhiteSpace(ch)) {
+                b.append(ch);
+                continue;
+            }
+            while (i + 1 < len && isWhiteSpace(text.charAt(i + 1))) {
+                i++;
+            }
+            if (!isSpaceDropped(b, i + 1 < len ? text.charAt(i + 1) : 0)) {
+                b.append(' ');
+            }
+        }
+        return b.toString();
+    }
+
+    /**
+     * Gets the attributes of the first "base" tag found, with white
+     * spaces around equal signs removed.
+     * @param content normalized content
+     * @return base tag attributes or <code>null</code> if no base tag
+     */
+    static String baseAttributes(String content) {
+        var len = content.length();
+        var from = 0;
+        int idx;
+        while ((idx = indexOfIgnoreCase(content, BASE_OPEN, from)) != -1) {
+            from = idx + 1;
+            var start = idx + BASE_OPEN.length();
+            if (start < len && isWordChar(content.charAt(start))) {
+                continue;
+            }
+            var end = start;
+            while (end < len && content.charAt(end) != '<'
+                    && content.charAt(end) != '>') {
+                end++;
+            }
+            if (end > start && end < len && content.charAt(end) == '>') {
+                return content.substring(start, end)
+                        .replace(" =", "=")
+                        .replace("= ", "=");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes the content of &lt;script&gt; tags, keeping the tags.
+     * @param content normalized content
+     * @return content without scripts
+     */
+    static String stripScriptBodies(String content) {
+        var len = content.length();
+        StringBuilder b = null;
+        var copied = 0;
+        var from = 0;
+        int idx;
+        while ((idx = indexOfIgnoreCase(content, SCRIPT_OPEN, from)) != -1) {
+            var afterName = idx + SCRIPT_OPEN.length();
+            if (afterName < len && isWordChar(content.charAt(afterName))) {
+                from = idx + 1;
+                continue;
+            }
+            var openEnd = content.indexOf('>', afterName);
+            if (openEnd == -1) {
+                break;
+            }
+            var closeIdx = indexOfIgnoreCase(
+                    content, SCRIPT_CLOSE, openEnd + 1);
+            if (closeIdx == -1) {
+                // no closing tag after this one means none after others
+                break;
+            }
+            if (b == null) {
+                b = new StringBuilder(len);
+            }
+            b.append(content, copied, openEnd + 1);
+            copied = closeIdx;
+            from = closeIdx + SCRIPT_CLOSE.length();
+        }
+        if (b == null) {
+            return content;
+        }
+        return b.append(content, copied, len).toString();
+    }
+
+    /**
+     * Removes &lt;!-- comments --&gt;.
+     * @param content normalized content
+     * @return content without comments
+     */
+    static String stripComments(String content) {
+        StringBuilder b = null;
+        var copied = 0;
+        int idx;
+        while ((idx = content.indexOf(COMMENT_OPEN, copied)) != -1) {
+            var closeIdx = content.indexOf(
+                    COMMENT_CLOSE, idx + COMMENT_OPEN.length());
+            if (closeIdx == -1) {
+                break;
+            }
+            if (b == null) {
+                b = new StringBuilder(content.length());
+            }
+            b.append(content, copied, idx);
+            copied = closeIdx + COMMENT_CLOSE.length();
+        }
+        if (b == null) {
+            return content;
+        }
+        return b.append(content, copied, content.length()).toString();
+    }
+
+    /**
+     * Removes all mark-up tags from the given text.
+     * @param markup text with mark-up
+     * @return text without mark-up
+     */
+    static String stripTags(String markup) {
+        var len = markup.length();
+        StringBuilder b = null;
+        var copied = 0;
+        var i = 0;
+        while ((i = markup.indexOf('<', i)) != -1) {
+            var end = i + 1;
+            while (end < len && markup.charAt(end) != '<'
+                    && markup.charAt(end) != '>') {
+                end++;
+            }
+            if (end > i + 1 && end < len && markup.charAt(end) == '>') {
+                if (b == null) {
+                    b = new StringBuilder(len);
+                }
+                b.append(markup, copied, i);
+                copied = end + 1;
+                i = end + 1;
+            } else {
+                i++;
+            }
+        }
+        if (b == null) {
+            return markup;
+        }
+        return b.append(markup, copied, len).toString();
+    }
+
+    /**
+     * Scans the content for tags having one of the supplied names.
+     * Tags nested in other tags (including in attribute values) are
+     * also reported.
+     * @param content normalized content
+     * @param tagNames lower case names of tags to report
+     * @param consumer receives matching tags, in document order
+     */
+    static void scan(
+            String content, Set<String> tagNames,
+            Consumer<ScannedTag> consumer) {
+        if (tagNames.isEmpty()) {
+            return;
+        }
+        new Scan(content).run(tagNames, consumer);
+    }
+
+    //--- Private methods ------------------------------------------------------
+
+    private static final class Scan {
+        private final String content;
+        private final int len;
+        // tag name -> {searched from, found at} for closing tags
+        private final Map<String, int[]> closings = new HashMap<>();
+        // {searched from, found at} for line terminators
+        private final int[] terminator = { Integer.MAX_VALUE, -1 };
+
+        private Scan(String content) {
+            this.content = content;
+            len = content.length();
+        }
+
+        private void run(Set<String> tagNames, Consumer<ScannedTag> consumer) {
+            var i = 0;
+            while ((i = content.indexOf('<', i)) != -1) {
+                var nameStart = i + 1;
+                var nameEnd = nameStart;
+                while (nameEnd < len
+                        && isTagNameChar(content.charAt(nameEnd))) {
+                    nameEnd++;
+                }
+                if (nameEnd == nameStart) {
+                    i++;
+                    continue;
+                }
+                var name = content.substring(nameStart, nameEnd).toLowerCase();
+                if (tagNames.contains(name)) {
+                    consumer.accept(scanTag(name, nameEnd));
+                }
+                // like a regex "find", resume right after the tag name
+                i = nameEnd;
+            }
+        }
+
+        private ScannedTag scanTag(String name, int attribsStart) {
+            for (var i = attribsStart; i < len; i++) {
+                var ch = content.charAt(i);
+                if (ch == '/' && i + 1 < len && content.charAt(i + 1) == '>') {
+                    return new ScannedTag(
+                            name, content.substring(attribsStart, i), null);
+                }
+                if (ch == '>') {
+                    return new ScannedTag(
+                            name,
+                            content.substring(attribsStart, i),
+                            body(name, i + 1));
+                }
+                if (isLineTerminator(ch)) {
+                    break;
+                }
+            }
+            return new ScannedTag(name, null, null);
+        }
+
+        private String body(String name, int bodyStart) {
+            var closeIdx = closingTagIndex(name, bodyStart);
+            if (closeIdx == -1) {
+                return null;
+            }
+            var termIdx = lineTerminatorIndex(bodyStart);
+            if (termIdx != -1 && termIdx < closeIdx) {
+                return null;
+            }
+            return content.substring(bodyStart, closeIdx);
+        }
+
+        // Positions only move forward so we remember the last search
+        // to avoid scanning the same content again for each tag
+        // (e.g., when tags such as "img" are never closed).
+        private int closingTagIndex(String name, int from) {
+            var cached = closings.get(name);
+            if (cached != null && cached[0] <= from
+                    && (cached[1] == -1 || cached[1] >= from)) {
+                return cached[1];
+            }
+            var found = findClosingTag(name, from);
+            closings.put(name, new int[] { from, found });
+            return found;
+        }
+
+        private int findClosingTag(String name, int from) {
+            var nameLen = name.length();
+            var i = from;
+            while ((i = content.indexOf("</", i)) != -1) {
+                var end = i + 2 + nameLen;
+                if (end < len && content.charAt(end) == '>'
+                        && regionMatchesIgnoreCase(content, i + 2, name)) {
+                    return i;
+                }
+                i++;
+            }
+            return -1;
+        }
+
+        private int lineTerminatorIndex(int from) {
+            if (terminator[0] <= from
+                    && (terminator[1] == -1 || terminator[1] >= from)) {
+                return terminator[1];
+            }
+            var found = -1;
+            for (var i = from; i < len; i++) {
+                if (isLineTerminator(content.charAt(i))) {
+                    found = i;
+                    break;
+                }
+            }
+            terminator[0] = from;
+            terminator[1] = found;
+            return found;
+        }
+    }
+
+    // Same as what "\s" matches in a regular expression.
+    private static boolean isWhiteSpace(char ch) {
+        return ch == ' ' || ch == '\t' || ch == '\n'
+                || ch == '\u000B' || ch == '\f' || ch == '\r';
+    }
+
+    // Same as what "." does not match in a regular expression.
+    private static boolean isLineTerminator(char ch) {
+        return ch == '\n' || ch == '\r'
+                || ch == '\u0085' || ch == '\u2028' || ch == '\u2029';
+    }
+
+    // Same as "\w" in a regular expression.
+    private static boolean isWordChar(char ch) {
+        return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z')
+                || (ch >= '0' && ch <= '9') || ch == '_';
+    }
+
+    private static boolean isTagNameChar(char ch) {
+        return isWordChar(ch) || ch == '-';
+    }
+
+    private static boolean isSpaceDropped(StringBuilder b, char next) {
+        if (next == '>') {
+            return true;
+        }
+        var bl = b.length();
+        if (bl > 0 && b.charAt(bl - 1) == '<') {
+            return true;
+        }
+        return bl > 1 && b.charAt(bl - 1) == '/' && b.charAt(bl - 2) == '<';
+    }
+
+    // Case-insensitive for ASCII characters only, like regular expressions
+    // without the UNICODE_CASE flag.
+    private static int indexOfIgnoreCase(
+            String str, String lcSearch, int from) {
+        var max = str.length() - lcSearch.length();
+        for (var i = Math.max(0, from); i <= max; i++) {
+            if (regionMatchesIgnoreCase(str, i, lcSearch)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionMatchesIgnoreCase(
+            String str, int offset, String lcSearch) {
+        var count = lcSearch.length();
+        if (offset + count > str.length()) {
+            return false;
+        }
+        for (var i = 0; i < count; i++) {
+            var ch = str.charAt(offset + i);
+            if (ch >= 'A' && ch <= 'Z') {
+                ch = (char) (ch + ('a' - 'A'));
+            }
+            if (ch != lcSearch.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
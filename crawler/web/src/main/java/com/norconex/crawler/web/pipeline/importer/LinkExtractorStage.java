@@ -1,4 +1,4 @@
-/* Copyright 2010-2023 Norconex Inc.
+/* Copyright 2010-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,8 +16,10 @@ package com.norconex.crawler.web.pipeline.importer;
 
 import static org.apache.commons.lang3.ArrayUtils.EMPTY_STRING_ARRAY;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.commons.collections4.SetUtils;
@@ -40,6 +42,8 @@ import lombok.extern.slf4j.Slf4j;
  * strip some "valid" urls in producing normalized content).
  * Plus, any additional urls could be added to Metadata and they will
  * be considered.
+ * In-scope URLs of a document are queued together, asynchronously,
+ * once all of them have been extracted.
  */
 @Slf4j
 class LinkExtractorStage extends AbstractImporterStage {
@@ -69,6 +73,7 @@ class LinkExtractorStage extends AbstractImporterStage {
         for (Link link : links) {
             handleExtractedLink(ctx, docLinks, link);
         }
+        ctx.getCrawler().queueDocRecords(docLinks.toQueue);
 
         LOG.debug("inScope count: {}.", docLinks.inScope.size());
         if (!docLinks.inScope.isEmpty()) {
@@ -112,7 +117,7 @@ class LinkExtractorStage extends AbstractImporterStage {
                     LOG.trace("URL in crawl scope: {} (keep: {})",
                             link.getUrl(), linkTypes);
                 }
-                var queuedURL = queueURL(link, ctx, docLinks.extracted);
+                var queuedURL = queueURL(link, ctx, docLinks);
                 if (StringUtils.isNotBlank(queuedURL)) {
                     docLinks.inScope.add(queuedURL);
                 }
@@ -167,35 +172,47 @@ class LinkExtractorStage extends AbstractImporterStage {
         return links;
     }
 
-    // Executes WebQueuePipeline if URL not already processed in that page
-    // Returns a URL that was not already processed
+    // Adds the URL to those to send to WebQueuePipeline if not already
+    // added for that page.
+    // Returns the URL as normalized, if it was not already added
     private String queueURL(Link link,
-            WebImporterPipelineContext ctx, Set<String> uniqueExtractedURLs) {
+            WebImporterPipelineContext ctx, UniqueDocLinks docLinks) {
 
         //TODO do we want to add all URLs in a page, or just the valid ones?
         // i.e., those properly formatted.  If we do so, can it prevent
         // weird/custom URLs that some link extractors may find valid?
-        if (uniqueExtractedURLs.add(link.getUrl())) {
-            var newURL = new WebDocRecord(
-                    link.getUrl(), ctx.getDocRecord().getDepth() + 1);
-            newURL.setReferrerReference(link.getReferrer());
-            if (!link.getMetadata().isEmpty()) {
-                newURL.setReferrerLinkMetadata(link.getMetadata().toString());
-            }
-            ctx.getCrawler().queueDocRecord(newURL);
-            String afterQueueURL = newURL.getReference();
-            if (LOG.isDebugEnabled() && !link.getUrl().equals(afterQueueURL)) {
-                LOG.debug("URL modified from \"{}\" to \"{}\".",
-                        link.getUrl(), afterQueueURL);
-            }
-            return afterQueueURL;
+
+        // Queuing is asynchronous, so the normalized URL the queue pipeline
+        // ends up with is computed here. The raw URL is still the one
+        // queued, for the queue pipeline stages to see it in their usual
+        // order, like for start URLs.
+        var normalizedURL = link.getUrl();
+        var normalizer = ctx.getConfig().getUrlNormalizer();
+        if (normalizer != null) {
+            normalizedURL = StringUtils.defaultIfEmpty(
+                    normalizer.normalizeURL(link.getUrl()), link.getUrl());
+        }
+        if (!docLinks.extracted.add(normalizedURL)) {
+            return null;
+        }
+        var newURL = new WebDocRecord(
+                link.getUrl(), ctx.getDocRecord().getDepth() + 1);
+        newURL.setReferrerReference(link.getReferrer());
+        if (!link.getMetadata().isEmpty()) {
+            newURL.setReferrerLinkMetadata(link.getMetadata().toString());
+        }
+        docLinks.toQueue.add(newURL);
+        if (LOG.isDebugEnabled() && !link.getUrl().equals(normalizedURL)) {
+            LOG.debug("URL modified from \"{}\" to \"{}\".",
+                    link.getUrl(), normalizedURL);
         }
-        return null;
+        return normalizedURL;
     }
 
     private static class UniqueDocLinks {
         final Set<String> extracted = new HashSet<>();
         final Set<String> inScope = new HashSet<>();
         final Set<String> outScope = new HashSet<>();
+        final List<WebDocRecord> toQueue = new ArrayList<>();
     }
 }
\ No newline at end of file
@@ -14,7 +14,13 @@
  */
 package com.norconex.crawler.web.pipeline.queue;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
 
 import com.norconex.commons.lang.function.Predicates;
 import com.norconex.crawler.core.pipeline.DocRecordPipelineContext;
@@ -22,28 +28,60 @@ import com.norconex.crawler.core.pipeline.queue.DepthValidationStage;
 import com.norconex.crawler.core.pipeline.queue.QueuePipeline;
 import com.norconex.crawler.core.pipeline.queue.QueueReferenceStage;
 import com.norconex.crawler.core.pipeline.queue.ReferenceFiltersStage;
+import com.norconex.crawler.web.doc.WebDocRecord;
 
 /**
  * Performs a URL handling logic before actual processing of the document
  * it represents takes place.  That is, before any
  * document or document header is downloaded.
  * Instances are only valid for the scope of a single URL.
+ * When many URLs are accepted at once, they are filtered one site
+ * at a time (so robots.txt and sitemap lookups for a site happen
+ * together), then the remaining ones are queued in one go.
  */
 public final class WebQueuePipeline implements QueuePipeline {
 
-    private static final Predicates<DocRecordPipelineContext> STAGES =
+    private static final Predicates<DocRecordPipelineContext> FILTER_STAGES =
             new Predicates<>(List.of(
                     new DepthValidationStage(),
                     new ReferenceFiltersStage(),
                     new RobotsTxtFiltersStage(),
                     new URLNormalizerStage(),
-                    new SitemapResolutionStage(),
-                    new QueueReferenceStage()
+                    new SitemapResolutionStage()
             ));
+    private static final QueueReferenceStage QUEUE_STAGE =
+            new QueueReferenceStage();
 
     @Override
     public void accept(DocRecordPipelineContext ctx) {
-        STAGES.test(ctx);
+        if (FILTER_STAGES.test(ctx)) {
+            QUEUE_STAGE.test(ctx);
+        }
     }
-}
 
+    @Override
+    public void acceptAll(Collection<DocRecordPipelineContext> contexts) {
+        Map<String, List<DocRecordPipelineContext>> bySite =
+                new LinkedHashMap<>();
+        for (DocRecordPipelineContext ctx : contexts) {
+            bySite.computeIfAbsent(
+                    urlRoot(ctx), k -> new ArrayList<>()).add(ctx);
+        }
+        List<DocRecordPipelineContext> accepted = new ArrayList<>();
+        for (List<DocRecordPipelineContext> siteContexts : bySite.values()) {
+            for (DocRecordPipelineContext ctx : siteContexts) {
+                if (FILTER_STAGES.test(ctx)) {
+                    accepted.add(ctx);
+                }
+            }
+        }
+        QUEUE_STAGE.testAll(accepted);
+    }
+
+    private static String urlRoot(DocRecordPipelineContext ctx) {
+        if (ctx.getDocRecord() instanceof WebDocRecord rec) {
+            return StringUtils.defaultString(rec.getUrlRoot());
+        }
+        return "";
+    }
+}
@@ -1,4 +1,4 @@
-/* Copyright 2017-2023 Norconex Inc.
+/* Copyright 2017-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -27,23 +27,31 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.imageio.ImageIO;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.imgscalr.Scalr;
 import org.imgscalr.Scalr.Method;
 import org.imgscalr.Scalr.Mode;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.norconex.commons.lang.EqualsUtil;
@@ -90,6 +98,14 @@ import lombok.extern.slf4j.Slf4j;
  * <a href="https://jsoup.org/cookbook/extracting-data/selector-syntax">
  * JSoup selector-syntax</a> for how to build the "domSelector".
  * </p>
+ * <p>
+ * Images of a page are fetched concurrently, up to a configurable maximum.
+ * Only their header is read to find out their dimensions. Only the
+ * retained image gets fully decoded and scaled.  When the image cache is
+ * enabled, image dimensions and images that could not be read
+ * are also cached, so they are not fetched again when encountered on
+ * other pages.
+ * </p>
  *
  * <h3>Storing the image</h3>
  * <p>
@@ -131,6 +147,10 @@ import lombok.extern.slf4j.Slf4j;
  *         Default is 400x400).
  *    </minDimensions>
  *    <largest>[false|true]</largest>
+ *    <maxConcurrentFetches>
+ *        (Maximum number of images fetched at once for a given page.
+ *         Default is 4.)
+ *    </maxConcurrentFetches>
  *
  *    <imageCacheSize>
  *        (Maximum number of images to cache for faster processing.
@@ -249,6 +269,11 @@ public class FeaturedImageProcessor
     @JsonIgnore
     private Path resolvedStorageDiskDir;
 
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    @JsonIgnore
+    private ExecutorService fetchExecutor;
+
     //--- Init. ----------------------------------------------------------------
 
     @Override
@@ -288,6 +313,26 @@ public class FeaturedImageProcessor
                         e);
             }
         }
+
+        // Initialize threads for fetching images concurrently, enough
+        // for each crawler thread to probe its maximum at once.
+        if (configuration.getMaxConcurrentFetches() > 1) {
+            var poolSize = Math.max(1, event.getSource().getNumWorkerThreads())
+                    * configuration.getMaxConcurrentFetches();
+            fetchExecutor = Executors.newFixedThreadPool(poolSize,
+                    new BasicThreadFactory.Builder()
+                        .namingPattern("featured-image-%d")
+                        .daemon(true)
+                        .build());
+        }
+    }
+
+    @Override
+    protected void onCrawlerRunEnd(CrawlerEvent event) {
+        if (fetchExecutor != null) {
+            fetchExecutor.shutdownNow();
+            fetchExecutor = null;
+        }
     }
 
     //--- Process Document -----------------------------------------------------
@@ -307,14 +352,8 @@ public class FeaturedImageProcessor
 
         try {
             // Obtain the image
-            var dom = Jsoup.parse(
-                    doc.getInputStream(),
-                    ofNullable(doc.getDocRecord().getCharset())
-                        .map(Charset::toString)
-                        .orElse(null),
-                    doc.getReference());
             var img = findFeaturedImage(
-                    dom, fetcher, configuration.isLargest());
+                    parseDom(doc), fetcher, configuration.isLargest());
 
             // Save the image
             if (img != null) {
@@ -331,6 +370,20 @@ public class FeaturedImageProcessor
         }
     }
 
+    private Document parseDom(CrawlDoc doc) throws IOException {
+        var charset = doc.getDocRecord().getCharset();
+        // Without a known charset, let JSoup detect it.
+        if (charset == null) {
+            return Jsoup.parse(
+                    doc.getInputStream(), null, doc.getReference());
+        }
+        // The DOM is shared with other components and must not be modified.
+        return doc.getDomCache().get(
+                IOUtils.toString(doc.getInputStream(), charset),
+                doc.getReference(),
+                Parser.htmlParser());
+    }
+
     private void storeImage(FeaturedImage img, Doc doc)
             throws IOException {
         var imgFormat = configuration.getImageFormat();
@@ -396,66 +449,152 @@ public class FeaturedImageProcessor
         var els = isNotBlank(configuration.getDomSelector())
                 ? dom.select(configuration.getDomSelector())
                 : dom.getElementsByTag("img");
-
-        FeaturedImage largestImg = null;
-        for (Element el : els) {
-            var img = ofNullable(el.absUrl("src"))
-                    .filter(StringUtils::isNotBlank)
-                    .map(url ->  getImage(fetcher, url))
-                    .orElse(null);
-            if (img == null) {
-                continue;
-            }
-
-            if (configuration.getMinDimensions() == null
-                    || img.contains(configuration.getMinDimensions())) {
-                if (!largest) {
-                    return img;
+        var urls = els.stream()
+                .map(el -> el.absUrl("src"))
+                .filter(StringUtils::isNotBlank)
+                .distinct()
+                .iterator();
+
+        // Images are probed concurrently (up to a maximum per document),
+        // but evaluated in page order.
+        var maxProbes = Math.max(1, configuration.getMaxConcurrentFetches());
+        Deque<CompletableFuture<ImageCandidate>> probes = new ArrayDeque<>();
+        ImageCandidate largestImg = null;
+        try {
+            while (urls.hasNext() || !probes.isEmpty()) {
+                while (urls.hasNext() && probes.size() < maxProbes) {
+                    probes.add(probeImage(fetcher, urls.next()));
                 }
-                if (largestImg == null
-                        || img.getArea() > largestImg.getArea()) {
-                    largestImg = img;
+                var candidate = probes.poll().join();
+                if (candidate == null
+                        || !meetsMinDimensions(candidate.dimension)) {
+                    dispose(candidate);
+                } else if (!largest) {
+                    var img = loadImage(candidate);
+                    if (img != null) {
+                        return img;
+                    }
+                } else if (largestImg == null
+                        || candidate.getArea() > largestImg.getArea()) {
+                    dispose(largestImg);
+                    largestImg = candidate;
+                } else {
+                    dispose(candidate);
                 }
             }
+        } finally {
+            // Candidates still being probed are no longer needed.
+            probes.forEach(probe -> probe.thenAccept(
+                    FeaturedImageProcessor::dispose));
         }
-        return largestImg;
+        return largestImg != null ? loadImage(largestImg) : null;
     }
 
-    private FeaturedImage getImage(HttpFetcher fetcher, String url) {
+    private boolean meetsMinDimensions(Dimension dim) {
+        var minDims = configuration.getMinDimensions();
+        return minDims == null
+                || (minDims.width <= dim.width
+                        && minDims.height <= dim.height);
+    }
+
+    private CompletableFuture<ImageCandidate> probeImage(
+            HttpFetcher fetcher, String url) {
+        var executor = fetchExecutor;
+        if (executor != null) {
+            try {
+                return CompletableFuture.supplyAsync(
+                        () -> doProbeImage(fetcher, url), executor);
+            } catch (RejectedExecutionException e) {
+                LOG.debug("Image fetching executor unavailable, probing "
+                        + "image in current thread: {}", url);
+            }
+        }
+        return CompletableFuture.completedFuture(doProbeImage(fetcher, url));
+    }
+
+    // Obtains the image dimension, fetching the image only when needed
+    // and without decoding it. Returns null if the image cannot be read.
+    private ImageCandidate doProbeImage(HttpFetcher fetcher, String url) {
         try {
-            FeaturedImage img = null;
+            if (url.matches("(?i)^data:image/[^;]*;base64,.*$")) {
+                var mutableImg = MutableImage.fromBase64String(url);
+                if (mutableImg == null) {
+                    return null;
+                }
+                return new ImageCandidate(url, new FeaturedImage(url,
+                        mutableImg.getDimension(), mutableImg.toImage()));
+            }
             if (cache != null) {
-                img = cache.getImage(url);
+                if (cache.isUnreadable(url)) {
+                    return null;
+                }
+                var dim = cache.getDimension(url);
+                if (dim != null && !meetsMinDimensions(dim)) {
+                    return new ImageCandidate(url, dim, null);
+                }
+                var img = cache.getImage(url);
+                if (img != null) {
+                    return new ImageCandidate(url, img);
+                }
             }
-            if (img == null) {
-                if (url.matches("(?i)^data:image/[^;]*;base64,.*$")) {
-                    var mutableImg = MutableImage.fromBase64String(url);
-                    if (mutableImg == null) {
-                        return null;
-                    }
-                    img = new FeaturedImage(url, mutableImg.getDimension(),
-                            mutableImg.toImage());
-                } else  {
-                    var bi = fetchImage(fetcher, url);
-                    if (bi == null) {
-                        return null;
-                    }
-                    var dim = new Dimension(bi.getWidth(), bi.getHeight());
-                    bi = scale(bi);
 
-                    img = new FeaturedImage(url, dim, bi);
-                }
-                if (cache != null) {
-                    cache.setImage(img);
+            var doc = fetchImage(fetcher, url);
+            Dimension dim = null;
+            if (doc != null) {
+                dim = readDimension(doc.getInputStream());
+                if (dim == null) {
+                    LOG.debug("Image could not be read: '{}.' "
+                            + "Detected format: '{}'.", url,
+                            doc.getDocRecord().getContentType());
                 }
             }
-            return img;
+            if (cache != null) {
+                cache.setDimension(url, dim);
+            }
+            if (dim == null) {
+                dispose(doc);
+                return null;
+            }
+            // Only keep the content of images we may end up using.
+            if (!meetsMinDimensions(dim)) {
+                dispose(doc);
+                doc = null;
+            }
+            return new ImageCandidate(url, dim, doc);
         } catch (Exception e) {
             LOG.debug("Could not load image: " + url, e);
         }
         return null;
     }
 
+    // Decodes and scales a retained candidate.
+    private FeaturedImage loadImage(ImageCandidate candidate) {
+        if (candidate.image != null) {
+            return candidate.image;
+        }
+        if (candidate.doc == null) {
+            return null;
+        }
+        try {
+            var bi = ImageIO.read(candidate.doc.getInputStream());
+            if (bi == null) {
+                LOG.debug("Image could not be decoded: {}", candidate.url);
+                return null;
+            }
+            var img = new FeaturedImage(candidate.url,
+                    new Dimension(bi.getWidth(), bi.getHeight()), scale(bi));
+            if (cache != null) {
+                cache.setImage(img);
+            }
+            return img;
+        } catch (Exception e) {
+            LOG.debug("Could not load image: {}", candidate.url, e);
+            return null;
+        } finally {
+            dispose(candidate);
+        }
+    }
+
     private BufferedImage scale(BufferedImage origImg) {
 
         // If scale is not needed (URL storage only), make image tiny.
@@ -504,34 +643,89 @@ public class FeaturedImageProcessor
         return newImg;
     }
 
-    // make synchronized?
-    private BufferedImage fetchImage(HttpFetcher fetcher, String url) {
+    // Returns the fetched image document, or null if it could not be
+    // downloaded.
+    private CrawlDoc fetchImage(HttpFetcher fetcher, String url)
+            throws IOException {
+        var doc = new CrawlDoc(
+                new WebDocRecord(HttpURL.toURI(url).toString()));
         try {
-            var uri = HttpURL.toURI(url);
-            var doc = new CrawlDoc(new WebDocRecord(uri.toString()));
-
             FetchResponse resp = fetcher.fetch(
                     new HttpFetchRequest(doc, HttpMethod.GET));
             if (resp != null
                     && resp.getCrawlDocState() != null
                     && resp.getCrawlDocState().isGoodState()) {
-                var bufImage = ImageIO.read(doc.getInputStream());
-                doc.dispose();
-                if (bufImage == null) {
-                    LOG.debug("Image could not be read: '{}.' "
-                            + "Detected format: '{}'.", url,
-                            doc.getDocRecord().getContentType());
-                }
-                return bufImage;
+                return doc;
             }
-        } catch (IOException e) {
-            LOG.debug("Could not load image: {}", url, e);
+        } catch (IOException | RuntimeException e) {
+            dispose(doc);
+            throw e;
         }
-        LOG.debug(
-                "Image was not recognized or could not be downloaded: {}", url);
+        dispose(doc);
+        LOG.debug("Image could not be downloaded: {}", url);
         return null;
     }
 
+    // Reads the image dimension from its header, without decoding the image.
+    static Dimension readDimension(InputStream is) throws IOException {
+        try (var iis = ImageIO.createImageInputStream(is)) {
+            if (iis == null) {
+                return null;
+            }
+            var readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            var reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                return new Dimension(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static void dispose(ImageCandidate candidate) {
+        if (candidate != null) {
+            dispose(candidate.doc);
+            candidate.doc = null;
+        }
+    }
+    private static void dispose(CrawlDoc doc) {
+        if (doc != null) {
+            try {
+                doc.dispose();
+            } catch (IOException e) {
+                LOG.debug("Could not dispose of image: {}",
+                        doc.getReference(), e);
+            }
+        }
+    }
+
+    // An image with a known dimension, either already loaded, or with
+    // its fetched content kept for decoding, or neither when not retained.
+    private static final class ImageCandidate {
+        private final String url;
+        private final Dimension dimension;
+        private final FeaturedImage image;
+        private CrawlDoc doc;
+        private ImageCandidate(String url, FeaturedImage image) {
+            this.url = url;
+            dimension = image.getOriginalSize();
+            this.image = image;
+        }
+        private ImageCandidate(String url, Dimension dimension, CrawlDoc doc) {
+            this.url = url;
+            this.dimension = dimension;
+            image = null;
+            this.doc = doc;
+        }
+        private long getArea() {
+            return (long) dimension.width * dimension.height;
+        }
+    }
+
 //    @Override
 //    public void loadFromXML(XML xml) {
 //        setPageContentTypePattern(xml.getString(
@@ -1,4 +1,4 @@
-/* Copyright 2017-2023 Norconex Inc.
+/* Copyright 2017-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -89,6 +89,10 @@ import lombok.experimental.Accessors;
  *         Default is 400x400).
  *    </minDimensions>
  *    <largest>[false|true]</largest>
+ *    <maxConcurrentFetches>
+ *        (Maximum number of images fetched at once for a given page.
+ *         Default is 4.)
+ *    </maxConcurrentFetches>
  *
  *    <imageCacheSize>
  *        (Maximum number of images to cache for faster processing.
@@ -185,6 +189,7 @@ public class FeaturedImageProcessorConfig {
     public static final String DEFAULT_PAGE_CONTENT_TYPE_PATTERN =
             "text/html|application/(xhtml\\+xml|vnd\\.wap.xhtml\\+xml|x-asp)";
     public static final int DEFAULT_IMAGE_CACHE_SIZE = 1000;
+    public static final int DEFAULT_MAX_CONCURRENT_FETCHES = 4;
 
     /**
      * Default image cache directory, relative to the crawler working
@@ -231,6 +236,7 @@ public class FeaturedImageProcessorConfig {
 
     private Path imageCacheDir;
     private boolean largest;
+    private int maxConcurrentFetches = DEFAULT_MAX_CONCURRENT_FETCHES;
     private final List<Storage> storage =
             new ArrayList<>(Arrays.asList(DEFAULT_STORAGE));
 
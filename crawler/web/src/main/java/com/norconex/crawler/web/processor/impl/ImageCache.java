@@ -1,4 +1,4 @@
-/* Copyright 2017-2023 Norconex Inc.
+/* Copyright 2017-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -37,6 +37,9 @@ import lombok.extern.slf4j.Slf4j;
 /**
  * Caches images. This class should not be instantiated more than once
  * for the same path. It is best to share the instance.
+ * In addition to (scaled) images, the original dimension of
+ * images and whether they could not be read are also cached, so images
+ * that are not retained can be skipped without being fetched again.
  * @since 2.8.0
  */
 //TODO consider using DataStorageEngine instead (give it as an option?).
@@ -47,6 +50,9 @@ public class ImageCache {
     private final Map<String, String> lru;
     private final Path cacheDir;
     MVMap<String, MVImage> imgCache;
+    // Original dimensions of probed images. Unreadable images have
+    // a negative width.
+    MVMap<String, Dimension> dimCache;
 
     public ImageCache(int maxSize, Path dir) {
         cacheDir = dir;
@@ -63,6 +69,8 @@ public class ImageCache {
                 dir.resolve("images").toAbsolutePath().toString());
         imgCache = store.openMap("imgCache");
         imgCache.clear();
+        dimCache = store.openMap("dimCache");
+        dimCache.clear();
 
         lru = Collections.synchronizedMap(
                 new LRUMap<String, String>(maxSize){
@@ -73,6 +81,7 @@ public class ImageCache {
                     LOG.debug("Cache full, removing: {}", entry.getKey());
                 }
                 imgCache.remove(entry.getKey());
+                dimCache.remove(entry.getKey());
                 return super.removeLRU(entry);
             }
         });
@@ -99,9 +108,47 @@ public class ImageCache {
         ImageIO.write(scaledImage.getImage(), "png", baos);
         imgCache.put(scaledImage.getUrl(), new MVImage(
                 scaledImage.getOriginalSize(), baos.toByteArray()));
+        dimCache.put(scaledImage.getUrl(),
+                new Dimension(scaledImage.getOriginalSize()));
         store.commit();
     }
 
+    /**
+     * Gets the cached original dimension of an image.
+     * @param ref image reference
+     * @return image dimension or <code>null</code> if not cached or
+     *     the image could not be read
+     */
+    public Dimension getDimension(String ref) {
+        var dim = dimCache.get(ref);
+        if (dim == null || dim.width < 0) {
+            return null;
+        }
+        lru.put(ref, null);
+        return new Dimension(dim);
+    }
+    /**
+     * Gets whether the image was cached as being unreadable
+     * (e.g., not found or not a supported image format).
+     * @param ref image reference
+     * @return <code>true</code> if the image could not be read
+     */
+    public boolean isUnreadable(String ref) {
+        var dim = dimCache.get(ref);
+        return dim != null && dim.width < 0;
+    }
+    /**
+     * Caches the original dimension of an image.
+     * @param ref image reference
+     * @param dimension image dimension or <code>null</code> if the image
+     *     could not be read
+     */
+    public void setDimension(String ref, Dimension dimension) {
+        lru.put(ref, null);
+        dimCache.put(ref, dimension == null
+                ? new Dimension(-1, -1) : new Dimension(dimension));
+    }
+
     private static class MVImage implements Serializable {
         private static final long serialVersionUID = 1L;
         private final Dimension originalDimension;
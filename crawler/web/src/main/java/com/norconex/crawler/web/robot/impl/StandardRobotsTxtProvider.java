@@ -14,24 +14,34 @@
  */
 package com.norconex.crawler.web.robot.impl;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Pattern;
 
 import org.apache.commons.collections4.map.ListOrderedMap;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.hc.core5.http.HttpStatus;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.norconex.commons.lang.config.Configurable;
 import com.norconex.commons.lang.io.CachedInputStream;
 import com.norconex.commons.lang.text.TextMatcher;
 import com.norconex.commons.lang.url.HttpURL;
@@ -41,6 +51,7 @@ import com.norconex.crawler.core.crawler.CrawlerLifeCycleListener;
 import com.norconex.crawler.core.doc.CrawlDoc;
 import com.norconex.crawler.core.filter.OnMatch;
 import com.norconex.crawler.core.filter.impl.GenericReferenceFilter;
+import com.norconex.crawler.core.store.DataStore;
 import com.norconex.crawler.web.crawler.WebCrawlerEvent;
 import com.norconex.crawler.web.doc.WebDocRecord;
 import com.norconex.crawler.web.fetch.HttpFetchRequest;
@@ -50,8 +61,11 @@ import com.norconex.crawler.web.robot.RobotsTxt;
 import com.norconex.crawler.web.robot.RobotsTxtFilter;
 import com.norconex.crawler.web.robot.RobotsTxtProvider;
 
+import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.ToString;
+import lombok.experimental.Accessors;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -60,9 +74,19 @@ import lombok.extern.slf4j.Slf4j;
  * described at <a href="http://www.robotstxt.org/robotstxt.html">
  * http://www.robotstxt.org/robotstxt.html</a>.
  * </p>
+ * <p>
+ * Robots.txt files are cached by site (see
+ * {@link StandardRobotsTxtProviderConfig}). Robots.txt files for
+ * different sites are fetched concurrently, while concurrent requests for
+ * the same site share a single fetch.
+ * </p>
  * {@nx.xml.usage
  * <robotsTxt ignore="false"
- *     class="com.norconex.crawler.web.robot.impl.StandardRobotsTxtProvider"/>
+ *     class="com.norconex.crawler.web.robot.impl.StandardRobotsTxtProvider">
+ *   <cacheMaxSize>(maximum number of sites cached in memory)</cacheMaxSize>
+ *   <cacheTtl>(how long a robots.txt is cached)</cacheTtl>
+ *   <persistCache>[false|true]</persistCache>
+ * </robotsTxt>
  * }
  *
  * {@nx.xml.example
@@ -78,10 +102,27 @@ import lombok.extern.slf4j.Slf4j;
 @ToString
 public class StandardRobotsTxtProvider
         extends CrawlerLifeCycleListener
-        implements RobotsTxtProvider {
+        implements RobotsTxtProvider,
+                Configurable<StandardRobotsTxtProviderConfig> {
+
+    @Getter
+    private final StandardRobotsTxtProviderConfig configuration =
+            new StandardRobotsTxtProviderConfig();
+
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @JsonIgnore
+    private volatile Cache<String, RobotsTxt> robotsTxtCache;
+
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @JsonIgnore
+    private final ReentrantLock cacheLock = new ReentrantLock();
 
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JsonIgnore
-    private final Map<String, RobotsTxt> robotsTxtCache = new HashMap<>();
+    private volatile DataStore<PersistedRobotsTxt> persistedCache;
 
     @ToString.Exclude
     @EqualsAndHashCode.Exclude
@@ -91,18 +132,81 @@ public class StandardRobotsTxtProvider
     @Override
     protected void onCrawlerRunBegin(CrawlerEvent event) {
         crawler = event.getSource();
+        if (configuration.isPersistCache()) {
+            persistedCache = crawler.getDataStoreEngine().openStore(
+                    "robots-txt", PersistedRobotsTxt.class);
+        }
+    }
+
+    @Override
+    protected void onCrawlerRunEnd(CrawlerEvent event) {
+        Optional.ofNullable(persistedCache).ifPresent(DataStore::close);
+        persistedCache = null;
     }
 
     @Override
-    public synchronized RobotsTxt getRobotsTxt(
-            HttpFetcher fetcher, String url) {
-        var trimmedURL = StringUtils.trimToEmpty(url);
-        var baseURL = getBaseURL(trimmedURL);
-        var robotsTxt = robotsTxtCache.get(baseURL);
-        if (robotsTxt != null) {
-            return robotsTxt;
+    public RobotsTxt getRobotsTxt(HttpFetcher fetcher, String url) {
+        var baseURL = getBaseURL(StringUtils.trimToEmpty(url));
+        // Robots.txt from different sites are loaded in parallel while
+        // concurrent requests for the same site wait for the first one
+        // to complete.
+        try {
+            return getCache().get(
+                    baseURL, () -> loadRobotsTxt(fetcher, baseURL));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            LOG.warn("Not able to obtain robots.txt for: {}", baseURL, e);
+            return RobotsTxt.builder().build();
+        }
+    }
+
+    private Cache<String, RobotsTxt> getCache() {
+        if (robotsTxtCache == null) {
+            cacheLock.lock();
+            try {
+                if (robotsTxtCache == null) {
+                    robotsTxtCache = CacheBuilder.newBuilder()
+                            .maximumSize(configuration.getCacheMaxSize())
+                            .expireAfterWrite(configuration.getCacheTtl())
+                            .build();
+                }
+            } finally {
+                cacheLock.unlock();
+            }
+        }
+        return robotsTxtCache;
+    }
+
+    private RobotsTxt loadRobotsTxt(HttpFetcher fetcher, String baseURL)
+            throws IOException {
+        var store = persistedCache;
+        if (store != null) {
+            var persisted = store.find(baseURL).orElse(null);
+            if (persisted != null && !isExpired(persisted)) {
+                LOG.debug("Robots.txt for {} loaded from data store.",
+                        baseURL);
+                return parseRobotsTxt(new ByteArrayInputStream(
+                        persisted.getContent().getBytes(UTF_8)),
+                        baseURL, persisted.getUserAgent());
+            }
         }
 
+        var robotsTxt = fetchRobotsTxt(fetcher, baseURL);
+        if (store != null && robotsTxt.getValue() != null) {
+            store.save(baseURL, robotsTxt.getValue());
+        }
+        return robotsTxt.getKey();
+    }
+
+    private boolean isExpired(PersistedRobotsTxt persisted) {
+        return System.currentTimeMillis() - persisted.getFetchDate()
+                > configuration.getCacheTtl().toMillis();
+    }
+
+    // Returns the robots.txt along with what to persist, if anything.
+    private Pair<RobotsTxt, PersistedRobotsTxt> fetchRobotsTxt(
+            HttpFetcher fetcher, String baseURL) {
+        RobotsTxt robotsTxt = null;
+        PersistedRobotsTxt persisted = null;
         var robotsURL = baseURL + "/robots.txt";
         CrawlDoc doc = null;
         try {
@@ -126,8 +230,16 @@ public class StandardRobotsTxtProvider
                         new HttpFetchRequest(doc, HttpMethod.GET));
             }
 
+            persisted = new PersistedRobotsTxt()
+                    .setUserAgent(response.getUserAgent())
+                    .setFetchDate(System.currentTimeMillis())
+                    .setContent("");
             if (response.getStatusCode() == HttpStatus.SC_OK) {
-                robotsTxt = parseRobotsTxt(doc.getInputStream(), trimmedURL,
+                var content = IOUtils.toString(doc.getInputStream(), UTF_8);
+                persisted.setContent(content);
+                robotsTxt = parseRobotsTxt(
+                        new ByteArrayInputStream(content.getBytes(UTF_8)),
+                        baseURL,
                         response.getUserAgent());
                 LOG.debug("Fetched and parsed robots.txt: {}", robotsURL);
                 if (crawler != null) {
@@ -142,13 +254,19 @@ public class StandardRobotsTxtProvider
                 LOG.info("No robots.txt found for {}. ({} - {})", robotsURL,
                         response.getStatusCode(), response.getReasonPhrase());
                 robotsTxt = RobotsTxt.builder().build();
+                if (response.getStatusCode()
+                        >= HttpStatus.SC_INTERNAL_SERVER_ERROR) {
+                    // possibly temporary, try again on next run
+                    persisted = null;
+                }
             }
         } catch (Exception e) {
             LOG.warn("Not able to obtain robots.txt at: {}", robotsURL, e);
             robotsTxt = RobotsTxt.builder().build();
+            // not persisted so we try again on next run
+            persisted = null;
         }
-        robotsTxtCache.put(baseURL, robotsTxt);
-        return robotsTxt;
+        return Pair.of(robotsTxt, persisted);
     }
 
     protected RobotsTxt parseRobotsTxt(
@@ -157,7 +275,7 @@ public class StandardRobotsTxtProvider
 
         //--- Load matching data ---
         var isr =
-                new InputStreamReader(is, StandardCharsets.UTF_8);
+                new InputStreamReader(is, UTF_8);
         var br = new BufferedReader(isr);
         var data = new RobotData();
         var parse = false;
@@ -245,6 +363,14 @@ public class StandardRobotsTxtProvider
         return baseURL;
     }
 
+    @Data
+    @Accessors(chain = true)
+    static class PersistedRobotsTxt {
+        private String content;
+        private String userAgent;
+        private long fetchDate;
+    }
+
     private static class RobotData {
         private enum Precision {
             NOMATCH, WILD, PARTIAL, EXACT;
@@ -0,0 +1,68 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.web.robot.impl;
+
+import java.time.Duration;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * <p>
+ * Configuration for {@link StandardRobotsTxtProvider}.
+ * </p>
+ * <p>
+ * Robots.txt files are cached by site, in memory, up to a maximum
+ * number of sites. Cached robots.txt files older than the configured
+ * time-to-live are fetched again. Optionally, fetched robots.txt
+ * files can also be persisted in the crawler data store so they
+ * are not fetched again on subsequent crawler runs until they expire.
+ * </p>
+ * @since 4.0.0
+ */
+@Data
+@Accessors(chain = true)
+@SuppressWarnings("javadoc")
+public class StandardRobotsTxtProviderConfig {
+
+    public static final int DEFAULT_CACHE_MAX_SIZE = 10_000;
+    public static final Duration DEFAULT_CACHE_TTL = Duration.ofHours(24);
+
+    /**
+     * Maximum number of sites for which robots.txt are kept in memory.
+     * Least recently used ones are evicted first. Default is
+     * {@value #DEFAULT_CACHE_MAX_SIZE}.
+     * @param cacheMaxSize maximum number of cached robots.txt
+     * @return maximum number of cached robots.txt
+     */
+    private int cacheMaxSize = DEFAULT_CACHE_MAX_SIZE;
+
+    /**
+     * How long a robots.txt is cached before being fetched again.
+     * Default is 24 hours.
+     * @param cacheTtl cache time-to-live
+     * @return cache time-to-live
+     */
+    private Duration cacheTtl = DEFAULT_CACHE_TTL;
+
+    /**
+     * Whether to persist fetched robots.txt in the crawler data store,
+     * so they can be reused on subsequent runs (until they expire).
+     * Default is <code>false</code>.
+     * @param persistCache <code>true</code> to persist cached robots.txt
+     * @return <code>true</code> if persisting cached robots.txt
+     */
+    private boolean persistCache;
+}
@@ -0,0 +1,103 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.web.url.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.norconex.commons.lang.url.URLNormalizer;
+import com.norconex.crawler.web.url.impl.GenericUrlNormalizerConfig.NormalizationReplace;
+
+/**
+ * Normalizations and replacements from a {@link GenericUrlNormalizerConfig}
+ * resolved once, so they can be applied to many URLs without repeating
+ * the same setup for each one (e.g., compiling replacement patterns).
+ * Normalized URLs are kept in a bounded cache, so that URLs found on
+ * many pages (e.g., navigation links) are only normalized once.
+ * Thread-safe.
+ */
+final class CompiledUrlNormalization {
+
+    // Configuration version compiled, to detect configuration changes.
+    private final int version;
+
+    private final List<Consumer<URLNormalizer>> steps = new ArrayList<>();
+    private final List<Pattern> patterns = new ArrayList<>();
+    private final List<String> values = new ArrayList<>();
+    private final Cache<String, String> cache;
+
+    CompiledUrlNormalization(GenericUrlNormalizerConfig config) {
+        version = config.getVersion();
+        config.getNormalizations().stream()
+            .filter(Objects::nonNull)
+            .forEach(n -> steps.add(n.getConsumer()));
+        for (NormalizationReplace replace : config.getReplacements()) {
+            if (replace == null || StringUtils.isBlank(replace.getMatch())) {
+                continue;
+            }
+            patterns.add(Pattern.compile(replace.getMatch()));
+            values.add(StringUtils.isBlank(replace.getValue())
+                    ? StringUtils.EMPTY : replace.getValue());
+        }
+        var cacheMaxSize = config.getCacheMaxSize();
+        cache = cacheMaxSize > 0
+                ? CacheBuilder.newBuilder().maximumSize(cacheMaxSize).build()
+                : null;
+    }
+
+    /**
+     * Whether this instance reflects the current state of the given
+     * configuration.
+     * @param config URL normalizer configuration
+     * @return <code>true</code> if still matching the configuration
+     */
+    boolean isCompiledFrom(GenericUrlNormalizerConfig config) {
+        return version == config.getVersion();
+    }
+
+    String normalize(String url) {
+        if (cache == null || url == null) {
+            return apply(url);
+        }
+        var normedURL = cache.getIfPresent(url);
+        if (normedURL == null) {
+            normedURL = apply(url);
+            if (normedURL != null) {
+                cache.put(url, normedURL);
+            }
+        }
+        return normedURL;
+    }
+
+    private String apply(String url) {
+        var normalizer = new URLNormalizer(url);
+        for (Consumer<URLNormalizer> step : steps) {
+            step.accept(normalizer);
+        }
+        var normedURL = normalizer.toString();
+        for (var i = 0; i < patterns.size(); i++) {
+            normedURL = patterns.get(i).matcher(
+                    normedURL).replaceAll(values.get(i));
+        }
+        return normedURL;
+    }
+}
@@ -1,4 +1,4 @@
-/* Copyright 2010-2023 Norconex Inc.
+/* Copyright 2010-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,14 +16,11 @@ package com.norconex.crawler.web.url.impl;
 
 import java.util.List;
 
-import org.apache.commons.lang3.StringUtils;
-
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.norconex.commons.lang.config.Configurable;
 import com.norconex.commons.lang.url.URLNormalizer;
 import com.norconex.crawler.web.crawler.WebCrawlerConfig;
 import com.norconex.crawler.web.url.WebUrlNormalizer;
-import com.norconex.crawler.web.url.impl.GenericUrlNormalizerConfig.Normalization;
-import com.norconex.crawler.web.url.impl.GenericUrlNormalizerConfig.NormalizationReplace;
 
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -98,6 +95,12 @@ import lombok.ToString;
  *   In addition, this class allows you to specify any number of URL
  *   value replacements using regular expressions.
  * </p>
+ * <p>
+ *   Normalized URLs are cached in memory so that URLs encountered
+ *   repeatedly (e.g., navigation links present on every page) are only
+ *   normalized once. The maximum number of cached URLs can be set with
+ *   {@link GenericUrlNormalizerConfig#setCacheMaxSize(int)}.
+ * </p>
  *
  * {@nx.xml.usage
  *  <urlNormalizer
@@ -112,6 +115,9 @@ import lombok.ToString;
  *      </replace>
  *      (... repeat replace tag  as needed ...)
  *    </replacements>
+ *    <cacheMaxSize>
+ *      (maximum number of normalized URLs kept in memory, 0 to disable)
+ *    </cacheMaxSize>
  *  </urlNormalizer>
  * }
  * <p>
@@ -153,23 +159,23 @@ public class GenericUrlNormalizer implements
     private final GenericUrlNormalizerConfig configuration =
             new GenericUrlNormalizerConfig();
 
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @JsonIgnore
+    private volatile CompiledUrlNormalization compiled;
+
     @Override
     public String normalizeURL(String url) {
-        var normalizer = new URLNormalizer(url);
-        for (Normalization n : configuration.getNormalizations()) {
-            n.getConsumer().accept(normalizer);
-        }
-        var normedURL = normalizer.toString();
-        for (NormalizationReplace replace : configuration.getReplacements()) {
-            if (replace == null || StringUtils.isBlank(replace.getMatch())) {
-                continue;
-            }
-            var replacement = replace.getValue();
-            if (StringUtils.isBlank(replacement)) {
-                replacement = StringUtils.EMPTY;
-            }
-            normedURL = normedURL.replaceAll(replace.getMatch(), replacement);
+        return getCompiled().normalize(url);
+    }
+
+    // Recompiled whenever the configuration is modified.
+    private CompiledUrlNormalization getCompiled() {
+        var c = compiled;
+        if (c == null || !c.isCompiledFrom(configuration)) {
+            c = new CompiledUrlNormalization(configuration);
+            compiled = c;
         }
-        return normedURL;
+        return c;
     }
 }
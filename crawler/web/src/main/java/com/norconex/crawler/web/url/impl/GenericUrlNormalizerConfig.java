@@ -1,4 +1,4 @@
-/* Copyright 2010-2023 Norconex Inc.
+/* Copyright 2010-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@ import java.util.List;
 import java.util.function.Consumer;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.norconex.commons.lang.collection.CollectionUtil;
 import com.norconex.commons.lang.convert.GenericConverter;
@@ -27,8 +28,12 @@ import com.norconex.commons.lang.url.URLNormalizer;
 import com.norconex.crawler.web.crawler.WebCrawlerConfig;
 import com.norconex.crawler.web.url.WebUrlNormalizer;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import lombok.experimental.Accessors;
 
 /**
@@ -114,6 +119,9 @@ import lombok.experimental.Accessors;
  *      </replace>
  *      (... repeat replace tag  as needed ...)
  *    </replacements>
+ *    <cacheMaxSize>
+ *      (maximum number of normalized URLs kept in memory, 0 to disable)
+ *    </cacheMaxSize>
  *  </urlNormalizer>
  * }
  * <p>
@@ -196,9 +204,31 @@ public class GenericUrlNormalizerConfig {
         }
     }
 
+    public static final int DEFAULT_CACHE_MAX_SIZE = 10_000;
+
     private final List<Normalization> normalizations = new ArrayList<>();
     private final List<NormalizationReplace> replacements = new ArrayList<>();
 
+    /**
+     * Maximum number of normalized URLs kept in memory, so that URLs
+     * encountered repeatedly are only normalized once.
+     * Least recently used ones are evicted first. Zero or less disables
+     * caching. Default is {@value #DEFAULT_CACHE_MAX_SIZE}.
+     * @param cacheMaxSize maximum number of cached URLs
+     * @return maximum number of cached URLs
+     */
+    @Setter(AccessLevel.NONE)
+    private int cacheMaxSize = DEFAULT_CACHE_MAX_SIZE;
+
+    // Incremented on every change, so compiled normalizations can tell
+    // they are outdated without comparing the whole configuration.
+    @JsonIgnore
+    @Getter(AccessLevel.PACKAGE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile int version;
+
     public GenericUrlNormalizerConfig() {
         setNormalizations(List.of(
                 Normalization.REMOVE_FRAGMENT,
@@ -215,6 +245,7 @@ public class GenericUrlNormalizerConfig {
     public GenericUrlNormalizerConfig setNormalizations(
             List<Normalization> normalizations) {
         CollectionUtil.setAll(this.normalizations, normalizations);
+        version++;
         return this;
     }
 
@@ -223,6 +254,13 @@ public class GenericUrlNormalizerConfig {
     }
     public GenericUrlNormalizerConfig setReplacements(List<NormalizationReplace> replacements) {
         CollectionUtil.setAll(this.replacements, replacements);
+        version++;
+        return this;
+    }
+
+    public GenericUrlNormalizerConfig setCacheMaxSize(int cacheMaxSize) {
+        this.cacheMaxSize = cacheMaxSize;
+        version++;
         return this;
     }
 
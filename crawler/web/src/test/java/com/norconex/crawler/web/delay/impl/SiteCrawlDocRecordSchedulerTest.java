@@ -0,0 +1,83 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.web.delay.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import com.norconex.crawler.core.doc.CrawlDocRecord;
+import com.norconex.crawler.web.doc.WebDocRecord;
+
+class SiteCrawlDocRecordSchedulerTest {
+
+    @Test
+    void testSiteDelay() {
+        var scheduler = new SiteCrawlDocRecordScheduler(10, url ->
+                url.startsWith("http://a.com")
+                        ? Duration.ofMinutes(1) : Duration.ZERO);
+        scheduler.schedule(new WebDocRecord("http://a.com/1"));
+        scheduler.schedule(new WebDocRecord("http://a.com/2"));
+        scheduler.schedule(new WebDocRecord("http://b.com/1"));
+        scheduler.schedule(new WebDocRecord("http://b.com/2"));
+        assertThat(scheduler.size()).isEqualTo(4);
+
+        // a.com/2 is not ready before its delay has elapsed
+        assertThat(nextRef(scheduler)).isEqualTo("http://a.com/1");
+        assertThat(nextRef(scheduler)).isEqualTo("http://b.com/1");
+        assertThat(nextRef(scheduler)).isEqualTo("http://b.com/2");
+        assertThat(scheduler.next()).isEmpty();
+        assertThat(scheduler.size()).isOne();
+        assertThat(scheduler.getNextReadyDelay())
+                .isPositive()
+                .isLessThanOrEqualTo(Duration.ofMinutes(1));
+
+        scheduler.clear();
+        assertThat(scheduler.size()).isZero();
+        assertThat(scheduler.getNextReadyDelay()).isNull();
+    }
+
+    @Test
+    void testRoundRobinWithoutDelay() {
+        var scheduler = new SiteCrawlDocRecordScheduler(
+                10, url -> Duration.ZERO);
+        scheduler.schedule(new WebDocRecord("http://a.com/1"));
+        scheduler.schedule(new WebDocRecord("http://a.com/2"));
+        scheduler.schedule(new WebDocRecord("http://b.com/1"));
+        assertThat(scheduler.getNextReadyDelay()).isZero();
+        assertThat(nextRef(scheduler)).isEqualTo("http://a.com/1");
+        assertThat(nextRef(scheduler)).isEqualTo("http://b.com/1");
+        assertThat(nextRef(scheduler)).isEqualTo("http://a.com/2");
+        assertThat(scheduler.next()).isEmpty();
+    }
+
+    @Test
+    void testIsFull() {
+        var scheduler = new SiteCrawlDocRecordScheduler(
+                2, url -> Duration.ZERO);
+        scheduler.schedule(new WebDocRecord("http://a.com/1"));
+        assertThat(scheduler.isFull()).isFalse();
+        scheduler.schedule(new WebDocRecord("http://b.com/1"));
+        assertThat(scheduler.isFull()).isTrue();
+        scheduler.next();
+        assertThat(scheduler.isFull()).isFalse();
+    }
+
+    private static String nextRef(SiteCrawlDocRecordScheduler scheduler) {
+        return scheduler.next().map(CrawlDocRecord::getReference).orElse(null);
+    }
+}
@@ -0,0 +1,65 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.web.doc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.norconex.crawler.core.doc.CrawlDocState;
+import com.norconex.crawler.core.store.codec.BinaryRecordCodec;
+import com.norconex.crawler.core.store.codec.RecordCodecs;
+import com.norconex.crawler.core.store.codec.RecordFormat;
+
+class WebDocRecordCodecTest {
+
+    @Test
+    void testRoundTrip() {
+        var rec = new WebDocRecord("http://example.com/a/b.html", 2);
+        rec.setState(CrawlDocState.NEW);
+        rec.setFromSitemap(true);
+        rec.setSitemapLastMod(ZonedDateTime.of(
+                2024, 5, 6, 7, 8, 9, 0, ZoneId.of("UTC")));
+        rec.setSitemapChangeFreq("daily");
+        rec.setSitemapPriority(0.7f);
+        rec.setReferrerReference("http://example.com/");
+        rec.setReferrerLinkMetadata("{\"tag\":\"a\"}");
+        rec.setEtag("etag-123");
+        rec.setReferencedUrls(List.of("http://example.com/c.html"));
+        rec.setRedirectTrail(List.of("http://example.com/old.html"));
+
+        var codec = RecordCodecs.<WebDocRecord>forType(
+                WebDocRecord.class, RecordFormat.BINARY);
+        var bytes = codec.encode(rec);
+        assertThat(BinaryRecordCodec.isBinary(bytes)).isTrue();
+
+        var decoded = codec.decode(bytes);
+        assertThat(decoded).isEqualTo(rec);
+        assertThat(decoded.getUrlRoot()).isEqualTo("http://example.com");
+    }
+
+    @Test
+    void testNullPriority() {
+        var rec = new WebDocRecord("http://example.com/");
+        var codec = RecordCodecs.<WebDocRecord>forType(
+                WebDocRecord.class, RecordFormat.BINARY);
+        assertThat(codec.decode(codec.encode(rec)).getSitemapPriority())
+                .isNull();
+    }
+}
@@ -0,0 +1,206 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.web.link.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.norconex.crawler.web.link.impl.HtmlTagScanner.ScannedTag;
+
+/**
+ * Makes sure the scanner produces the same results as the regular
+ * expressions it replaces (reproduced here as reference).
+ */
+class HtmlTagScannerTest {
+
+    private static final Set<String> TAG_NAMES = Set.of(
+            "a", "img", "base", "script", "meta", "frame", "iframe",
+            "link", "custom-tag", "title");
+
+    private static final String[] FUZZ_TOKENS = {
+        "<a", "<A", " href=", "href = ", "\"x.html\"", "'y'", "</a>", "</A>",
+        "<!--", "-->", "<script>", "<SCRIPT type=x>", "</script>",
+        "<scripts>", "/>", ">", "<", "</", "< ", "</ ", " / >",
+        "<base href=x>", "<base  href = 'z'>", "<basefont>", "<img",
+        "<IMG src=i.png>", "<custom-tag", "</custom-tag>", "<title>",
+        "</title>", "<b>", "</b>", "text", "=", " ", "  ", "\t", "\n",
+        "\r\n", "\u2028", "\u00A0", "_", "-",
+    };
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "LinkExtractorTest.html",
+        "LinkBaseHrefTest.html",
+        "LinkExtractBetweenTest.html",
+        "LinkKeepReferrerTest.html",
+        "LinkRelativeBaseHrefTest.html",
+        "LinkAttributesExtractorTest.html"
+    })
+    void testSameAsRegexOnTestFiles(String file) throws IOException {
+        String html;
+        try (var is = getClass().getResourceAsStream(file)) {
+            html = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        assertSameAsRegex(html);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "",
+        "<",
+        "<a",
+        "<a>",
+        "<a/>",
+        "<a href=x>text",
+        "<a href=x>te<b>x</b>t</a>",
+        "<a href=x>te\nxt</a>",
+        "<a href=x\n>text</a>",
+        "<a><a>nested</a></a>",
+        "<A HREF=x>upper</A>",
+        "<img src=x><img src=y>no closing",
+        "<base href=x><base href=y>",
+        "<base>< base href = 'x' >",
+        "<basefont href=x><base href=y>",
+        "<script>a<a href=x>b</script><a href=y>c</a>",
+        "<script>never closed <a href=x>",
+        "<scripts>not a script</script>",
+        "<!-- <a href=x> --><a href=y>",
+        "<!--> <a href=x> -->",
+        "<!-- unterminated <a href=x>",
+        "<a href=\"x>y\">z</a>",
+        "a  < /a >  < a   href = x / >",
+        "<custom-tag href=x>y</custom-tag>",
+        "<a href=x>\u2028</a>",
+        "<title>My <b>title</b></title>",
+    })
+    void testSameAsRegexOnEdgeCases(String html) {
+        assertSameAsRegex(html);
+    }
+
+    @Test
+    void testSameAsRegexOnRandomContent() {
+        var random = new Random(20240101L);
+        for (var i = 0; i < 2000; i++) {
+            var b = new StringBuilder();
+            var count = random.nextInt(40);
+            for (var j = 0; j < count; j++) {
+                b.append(FUZZ_TOKENS[random.nextInt(FUZZ_TOKENS.length)]);
+            }
+            assertSameAsRegex(b.toString());
+        }
+    }
+
+    private static void assertSameAsRegex(String html) {
+        var content = HtmlTagScanner.normalizeWhiteSpaces(html);
+        assertThat(content).as("normalizeWhiteSpaces: %s", html)
+                .isEqualTo(regexNormalizeWhiteSpaces(html));
+        assertSameAsRegexOnNormalized(content);
+        // some strategies are applied on non-normalized content as well
+        assertSameAsRegexOnNormalized(html);
+    }
+
+    private static void assertSameAsRegexOnNormalized(String content) {
+        assertThat(HtmlTagScanner.baseAttributes(content))
+                .as("baseAttributes: %s", content)
+                .isEqualTo(regexBaseAttributes(content));
+        assertThat(HtmlTagScanner.stripScriptBodies(content))
+                .as("stripScriptBodies: %s", content)
+                .isEqualTo(regexStripScriptBodies(content));
+        assertThat(HtmlTagScanner.stripComments(content))
+                .as("stripComments: %s", content)
+                .isEqualTo(regexStripComments(content));
+        assertThat(HtmlTagScanner.stripTags(content))
+                .as("stripTags: %s", content)
+                .isEqualTo(regexStripTags(content));
+
+        List<ScannedTag> actual = new ArrayList<>();
+        HtmlTagScanner.scan(content, TAG_NAMES, actual::add);
+        assertThat(actual).as("scan: %s", content)
+                .isEqualTo(regexScan(content));
+    }
+
+    //--- Reference regular expressions ----------------------------------------
+
+    private static String regexNormalizeWhiteSpaces(String content) {
+        return content
+                .replaceAll("\\s+", " ")
+                .replace("< ", "<")
+                .replace(" >", ">")
+                .replace("</ ", "</")
+                .replace("/ >", "/>");
+    }
+
+    private static String regexBaseAttributes(String content) {
+        var cntnt = content.replace(" =", "=").replace("= ", "=");
+        var matcher = Pattern.compile("(?is)<base\\b([^<>]+)>")
+                .matcher(cntnt);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private static String regexStripScriptBodies(String content) {
+        return content.replaceAll(
+                "(?is)(<script\\b[^>]*>)(.*?)(</script>)", "$1$3");
+    }
+
+    private static String regexStripComments(String content) {
+        return content.replaceAll("(?is)<!--.*?-->", "");
+    }
+
+    private static String regexStripTags(String content) {
+        return content.replaceAll("<[^<>]+>", "");
+    }
+
+    private static List<ScannedTag> regexScan(String content) {
+        List<ScannedTag> tags = new ArrayList<>();
+        var tagNameMatcher = Pattern.compile("<([\\w-]+)").matcher(content);
+        while (tagNameMatcher.find()) {
+            var name = tagNameMatcher.group(1).toLowerCase();
+            if (!TAG_NAMES.contains(name)) {
+                continue;
+            }
+            String attribs = null;
+            String body = null;
+            var attribsMatcher = Pattern
+                    .compile("^(.*?)(/)?>")
+                    .matcher(content)
+                    .region(tagNameMatcher.end(), content.length());
+            if (attribsMatcher.find()) {
+                attribs = attribsMatcher.group(1);
+                if (attribsMatcher.group(2) == null) {
+                    var m = Pattern
+                            .compile("(?i)^(.*?)</" + name + ">")
+                            .matcher(content)
+                            .region(attribsMatcher.end(), content.length());
+                    if (m.find()) {
+                        body = m.group(1);
+                    }
+                }
+            }
+            tags.add(new ScannedTag(name, attribs, body));
+        }
+        return tags;
+    }
+}
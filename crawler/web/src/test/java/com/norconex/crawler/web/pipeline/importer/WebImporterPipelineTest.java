@@ -1,4 +1,4 @@
-/* Copyright 2015-2023 Norconex Inc.
+/* Copyright 2015-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,6 +15,7 @@
 package com.norconex.crawler.web.pipeline.importer;
 
 import java.io.ByteArrayInputStream;
+import java.util.List;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -91,4 +92,30 @@ class WebImporterPipelineTest {
         Assertions.assertEquals(1, doc.getMetadata().getStrings(
                 WebDocMetadata.REFERENCED_URLS).size());
     }
+
+    @Test
+    void testReferencedLinksNormalized(Crawler crawler) {
+        var reference = "http://www.example.com/file.html";
+        var content = "<html><head><title>Test</title>\n"
+                + "</head><body>"
+                + "<a href=\"HTTP://WWW.Example.com/page.html#a\">A</a>"
+                + "<a href=\"http://www.example.com/page.html#b\">B</a>"
+                + "</body></html>";
+
+        var docRecord = new WebDocRecord(reference, 0);
+        docRecord.setContentType(ContentType.HTML);
+        var doc = new CrawlDoc(docRecord, null,
+                new CachedStreamFactory(1000, 1000).newInputStream(
+                        new ByteArrayInputStream(content.getBytes())), false);
+        doc.getMetadata().set(DocMetadata.CONTENT_TYPE, "text/html");
+        var ctx = new WebImporterPipelineContext(crawler, doc);
+
+        new LinkExtractorStage().test(ctx);
+
+        // links normalizing to the same URL are only referenced once
+        Assertions.assertEquals(List.of("http://www.example.com/page.html"),
+                doc.getMetadata().getStrings(WebDocMetadata.REFERENCED_URLS));
+        Assertions.assertEquals(List.of("http://www.example.com/page.html"),
+                docRecord.getReferencedUrls());
+    }
 }
@@ -1,4 +1,4 @@
-/* Copyright 2017-2023 Norconex Inc.
+/* Copyright 2017-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,6 +24,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatNoException;
 
 import java.awt.Dimension;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -120,6 +121,16 @@ class FeaturedImageProcessorTest {
         assertThat(img.getDimension()).isEqualTo(new Dimension(5, 5));
     }
 
+    @Test
+    void testReadDimension() throws IOException {
+        assertThat(FeaturedImageProcessor.readDimension(
+                IMG_640X480_PNG.asInputStream()))
+                    .isEqualTo(new Dimension(640, 480));
+        assertThat(FeaturedImageProcessor.readDimension(
+                new ByteArrayInputStream("not an image".getBytes())))
+                    .isNull();
+    }
+
     @Test
     void testWriteRead() {
         var p = new FeaturedImageProcessor();
@@ -140,6 +151,7 @@ class FeaturedImageProcessorTest {
             .setStorageDiskDir(Paths.get("c:\\someotherdir"))
             .setStorageDiskStructure(StorageDiskStructure.DATETIME)
             .setStorageDiskField("diskField")
+            .setMaxConcurrentFetches(2)
             .setStorageInlineField("inlineField")
             .setStorageUrlField("urlField");
 
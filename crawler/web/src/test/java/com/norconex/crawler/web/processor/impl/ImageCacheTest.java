@@ -1,4 +1,4 @@
-/* Copyright 2023 Norconex Inc.
+/* Copyright 2023-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@ package com.norconex.crawler.web.processor.impl;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.awt.Dimension;
 import java.io.IOException;
 import java.nio.file.Path;
 
@@ -66,4 +67,31 @@ class ImageCacheTest {
         assertThat(cache.getImage(ref320)).isNotNull();
         assertThat(cache.getImage(ref640)).isNotNull();
     }
+
+    @Test
+    void testImageDimensions() throws IOException {
+        var ref1 = "http://somewhere.com/1.png";
+        var ref2 = "http://somewhere.com/2.png";
+        var ref3 = "http://somewhere.com/3.png";
+
+        var cache = new ImageCache(2, tempDir);
+
+        cache.setDimension(ref1, new Dimension(10, 20));
+        cache.setDimension(ref2, null);
+        assertThat(cache.getDimension(ref1)).isEqualTo(new Dimension(10, 20));
+        assertThat(cache.isUnreadable(ref1)).isFalse();
+        assertThat(cache.getDimension(ref2)).isNull();
+        assertThat(cache.isUnreadable(ref2)).isTrue();
+        assertThat(cache.getDimension(ref3)).isNull();
+        assertThat(cache.isUnreadable(ref3)).isFalse();
+
+        // Caching an image also caches its dimension.
+        var baseUrl = "http://somewhere.com/";
+        cache.setImage(TestResource.IMG_160X120_PNG.asFeaturedImage(baseUrl));
+        assertThat(cache.getDimension(TestResource.IMG_160X120_PNG
+                .absolutePath(baseUrl))).isEqualTo(new Dimension(160, 120));
+
+        // Least recently used one was evicted
+        assertThat(cache.isUnreadable(ref2)).isFalse();
+    }
 }
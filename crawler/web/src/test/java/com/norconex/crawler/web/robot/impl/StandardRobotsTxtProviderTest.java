@@ -23,6 +23,10 @@ import static org.mockserver.model.HttpResponse.response;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -31,12 +35,15 @@ import org.junit.jupiter.api.Test;
 import org.mockserver.integration.ClientAndServer;
 import org.mockserver.junit.jupiter.MockServerSettings;
 import org.mockserver.model.MediaType;
+import org.mockserver.verify.VerificationTimes;
 
 import com.norconex.crawler.core.crawler.Crawler;
+import com.norconex.crawler.core.crawler.CrawlerEvent;
 import com.norconex.crawler.core.filter.ReferenceFilter;
 import com.norconex.crawler.core.filter.impl.GenericReferenceFilter;
 import com.norconex.crawler.web.MockWebCrawlSession;
 import com.norconex.crawler.web.fetch.HttpFetcher;
+import com.norconex.crawler.web.robot.RobotsTxt;
 import com.norconex.crawler.web.robot.RobotsTxtFilter;
 
 @MockServerSettings
@@ -77,6 +84,112 @@ class StandardRobotsTxtProviderTest {
                         serverUrl(client, "/badpath/a.html")));
     }
 
+    @MockWebCrawlSession
+    @Test
+    void testRobotsTxtCached(ClientAndServer client, Crawler crawler) {
+        client
+            .when(request()
+                .withPath("/robots.txt"))
+            .respond(response()
+                .withBody("""
+                    User-agent: *
+                    Disallow: /badpath/
+                    """, MediaType.PLAIN_TEXT_UTF_8));
+
+        var robotProvider = new StandardRobotsTxtProvider();
+        var fetcher = (HttpFetcher) crawler.getFetcher();
+        var robotsTxt1 = robotProvider.getRobotsTxt(
+                fetcher, serverUrl(client, "/page1.html"));
+        var robotsTxt2 = robotProvider.getRobotsTxt(
+                fetcher, serverUrl(client, "/page2.html"));
+        assertThat(robotsTxt2).isSameAs(robotsTxt1);
+        assertThat(robotsTxt1.getDisallowFilters()).hasSize(1);
+        client.verify(request().withPath("/robots.txt"),
+                VerificationTimes.once());
+    }
+
+    @MockWebCrawlSession
+    @Test
+    void testRobotsTxtPersisted(ClientAndServer client, Crawler crawler) {
+        client
+            .when(request()
+                .withPath("/robots.txt"))
+            .respond(response()
+                .withBody("""
+                    User-agent: *
+                    Disallow: /badpath/
+                    """, MediaType.PLAIN_TEXT_UTF_8));
+
+        var fetcher = (HttpFetcher) crawler.getFetcher();
+        var event = CrawlerEvent.builder()
+                .name("test")
+                .source(crawler)
+                .build();
+
+        var robotProvider = new StandardRobotsTxtProvider();
+        robotProvider.getConfiguration().setPersistCache(true);
+        robotProvider.onCrawlerRunBegin(event);
+        assertThat(robotProvider.getRobotsTxt(
+                fetcher, serverUrl(client, "/page1.html"))
+                        .getDisallowFilters()).hasSize(1);
+        robotProvider.onCrawlerRunEnd(event);
+
+        // a new instance (e.g., after restart) uses the persisted one
+        robotProvider = new StandardRobotsTxtProvider();
+        robotProvider.getConfiguration().setPersistCache(true);
+        robotProvider.onCrawlerRunBegin(event);
+        var robotsTxt = robotProvider.getRobotsTxt(
+                fetcher, serverUrl(client, "/page2.html"));
+        robotProvider.onCrawlerRunEnd(event);
+
+        assertThat(robotsTxt.getDisallowFilters()).hasSize(1);
+        assertThat(robotsTxt.getDisallowFilters().get(0))
+                .matches(r -> !r.acceptReference(
+                        serverUrl(client, "/badpath/a.html")));
+        client.verify(request().withPath("/robots.txt"),
+                VerificationTimes.once());
+    }
+
+    @MockWebCrawlSession
+    @Test
+    void testRobotsTxtConcurrentFetch(ClientAndServer client, Crawler crawler)
+            throws Exception {
+        client
+            .when(request()
+                .withPath("/robots.txt"))
+            .respond(response()
+                .withDelay(TimeUnit.MILLISECONDS, 500)
+                .withBody("""
+                    User-agent: *
+                    Disallow: /badpath/
+                    """, MediaType.PLAIN_TEXT_UTF_8));
+
+        var robotProvider = new StandardRobotsTxtProvider();
+        var fetcher = (HttpFetcher) crawler.getFetcher();
+        var numThreads = 5;
+        var start = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<RobotsTxt>> futures = new ArrayList<>();
+            for (var i = 0; i < numThreads; i++) {
+                var url = serverUrl(client, "/page" + i + ".html");
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return robotProvider.getRobotsTxt(fetcher, url);
+                }));
+            }
+            start.countDown();
+            var first = futures.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<RobotsTxt> future : futures) {
+                assertThat(future.get(10, TimeUnit.SECONDS)).isSameAs(first);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        client.verify(request().withPath("/robots.txt"),
+                VerificationTimes.once());
+    }
+
     @Test
     void testParseRobotsTxt() throws IOException {
         var robotTxt1 = """
@@ -0,0 +1,145 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.crawler.web.url.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.norconex.commons.lang.url.URLNormalizer;
+import com.norconex.crawler.web.url.impl.GenericUrlNormalizerConfig.Normalization;
+import com.norconex.crawler.web.url.impl.GenericUrlNormalizerConfig.NormalizationReplace;
+
+/**
+ * Compares {@link GenericUrlNormalizer} against the former approach of
+ * rebuilding everything for each URL. Not run as part of the test suite.
+ * Launch it with the main method, from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GenericUrlNormalizerBenchmark {
+
+    /** Percentage of URLs repeated across "pages" (e.g., nav links). */
+    @Param({ "0", "50", "90" })
+    public int repeatedPct;
+
+    private final List<String> urls = new ArrayList<>();
+    private GenericUrlNormalizer cachedNormalizer;
+    private GenericUrlNormalizer uncachedNormalizer;
+
+    @Setup
+    public void setup() {
+        for (var i = 0; i < 10_000; i++) {
+            if (i % 100 < repeatedPct) {
+                urls.add("HTTP://WWW.Example.com:80/nav/menu%7e"
+                        + (i % 20) + ".htm?debug=true#top");
+            } else {
+                urls.add("http://www.example.com:80/a/../section/page%7e"
+                        + i + ".htm?b=2&a=1&debug=true#frag");
+            }
+        }
+        cachedNormalizer = newNormalizer();
+        uncachedNormalizer = newNormalizer();
+        uncachedNormalizer.getConfiguration().setCacheMaxSize(0);
+    }
+
+    @Benchmark
+    public void perUrlRebuild(Blackhole bh) {
+        var cfg = cachedNormalizer.getConfiguration();
+        for (String url : urls) {
+            bh.consume(rebuildAndNormalize(cfg, url));
+        }
+    }
+
+    @Benchmark
+    public void compiledUncached(Blackhole bh) {
+        for (String url : urls) {
+            bh.consume(uncachedNormalizer.normalizeURL(url));
+        }
+    }
+
+    @Benchmark
+    public void compiledCached(Blackhole bh) {
+        for (String url : urls) {
+            bh.consume(cachedNormalizer.normalizeURL(url));
+        }
+    }
+
+    private static GenericUrlNormalizer newNormalizer() {
+        var n = new GenericUrlNormalizer();
+        n.getConfiguration()
+            .setNormalizations(List.of(
+                    Normalization.REMOVE_FRAGMENT,
+                    Normalization.LOWERCASE_SCHEME_HOST,
+                    Normalization.UPPERCASE_ESCAPESEQUENCE,
+                    Normalization.DECODE_UNRESERVED_CHARACTERS,
+                    Normalization.REMOVE_DEFAULT_PORT,
+                    Normalization.ENCODE_NON_URI_CHARACTERS,
+                    Normalization.REMOVE_DOT_SEGMENTS,
+                    Normalization.SORT_QUERY_PARAMETERS))
+            .setReplacements(List.of(
+                    new NormalizationReplace("\\.htm(?=$|\\?)", ".html"),
+                    new NormalizationReplace("&?debug=true")));
+        return n;
+    }
+
+    // How GenericUrlNormalizer used to normalize each URL.
+    private static String rebuildAndNormalize(
+            GenericUrlNormalizerConfig cfg, String url) {
+        var normalizer = new URLNormalizer(url);
+        for (Normalization n : cfg.getNormalizations()) {
+            n.getConsumer().accept(normalizer);
+        }
+        var normedURL = normalizer.toString();
+        for (NormalizationReplace replace : cfg.getReplacements()) {
+            if (replace == null || StringUtils.isBlank(replace.getMatch())) {
+                continue;
+            }
+            var replacement = replace.getValue();
+            if (StringUtils.isBlank(replacement)) {
+                replacement = StringUtils.EMPTY;
+            }
+            normedURL = normedURL.replaceAll(replace.getMatch(), replacement);
+        }
+        return normedURL;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(GenericUrlNormalizerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -1,4 +1,4 @@
-/* Copyright 2010-2023 Norconex Inc.
+/* Copyright 2010-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -139,6 +139,28 @@ class GenericUrlNormallizerTest {
         assertEquals(t, n.normalizeURL(s));
     }
 
+    @Test
+    void testConfigChangedAfterUse() {
+        var n = new GenericUrlNormalizer();
+        n.getConfiguration().setNormalizations(List.of(
+                Normalization.LOWERCASE_SCHEME_HOST));
+        s = "HTTP://Example.com/Page.htm#top";
+        assertEquals("http://example.com/Page.htm#top", n.normalizeURL(s));
+        // cached value
+        assertEquals("http://example.com/Page.htm#top", n.normalizeURL(s));
+
+        n.getConfiguration()
+            .setNormalizations(List.of(
+                    Normalization.LOWERCASE_SCHEME_HOST,
+                    Normalization.REMOVE_FRAGMENT))
+            .setReplacements(List.of(
+                    new NormalizationReplace("\\.htm$", ".html")));
+        assertEquals("http://example.com/Page.html", n.normalizeURL(s));
+
+        n.getConfiguration().setCacheMaxSize(0);
+        assertEquals("http://example.com/Page.html", n.normalizeURL(s));
+    }
+
     @Test
     void testWriteRead() {
         var n = new GenericUrlNormalizer();
@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.Objects;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.function.FailableConsumer;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.norconex.commons.lang.bean.BeanUtil;
@@ -54,6 +55,12 @@ import lombok.extern.slf4j.Slf4j;
  * Principal class responsible for importing documents.
  * Refer to {@link ImporterConfig} for configuration options.
  * Thread-safe, and reusing the same instance is highly recommended.
+ * <p>
+ * Document handlers are initialized once, either explicitly with
+ * {@link #init()} or on the first imported document, and remain initialized
+ * until {@link #destroy()} is invoked. Handlers are shared by all threads
+ * importing documents with the same importer instance.
+ * </p>
  * @see ImporterConfig
  */
 @Slf4j
@@ -76,6 +83,16 @@ public class Importer {
     @JsonIgnore
     private final EventManager eventManager;
 
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @JsonIgnore
+    private final Object lifecycleLock = new Object();
+
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @JsonIgnore
+    private volatile boolean initialized;
+
     private static final InheritableThreadLocal<Importer> INSTANCE =
             new InheritableThreadLocal<>();
 
@@ -130,6 +147,49 @@ public class Importer {
         return eventManager;
     }
 
+    /**
+     * Initializes document handlers, if not already initialized.
+     * Invoking this method before importing documents is optional, but
+     * allows initialization to occur at a predictable time
+     * (e.g., on application startup).
+     * Subsequent invocations have no effect until {@link #destroy()}
+     * is invoked.
+     */
+    public void init() {
+        if (initialized) {
+            return;
+        }
+        synchronized (lifecycleLock) {
+            if (!initialized) {
+                visitHandlers(DocumentHandler::init, "initialize");
+                initialized = true;
+            }
+        }
+    }
+
+    /**
+     * Destroys document handlers, releasing resources they may hold.
+     * Has no effect if handlers are not initialized. The importer can be
+     * initialized again afterward.
+     */
+    public void destroy() {
+        synchronized (lifecycleLock) {
+            if (initialized) {
+                initialized = false;
+                visitHandlers(DocumentHandler::destroy, "destroy");
+            }
+        }
+    }
+
+    /**
+     * Gets whether document handlers are currently initialized.
+     * @return <code>true</code> if initialized
+     */
+    @JsonIgnore
+    public boolean isInitialized() {
+        return initialized;
+    }
+
     /**
      * Imports a document according to the importer configuration.
      * @param req request instructions for importing
@@ -154,15 +214,7 @@ public class Importer {
      * @return importer response
      */
     public ImporterResponse importDocument(Doc document) {
-
-
-
-        //TODO ensure inited/destroyed only once when reusing importer
-
-
-
-
-        initializeHandlersOnce();
+        init();
         // Note: Doc reference, InputStream and metadata are all null-safe.
 
         //--- Document Handling ---
@@ -209,33 +261,21 @@ public class Importer {
                     .setReference(document.getReference())
                     .setException(new ImporterException(
                             "Could not import document: " + document, e));
-        } finally {
-            destroyHandlersOnce();
         }
     }
 
-    private synchronized void initializeHandlersOnce() {
-        BeanUtil.visitAll(
-                configuration.getHandlers(),
-                t -> {
-                    try {
-                        t.init();
-                    } catch (IOException e) {
-                        throw new ImporterRuntimeException(
-                                "Coult not initialize handler: " + t, e);
-                    }
-                },
-                DocumentHandler.class);
-    }
-    private synchronized void destroyHandlersOnce() {
+    private void visitHandlers(
+            FailableConsumer<DocumentHandler, IOException> action,
+            String actionName) {
         BeanUtil.visitAll(
                 configuration.getHandlers(),
                 t -> {
                     try {
-                        t.destroy();
+                        action.accept(t);
                     } catch (IOException e) {
                         throw new ImporterRuntimeException(
-                                "Coult not initialize handler: " + t, e);
+                                "Could not " + actionName + " handler: " + t,
+                                e);
                     }
                 },
                 DocumentHandler.class);
@@ -1,4 +1,4 @@
-/* Copyright 2014-2023 Norconex Inc.
+/* Copyright 2014-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -108,8 +108,9 @@ public final class ImporterLauncher {
         var config =
                 loadCommandLineConfig(cmd, configFile, varFile);
         var inputFile = Paths.get(cmd.getOptionValue(ARG_INPUTFILE));
+        var importer = new Importer(config);
         try {
-            var response = new Importer(config).importDocument(
+            var response = importer.importDocument(
                     new ImporterRequest(inputFile)
                         .setContentType(contentType)
                         .setCharset(contentEncoding != null
@@ -124,6 +125,8 @@ public final class ImporterLauncher {
                     "A problem occured while importing " + inputFile);
             e.printStackTrace(System.err);
             System.exit(-1);
+        } finally {
+            importer.destroy();
         }
     }
 
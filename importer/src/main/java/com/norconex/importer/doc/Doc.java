@@ -1,4 +1,4 @@
-/* Copyright 2014-2023 Norconex Inc.
+/* Copyright 2014-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@ package com.norconex.importer.doc;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.Charset;
 
 import org.apache.commons.io.IOUtils;
 
@@ -43,6 +44,16 @@ public class Doc {
     private final Properties metadata;
     @ToString.Exclude
     private CachedInputStream content;
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final DomCache domCache = new DomCache();
+    // Content set as text, not encoded until read as a stream.
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private String text;
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Charset textCharset;
 
     public Doc(String reference, CachedInputStream content) {
         this(reference, content, null);
@@ -87,17 +98,22 @@ public class Doc {
      */
     //MAYBE: implement "closeable" instead?
     public synchronized void dispose() throws IOException {
+        domCache.clear();
+        text = null;
         content.dispose();
     }
 
-    public CachedInputStream getInputStream() {
+    public synchronized CachedInputStream getInputStream() {
+        encodeText();
         content.rewind();
         return content;
     }
-    public void setInputStream(@NonNull InputStream inputStream) {
+    public synchronized void setInputStream(@NonNull InputStream inputStream) {
         if (content == inputStream) {
             return;
         }
+        domCache.clear();
+        text = null;
         try {
             content.dispose();
             if (inputStream instanceof CachedInputStream cis) {
@@ -114,6 +130,69 @@ public class Doc {
         }
     }
 
+    /**
+     * Sets the document content from text. The text is only encoded
+     * with the given charset when the content is obtained as a stream
+     * (e.g., {@link #getInputStream()}), so successive text
+     * transformations can be applied without encoding and decoding
+     * the content each time. Text longer than the stream factory
+     * maximum instance memory is encoded right away.
+     * @param text content text
+     * @param charset character encoding of the content
+     */
+    public synchronized void setText(
+            @NonNull String text, @NonNull Charset charset) {
+        domCache.clear();
+        this.text = text;
+        textCharset = charset;
+        if (text.length() > content.getStreamFactory()
+                .getInstanceMaxMemory()) {
+            encodeText();
+        }
+    }
+
+    /**
+     * Gets the content text last set with {@link #setText(String, Charset)}
+     * if it has not been read as a stream since, and if decoding
+     * the encoded text with the given charset is guaranteed to return
+     * the same text (same Unicode charset).
+     * @param charset character encoding the content would be read with
+     * @return text or <code>null</code>
+     */
+    public synchronized String getText(Charset charset) {
+        if (text != null
+                && textCharset.equals(charset)
+                && textCharset.name().startsWith("UTF-")) {
+            return text;
+        }
+        return null;
+    }
+
+    private void encodeText() {
+        if (text == null) {
+            return;
+        }
+        try (var os = content.getStreamFactory().newOuputStream()) {
+            os.write(text.getBytes(textCharset));
+            var newContent = os.getInputStream();
+            content.dispose();
+            content = newContent;
+        } catch (IOException e) {
+            throw new ImporterRuntimeException(
+                    "Could not set content from text.", e);
+        }
+        text = null;
+    }
+
+    /**
+     * Gets the DOM trees parsed from this document, kept for reuse
+     * until its content is replaced.
+     * @return DOM cache
+     */
+    public DomCache getDomCache() {
+        return domCache;
+    }
+
     public CachedStreamFactory getStreamFactory() {
         return content.getStreamFactory();
     }
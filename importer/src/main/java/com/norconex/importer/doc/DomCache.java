@@ -0,0 +1,114 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.importer.doc;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.parser.Parser;
+
+import lombok.NonNull;
+
+/**
+ * <p>
+ * DOM trees parsed from a document content or metadata values, kept
+ * so that DOM-aware components processing the same text
+ * (conditions, transformers, splitters, link extractors, etc.)
+ * only have to parse it once.
+ * </p>
+ * <p>
+ * A cached DOM is only returned for the same text, base URI, and
+ * parser type it was parsed from. The cache is cleared
+ * whenever the document content is replaced.
+ * </p>
+ * <p>
+ * DOMs returned by {@link #get(String, String, Parser)} are shared and
+ * must not be modified. Use {@link #getModifiable(String, String, Parser)}
+ * to obtain one that can.
+ * </p>
+ * @since 4.0.0
+ */
+public class DomCache {
+
+    // Content and a few metadata fields are usually enough.
+    private static final int MAX_ENTRIES = 3;
+
+    private final Map<Key, Document> doms =
+            new LinkedHashMap<>(MAX_ENTRIES + 1, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Document> e) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * Gets the DOM parsed from the given text, parsing it only if not
+     * already cached. The returned DOM must not be modified.
+     * @param text the text to parse
+     * @param baseUri base URI used to resolve relative URLs
+     * @param parser the parser to use if not cached
+     * @return parsed DOM
+     */
+    public synchronized Document get(
+            @NonNull String text, String baseUri, @NonNull Parser parser) {
+        return doms.computeIfAbsent(
+                toKey(text, baseUri, parser),
+                k -> parser.parseInput(text, k.baseUri()));
+    }
+
+    /**
+     * Gets a DOM parsed from the given text that can be modified.
+     * It is a copy of the cached DOM, if any. Otherwise, the text is
+     * parsed without caching the result.
+     * @param text the text to parse
+     * @param baseUri base URI used to resolve relative URLs
+     * @param parser the parser to use if not cached
+     * @return parsed DOM
+     */
+    public synchronized Document getModifiable(
+            @NonNull String text, String baseUri, @NonNull Parser parser) {
+        var key = toKey(text, baseUri, parser);
+        var dom = doms.get(key);
+        if (dom != null) {
+            return dom.clone();
+        }
+        return parser.parseInput(text, key.baseUri());
+    }
+
+    /**
+     * Removes all cached DOMs.
+     */
+    public synchronized void clear() {
+        doms.clear();
+    }
+
+    /**
+     * Gets the number of cached DOMs.
+     * @return number of cached DOMs
+     */
+    public synchronized int size() {
+        return doms.size();
+    }
+
+    private static Key toKey(String text, String baseUri, Parser parser) {
+        return new Key(parser.getTreeBuilder().getClass(),
+                Objects.toString(baseUri, ""), text);
+    }
+
+    private record Key(Class<?> treeBuilder, String baseUri, String text) {}
+}
@@ -1,4 +1,4 @@
-/* Copyright 2020-2023 Norconex Inc.
+/* Copyright 2020-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,11 +15,18 @@
 package com.norconex.importer.handler;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.commons.lang3.ObjectUtils;
+
 import com.norconex.commons.lang.event.EventManager;
 import com.norconex.commons.lang.io.CachedOutputStream;
 import com.norconex.commons.lang.io.CachedStreamFactory;
@@ -27,6 +34,7 @@ import com.norconex.commons.lang.map.Properties;
 import com.norconex.importer.charset.CharsetUtil;
 import com.norconex.importer.doc.Doc;
 import com.norconex.importer.doc.DocRecord;
+import com.norconex.importer.doc.DomCache;
 import com.norconex.importer.handler.condition.Condition;
 import com.norconex.importer.handler.parser.ParseState;
 import com.norconex.importer.util.ReadAdapter;
@@ -55,6 +63,19 @@ public class DocContext {
     @Setter(value = AccessLevel.NONE)
     private CachedOutputStream out;
 
+    // Text written to the output, kept in memory instead of being encoded
+    // to "out", unless binary output is also written.
+    @Getter(value = AccessLevel.NONE)
+    @Setter(value = AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private StringBuilder outText;
+    @Getter(value = AccessLevel.NONE)
+    @Setter(value = AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Charset outTextCharset;
+
     @Getter(value = AccessLevel.PACKAGE)
     @NonNull
     private final Doc doc;
@@ -90,6 +111,15 @@ public class DocContext {
     public CachedStreamFactory streamFactory() {
         return doc.getStreamFactory();
     }
+    /**
+     * DOM trees parsed from the document content or metadata values,
+     * shared by DOM-aware handlers. Cleared when new content is
+     * written with {@link #output()}.
+     * @return DOM cache
+     */
+    public DomCache domCache() {
+        return doc.getDomCache();
+    }
     public boolean isRejected() {
         return rejectedBy != null;
     }
@@ -134,7 +164,12 @@ public class DocContext {
 
 
 
-        if (out != null && !out.isCacheEmpty()) {
+        if (outText != null) {
+            // only encoded if later read as a stream
+            doc.setText(outText.toString(), outTextCharset);
+            outText = null;
+            outTextCharset = null;
+        } else if (out != null && !out.isCacheEmpty()) {
             doc.setInputStream(out.getInputStream());
             out.dispose();
             out = null;
@@ -143,22 +178,115 @@ public class DocContext {
 
     /**
      * Flushes any output and returns an adapter for  the document input..
+     * Text last written with {@link #output()} is read back from memory
+     * when read with the same charset.
      * @return document input adapter
      * @throws IOException
      */
     public synchronized ReadAdapter input() throws IOException {
         flush();
-        return new ReadAdapter(
-                doc::getInputStream,
-                CharsetUtil.firstNonNullOrUTF8(
-                        parseState, docRecord().getCharset()));
+        var charset = CharsetUtil.firstNonNullOrUTF8(
+                parseState, docRecord().getCharset());
+        return new ReadAdapter(doc::getInputStream, charset) {
+            @Override
+            public Reader asReader(Charset cs) {
+                var text = doc.getText(ObjectUtils.firstNonNull(cs, charset));
+                if (text != null) {
+                    return new StringReader(text);
+                }
+                return super.asReader(cs);
+            }
+        };
     }
     /**
      * Make sure to close the stream when done or explictely flush the stream.
+     * Text written with a writer is kept in memory so consecutive
+     * text handlers do not encode and decode the content between them.
+     * It is encoded when mixed with binary output, when it exceeds the
+     * stream factory maximum instance memory, or when the document
+     * content is later read as a stream.
      * @return output adapter
      */
     public synchronized WriteAdapter output() {
-        out = streamFactory().newOuputStream();
-        return new WriteAdapter(out);
+        out = null;
+        outText = null;
+        outTextCharset = null;
+        return new WriteAdapter(this::outputStream) {
+            @Override
+            public Writer asWriter(Charset charset) {
+                return new OutputTextWriter(ObjectUtils.firstNonNull(
+                        charset, StandardCharsets.UTF_8));
+            }
+        };
+    }
+
+    private synchronized OutputStream outputStream() {
+        if (out == null) {
+            out = streamFactory().newOuputStream();
+            // binary output after text: encode the text written so far
+            if (outText != null) {
+                try {
+                    out.write(outText.toString().getBytes(outTextCharset));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                outText = null;
+                outTextCharset = null;
+            }
+        }
+        return out;
+    }
+
+    private long maxTextLength() {
+        return streamFactory().getInstanceMaxMemory();
+    }
+
+    // Keeps written text in memory, unless binary output was written too,
+    // text was written with a different charset, or the text exceeds
+    // the memory allowed for a cached stream.
+    private final class OutputTextWriter extends Writer {
+        private final Charset charset;
+        private Writer bytesWriter;
+        private OutputTextWriter(Charset charset) {
+            this.charset = charset;
+        }
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            synchronized (DocContext.this) {
+                if (bytesWriter == null && out == null && (outText == null
+                        || outTextCharset.equals(charset))) {
+                    // even when empty, so blanking content is detected
+                    if (outText == null) {
+                        outText = new StringBuilder();
+                        outTextCharset = charset;
+                    }
+                    outText.append(cbuf, off, len);
+                    if (outText.length() <= maxTextLength()) {
+                        return;
+                    }
+                    // too large for memory, cache it like binary output
+                    bytesWriter = new WriteAdapter(
+                            outputStream()).asWriter(charset);
+                    return;
+                }
+                if (bytesWriter == null) {
+                    bytesWriter = new WriteAdapter(
+                            outputStream()).asWriter(charset);
+                }
+                bytesWriter.write(cbuf, off, len);
+            }
+        }
+        @Override
+        public void flush() throws IOException {
+            if (bytesWriter != null) {
+                bytesWriter.flush();
+            }
+        }
+        @Override
+        public void close() throws IOException {
+            if (bytesWriter != null) {
+                bytesWriter.close();
+            }
+        }
     }
 }
@@ -1,4 +1,4 @@
-/* Copyright 2010-2023 Norconex Inc.
+/* Copyright 2010-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -32,6 +32,13 @@ import lombok.NonNull;
 /**
  * Implementations are responsible for interacting with a document to
  * either parse it, transform it, decorate it, filter it, etc.
+ * <p>
+ * A handler instance is shared by all threads importing documents, so
+ * implementations must be thread-safe. Expensive resources
+ * (e.g., models, dictionaries, parsers) should be created in {@link #init()},
+ * which is invoked once before the first document is handled, and released
+ * in {@link #destroy()}, invoked once the importer is no longer used.
+ * </p>
  */
 public interface DocumentHandler extends Consumer<DocContext> {
 
@@ -41,7 +48,18 @@ public interface DocumentHandler extends Consumer<DocContext> {
     //TODO move this out of .parser.
 
     //TODO maybe pass Importer to method?
+    /**
+     * Initializes this handler. Invoked once by the importer before
+     * handling any document.
+     * @throws IOException could not initialize handler
+     */
     default void init() throws IOException {}
+    /**
+     * Destroys this handler. Invoked once by the importer when it is
+     * no longer used. No documents are handled after this call, unless
+     * the handler is initialized again.
+     * @throws IOException could not destroy handler
+     */
     default void destroy() throws IOException {}
     //default void destroy(Importer importer) {}
 
@@ -1,4 +1,4 @@
-/* Copyright 2021-2023 Norconex Inc.
+/* Copyright 2021-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,7 +19,6 @@ import static com.norconex.importer.util.DomUtil.toJSoupParser;
 import java.io.IOException;
 
 import org.apache.commons.lang3.mutable.MutableBoolean;
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 
@@ -168,7 +167,7 @@ public class DomCondition
             .build()
             .read(docCtx, chunk -> {
                 // only check if no successful match yet.
-                if (matches.isFalse() && testDocument(Jsoup.parse(
+                if (matches.isFalse() && testDocument(docCtx.domCache().get(
                         chunk.getText(),
                         docCtx.reference(),
                         toJSoupParser(configuration.getParser())))) {
@@ -1,4 +1,4 @@
-/* Copyright 2015-2023 Norconex Inc.
+/* Copyright 2015-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,6 @@ package com.norconex.importer.handler.splitter.impl;
 
 import java.io.IOException;
 
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 
@@ -118,7 +117,7 @@ public class DomSplitter extends AbstractDocumentSplitter<DomSplitterConfig> {
             docCtx.childDocs();
             docCtx.metadata().matchKeys(
                     configuration.getFieldMatcher()).forEach((k, vals) ->
-                vals.forEach(v -> parse(docCtx, Jsoup.parse(
+                vals.forEach(v -> parse(docCtx, docCtx.domCache().get(
                         v, docCtx.reference(), DomUtil.toJSoupParser(
                                 configuration.getParser())) ))
             );
@@ -129,9 +128,8 @@ public class DomSplitter extends AbstractDocumentSplitter<DomSplitterConfig> {
                         docCtx.parseState(),
                         configuration.getSourceCharset(),
                         docCtx.docRecord().getCharset());
-                var soupDoc = Jsoup.parse(
-                        docCtx.input().asInputStream(),
-                        inputCharset.toString(),
+                var soupDoc = docCtx.domCache().get(
+                        docCtx.input().asString(inputCharset),
                         docCtx.reference(),
                         DomUtil.toJSoupParser(configuration.getParser()));
                 parse(docCtx, soupDoc);
@@ -1,4 +1,4 @@
-/* Copyright 2015-2023 Norconex Inc.
+/* Copyright 2015-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,7 +21,6 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.commons.lang3.StringUtils;
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 
@@ -231,7 +230,8 @@ public class DomTransformer
             return;
         }
 
-        var doc = Jsoup.parse(
+        // Operations modify the DOM, so we can't use the shared one.
+        var doc = docCtx.domCache().getModifiable(
                 chunk.getText(),
                 docCtx.reference(),
                 DomUtil.toJSoupParser(configuration.getParser()));
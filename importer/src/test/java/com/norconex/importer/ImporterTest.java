@@ -15,6 +15,7 @@
 package com.norconex.importer;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatNoException;
 
 import java.io.File;
@@ -25,6 +26,7 @@ import java.io.Reader;
 import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 import org.apache.commons.collections4.CollectionUtils;
@@ -43,6 +45,8 @@ import com.norconex.commons.lang.config.Configurable;
 import com.norconex.commons.lang.map.Properties;
 import com.norconex.commons.lang.text.TextMatcher;
 import com.norconex.importer.doc.Doc;
+import com.norconex.importer.handler.DocContext;
+import com.norconex.importer.handler.DocumentHandler;
 import com.norconex.importer.handler.parser.impl.DefaultParser;
 
 class ImporterTest {
@@ -122,6 +126,43 @@ class ImporterTest {
         Assertions.assertNotNull(importer.getEventManager());
     }
 
+    @Test
+    void testHandlersInitializedOnce() {
+        var initCount = new AtomicInteger();
+        var destroyCount = new AtomicInteger();
+        var handleCount = new AtomicInteger();
+        var imp = new Importer(new ImporterConfig().setHandlers(List.of(
+                new DocumentHandler() {
+                    @Override
+                    public void init() {
+                        initCount.incrementAndGet();
+                    }
+                    @Override
+                    public void destroy() {
+                        destroyCount.incrementAndGet();
+                    }
+                    @Override
+                    public void accept(DocContext ctx) {
+                        handleCount.incrementAndGet();
+                    }
+                })));
+
+        assertThat(imp.isInitialized()).isFalse();
+        for (var i = 0; i < 3; i++) {
+            imp.importDocument(TestUtil.newDoc("ref" + i));
+        }
+        assertThat(imp.isInitialized()).isTrue();
+        assertThat(handleCount.get()).isEqualTo(3);
+        assertThat(initCount.get()).isOne();
+        assertThat(destroyCount.get()).isZero();
+
+        imp.destroy();
+        imp.destroy();
+        assertThat(imp.isInitialized()).isFalse();
+        assertThat(initCount.get()).isOne();
+        assertThat(destroyCount.get()).isOne();
+    }
+
     @Test
     void testExceptions() throws IOException {
         // Invalid files
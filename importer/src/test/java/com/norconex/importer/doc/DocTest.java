@@ -1,4 +1,4 @@
-/* Copyright 2022 Norconex Inc.
+/* Copyright 2022-2024 Norconex Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -22,6 +22,7 @@ import static org.assertj.core.api.Assertions.assertThatNoException;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 
 import org.junit.jupiter.api.Test;
 
@@ -87,4 +88,28 @@ class DocTest {
             .isThrownBy(//NOSONAR
                 () -> doc.setInputStream(TestUtil.failingInputStream()));
     }
+
+    @Test
+    void testSetText() {
+        var doc = new Doc("ref.html", toCachedInputStream("old"));
+        doc.setText("new é", StandardCharsets.UTF_8);
+
+        // text available as is until read as a stream
+        assertThat(doc.getText(StandardCharsets.UTF_8)).isEqualTo("new é");
+        assertThat(doc.getText(StandardCharsets.ISO_8859_1)).isNull();
+        assertThat(TestUtil.contentAsString(doc)).isEqualTo("new é");
+        assertThat(doc.getText(StandardCharsets.UTF_8)).isNull();
+
+        // not a Unicode charset: always read from encoded content
+        doc.setText("new é", StandardCharsets.ISO_8859_1);
+        assertThat(doc.getText(StandardCharsets.ISO_8859_1)).isNull();
+        assertThat(doc.getInputStream()).hasBinaryContent(
+                "new é".getBytes(StandardCharsets.ISO_8859_1));
+
+        // replaced by new content stream
+        doc.setText("text", StandardCharsets.UTF_8);
+        doc.setInputStream(toCachedInputStream("stream"));
+        assertThat(doc.getText(StandardCharsets.UTF_8)).isNull();
+        assertThat(TestUtil.contentAsString(doc)).isEqualTo("stream");
+    }
 }
@@ -0,0 +1,77 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.importer.doc;
+
+import static com.norconex.importer.TestUtil.toCachedInputStream;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.jsoup.parser.Parser;
+import org.junit.jupiter.api.Test;
+
+class DomCacheTest {
+
+    private static final String HTML =
+            "<html><body><p class=\"a\">Hello</p></body></html>";
+
+    @Test
+    void testGet() {
+        var cache = new DomCache();
+        var dom = cache.get(HTML, "http://x.com", Parser.htmlParser());
+        assertThat(dom.select("p.a").text()).isEqualTo("Hello");
+
+        // same text, base URI, and parser type: reused
+        assertThat(cache.get(HTML, "http://x.com", Parser.htmlParser()))
+            .isSameAs(dom);
+        assertThat(cache.get(new String(HTML), "http://x.com",
+                Parser.htmlParser())).isSameAs(dom);
+
+        // anything different: parsed again
+        assertThat(cache.get(HTML, "http://y.com", Parser.htmlParser()))
+            .isNotSameAs(dom);
+        assertThat(cache.get(HTML, "http://x.com", Parser.xmlParser()))
+            .isNotSameAs(dom);
+        assertThat(cache.get(HTML + " ", "http://x.com", Parser.htmlParser()))
+            .isNotSameAs(dom);
+        // only the most recent ones are kept
+        assertThat(cache.size()).isEqualTo(3);
+    }
+
+    @Test
+    void testGetModifiable() {
+        var cache = new DomCache();
+
+        // not cached: parsed, but not added to cache
+        var dom = cache.getModifiable(HTML, null, Parser.htmlParser());
+        assertThat(dom.select("p")).hasSize(1);
+        assertThat(cache.size()).isZero();
+
+        // cached: a copy is returned
+        var shared = cache.get(HTML, null, Parser.htmlParser());
+        dom = cache.getModifiable(HTML, null, Parser.htmlParser());
+        assertThat(dom).isNotSameAs(shared);
+        dom.select("p").remove();
+        assertThat(shared.select("p")).hasSize(1);
+    }
+
+    @Test
+    void testClearedOnNewContent() {
+        var doc = new Doc("ref.html", toCachedInputStream(HTML));
+        doc.getDomCache().get(HTML, doc.getReference(), Parser.htmlParser());
+        assertThat(doc.getDomCache().size()).isOne();
+
+        doc.setInputStream(toCachedInputStream("<p>New content</p>"));
+        assertThat(doc.getDomCache().size()).isZero();
+    }
+}
@@ -0,0 +1,111 @@
+/* Copyright 2024 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.importer.handler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+
+import com.norconex.commons.lang.event.EventManager;
+import com.norconex.commons.lang.io.CachedStreamFactory;
+import com.norconex.importer.TestUtil;
+import com.norconex.importer.doc.Doc;
+
+class DocContextTest {
+
+    @Test
+    void testTextOutputKeptInMemory() throws IOException {
+        var ctx = TestUtil.newDocContext("original");
+
+        try (var w = ctx.output().asWriter()) {
+            w.write("first");
+        }
+        ctx.flush();
+        assertThat(ctx.doc().getText(StandardCharsets.UTF_8))
+            .isEqualTo("first");
+
+        // next handler reads it without decoding
+        var text = ctx.input().asString();
+        assertThat(text).isEqualTo("first");
+        try (var w = ctx.output().asWriter()) {
+            w.write(text + " second");
+        }
+        assertThat(ctx.input().asString()).isEqualTo("first second");
+
+        // reading as stream encodes it
+        assertThat(IOUtils.toString(ctx.input().asInputStream(),
+                StandardCharsets.UTF_8)).isEqualTo("first second");
+        assertThat(ctx.doc().getText(StandardCharsets.UTF_8)).isNull();
+        assertThat(ctx.input().asString()).isEqualTo("first second");
+    }
+
+    @Test
+    void testBlankTextOutput() throws IOException {
+        var ctx = TestUtil.newDocContext("original");
+        try (var w = ctx.output().asWriter()) {
+            w.write("");
+        }
+        assertThat(ctx.input().asString()).isEmpty();
+    }
+
+    @Test
+    void testMixedTextAndBinaryOutput() throws IOException {
+        var ctx = TestUtil.newDocContext("original");
+        var out = ctx.output();
+        var w = out.asWriter();
+        w.write("text ");
+        out.asOutputStream().write("bytes".getBytes());
+        w.write(" more text");
+        w.close();
+        assertThat(ctx.doc().getText(StandardCharsets.UTF_8)).isNull();
+        assertThat(ctx.input().asString())
+            .isEqualTo("text bytes more text");
+    }
+
+    @Test
+    void testTextOutputOverMemoryLimit() throws IOException {
+        var ctx = DocContext.builder()
+                .doc(new Doc("ref", new CachedStreamFactory(100, 100)
+                        .newInputStream("original")))
+                .eventManager(new EventManager())
+                .build();
+        var body = StringUtils.repeat("0123456789", 50);
+
+        try (var w = ctx.output().asWriter()) {
+            for (var i = 0; i < 50; i++) {
+                w.write("0123456789");
+            }
+        }
+        assertThat(ctx.doc().getText(StandardCharsets.UTF_8)).isNull();
+        assertThat(ctx.input().asString()).isEqualTo(body);
+
+        // same when set on the document directly
+        ctx.doc().setText(body + body, StandardCharsets.UTF_8);
+        assertThat(ctx.doc().getText(StandardCharsets.UTF_8)).isNull();
+        assertThat(ctx.input().asString()).isEqualTo(body + body);
+    }
+
+    @Test
+    void testNoOutput() throws IOException {
+        var ctx = TestUtil.newDocContext("original");
+        ctx.output();
+        assertThat(ctx.input().asString()).isEqualTo("original");
+    }
+}